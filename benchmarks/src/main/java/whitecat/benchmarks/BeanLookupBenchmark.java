@@ -0,0 +1,116 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.xml.XmlBeanFactory;
+import org.springframework.core.io.ClassPathResource;
+
+import whitecat.core.IProxyStorage;
+import whitecat.core.IRoleBooster;
+import whitecat.core.WhiteCat;
+import whitecat.core.role.task.ITaskExecutionResult;
+
+/**
+ * Compares the bean lookups of the WhiteCat facade (a cached singleton, a
+ * prototype created by a generated factory and a prototype configured by the
+ * bean factory) with the plain lookups in a bean factory, as the facade used
+ * to do.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BeanLookupBenchmark {
+
+	private XmlBeanFactory	beanFactory;
+
+	@Setup
+	public void setUp() {
+		beanFactory = new XmlBeanFactory( new ClassPathResource(
+				"whitecat.spring-beans.xml" ) );
+	}
+
+	@Benchmark
+	public Object beanFactoryConfiguredPrototype() {
+		return beanFactory.getBean( IRoleBooster.class.getSimpleName() );
+	}
+
+	@Benchmark
+	public Object beanFactoryPrototype() {
+		return beanFactory.getBean( ITaskExecutionResult.class
+				.getSimpleName() );
+	}
+
+	@Benchmark
+	public Object beanFactorySingleton() {
+		return beanFactory.getBean( IProxyStorage.class.getSimpleName() );
+	}
+
+	@Benchmark
+	public Object facadeConfiguredPrototype() {
+		return WhiteCat.getRoleBooster();
+	}
+
+	@Benchmark
+	public Object facadeGeneratedPrototype() {
+		return WhiteCat.getTaskExecutionResult();
+	}
+
+	@Benchmark
+	public Object facadeSingleton() {
+		return WhiteCat.getProxyStorage();
+	}
+}
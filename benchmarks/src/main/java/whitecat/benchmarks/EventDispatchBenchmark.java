@@ -0,0 +1,128 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.benchmarks;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import whitecat.core.agents.AgentProxyID;
+import whitecat.core.event.Event;
+import whitecat.core.event.EventDispatcher;
+import whitecat.core.event.EventListener;
+import whitecat.core.event.EventType;
+import whitecat.core.role.descriptors.RoleDescriptor;
+import whitecat.example.DBProxy;
+
+/**
+ * Measures the cost of firing a role event as the number of listeners grows.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventDispatchBenchmark {
+
+	/**
+	 * A listener that only counts the events.
+	 */
+	static final class CountingListener implements EventListener {
+
+		int	events	= 0;
+
+		public void handleEvent(final Event event) {
+			events++;
+		}
+	}
+
+	@Param({ "1", "10", "100" })
+	private int							listeners;
+
+	private final List<EventListener>	registered	= new LinkedList<EventListener>();
+	private EventDispatcher				dispatcher;
+	private AgentProxyID				proxyID;
+	private RoleDescriptor				descriptor;
+
+	@Setup
+	public void setUp() {
+		dispatcher = EventDispatcher.getInstance();
+		proxyID = new DBProxy().getAgentProxyID();
+		descriptor = RoleDescriptor.newBuilder().withName( "benchmark" )
+				.build();
+
+		for (int i = 0; i < listeners; i++){
+			final EventListener listener = new CountingListener();
+			dispatcher.addGlobalEventListener( listener );
+			registered.add( listener );
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		for (final EventListener listener : registered)
+			dispatcher.removeGlobalEventListener( listener );
+		registered.clear();
+	}
+
+	@Benchmark
+	public int fireEvent() {
+		return dispatcher.fireEvent(
+				proxyID,
+				EventType.PUBLIC_ROLE_ADDED,
+				descriptor );
+	}
+}
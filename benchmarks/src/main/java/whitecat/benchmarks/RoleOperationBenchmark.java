@@ -0,0 +1,127 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import whitecat.core.IRoleBooster;
+import whitecat.core.InPlaceRoleBooster;
+import whitecat.core.RoleBooster;
+import whitecat.core.WCException;
+import whitecat.core.WhiteCat;
+import whitecat.core.agents.AgentProxy;
+import whitecat.example.DBAgent;
+import whitecat.example.DBProxy;
+
+/**
+ * Measures the latency of the public role operations, with the role booster
+ * that manipulates the proxy classes and with the in place one. Each
+ * invocation works on a fresh proxy prepared outside of the measurement, so
+ * the operations are sampled one at a time.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RoleOperationBenchmark {
+
+	@Param({ "manipulating", "inPlace" })
+	private String			booster;
+
+	private IRoleBooster	roleBooster;
+	private DBAgent			agent;
+	private AgentProxy		plainProxy;
+	private AgentProxy		roledProxy;
+	private CounterRole		role;
+
+	@Setup
+	public void setUp() {
+		if ("inPlace".equals( booster )){
+			final InPlaceRoleBooster inPlace = new InPlaceRoleBooster();
+			inPlace.setRoleBooster( (RoleBooster) WhiteCat.getRoleBooster() );
+			roleBooster = inPlace;
+		}else roleBooster = WhiteCat.getRoleBooster();
+
+		agent = new DBAgent();
+	}
+
+	@Setup(Level.Invocation)
+	public void prepareProxies() throws WCException {
+		plainProxy = new DBProxy( agent );
+		role = new CounterRole();
+		roledProxy = roleBooster.injectPublicRole(
+				agent,
+				new DBProxy( agent ),
+				role );
+	}
+
+	@Benchmark
+	public AgentProxy injectPublicRole() throws WCException {
+		return roleBooster
+				.injectPublicRole( agent, plainProxy, new CounterRole() );
+	}
+
+	@Benchmark
+	public AgentProxy removePublicRole() throws WCException {
+		return roleBooster.removePublicRole( agent, roledProxy, role );
+	}
+
+	@Benchmark
+	public AgentProxy removeUntilRole() throws WCException {
+		return roleBooster.removeUntilRole( agent, roledProxy, role );
+	}
+}
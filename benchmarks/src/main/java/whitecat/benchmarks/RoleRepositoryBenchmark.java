@@ -0,0 +1,131 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.benchmarks;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import whitecat.core.exceptions.WCRoleRepositoryException;
+import whitecat.core.role.IRole;
+import whitecat.core.role.RoleQuery;
+import whitecat.core.role.descriptors.RoleDescriptor;
+import whitecat.core.role.impl.RoleRepositoryImpl;
+
+/**
+ * Measures the lookups of the role repository as the number of installed
+ * roles grows: by descriptor, by role and by keyword query.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoleRepositoryBenchmark {
+
+	/**
+	 * The number of distinct keywords, each one shared by a group of roles.
+	 */
+	private static final int	KEYWORDS	= 10;
+
+	@Param({ "10", "100", "1000", "10000" })
+	private int					size;
+
+	private RoleRepositoryImpl	repository;
+	private RoleDescriptor		descriptor;
+	private IRole				role;
+	private RoleQuery			query;
+
+	@Setup
+	public void setUp() throws WCRoleRepositoryException {
+		repository = new RoleRepositoryImpl();
+
+		for (int i = 0; i < size; i++){
+			final Set<String> keywords = new HashSet<String>();
+			keywords.add( "group" + (i % KEYWORDS) );
+			keywords.add( "role" + i );
+
+			final RoleDescriptor current = RoleDescriptor.newBuilder()
+					.withName( "role" + i ).withKeywords( keywords ).build();
+			final IRole currentRole = new CounterRole();
+			repository.installRole( current, currentRole, false );
+
+			// look up the role in the middle of the repository
+			if (i == (size / 2)){
+				descriptor = current;
+				role = currentRole;
+			}
+		}
+
+		query = new RoleQuery().withAllKeywords( "group1" );
+	}
+
+	@Benchmark
+	public IRole findRole() throws WCRoleRepositoryException {
+		return repository.findRole( descriptor );
+	}
+
+	@Benchmark
+	public List<RoleDescriptor> findRoleDescriptors()
+														throws WCRoleRepositoryException {
+		return repository.findRoleDescriptors( query );
+	}
+
+	@Benchmark
+	public RoleDescriptor getRoleDescriptor() {
+		return repository.getRoleDescriptor( role );
+	}
+}
@@ -0,0 +1,132 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import whitecat.core.WCException;
+import whitecat.core.role.task.ITaskInvoker;
+import whitecat.core.role.task.MethodTaskExecutor;
+import whitecat.core.role.task.ReflectiveTaskInvoker;
+import whitecat.core.role.task.TaskInvokerGenerator;
+import whitecat.example.AnnotatedRoleExample;
+
+/**
+ * Compares the ways a task method can be invoked on a role: the reflective
+ * call with the parameter list copied at each execution (as the task executor
+ * used to do), the invoker bound once to the role, the invoker generated for
+ * the method, the whole task execution and a direct call as baseline.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TaskInvocationBenchmark {
+
+	private AnnotatedRoleExample	role;
+	private Method					method;
+	private List<Object>			parameters;
+	private ITaskInvoker			invoker;
+	private ITaskInvoker			generatedInvoker;
+	private Object[]				arguments;
+	private MethodTaskExecutor		task;
+
+	@Setup
+	public void setUp() throws Exception {
+		role = new AnnotatedRoleExample();
+		method = AnnotatedRoleExample.class.getMethod( "exampleTask1",
+				int.class );
+
+		parameters = new LinkedList<Object>();
+		parameters.add( 42 );
+
+		invoker = new ReflectiveTaskInvoker( method, role );
+		generatedInvoker = TaskInvokerGenerator.bind( method, role );
+		arguments = parameters.toArray();
+
+		task = new MethodTaskExecutor();
+		task.setMethodToExecute( method );
+		task.setExecutingRole( role );
+		task.addTaskParameter( 42 );
+	}
+
+	@Benchmark
+	public Object boundInvoker() throws WCException {
+		return invoker.invoke( arguments );
+	}
+
+	@Benchmark
+	public int directCall() {
+		return role.exampleTask1( 42 );
+	}
+
+	@Benchmark
+	public Object generatedInvoker() throws WCException {
+		return generatedInvoker.invoke( arguments );
+	}
+
+	@Benchmark
+	public Object reflectionWithListCopy() throws Exception {
+		return method.invoke( role, parameters.toArray() );
+	}
+
+	@Benchmark
+	public Object taskExecution() throws WCException {
+		return task.execute().getTaskResult( false );
+	}
+}
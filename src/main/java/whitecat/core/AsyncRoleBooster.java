@@ -0,0 +1,561 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core;
+
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import whitecat.core.agents.AgentProxy;
+import whitecat.core.agents.AgentProxyID;
+import whitecat.core.agents.WCAgent;
+import whitecat.core.role.IRole;
+
+/**
+ * The default asynchronous role booster. The operations are kept in a queue
+ * for each agent proxy id, and each queue is drained by a single manipulation
+ * thread at a time, so that the operations on the same agent are serialized
+ * while the ones on different agents run in parallel. A queue is discarded as
+ * soon as it is empty. Each operation is applied to the last proxy of the
+ * agent in the proxy storage, so that it sees the changes of the operations
+ * completed before it, or to the proxy specified by the caller if the proxy
+ * has never been stored.
+ * 
+ * Each operation is performed by a new role booster obtained from
+ * {@link WhiteCat#getRoleBooster()}, unless a role booster has been specified
+ * thru {@link #setRoleBooster(IRoleBooster)}. The manipulation threads are a
+ * cached pool of daemon threads, but a different executor can be configured
+ * thru {@link #setManipulationExecutor(ExecutorService)}.
+ * 
+ * Please note that an agent must not wait for an operation while holding the
+ * lock of its own proxy, since the manipulation thread needs the lock to
+ * complete the operation.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public class AsyncRoleBooster implements IAsyncRoleBooster {
+
+	/**
+	 * The queue of the pending operations of an agent proxy. The queue is
+	 * scheduled on the manipulation executor when the first operation is
+	 * added, and it is retired once it has been drained.
+	 * 
+	 * @author Luca Ferrari - fluca1978 (at) gmail.com
+	 * 
+	 */
+	private final class OperationQueue implements Runnable {
+
+		/**
+		 * The id of the agent proxy the operations are applied to.
+		 */
+		private final AgentProxyID						agentProxyID;
+
+		/**
+		 * The operations waiting to be performed.
+		 */
+		private final LinkedList<RoleOperationFuture>	pending		= new LinkedList<RoleOperationFuture>();
+
+		/**
+		 * True if a manipulation thread is draining the queue.
+		 */
+		private boolean									scheduled	= false;
+
+		/**
+		 * True if the queue has been drained and removed from the queue map.
+		 */
+		private boolean									retired		= false;
+
+		OperationQueue(final AgentProxyID agentProxyID) {
+			super();
+			this.agentProxyID = agentProxyID;
+		}
+
+		/**
+		 * Adds an operation to the queue, scheduling the queue if no thread is
+		 * draining it.
+		 * 
+		 * @param future
+		 *            the future of the operation to add
+		 * @return false if the queue has been retired and the operation must
+		 *         be added to a new queue
+		 */
+		synchronized boolean enqueue(final RoleOperationFuture future) {
+			if (retired)
+				return false;
+
+			pending.addLast( future );
+			if (!scheduled)
+				try{
+					manipulationExecutor.execute( this );
+					scheduled = true;
+				}catch (final RejectedExecutionException e){
+					pending.removeLast();
+					throw e;
+				}
+
+			return true;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.Runnable#run()
+		 */
+		public void run() {
+			for (;;){
+				final RoleOperationFuture next;
+				synchronized (this){
+					next = pending.poll();
+					if (next == null){
+						scheduled = false;
+						retired = true;
+						queues.remove( agentProxyID, this );
+						return;
+					}
+				}
+
+				next.run();
+			}
+		}
+	}
+
+	/**
+	 * A role operation, performed on the last proxy of the agent.
+	 * 
+	 * @author Luca Ferrari - fluca1978 (at) gmail.com
+	 * 
+	 */
+	private abstract class RoleOperation implements Callable<AgentProxy> {
+
+		/**
+		 * The agent of the operation, if any.
+		 */
+		protected final WCAgent			agent;
+
+		/**
+		 * The proxy specified by the caller.
+		 */
+		protected final AgentProxy		proxy;
+
+		/**
+		 * The role to add or remove.
+		 */
+		protected final IRole			role;
+
+		RoleOperation(final WCAgent agent, final AgentProxy proxy,
+						final IRole role) {
+			super();
+			this.agent = agent;
+			this.proxy = proxy;
+			this.role = role;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.concurrent.Callable#call()
+		 */
+		public final AgentProxy call() throws WCException {
+			// the operations completed before this one could have replaced
+			// the proxy of the agent, even if their queue has been retired
+			final AgentProxy stored = WhiteCat.getProxyStorage()
+					.getLastUpdatedAgentProxy( proxy.getAgentProxyID() );
+			return perform(
+					(roleBooster != null) ? roleBooster : WhiteCat
+							.getRoleBooster(),
+					(stored != null) ? stored : proxy );
+		}
+
+		/**
+		 * Performs the operation thru the specified role booster.
+		 * 
+		 * @param booster
+		 *            the role booster to use
+		 * @param current
+		 *            the proxy to manipulate
+		 * @return the new proxy
+		 * @throws WCException
+		 *             if the role booster fails
+		 */
+		abstract AgentProxy perform(IRoleBooster booster, AgentProxy current)
+																				throws WCException;
+	}
+
+	/**
+	 * The future of a queued operation, that keeps track of its status.
+	 * 
+	 * @author Luca Ferrari - fluca1978 (at) gmail.com
+	 * 
+	 */
+	private static final class RoleOperationFuture extends
+			FutureTask<AgentProxy> implements IRoleOperationFuture {
+
+		/**
+		 * The operation to perform.
+		 */
+		private final RoleOperation				operation;
+
+		/**
+		 * The kind of the operation.
+		 */
+		private final RoleInjectionType			roleInjectionType;
+
+		/**
+		 * The status of the operation.
+		 */
+		private volatile RoleOperationStatus	status	= RoleOperationStatus.ROLE_OPERATION_QUEUED;
+
+		RoleOperationFuture(final RoleInjectionType roleInjectionType,
+							final RoleOperation operation) {
+			super( operation );
+			this.roleInjectionType = roleInjectionType;
+			this.operation = operation;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see whitecat.core.IRoleOperationFuture#getAgentProxyID()
+		 */
+		public AgentProxyID getAgentProxyID() {
+			return operation.proxy.getAgentProxyID();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see whitecat.core.IRoleOperationFuture#getOperationStatus()
+		 */
+		public RoleOperationStatus getOperationStatus() {
+			return status;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see whitecat.core.IRoleOperationFuture#getRoleInjectionType()
+		 */
+		public RoleInjectionType getRoleInjectionType() {
+			return roleInjectionType;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.concurrent.FutureTask#run()
+		 */
+		@Override
+		public void run() {
+			if (!isDone())
+				status = RoleOperationStatus.ROLE_OPERATION_STARTED;
+
+			super.run();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.concurrent.FutureTask#set(java.lang.Object)
+		 */
+		@Override
+		protected void set(final AgentProxy newProxy) {
+			// the role boosters return null if the operation cannot be done
+			status = (newProxy != null) ? RoleOperationStatus.ROLE_OPERATION_COMPLETED_SUCCESFUL
+					: RoleOperationStatus.ROLE_OPERATION_COMPLETED_FAILURE;
+			super.set( newProxy );
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.concurrent.FutureTask#setException(java.lang.Throwable)
+		 */
+		@Override
+		protected void setException(final Throwable t) {
+			status = RoleOperationStatus.ROLE_OPERATION_COMPLETED_FAILURE;
+			super.setException( t );
+		}
+	}
+
+	/**
+	 * The executor service shared by all the asynchronous role boosters that
+	 * have not been configured with a specific one. It is lazily created.
+	 */
+	private static ExecutorService								defaultManipulationExecutor	= null;
+
+	/**
+	 * Provides the default executor service, creating it if it does not exist
+	 * yet. The executor is a cached thread pool of daemon threads, so that
+	 * pending operations do not prevent the virtual machine from exiting.
+	 * 
+	 * @return the shared default executor service
+	 */
+	private static synchronized final ExecutorService getDefaultManipulationExecutor() {
+		if (defaultManipulationExecutor == null)
+			defaultManipulationExecutor = Executors
+					.newCachedThreadPool( new DaemonThreadFactory(
+							"whitecat-role-operation-" ) );
+
+		return defaultManipulationExecutor;
+	}
+
+	/**
+	 * The executor service that runs the operation queues.
+	 */
+	private volatile ExecutorService								manipulationExecutor		= getDefaultManipulationExecutor();
+
+	/**
+	 * The queues of the agent proxies with pending operations.
+	 */
+	private final ConcurrentHashMap<AgentProxyID, OperationQueue>	queues						= new ConcurrentHashMap<AgentProxyID, OperationQueue>();
+
+	/**
+	 * The role booster that performs the operations, or null if each operation
+	 * uses a new one.
+	 */
+	private volatile IRoleBooster									roleBooster					= null;
+
+	/**
+	 * Provides the executor service that runs the operations.
+	 * 
+	 * @return the manipulation executor
+	 */
+	public final ExecutorService getManipulationExecutor() {
+		return manipulationExecutor;
+	}
+
+	/**
+	 * Provides the number of agent proxies with operations not completed yet.
+	 * 
+	 * @return the number of agent proxies being manipulated
+	 */
+	public final int getPendingAgentProxies() {
+		return queues.size();
+	}
+
+	/**
+	 * Provides the role booster that performs the operations.
+	 * 
+	 * @return the role booster, or null if each operation uses a new one
+	 */
+	public final IRoleBooster getRoleBooster() {
+		return roleBooster;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.IAsyncRoleBooster#injectPublicRole(whitecat.core.agents.
+	 * WCAgent, whitecat.core.agents.AgentProxy, whitecat.core.role.IRole)
+	 */
+	public IRoleOperationFuture injectPublicRole(final WCAgent agent,
+													final AgentProxy proxy,
+													final IRole role) {
+		return submit(
+				RoleInjectionType.ROLE_PUBLIC_INTERFACE_ADDITION_TO_PROXY,
+				new RoleOperation( agent, proxy, role ) {
+
+					@Override
+					AgentProxy perform(	final IRoleBooster booster,
+										final AgentProxy current)
+																	throws WCException {
+						return booster.injectPublicRole( agent, current, role );
+					}
+				} );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.IAsyncRoleBooster#injectVisibleRole(whitecat.core.agents
+	 * .WCAgent, whitecat.core.agents.AgentProxy, whitecat.core.role.IRole)
+	 */
+	public IRoleOperationFuture injectVisibleRole(final WCAgent agent,
+													final AgentProxy proxy,
+													final IRole role) {
+		return submit(
+				RoleInjectionType.ROLE_ANNOTATION_ADDITION_TO_PROXY,
+				new RoleOperation( agent, proxy, role ) {
+
+					@Override
+					AgentProxy perform(	final IRoleBooster booster,
+										final AgentProxy current) {
+						return booster.injectVisibleRole( agent, current, role );
+					}
+				} );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.IAsyncRoleBooster#removePublicRole(whitecat.core.agents.
+	 * WCAgent, whitecat.core.agents.AgentProxy, whitecat.core.role.IRole)
+	 */
+	public IRoleOperationFuture removePublicRole(final WCAgent agent,
+													final AgentProxy proxy,
+													final IRole role) {
+		return submit(
+				RoleInjectionType.ROLE_PUBLIC_INTERFACE_REMOVAL_FROM_PROXY,
+				new RoleOperation( agent, proxy, role ) {
+
+					@Override
+					AgentProxy perform(	final IRoleBooster booster,
+										final AgentProxy current)
+																	throws WCException {
+						return booster.removePublicRole( agent, current, role );
+					}
+				} );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.IAsyncRoleBooster#removeUntilRole(whitecat.core.agents.
+	 * WCAgent, whitecat.core.agents.AgentProxy, whitecat.core.role.IRole)
+	 */
+	public IRoleOperationFuture removeUntilRole(final WCAgent agent,
+												final AgentProxy proxy,
+												final IRole role) {
+		return submit(
+				RoleInjectionType.ROLE_PUBLIC_INTERFACE_REMOVAL_FROM_PROXY,
+				new RoleOperation( agent, proxy, role ) {
+
+					@Override
+					AgentProxy perform(	final IRoleBooster booster,
+										final AgentProxy current)
+																	throws WCException {
+						return booster.removeUntilRole( agent, current, role );
+					}
+				} );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.IAsyncRoleBooster#removeVisibleRole(whitecat.core.agents
+	 * .AgentProxy, whitecat.core.role.IRole)
+	 */
+	public IRoleOperationFuture removeVisibleRole(final AgentProxy proxy,
+													final IRole role) {
+		return submit(
+				RoleInjectionType.ROLE_ANNOTATION_REMOVAL_FROM_PROXY,
+				new RoleOperation( null, proxy, role ) {
+
+					@Override
+					AgentProxy perform(	final IRoleBooster booster,
+										final AgentProxy current) {
+						return booster.removeVisibleRole( current, role );
+					}
+				} );
+	}
+
+	/**
+	 * Sets the executor service that runs the operations. The operations
+	 * already queued are not moved to the new executor.
+	 * 
+	 * @param manipulationExecutor
+	 *            the executor service, or null to use the default one
+	 */
+	public final void setManipulationExecutor(final ExecutorService manipulationExecutor) {
+		if (manipulationExecutor == null)
+			this.manipulationExecutor = getDefaultManipulationExecutor();
+		else this.manipulationExecutor = manipulationExecutor;
+	}
+
+	/**
+	 * Sets the role booster that performs the operations. Since a role booster
+	 * performs one operation at a time, the operations on different agents are
+	 * serialized on a specified role booster.
+	 * 
+	 * @param roleBooster
+	 *            the role booster, or null to use a new one for each operation
+	 */
+	public final void setRoleBooster(final IRoleBooster roleBooster) {
+		this.roleBooster = roleBooster;
+	}
+
+	/**
+	 * Queues an operation after the pending ones of the same agent proxy.
+	 * 
+	 * @param roleInjectionType
+	 *            the kind of the operation
+	 * @param operation
+	 *            the operation to queue
+	 * @return the future of the operation
+	 */
+	private IRoleOperationFuture submit(final RoleInjectionType roleInjectionType,
+										final RoleOperation operation) {
+		// check arguments
+		if ((operation.proxy == null)
+				|| (operation.proxy.getAgentProxyID() == null))
+			throw new IllegalArgumentException(
+					"Cannot queue a role operation without an agent proxy id" );
+
+		final AgentProxyID id = operation.proxy.getAgentProxyID();
+		final RoleOperationFuture future = new RoleOperationFuture(
+				roleInjectionType, operation );
+
+		for (;;){
+			OperationQueue queue = queues.get( id );
+			if (queue == null){
+				final OperationQueue created = new OperationQueue( id );
+				queue = queues.putIfAbsent( id, created );
+				if (queue == null)
+					queue = created;
+			}
+
+			if (queue.enqueue( future ))
+				return future;
+
+			// the queue has been drained meanwhile, use a new one
+			queues.remove( id, queue );
+		}
+	}
+
+}
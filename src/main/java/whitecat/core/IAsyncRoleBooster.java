@@ -0,0 +1,133 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core;
+
+import whitecat.core.agents.AgentProxy;
+import whitecat.core.agents.WCAgent;
+import whitecat.core.role.IRole;
+
+/**
+ * A role booster that does not block the calling thread: each role operation
+ * is queued and performed by a manipulation thread, and the caller receives a
+ * future of the proxy the agent must use once the operation is completed.
+ * 
+ * The operations on the same agent proxy (i.e., the same
+ * {@link whitecat.core.agents.AgentProxyID}) are performed in the order they
+ * have been queued, each one on the proxy produced by the previous one, while
+ * the operations on different agents can proceed in parallel. A failure of the
+ * role booster is reported by the future as an execution exception.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public interface IAsyncRoleBooster {
+
+	/**
+	 * Queues the injection of a public role.
+	 * 
+	 * @param agent
+	 *            the agent that will play the role
+	 * @param proxy
+	 *            the proxy of the agent
+	 * @param role
+	 *            the role to inject
+	 * @return the future of the new proxy
+	 * @see IRoleBooster#injectPublicRole(WCAgent, AgentProxy, IRole)
+	 */
+	public IRoleOperationFuture injectPublicRole(WCAgent agent,
+													AgentProxy proxy, IRole role);
+
+	/**
+	 * Queues the injection of a visible role.
+	 * 
+	 * @param agent
+	 *            the agent that will play the role
+	 * @param proxy
+	 *            the proxy of the agent
+	 * @param role
+	 *            the role to inject
+	 * @return the future of the new proxy
+	 * @see IRoleBooster#injectVisibleRole(WCAgent, AgentProxy, IRole)
+	 */
+	public IRoleOperationFuture injectVisibleRole(WCAgent agent,
+													AgentProxy proxy, IRole role);
+
+	/**
+	 * Queues the removal of a public role.
+	 * 
+	 * @param agent
+	 *            the agent that plays the role
+	 * @param proxy
+	 *            the proxy of the agent
+	 * @param role
+	 *            the role to remove
+	 * @return the future of the new proxy
+	 * @see IRoleBooster#removePublicRole(WCAgent, AgentProxy, IRole)
+	 */
+	public IRoleOperationFuture removePublicRole(WCAgent agent,
+													AgentProxy proxy, IRole role);
+
+	/**
+	 * Queues the removal of the public roles up to the specified one.
+	 * 
+	 * @param agent
+	 *            the agent that plays the role
+	 * @param proxy
+	 *            the proxy of the agent
+	 * @param role
+	 *            the last role to remove
+	 * @return the future of the new proxy
+	 * @see IRoleBooster#removeUntilRole(WCAgent, AgentProxy, IRole)
+	 */
+	public IRoleOperationFuture removeUntilRole(WCAgent agent,
+												AgentProxy proxy, IRole role);
+
+	/**
+	 * Queues the removal of a visible role.
+	 * 
+	 * @param proxy
+	 *            the proxy of the agent
+	 * @param role
+	 *            the role to remove
+	 * @return the future of the new proxy
+	 * @see IRoleBooster#removeVisibleRole(AgentProxy, IRole)
+	 */
+	public IRoleOperationFuture removeVisibleRole(AgentProxy proxy, IRole role);
+
+}
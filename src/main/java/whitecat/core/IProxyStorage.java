@@ -16,10 +16,12 @@ public interface IProxyStorage {
 	public void deleteAgentProxy(AgentProxy proxy);
 
 	/**
-	 * Provides the last updated proxy in the storage for the specified id.
+	 * Provides the last updated proxy in the storage for the specified id. If
+	 * the proxy is locked, the calling thread waits until it is unlocked.
 	 * 
 	 * @param id
-	 * @return
+	 * @return the last proxy stored with the id, or null if no proxy has been
+	 *         stored with such id
 	 */
 	public AgentProxy getLastUpdatedAgentProxy(AgentProxyID id);
 
@@ -0,0 +1,137 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core;
+
+import whitecat.core.agents.IMethodForwarderGenerator;
+import whitecat.core.role.IRolePool;
+import whitecat.core.role.IRoleRepository;
+import whitecat.core.role.descriptors.IRoleDescriptorBuilder;
+import whitecat.core.role.task.ITaskExecutionResult;
+import whitecat.core.role.task.scheduling.ITaskScheduler;
+
+/**
+ * The configuration of the system, that provides the components used by the
+ * {@link WhiteCat} facade. The singleton components (the asynchronous role
+ * booster, the proxy storage, the role pool and the role repository) must be
+ * the same instance at each call, while the other components must be new
+ * instances.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public interface IWhiteCatConfiguration {
+
+	/**
+	 * Provides the unique asynchronous role booster.
+	 * 
+	 * @return the asynchronous role booster
+	 */
+	public IAsyncRoleBooster getAsyncRoleBooster();
+
+	/**
+	 * Provides a new method forwarder generator.
+	 * 
+	 * @return a new method generator instance
+	 */
+	public IMethodForwarderGenerator getMethodForwarderGenerator();
+
+	/**
+	 * Provides a new role operation.
+	 * 
+	 * @return a new role operation
+	 */
+	public IRoleOperation getNewRoleOperation();
+
+	/**
+	 * Provides a new proxy handler.
+	 * 
+	 * @return a new proxy handler instance
+	 */
+	public IProxyHandler getProxyHandler();
+
+	/**
+	 * Provides the unique proxy storage.
+	 * 
+	 * @return the proxy storage
+	 */
+	public IProxyStorage getProxyStorage();
+
+	/**
+	 * Provides a new role booster, initialized with a new role operation.
+	 * 
+	 * @return a new role booster
+	 */
+	public IRoleBooster getRoleBooster();
+
+	/**
+	 * Provides a new role descriptor builder.
+	 * 
+	 * @return a new role descriptor builder
+	 */
+	public IRoleDescriptorBuilder getRoleDescriptorBuilder();
+
+	/**
+	 * Provides the unique role pool.
+	 * 
+	 * @return the role pool
+	 */
+	public IRolePool getRolePool();
+
+	/**
+	 * Provides the unique role repository.
+	 * 
+	 * @return the role repository
+	 */
+	public IRoleRepository getRoleRepository();
+
+	/**
+	 * Provides a new task execution result.
+	 * 
+	 * @return a new task execution result
+	 */
+	public ITaskExecutionResult getTaskExecutionResult();
+
+	/**
+	 * Provides a new task scheduler.
+	 * 
+	 * @return a new task scheduler
+	 */
+	public ITaskScheduler getTaskScheduler();
+
+}
@@ -0,0 +1,334 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core;
+
+import java.lang.annotation.Annotation;
+
+import org.apache.log4j.Logger;
+
+import whitecat.core.agents.AgentProxy;
+import whitecat.core.agents.LocalAgentProxy;
+import whitecat.core.agents.RoleDispatchTable;
+import whitecat.core.agents.WCAgent;
+import whitecat.core.metrics.RoleEngineMetrics;
+import whitecat.core.role.IRole;
+import whitecat.core.role.LazyRole;
+
+/**
+ * A role booster that injects the public roles in place: the proxy of the
+ * agent is not manipulated nor replaced by a new instance, but the role is
+ * bound to its public interface in the dispatch table of the proxy. The agent
+ * uses the role thru the views of its proxy (see
+ * {@link LocalAgentProxy#getRoleView(Class)}), that stay valid across all the
+ * role changes, so neither the proxy state is copied nor the references held
+ * by the callers must be refreshed.
+ * 
+ * The visible roles, as well as the proxies that are not local proxies, are
+ * handled by a class manipulating role booster.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public class InPlaceRoleBooster implements IRoleBooster {
+
+	/**
+	 * The logger for this role booster.
+	 */
+	private static Logger	logger		= org.apache.log4j.Logger
+												.getLogger( InPlaceRoleBooster.class );
+
+	/**
+	 * The role booster that manipulates the proxy classes, used when a role
+	 * cannot be injected in place.
+	 */
+	private RoleBooster		roleBooster	= null;
+
+	/**
+	 * Builds this role booster with a default class manipulating role booster,
+	 * that can be replaced thru {@link #setRoleBooster(RoleBooster)} (e.g.,
+	 * from the spring framework).
+	 */
+	@SuppressWarnings("deprecation")
+	public InPlaceRoleBooster() {
+		super();
+		roleBooster = new RoleBooster();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.IRoleBooster#getCurrentRoleOperation()
+	 */
+	public IRoleOperation getCurrentRoleOperation() {
+		return roleBooster.getCurrentRoleOperation();
+	}
+
+	/**
+	 * Provides the public role interface implemented by the role.
+	 * 
+	 * @param role
+	 *            the role implementation
+	 * @return the public role interface, or null if the role has no public
+	 *         interface
+	 */
+	private Class getPublicRoleInterface(final IRole role) {
+		final String publicRoleInterfaceName = roleBooster
+				.getPublicRoleInterfaceName( role );
+		if (publicRoleInterfaceName == null)
+			return null;
+
+		for (final Class publicRoleInterface : LazyRole.roleClassOf( role )
+				.getInterfaces())
+			if (publicRoleInterface.getName().equals( publicRoleInterfaceName ))
+				return publicRoleInterface;
+
+		return null;
+	}
+
+	/**
+	 * Provides the role booster used for the class manipulations.
+	 * 
+	 * @return the role booster
+	 */
+	public final RoleBooster getRoleBooster() {
+		return roleBooster;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.IRoleBooster#hasPublicRoleAnnotation(whitecat.core.agents
+	 * .AgentProxy)
+	 */
+	public boolean hasPublicRoleAnnotation(final AgentProxy proxy) {
+		return roleBooster.hasPublicRoleAnnotation( proxy );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.IRoleBooster#hasPublicRoleInterface(whitecat.core.agents
+	 * .AgentProxy)
+	 */
+	public boolean hasPublicRoleInterface(final AgentProxy proxy) {
+		if ((proxy instanceof LocalAgentProxy)
+				&& (((LocalAgentProxy) proxy).getDispatchTable().size() > 0))
+			return true;
+		else return roleBooster.hasPublicRoleInterface( proxy );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.IRoleBooster#hasRoleAnnotation(whitecat.core.agents.AgentProxy
+	 * )
+	 */
+	public boolean hasRoleAnnotation(final AgentProxy proxy) {
+		return roleBooster.hasRoleAnnotation( proxy );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.IRoleBooster#injectPublicRole(whitecat.core.agents.WCAgent,
+	 * whitecat.core.agents.AgentProxy, whitecat.core.role.IRole)
+	 */
+	public AgentProxy injectPublicRole(final WCAgent agent,
+										final AgentProxy proxy, final IRole role)
+																					throws WCException {
+		// don't proceed if the role has not been specified
+		if (role == null)
+			return proxy;
+
+		if (!(proxy instanceof LocalAgentProxy))
+			return roleBooster.injectPublicRole( agent, proxy, role );
+
+		final Class publicRoleInterface = getPublicRoleInterface( role );
+		if (publicRoleInterface == null){
+			logger.error( "The role " + LazyRole.roleClassOf( role ).getName()
+					+ " does not implement its public role interface" );
+			RoleEngineMetrics.getInstance().operationCompleted(
+					RoleInjectionType.ROLE_PUBLIC_INTERFACE_ADDITION_TO_PROXY,
+					false );
+			return proxy;
+		}
+
+		// the same proxy instance plays the new role
+		((LocalAgentProxy) proxy).bindDispatchedRole( publicRoleInterface, role );
+		RoleEngineMetrics.getInstance().operationCompleted(
+				RoleInjectionType.ROLE_PUBLIC_INTERFACE_ADDITION_TO_PROXY,
+				true );
+		return proxy;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.IRoleBooster#injectVisibleRole(whitecat.core.agents.WCAgent
+	 * , whitecat.core.agents.AgentProxy, whitecat.core.role.IRole)
+	 */
+	public AgentProxy injectVisibleRole(final WCAgent agent,
+										final AgentProxy proxy, final IRole role) {
+		return roleBooster.injectVisibleRole( agent, proxy, role );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.IRoleBooster#isRoleAnnotation(java.lang.annotation.Annotation
+	 * )
+	 */
+	public boolean isRoleAnnotation(final Annotation annotation) {
+		return roleBooster.isRoleAnnotation( annotation );
+	}
+
+	/**
+	 * Releases a role unbound from the proxy to the role pool, so that a
+	 * pooled instance can be leased to another agent. A lazy role releases the
+	 * instance it has created, if any.
+	 * 
+	 * @param role
+	 *            the unbound role
+	 */
+	private static final void releaseRole(final IRole role) {
+		if (role instanceof LazyRole)
+			WhiteCat.getRolePool().releaseRole(
+					((LazyRole) role).getMaterializedRole() );
+		else WhiteCat.getRolePool().releaseRole( role );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.IRoleBooster#removePublicRole(whitecat.core.agents.WCAgent,
+	 * whitecat.core.agents.AgentProxy, whitecat.core.role.IRole)
+	 */
+	public AgentProxy removePublicRole(final WCAgent agent,
+										final AgentProxy proxy, final IRole role)
+																					throws WCException {
+		// check params
+		if ((agent == null) || (role == null))
+			return null;
+
+		if (!((proxy instanceof LocalAgentProxy) && (((LocalAgentProxy) proxy)
+				.unbindDispatchedRole( role, false ) != null)))
+			return roleBooster.removePublicRole( agent, proxy, role );
+
+		RoleEngineMetrics.getInstance().operationCompleted(
+				RoleInjectionType.ROLE_PUBLIC_INTERFACE_REMOVAL_FROM_PROXY,
+				true );
+
+		// the role is not played anymore, a pooled instance can be leased to
+		// another agent
+		releaseRole( role );
+
+		return proxy;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.IRoleBooster#removeUntilRole(whitecat.core.agents.WCAgent,
+	 * whitecat.core.agents.AgentProxy, whitecat.core.role.IRole)
+	 */
+	public AgentProxy removeUntilRole(final WCAgent agent,
+										final AgentProxy proxy, final IRole role)
+																					throws WCException {
+		// check params
+		if ((agent == null) || (role == null))
+			return null;
+
+		final RoleDispatchTable replaced = (proxy instanceof LocalAgentProxy ? ((LocalAgentProxy) proxy)
+				.unbindDispatchedRole( role, true )
+				: null);
+		if (replaced == null)
+			return roleBooster.removeUntilRole( agent, proxy, role );
+
+		RoleEngineMetrics.getInstance().operationCompleted(
+				RoleInjectionType.ROLE_PUBLIC_INTERFACE_REMOVAL_FROM_PROXY,
+				true );
+
+		// the role and all the roles injected after it are not played anymore
+		for (final IRole dropped : replaced.from( role ))
+			releaseRole( dropped );
+
+		return proxy;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.IRoleBooster#removeVisibleRole(whitecat.core.agents.AgentProxy
+	 * , whitecat.core.role.IRole)
+	 */
+	public AgentProxy removeVisibleRole(final AgentProxy proxy, final IRole role) {
+		return roleBooster.removeVisibleRole( proxy, role );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.IRoleBooster#setCurrentRoleOperation(whitecat.core.IRoleOperation
+	 * )
+	 */
+	public void setCurrentRoleOperation(final IRoleOperation operation) {
+		roleBooster.setCurrentRoleOperation( operation );
+	}
+
+	/**
+	 * Sets the role booster used for the class manipulations.
+	 * 
+	 * @param roleBooster
+	 *            the role booster
+	 */
+	public final void setRoleBooster(final RoleBooster roleBooster) {
+		this.roleBooster = roleBooster;
+	}
+
+}
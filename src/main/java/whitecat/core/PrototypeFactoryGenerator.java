@@ -0,0 +1,172 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core;
+
+import java.lang.reflect.Modifier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Generates an {@link IPrototypeFactory} for a bean class thru Javassist. The
+ * generated factory creates each instance with a plain constructor call, and
+ * can be used only for beans that do not require any configuration from the
+ * bean factory (i.e., beans without properties, constructor arguments or
+ * lifecycle methods).
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public final class PrototypeFactoryGenerator {
+
+	/**
+	 * The class loader the factories are defined in, child of the loader of the
+	 * bean class.
+	 */
+	private static final class FactoryClassLoader extends ClassLoader {
+
+		FactoryClassLoader(final ClassLoader parent) {
+			super( parent );
+		}
+
+		Class define(final String className, final byte[] bytecode) {
+			return defineClass( className, bytecode, 0, bytecode.length );
+		}
+	}
+
+	/**
+	 * The package of the generated factories.
+	 */
+	private static final String			PACKAGE			= "whitecat.core.generated.";
+
+	private static Logger				logger			= org.apache.log4j.Logger
+																.getLogger( PrototypeFactoryGenerator.class );
+
+	/**
+	 * A counter used to build unique class names.
+	 */
+	private static final AtomicInteger	classCounter	= new AtomicInteger();
+
+	/**
+	 * Generates the factory of the specified bean class.
+	 * 
+	 * @param beanClass
+	 *            the class of the bean
+	 * @return the factory, or null if the class cannot be instantiated by a
+	 *         generated factory (e.g., it is not public or has no public
+	 *         default constructor)
+	 */
+	public static final IPrototypeFactory generate(final Class beanClass) {
+		if (!isSupported( beanClass ))
+			return null;
+
+		try{
+			ClassLoader parent = beanClass.getClassLoader();
+			if (parent == null)
+				parent = PrototypeFactoryGenerator.class.getClassLoader();
+
+			final ClassPool pool = new ClassPool( true );
+			pool.appendClassPath( new LoaderClassPath( parent ) );
+			pool.appendClassPath( new LoaderClassPath(
+					PrototypeFactoryGenerator.class.getClassLoader() ) );
+
+			final String className = PACKAGE
+					+ beanClass.getName().replace( '.', '_' ) + "$Factory$"
+					+ classCounter.incrementAndGet();
+			final CtClass factoryClass = pool.makeClass( className );
+			factoryClass.addInterface( pool.get( IPrototypeFactory.class
+					.getName() ) );
+			factoryClass.addConstructor( CtNewConstructor
+					.defaultConstructor( factoryClass ) );
+			factoryClass.addMethod( CtNewMethod.make(
+					"public Object newInstance() { return new "
+							+ beanClass.getName() + "(); }",
+					factoryClass ) );
+
+			final byte[] bytecode = factoryClass.toBytecode();
+			factoryClass.detach();
+
+			final Class generated = new FactoryClassLoader( parent ).define(
+					className,
+					bytecode );
+			return (IPrototypeFactory) generated.newInstance();
+		}catch (final Exception e){
+			logger.warn( "Cannot generate the factory for " + beanClass, e );
+		}catch (final LinkageError e){
+			logger.warn( "Cannot define the factory for " + beanClass, e );
+		}
+
+		return null;
+	}
+
+	/**
+	 * Checks if a generated factory can instantiate a class: the class must be
+	 * a public top level concrete class with a public default constructor.
+	 * 
+	 * @param beanClass
+	 *            the class of the bean
+	 * @return true if a factory can be generated
+	 */
+	private static final boolean isSupported(final Class beanClass) {
+		if ((beanClass == null) || beanClass.isInterface()
+				|| (beanClass.getDeclaringClass() != null))
+			return false;
+
+		final int modifiers = beanClass.getModifiers();
+		if (!Modifier.isPublic( modifiers ) || Modifier.isAbstract( modifiers ))
+			return false;
+
+		try{
+			return Modifier.isPublic( beanClass.getConstructor( new Class[0] )
+					.getModifiers() );
+		}catch (final NoSuchMethodException e){
+			return false;
+		}
+	}
+
+	private PrototypeFactoryGenerator() {
+		super();
+	}
+}
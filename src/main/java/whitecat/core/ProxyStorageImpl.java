@@ -133,17 +133,37 @@ public class ProxyStorageImpl implements IProxyStorage {
 	 * whitecat.core.IProxyStorage#getLastUpdatedAgentProxy(whitecat.core.agents
 	 * .AgentProxyID)
 	 */
-	public synchronized AgentProxy getLastUpdatedAgentProxy(final AgentProxyID id) {
+	public AgentProxy getLastUpdatedAgentProxy(final AgentProxyID id) {
 		// check arguments
-		if ((id == null) || proxyMap.containsKey( id ))
+		if (id == null)
 			throw new IllegalArgumentException(
-					"Cannot get a null-id agent proxy, or the agent proxy is not in the map!" );
+					"Cannot get a null-id agent proxy!" );
 
-		// this is a blocking call on the status object!
-		return proxyMap.get( id ).getProxy();
+		final AgentProxyStatus status;
+		synchronized (this){
+			status = proxyMap.get( id );
+		}
+
+		if (status == null)
+			return null;
+
+		// this is a blocking call on the status object, that must not hold
+		// the storage lock since the unlock needs it
+		return status.getProxy();
 
 	}
 
+	/**
+	 * Provides the number of threads currently waiting for a locked agent
+	 * proxy. This method does not lock the storage, since the waiters are
+	 * counted by the proxy statuses themselves.
+	 * 
+	 * @return the number of waiting threads
+	 */
+	public final int getLockWaiters() {
+		return AgentProxyStatus.getAllWaiters();
+	}
+
 	/**
 	 * A method to increment the manipulation counter for a specified proxy.
 	 * 
@@ -58,17 +58,19 @@ import javassist.bytecode.ClassFile;
 import javassist.bytecode.ConstPool;
 
 import org.apache.log4j.Logger;
-import org.apache.log4j.xml.DOMConfigurator;
 
 import whitecat.core.agents.AgentProxy;
-import whitecat.core.agents.IClonableAgentProxy;
 import whitecat.core.agents.IMethodForwarderGenerator;
 import whitecat.core.agents.WCAgent;
 import whitecat.core.annotations.PUBLICROLE;
 import whitecat.core.annotations.ROLE;
 import whitecat.core.exceptions.WCForwarderMethodException;
+import whitecat.core.exceptions.WCProxyException;
+import whitecat.core.metrics.RoleEngineMetrics;
+import whitecat.core.metrics.RoleOperationTracer;
 import whitecat.core.role.IManipulatedClass;
 import whitecat.core.role.IRole;
+import whitecat.core.role.LazyRole;
 
 /**
  * This is the central role engine of the White Cat approach. Each role
@@ -92,11 +94,6 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 	private static Logger				logger						= org.apache.log4j.Logger
 																			.getLogger( RoleBooster.class );
 
-	// configure the logger
-	static{
-		DOMConfigurator.configure( "whitecat.log4j.xml" );
-	}
-
 	/**
 	 * The current role operation the role booster is working on or will work as
 	 * next.
@@ -232,27 +229,15 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 
 			final Class newProxyClass = findClass( currentRoleOperation
 					.getAgentProxy().getClass().getName() );
-			final AgentProxy newProxy = (AgentProxy) newProxyClass
-					.newInstance();
-			// copy the proxy status
-			newProxy.initializeByCopy( proxy );
-
-			// if the old proxy instance is clonable, clone it now!
-			// Please note that if the original agent proxy is clonable, also
-			// the new one must be, but we check
-			// for it in the case something in the manipulation process has
-			// going bad!
-			if ((proxy instanceof IClonableAgentProxy)
-					&& (newProxy instanceof IClonableAgentProxy))
-				((IClonableAgentProxy) newProxy)
-						.cloneAgentProxyState( (IClonableAgentProxy) proxy );
-
-			// store the role implementation as key for the proxy
-			mGenerator.bindReferences( newProxy, role );
-
-			// update the proxy
+			final AgentProxy newProxy = instantiate( newProxyClass );
+			// update the proxy: the handler copies (or moves) the proxy
+			// status, including the extended state of clonable proxies
 			proxyHandler.setDestinationProxy( newProxy );
-			proxyHandler.updateProxy();
+			updateProxy( proxyHandler );
+
+			// store the role implementation as key for the proxy, once the
+			// role map of the old proxy is in place
+			mGenerator.bindReferences( newProxy, role );
 
 			// all done
 			currentRoleOperation
@@ -300,13 +285,15 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 		final CtClass newProxyClass = pool.makeClass( subProxyClassName );
 		// set the superclass of the class to the base proxy
 		newProxyClass.setSuperclass( baseProxyClass );
-		logger.debug( "Creating the new empty class: " + subProxyClassName
-				+ " (superclass " + baseProxyClass.getName() + ")" );
+		if (logger.isDebugEnabled())
+			logger.debug( "annotation subclass created: class="
+					+ subProxyClassName + " superclass="
+					+ baseProxyClass.getName() + " annotation="
+					+ currentRoleOperation.getRoleAnnotationClass() );
 
 		// place a default constructor in the new class (important, or
 		// reflection will not be able to
 		// create an instance of this class)
-		logger.debug( "Creating a new empty constructor" );
 		final CtConstructor constructor = new CtConstructor( null,
 				newProxyClass );
 		constructor.setBody( ";" );
@@ -325,8 +312,6 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 		}
 
 		// get the class file and add the annotation
-		logger.debug( "Creating the class file for the created class and adding the annotation "
-				+ currentRoleOperation.getRoleAnnotationClass() );
 		final ClassFile classFile = newProxyClass.getClassFile();
 		final ConstPool constantPool = classFile.getConstPool();
 		final AnnotationsAttribute attr = new AnnotationsAttribute(
@@ -339,7 +324,6 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 		classFile.setVersionToJava5();
 
 		// transform the classfile into bytecode
-		logger.debug( "Converting the class file output stream to a bytecode" );
 		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
 		final DataOutputStream os = new DataOutputStream( bos );
 		classFile.write( os );
@@ -391,21 +375,15 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 																								WCForwarderMethodException {
 
 		// debug info
-		if (logger.isDebugEnabled()){
-			logger.debug( "addRoleToProxyThruSubClass: class pool is " + pool );
-			logger.debug( "The base proxy class is: " + baseProxyClass );
-			logger.debug( "The public role interface is "
-					+ publicRoleInterfaceName );
-			logger.debug( "The generated proxy subclass will have a name: "
-					+ subProxyName );
-			logger.debug( "The role instance access key is "
+		if (logger.isDebugEnabled())
+			logger.debug( "role subclass creation: class=" + subProxyName
+					+ " superclass=" + baseProxyClass.getName()
+					+ " interface=" + publicRoleInterfaceName + " key="
 					+ roleInstanceAccessKey );
-		}
 
 		// as first step I need to get the role interface class object, so that
 		// it is possible to analyze the role public interface as it is
 		final CtClass roleInterface = pool.get( publicRoleInterfaceName );
-		logger.info( "Loaded the public role interface " + roleInterface );
 
 		// create a new empty class that will be the subclass of the current
 		// proxy, and
@@ -415,7 +393,6 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 		subProxy.setSuperclass( baseProxyClass );
 		// add the public interface to the new created class
 		subProxy.addInterface( roleInterface );
-		logger.info( "Created a new empty class subclass of the current proxy" );
 
 		// So far, the new created proxy subclass is implementing the role
 		// public interfcae,
@@ -435,9 +412,6 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 		// iterate over each method of the interface
 		for (final CtMethod interfaceMethod : roleInterface
 				.getDeclaredMethods()){
-			logger.debug( "Analyzing the interface " + roleInterface.getName() );
-			logger.debug( "Creating the method forwared for the method "
-					+ interfaceMethod );
 			/*
 			 * // construct the Java source code for the new method StringBuffer
 			 * methodCode = new StringBuffer(200);
@@ -476,18 +450,15 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 					.getMethodForwarderCode( interfaceMethod );
 
 			// debug info
-			if (logger.isDebugEnabled()){
-				logger.debug( "Creating a forwarder method for the role method "
-						+ interfaceMethod );
-				logger.debug( "The forwarder method code is \n\t" + methodCode );
-			}
+			if (logger.isDebugEnabled())
+				logger.debug( "forwarder method created: method="
+						+ interfaceMethod.getLongName() + " code=" + methodCode );
 
 			// compile the dynamic method and add it to the subProxy class
 			final CtMethod definedMethod = CtMethod.make( methodCode, subProxy );
 			subProxy.addMethod( definedMethod );
 		}
 
-		logger.info( "Definition of the subproxy class completed" );
 		return subProxy;
 	}
 
@@ -545,6 +516,9 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 
 	@Override
 	protected Class findClass(final String name) throws ClassNotFoundException {
+		// the generation latency includes the manipulation of the class
+		final long start = System.nanoTime();
+
 		try{
 			// get the class pool for working with classes and modifying them on
 			// the fly
@@ -558,19 +532,16 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 
 			if (isManipulationActive()){
 				// it is required to weave the role to the proxy.
-				logger.debug( "Loading a class manipulating it - role injection type="
-						+ currentRoleOperation.getRoleInjectionType() );
-
-				// construct the pool for loading and manipulating the classes
-				logger.info( "Obtaining the proxy class from the Javassist pool...."
-						+ currentRoleOperation.getAgentProxy().getClass()
-								.getName() );
-				logger.info( "My pool is " + pool.getClass() + " hash "
-						+ pool.hashCode() );
+				if (logger.isDebugEnabled())
+					logger.debug( "manipulation started: type="
+							+ currentRoleOperation.getRoleInjectionType()
+							+ " proxy="
+							+ currentRoleOperation.getAgentProxy().getClass()
+									.getName() );
+
+				// get the proxy class from the pool for manipulating it
 				baseProxyClass = pool.get( currentRoleOperation.getAgentProxy()
 						.getClass().getName() );
-				logger.info( "Base proxy class obtained from the pool "
-						+ baseProxyClass.hashCode() );
 				subProxyClassName = baseProxyClass.getName();
 
 				if (currentRoleOperation.getRoleInjectionType() == RoleInjectionType.ROLE_PUBLIC_INTERFACE_ADDITION_TO_PROXY){
@@ -608,7 +579,8 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 																		// the
 																		// role
 																		// instance
-							currentRoleOperation.getRole().getClass().getName(), // the
+							LazyRole.roleClassOf( currentRoleOperation.getRole() )
+									.getName(), // the
 																					// name
 																					// of
 																					// the
@@ -700,7 +672,6 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 					final List<Annotation> roleAnnotationsToKeep = new LinkedList<Annotation>();
 
 					do{
-						logger.debug( "Checking the class " + currentClass );
 
 						// check if the current class has an annotation that is
 						// a role and must
@@ -709,14 +680,15 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 						// the one I must remove
 						for (final Annotation anno : currentClass
 								.getAnnotations()){
-							logger.debug( "Analyzing annotation " + anno );
 							if (isRoleAnnotation( anno )
 									&& (!(anno.annotationType().getName()
 											.equals( currentRoleOperation
 													.getRoleAnnotationClass()
 													.getName() )))){
-								logger.debug( "Keeping the role annotation "
-										+ anno );
+								if (logger.isDebugEnabled())
+									logger.debug( "role annotation kept: class="
+											+ currentClass.getName()
+											+ " annotation=" + anno );
 								roleAnnotationsToKeep.add( anno );
 							}
 						}
@@ -754,6 +726,10 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 					}else{
 						// no annotations to keep, so return the original proxy
 						// class
+						RoleEngineMetrics.getInstance().classCacheHit();
+						RoleOperationTracer.phase(
+								RoleOperationPhase.CLASS_GENERATION,
+								System.nanoTime() - start );
 						return originalProxyClass;
 					}
 
@@ -775,17 +751,28 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 				if (!isAnnotationInjection())
 					bytecode = baseProxyClass.toBytecode();
 
-				logger.info( "Defining the class manipulated name="
-						+ subProxyClassName );
-				return this.defineClass(
+				if (logger.isDebugEnabled())
+					logger.debug( "manipulated class defined: class="
+							+ subProxyClassName );
+				final Class defined = this.defineClass(
 						subProxyClassName,
 						bytecode,
 						0,
 						bytecode.length );
+				final long elapsed = System.nanoTime() - start;
+				RoleEngineMetrics.getInstance().classGenerated( elapsed );
+				RoleOperationTracer.phase(
+						RoleOperationPhase.CLASS_GENERATION,
+						elapsed );
+				return defined;
 			}else{
-				logger.debug( "Asking the parent class loader to load the class "
-						+ name );
-				return super.loadClass( name );
+				// a class not manipulated, that is neither generated nor
+				// reused by the role engine
+				final Class loaded = super.loadClass( name );
+				RoleOperationTracer.phase(
+						RoleOperationPhase.CLASS_GENERATION,
+						System.nanoTime() - start );
+				return loaded;
 			}
 
 			// return defineClass(name, b, 0, b.length);
@@ -900,11 +887,12 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 	public final String getPublicRoleAnnotationName(final IRole role) {
 		// check arguments
 		if ((role == null)
-				|| (!(role.getClass().isAnnotationPresent( PUBLICROLE.class ))))
+				|| (!(LazyRole.roleClassOf( role )
+						.isAnnotationPresent( PUBLICROLE.class ))))
 			return null;
 
 		// get the annotation
-		final PUBLICROLE pRole = role.getClass().getAnnotation(
+		final PUBLICROLE pRole = LazyRole.roleClassOf( role ).getAnnotation(
 				PUBLICROLE.class );
 		return pRole.roleAnnotation();
 	}
@@ -981,12 +969,13 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 	public final String getPublicRoleInterfaceName(final IRole role) {
 		// check arguments
 		if ((role == null)
-				|| (!(role.getClass().isAnnotationPresent( PUBLICROLE.class ))))
+				|| (!(LazyRole.roleClassOf( role )
+						.isAnnotationPresent( PUBLICROLE.class ))))
 			return null;
 
 		// get all the annotation of this class and search for a public role
 		// annotation
-		final PUBLICROLE pRole = role.getClass().getAnnotation(
+		final PUBLICROLE pRole = LazyRole.roleClassOf( role ).getAnnotation(
 				PUBLICROLE.class );
 		return pRole.roleInterface();
 	}
@@ -1127,8 +1116,8 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 			// if I've got a role interface, then I have to add it to the proxy
 			if (publicRoleInterfaceName != null){
 				// here I have to weave the proxy with the public interface
-				for (final Class publicRoleInterface : role.getClass()
-						.getInterfaces())
+				for (final Class publicRoleInterface : LazyRole.roleClassOf(
+						role ).getInterfaces())
 					if (publicRoleInterface.getName().equals(
 							publicRoleInterfaceName )){
 						return this.addRoleToProxy(
@@ -1180,12 +1169,11 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 			// load the manipulated proxy class
 			final Class newProxyClass = findClass( proxy.getClass().getName() );
 			// create a new instance of the manipulated proxy
-			final AgentProxy newProxy = (AgentProxy) newProxyClass
-					.newInstance();
+			final AgentProxy newProxy = instantiate( newProxyClass );
 			proxyHandler.setDestinationProxy( newProxy );
 
 			// update the proxies
-			proxyHandler.updateProxy();
+			updateProxy( proxyHandler );
 
 			// all done
 			currentRoleOperation
@@ -1220,6 +1208,30 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 		else return true;
 	}
 
+	/**
+	 * Creates a new proxy of the specified class, tracing the time spent.
+	 * 
+	 * @param proxyClass
+	 *            the class of the proxy
+	 * @return the new proxy
+	 * @throws InstantiationException
+	 *             if the proxy cannot be created
+	 * @throws IllegalAccessException
+	 *             if the proxy constructor is not accessible
+	 */
+	private final AgentProxy instantiate(final Class proxyClass)
+																throws InstantiationException,
+																IllegalAccessException {
+		final long start = System.nanoTime();
+		try{
+			return (AgentProxy) proxyClass.newInstance();
+		}finally{
+			RoleOperationTracer.phase(
+					RoleOperationPhase.INSTANTIATION,
+					System.nanoTime() - start );
+		}
+	}
+
 	/**
 	 * Checks if the specified class has been manipulated by the role engine. A
 	 * class is manipulated if it implements the IManipulatedClass interface.
@@ -1293,7 +1305,8 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 		// prepare the operation data
 		currentRoleOperation.setAgentProxy( proxy );
 		currentRoleOperation.setRole( role );
-		currentRoleOperation.setPublicRoleInterface( role.getClass() );
+		currentRoleOperation.setPublicRoleInterface( LazyRole
+				.roleClassOf( role ) );
 		currentRoleOperation
 				.setRoleInjectionType( RoleInjectionType.ROLE_PUBLIC_INTERFACE_REMOVAL_FROM_PROXY );
 		currentRoleOperation
@@ -1308,14 +1321,14 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 
 			final Class currentClass = findClass( currentRoleOperation
 					.getAgentProxy().getClass().getName() );
-			final AgentProxy newProxy = (AgentProxy) currentClass.newInstance();
+			final AgentProxy newProxy = instantiate( currentClass );
 
 			// get a proxy handler to handle copies
-			final ProxyHandler<AgentProxy> handler = (ProxyHandler<AgentProxy>) currentRoleOperation
+			final IProxyHandler proxyHandler = currentRoleOperation
 					.getAgentProxyHandler();
-			handler.setSourceProxy( proxy );
-			handler.setDestinationProxy( proxy );
-			handler.updateProxy();
+			proxyHandler.setSourceProxy( proxy );
+			proxyHandler.setDestinationProxy( newProxy );
+			updateProxy( proxyHandler );
 
 			proxy = newProxy;
 
@@ -1340,11 +1353,11 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 														final String proxyName)
 																				throws NotFoundException,
 																				CannotCompileException {
-		for (final CtClass interf : nowProxyClass.getInterfaces())
-			System.err.println( "Interfaccia " + interf );
+		if (logger.isDebugEnabled())
+			logger.debug( "role superclass selected: class="
+					+ nowProxyClass.getName() + " interfaces="
+					+ nowProxyClass.getInterfaces().length );
 
-		System.err.println( "Numero di interfacce implementate:"
-				+ nowProxyClass.getInterfaces().length );
 		return nowProxyClass.getSuperclass();
 	}
 
@@ -1401,7 +1414,7 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 		}while (found == false);
 
 		try{
-			final AgentProxy newProxy = (AgentProxy) currentClass.newInstance();
+			final AgentProxy newProxy = instantiate( currentClass );
 
 			// get the proxy handler for this operation
 			final IProxyHandler proxyHandler = currentRoleOperation
@@ -1409,7 +1422,7 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 			// initialize the handler and synchronize the proxies
 			proxyHandler.setSourceProxy( proxy );
 			proxyHandler.setDestinationProxy( newProxy );
-			proxyHandler.updateProxy();
+			updateProxy( proxyHandler );
 
 			currentRoleOperation
 					.setOperationStatus( RoleOperationStatus.ROLE_OPERATION_COMPLETED_SUCCESFUL );
@@ -1451,12 +1464,11 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 			proxyHandler.setSourceProxy( proxy );
 
 			final Class newProxyClass = findClass( proxy.getClass().getName() );
-			final AgentProxy newproxy = (AgentProxy) newProxyClass
-					.newInstance();
+			final AgentProxy newproxy = instantiate( newProxyClass );
 
 			// update the proxy
 			proxyHandler.setDestinationProxy( newproxy );
-			proxyHandler.updateProxy();
+			updateProxy( proxyHandler );
 
 			// all done
 			currentRoleOperation
@@ -1489,4 +1501,26 @@ public class RoleBooster extends SecureClassLoader implements IRoleBooster {
 		this.methodForwarderGenerator = methodForwarderGenerator;
 	}
 
+	/**
+	 * Updates the destination proxy of the handler, tracing the time spent.
+	 * 
+	 * @param proxyHandler
+	 *            the proxy handler, with the source and destination proxies
+	 *            already set
+	 * @return true if the proxy has been updated
+	 * @throws WCProxyException
+	 *             if the state cannot be copied
+	 */
+	private final boolean updateProxy(final IProxyHandler proxyHandler)
+																		throws WCProxyException {
+		final long start = System.nanoTime();
+		try{
+			return proxyHandler.updateProxy();
+		}finally{
+			RoleOperationTracer.phase(
+					RoleOperationPhase.STATE_COPY,
+					System.nanoTime() - start );
+		}
+	}
+
 }
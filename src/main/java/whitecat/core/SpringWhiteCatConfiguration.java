@@ -0,0 +1,351 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.xml.DOMConfigurator;
+import org.springframework.beans.factory.BeanClassLoaderAware;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.xml.XmlBeanFactory;
+import org.springframework.core.io.ClassPathResource;
+
+import whitecat.core.agents.IMethodForwarderGenerator;
+import whitecat.core.role.IRolePool;
+import whitecat.core.role.IRoleRepository;
+import whitecat.core.role.descriptors.IRoleDescriptorBuilder;
+import whitecat.core.role.task.ITaskExecutionResult;
+import whitecat.core.role.task.scheduling.ITaskScheduler;
+
+/**
+ * A configuration that provides the components thru the Spring framework,
+ * reading the beans from an xml file in the classpath. Each component is the
+ * bean named as the simple name of its interface.
+ * 
+ * The singleton beans are looked up in the bean factory only once. The
+ * prototype beans that do not require any configuration are created by a
+ * generated factory, while the other ones are still created by the bean
+ * factory.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public class SpringWhiteCatConfiguration implements IWhiteCatConfiguration {
+
+	/**
+	 * The default spring configuration file.
+	 */
+	public static final String										DEFAULT_BEANS_FILE	= "whitecat.spring-beans.xml";
+
+	/**
+	 * The default log4j configuration file.
+	 */
+	public static final String										DEFAULT_LOG4J_FILE	= "whitecat.log4j.xml";
+
+	/**
+	 * The spring xml bean factory, used to instantiate the beans.
+	 */
+	private final XmlBeanFactory									xmlBeanFactory;
+
+	/**
+	 * The singleton beans already looked up, keyed by bean name.
+	 */
+	private final ConcurrentHashMap<String, Object>				singletons			= new ConcurrentHashMap<String, Object>();
+
+	/**
+	 * The factories of the prototype beans, keyed by bean name.
+	 */
+	private final ConcurrentHashMap<String, IPrototypeFactory>	prototypes			= new ConcurrentHashMap<String, IPrototypeFactory>();
+
+	/**
+	 * Builds the configuration from the default files.
+	 */
+	public SpringWhiteCatConfiguration() {
+		this( DEFAULT_BEANS_FILE, DEFAULT_LOG4J_FILE );
+	}
+
+	/**
+	 * Builds the configuration from the specified files.
+	 * 
+	 * @param beansFile
+	 *            the spring configuration file, that must be in the classpath
+	 * @param log4jFile
+	 *            the log4j configuration file, or null if log4j must not be
+	 *            configured
+	 */
+	public SpringWhiteCatConfiguration(final String beansFile, final String log4jFile) {
+		super();
+		if (log4jFile != null)
+			DOMConfigurator.configure( log4jFile );
+
+		xmlBeanFactory = new XmlBeanFactory( new ClassPathResource( beansFile ) );
+	}
+
+	/**
+	 * Creates the factory of a prototype bean. If the bean does not require any
+	 * configuration from the bean factory, the factory is generated, otherwise
+	 * the factory asks the bean factory for each instance.
+	 * 
+	 * @param name
+	 *            the name of the bean
+	 * @return the factory of the bean
+	 */
+	private IPrototypeFactory createPrototypeFactory(final String name) {
+		final BeanDefinition definition = xmlBeanFactory
+				.getMergedBeanDefinition( name );
+		final Class beanClass = getBeanClass( definition );
+		if ((beanClass != null) && isPlainDefinition( definition, beanClass )){
+			final IPrototypeFactory generated = PrototypeFactoryGenerator
+					.generate( beanClass );
+			if (generated != null)
+				return generated;
+		}
+
+		return new IPrototypeFactory() {
+
+			public Object newInstance() {
+				return xmlBeanFactory.getBean( name );
+			}
+		};
+	}
+
+	/**
+	 * Provides the bean configured for the specified interface, that is the
+	 * bean named as the simple name of the interface.
+	 * 
+	 * @param beanInterface
+	 *            the interface of the bean
+	 * @return the bean instance
+	 */
+	private Object getBean(final Class beanInterface) {
+		final String name = beanInterface.getSimpleName();
+
+		final Object singleton = singletons.get( name );
+		if (singleton != null)
+			return singleton;
+
+		IPrototypeFactory factory = prototypes.get( name );
+		if (factory != null)
+			return factory.newInstance();
+
+		if (xmlBeanFactory.isSingleton( name )){
+			// the bean factory returns always the same instance
+			final Object bean = xmlBeanFactory.getBean( name );
+			singletons.putIfAbsent( name, bean );
+			return bean;
+		}
+
+		factory = createPrototypeFactory( name );
+		final IPrototypeFactory installed = prototypes.putIfAbsent(
+				name,
+				factory );
+		return (installed != null ? installed : factory).newInstance();
+	}
+
+	/**
+	 * Provides the class of a bean, loading it if the bean factory has not
+	 * loaded it yet.
+	 * 
+	 * @param definition
+	 *            the bean definition
+	 * @return the class of the bean, or null if it cannot be loaded
+	 */
+	private Class getBeanClass(final BeanDefinition definition) {
+		if ((definition instanceof AbstractBeanDefinition)
+				&& ((AbstractBeanDefinition) definition).hasBeanClass())
+			return ((AbstractBeanDefinition) definition).getBeanClass();
+		else if (definition.getBeanClassName() == null)
+			return null;
+
+		try{
+			return Class.forName(
+					definition.getBeanClassName(),
+					true,
+					xmlBeanFactory.getBeanClassLoader() );
+		}catch (final ClassNotFoundException e){
+			return null;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.IWhiteCatConfiguration#getAsyncRoleBooster()
+	 */
+	public IAsyncRoleBooster getAsyncRoleBooster() {
+		return (IAsyncRoleBooster) getBean( IAsyncRoleBooster.class );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.IWhiteCatConfiguration#getMethodForwarderGenerator()
+	 */
+	public IMethodForwarderGenerator getMethodForwarderGenerator() {
+		return (IMethodForwarderGenerator) getBean( IMethodForwarderGenerator.class );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.IWhiteCatConfiguration#getNewRoleOperation()
+	 */
+	public IRoleOperation getNewRoleOperation() {
+		return (IRoleOperation) getBean( IRoleOperation.class );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.IWhiteCatConfiguration#getProxyHandler()
+	 */
+	public IProxyHandler getProxyHandler() {
+		return (IProxyHandler) getBean( IProxyHandler.class );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.IWhiteCatConfiguration#getProxyStorage()
+	 */
+	public IProxyStorage getProxyStorage() {
+		return (IProxyStorage) getBean( IProxyStorage.class );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.IWhiteCatConfiguration#getRoleBooster()
+	 */
+	public IRoleBooster getRoleBooster() {
+		return (IRoleBooster) getBean( IRoleBooster.class );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.IWhiteCatConfiguration#getRoleDescriptorBuilder()
+	 */
+	public IRoleDescriptorBuilder getRoleDescriptorBuilder() {
+		return (IRoleDescriptorBuilder) getBean( IRoleDescriptorBuilder.class );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.IWhiteCatConfiguration#getRolePool()
+	 */
+	public IRolePool getRolePool() {
+		return (IRolePool) getBean( IRolePool.class );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.IWhiteCatConfiguration#getRoleRepository()
+	 */
+	public IRoleRepository getRoleRepository() {
+		return (IRoleRepository) getBean( IRoleRepository.class );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.IWhiteCatConfiguration#getTaskExecutionResult()
+	 */
+	public ITaskExecutionResult getTaskExecutionResult() {
+		return (ITaskExecutionResult) getBean( ITaskExecutionResult.class );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.IWhiteCatConfiguration#getTaskScheduler()
+	 */
+	public ITaskScheduler getTaskScheduler() {
+		return (ITaskScheduler) getBean( ITaskScheduler.class );
+	}
+
+	/**
+	 * Checks if a bean definition describes a prototype bean that can be
+	 * created with its default constructor, without any further work from the
+	 * bean factory.
+	 * 
+	 * @param definition
+	 *            the bean definition
+	 * @param beanClass
+	 *            the class of the bean
+	 * @return true if the bean can be created by a generated factory
+	 */
+	private boolean isPlainDefinition(	final BeanDefinition definition,
+												final Class beanClass) {
+		if (!(definition instanceof AbstractBeanDefinition)
+				|| (xmlBeanFactory.getBeanPostProcessorCount() > 0))
+			return false;
+
+		final AbstractBeanDefinition beanDefinition = (AbstractBeanDefinition) definition;
+		if (!beanDefinition.isPrototype() || beanDefinition.isAbstract()
+				|| !beanDefinition.getPropertyValues().isEmpty()
+				|| !beanDefinition.getConstructorArgumentValues().isEmpty()
+				|| !beanDefinition.getMethodOverrides().isEmpty()
+				|| (beanDefinition.getFactoryMethodName() != null)
+				|| (beanDefinition.getFactoryBeanName() != null)
+				|| (beanDefinition.getInitMethodName() != null)
+				|| (beanDefinition.getDestroyMethodName() != null)
+				|| (beanDefinition.getAutowireMode() != AbstractBeanDefinition.AUTOWIRE_NO)
+				|| ((beanDefinition.getDependsOn() != null) && (beanDefinition
+						.getDependsOn().length > 0)))
+			return false;
+
+		// the bean factory would call back these beans
+		return !(FactoryBean.class.isAssignableFrom( beanClass )
+				|| BeanNameAware.class.isAssignableFrom( beanClass )
+				|| BeanClassLoaderAware.class.isAssignableFrom( beanClass )
+				|| BeanFactoryAware.class.isAssignableFrom( beanClass )
+				|| InitializingBean.class.isAssignableFrom( beanClass ) || DisposableBean.class
+				.isAssignableFrom( beanClass ));
+	}
+
+}
@@ -38,10 +38,9 @@
  */
 package whitecat.core;
 
-import org.springframework.beans.factory.xml.XmlBeanFactory;
-import org.springframework.core.io.ClassPathResource;
-
 import whitecat.core.agents.IMethodForwarderGenerator;
+import whitecat.core.metrics.RoleEngineMetrics;
+import whitecat.core.role.IRolePool;
 import whitecat.core.role.IRoleRepository;
 import whitecat.core.role.descriptors.IRoleDescriptorBuilder;
 import whitecat.core.role.task.ITaskExecutionResult;
@@ -51,25 +50,71 @@ import whitecat.core.role.task.scheduling.ITaskScheduler;
  * This is the main class of the whole system. This class has been created to
  * act as a front-end for the whole system.
  * 
+ * The components are provided by a configuration, that can be built in plain
+ * Java thru the {@link WhiteCatConfiguration} builder; if no configuration is
+ * specified, the Spring configuration is used (see
+ * {@link SpringWhiteCatConfiguration}).
+ * 
  * @author Luca Ferrari - fluca1978 (at) gmail.com
  * 
  */
 public class WhiteCat {
 
 	/**
-	 * The spring xml bean factory, used to instantiate the beans.
+	 * The configuration that provides the components, created from the Spring
+	 * configuration at the first use if none has been specified.
+	 */
+	private static volatile IWhiteCatConfiguration	configuration	= null;
+
+	/**
+	 * Sets the configuration that provides the components of the system. It
+	 * should be called before using any component, otherwise the components
+	 * already in use (e.g., the role repository) could come from another
+	 * configuration. The role engine metrics are registered in the platform
+	 * MBean server as soon as a configuration is in place.
+	 * 
+	 * @param newConfiguration
+	 *            the configuration to use
 	 */
-	private static XmlBeanFactory	xmlBeanFactory	= null;
+	public final static void configure(final IWhiteCatConfiguration newConfiguration) {
+		if (newConfiguration == null)
+			throw new IllegalArgumentException( "Cannot use a null configuration" );
 
-	static{
-		// configure the spring resource in order to get it available for the
-		// beans configurations. Please note that the configuration file must be
-		// in the classpath.
-		final String springConfigurationPath = "whitecat.spring-beans.xml";
-		final ClassPathResource classPathResource = new ClassPathResource(
-				springConfigurationPath );
-		xmlBeanFactory = new XmlBeanFactory( classPathResource );
+		configuration = newConfiguration;
+		RoleEngineMetrics.register();
+	}
 
+	/**
+	 * Provides the unique asynchronous role booster, that queues the role
+	 * operations instead of blocking the caller.
+	 * 
+	 * @return the asynchronous role booster
+	 */
+	public final static IAsyncRoleBooster getAsyncRoleBooster() {
+		return getConfiguration().getAsyncRoleBooster();
+	}
+
+	/**
+	 * Provides the current configuration. If no configuration has been
+	 * specified, the Spring configuration is loaded from the default files.
+	 * 
+	 * @return the configuration in use
+	 */
+	public final static IWhiteCatConfiguration getConfiguration() {
+		IWhiteCatConfiguration current = configuration;
+		if (current != null)
+			return current;
+
+		synchronized (WhiteCat.class){
+			if (configuration == null){
+				configuration = new SpringWhiteCatConfiguration();
+				RoleEngineMetrics.register();
+			}
+
+			current = configuration;
+		}
+
+		return current;
 	}
 
 	/**
@@ -78,8 +123,7 @@ public class WhiteCat {
 	 * @return a new method generator instance
 	 */
 	public final static IMethodForwarderGenerator getMethodForwarderGenerator() {
-		return (IMethodForwarderGenerator) xmlBeanFactory
-				.getBean( IMethodForwarderGenerator.class.getSimpleName() );
+		return getConfiguration().getMethodForwarderGenerator();
 	}
 
 	/**
@@ -90,8 +134,7 @@ public class WhiteCat {
 	 * @return a new role operation
 	 */
 	public final static IRoleOperation getNewRoleOperation() {
-		return (IRoleOperation) xmlBeanFactory.getBean( IRoleOperation.class
-				.getSimpleName() );
+		return getConfiguration().getNewRoleOperation();
 	}
 
 	/**
@@ -100,8 +143,7 @@ public class WhiteCat {
 	 * @return a new proxy handler instance
 	 */
 	public final static IProxyHandler getProxyHandler() {
-		return (IProxyHandler) xmlBeanFactory.getBean( IProxyHandler.class
-				.getSimpleName() );
+		return getConfiguration().getProxyHandler();
 	}
 
 	/**
@@ -110,8 +152,7 @@ public class WhiteCat {
 	 * @return the proxy storage to use
 	 */
 	public final static IProxyStorage getProxyStorage() {
-		return (IProxyStorage) xmlBeanFactory.getBean( IProxyStorage.class
-				.getSimpleName() );
+		return getConfiguration().getProxyStorage();
 	}
 
 	/**
@@ -120,8 +161,7 @@ public class WhiteCat {
 	 * @return the role booster to use for role manipulations
 	 */
 	public final static IRoleBooster getRoleBooster() {
-		return (IRoleBooster) xmlBeanFactory.getBean( IRoleBooster.class
-				.getSimpleName() );
+		return getConfiguration().getRoleBooster();
 	}
 
 	/**
@@ -130,8 +170,16 @@ public class WhiteCat {
 	 * @return the role descriptor builder
 	 */
 	public final static IRoleDescriptorBuilder getRoleDescriptorBuilder() {
-		return (IRoleDescriptorBuilder) xmlBeanFactory
-				.getBean( IRoleDescriptorBuilder.class.getSimpleName() );
+		return getConfiguration().getRoleDescriptorBuilder();
+	}
+
+	/**
+	 * Provides the unique role pool available in the system.
+	 * 
+	 * @return the role pool implementation
+	 */
+	public final static IRolePool getRolePool() {
+		return getConfiguration().getRolePool();
 	}
 
 	/**
@@ -140,8 +188,7 @@ public class WhiteCat {
 	 * @return the role repository implementation
 	 */
 	public final static IRoleRepository getRoleRepository() {
-		return (IRoleRepository) xmlBeanFactory.getBean( IRoleRepository.class
-				.getSimpleName() );
+		return getConfiguration().getRoleRepository();
 	}
 
 	/**
@@ -150,8 +197,7 @@ public class WhiteCat {
 	 * @return the implementation of a task execution result
 	 */
 	public final static ITaskExecutionResult getTaskExecutionResult() {
-		return (ITaskExecutionResult) xmlBeanFactory
-				.getBean( ITaskExecutionResult.class.getSimpleName() );
+		return getConfiguration().getTaskExecutionResult();
 	}
 
 	/**
@@ -160,7 +206,6 @@ public class WhiteCat {
 	 * @return the task scheduler
 	 */
 	public final static ITaskScheduler getTaskScheduler() {
-		return (ITaskScheduler) xmlBeanFactory.getBean( ITaskScheduler.class
-				.getSimpleName() );
+		return getConfiguration().getTaskScheduler();
 	}
 }
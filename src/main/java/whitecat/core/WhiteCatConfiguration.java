@@ -0,0 +1,528 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core;
+
+import org.apache.log4j.xml.DOMConfigurator;
+
+import whitecat.core.agents.IMethodForwarderGenerator;
+import whitecat.core.agents.LocalForwarderMethodGenerator;
+import whitecat.core.agents.LocalProxyHandler;
+import whitecat.core.role.IRolePool;
+import whitecat.core.role.IRoleRepository;
+import whitecat.core.role.descriptors.IRoleDescriptorBuilder;
+import whitecat.core.role.impl.AnnotationRoleDescriptorBuilder;
+import whitecat.core.role.impl.RolePoolImpl;
+import whitecat.core.role.impl.RoleRepositoryImpl;
+import whitecat.core.role.operation.RoleOperationImpl;
+import whitecat.core.role.task.FutureTaskExecutionResultImpl;
+import whitecat.core.role.task.ITaskExecutionResult;
+import whitecat.core.role.task.scheduling.ITaskScheduler;
+import whitecat.core.role.task.scheduling.TaskSchedulerImpl;
+
+/**
+ * A configuration built in plain Java, without any xml file to parse nor
+ * reflection to create the components. By default it provides the same
+ * components of the default Spring configuration; each component can be
+ * replaced thru the builder:
+ * 
+ * <pre>
+ * WhiteCat.configure( WhiteCatConfiguration.newBuilder()
+ * 		.withInPlaceRoleBooster( true ).build() );
+ * </pre>
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public final class WhiteCatConfiguration implements IWhiteCatConfiguration {
+
+	/**
+	 * A builder for a configuration. The components not specified are the
+	 * default ones.
+	 * 
+	 * @author Luca Ferrari - fluca1978 (at) gmail.com
+	 * 
+	 */
+	public static final class Builder {
+
+		/**
+		 * The factories of the prototype components, null for the default ones.
+		 */
+		private IPrototypeFactory	methodForwarderGeneratorFactory	= null;
+		private IPrototypeFactory	proxyHandlerFactory				= null;
+		private IPrototypeFactory	roleBoosterFactory				= null;
+		private IPrototypeFactory	roleDescriptorBuilderFactory	= null;
+		private IPrototypeFactory	taskExecutionResultFactory		= null;
+		private IPrototypeFactory	taskSchedulerFactory			= null;
+
+		/**
+		 * The singleton components, null for the default ones.
+		 */
+		private IAsyncRoleBooster	asyncRoleBooster				= null;
+		private IProxyStorage		proxyStorage					= null;
+		private IRolePool			rolePool						= null;
+		private IRoleRepository		roleRepository					= null;
+
+		/**
+		 * True if the default role descriptor builder generates the task
+		 * invokers.
+		 */
+		private boolean				generateTaskInvokers			= false;
+
+		/**
+		 * True if the default role booster injects the roles in place.
+		 */
+		private boolean				inPlaceRoleBooster				= false;
+
+		/**
+		 * The log4j configuration file, if any.
+		 */
+		private String				log4jFile						= null;
+
+		/**
+		 * The number of idle instances kept by the default role pool.
+		 */
+		private int					maxIdleRoles					= RolePoolImpl.DEFAULT_MAX_IDLE_ROLES;
+
+		private Builder() {
+			super();
+		}
+
+		/**
+		 * Builds a new configuration, creating the singleton components not
+		 * specified. The configuration does not change if the builder is used
+		 * again, each call builds an independent configuration.
+		 * 
+		 * @return the configuration
+		 */
+		public final WhiteCatConfiguration build() {
+			if (log4jFile != null)
+				DOMConfigurator.configure( log4jFile );
+
+			return new WhiteCatConfiguration( this );
+		}
+
+		/**
+		 * Specifies the asynchronous role booster.
+		 * 
+		 * @param asyncRoleBooster
+		 *            the asynchronous role booster
+		 * @return this builder
+		 */
+		public final Builder withAsyncRoleBooster(final IAsyncRoleBooster asyncRoleBooster) {
+			this.asyncRoleBooster = asyncRoleBooster;
+			return this;
+		}
+
+		/**
+		 * Specifies if the default role descriptor builder binds the tasks to
+		 * generated invokers.
+		 * 
+		 * @param generateTaskInvokers
+		 *            true if the invokers must be generated
+		 * @return this builder
+		 */
+		public final Builder withGenerateTaskInvokers(final boolean generateTaskInvokers) {
+			this.generateTaskInvokers = generateTaskInvokers;
+			return this;
+		}
+
+		/**
+		 * Specifies if the role booster injects the public roles in place (see
+		 * {@link InPlaceRoleBooster}).
+		 * 
+		 * @param inPlaceRoleBooster
+		 *            true if the roles must be injected in place
+		 * @return this builder
+		 */
+		public final Builder withInPlaceRoleBooster(final boolean inPlaceRoleBooster) {
+			this.inPlaceRoleBooster = inPlaceRoleBooster;
+			return this;
+		}
+
+		/**
+		 * Specifies the log4j configuration file to load when the configuration
+		 * is built. By default log4j is not configured.
+		 * 
+		 * @param log4jFile
+		 *            the log4j configuration file
+		 * @return this builder
+		 */
+		public final Builder withLog4jFile(final String log4jFile) {
+			this.log4jFile = log4jFile;
+			return this;
+		}
+
+		/**
+		 * Specifies the number of idle instances kept by the default role pool
+		 * for each pooled role.
+		 * 
+		 * @param maxIdleRoles
+		 *            the number of idle instances
+		 * @return this builder
+		 */
+		public final Builder withMaxIdleRoles(final int maxIdleRoles) {
+			this.maxIdleRoles = maxIdleRoles;
+			return this;
+		}
+
+		/**
+		 * Specifies the factory of the method forwarder generators.
+		 * 
+		 * @param factory
+		 *            the factory, that must create {@link IMethodForwarderGenerator}
+		 *            instances
+		 * @return this builder
+		 */
+		public final Builder withMethodForwarderGenerator(final IPrototypeFactory factory) {
+			methodForwarderGeneratorFactory = factory;
+			return this;
+		}
+
+		/**
+		 * Specifies the factory of the proxy handlers.
+		 * 
+		 * @param factory
+		 *            the factory, that must create {@link IProxyHandler}
+		 *            instances
+		 * @return this builder
+		 */
+		public final Builder withProxyHandler(final IPrototypeFactory factory) {
+			proxyHandlerFactory = factory;
+			return this;
+		}
+
+		/**
+		 * Specifies the proxy storage.
+		 * 
+		 * @param proxyStorage
+		 *            the proxy storage
+		 * @return this builder
+		 */
+		public final Builder withProxyStorage(final IProxyStorage proxyStorage) {
+			this.proxyStorage = proxyStorage;
+			return this;
+		}
+
+		/**
+		 * Specifies the factory of the role boosters. Each role booster is
+		 * initialized with a new role operation.
+		 * 
+		 * @param factory
+		 *            the factory, that must create {@link IRoleBooster}
+		 *            instances
+		 * @return this builder
+		 */
+		public final Builder withRoleBooster(final IPrototypeFactory factory) {
+			roleBoosterFactory = factory;
+			return this;
+		}
+
+		/**
+		 * Specifies the factory of the role descriptor builders.
+		 * 
+		 * @param factory
+		 *            the factory, that must create
+		 *            {@link IRoleDescriptorBuilder} instances
+		 * @return this builder
+		 */
+		public final Builder withRoleDescriptorBuilder(final IPrototypeFactory factory) {
+			roleDescriptorBuilderFactory = factory;
+			return this;
+		}
+
+		/**
+		 * Specifies the role pool.
+		 * 
+		 * @param rolePool
+		 *            the role pool
+		 * @return this builder
+		 */
+		public final Builder withRolePool(final IRolePool rolePool) {
+			this.rolePool = rolePool;
+			return this;
+		}
+
+		/**
+		 * Specifies the role repository.
+		 * 
+		 * @param roleRepository
+		 *            the role repository
+		 * @return this builder
+		 */
+		public final Builder withRoleRepository(final IRoleRepository roleRepository) {
+			this.roleRepository = roleRepository;
+			return this;
+		}
+
+		/**
+		 * Specifies the factory of the task execution results.
+		 * 
+		 * @param factory
+		 *            the factory, that must create {@link ITaskExecutionResult}
+		 *            instances
+		 * @return this builder
+		 */
+		public final Builder withTaskExecutionResult(final IPrototypeFactory factory) {
+			taskExecutionResultFactory = factory;
+			return this;
+		}
+
+		/**
+		 * Specifies the factory of the task schedulers.
+		 * 
+		 * @param factory
+		 *            the factory, that must create {@link ITaskScheduler}
+		 *            instances
+		 * @return this builder
+		 */
+		public final Builder withTaskScheduler(final IPrototypeFactory factory) {
+			taskSchedulerFactory = factory;
+			return this;
+		}
+	}
+
+	/**
+	 * Provides a builder for a configuration.
+	 * 
+	 * @return the builder
+	 */
+	public static final Builder newBuilder() {
+		return new Builder();
+	}
+
+	/**
+	 * The factories of the prototype components, null for the default ones.
+	 */
+	private final IPrototypeFactory	methodForwarderGeneratorFactory;
+	private final IPrototypeFactory	proxyHandlerFactory;
+	private final IPrototypeFactory	roleBoosterFactory;
+	private final IPrototypeFactory	roleDescriptorBuilderFactory;
+	private final IPrototypeFactory	taskExecutionResultFactory;
+	private final IPrototypeFactory	taskSchedulerFactory;
+
+	/**
+	 * The singleton components.
+	 */
+	private final IAsyncRoleBooster	asyncRoleBooster;
+	private final IProxyStorage		proxyStorage;
+	private final IRolePool			rolePool;
+	private final IRoleRepository	roleRepository;
+
+	/**
+	 * True if the default role descriptor builder generates the task invokers.
+	 */
+	private final boolean			generateTaskInvokers;
+
+	/**
+	 * True if the default role booster injects the roles in place.
+	 */
+	private final boolean			inPlaceRoleBooster;
+
+	/**
+	 * Builds the configuration from the builder settings, creating the
+	 * singleton components not specified.
+	 * 
+	 * @param builder
+	 *            the builder
+	 */
+	private WhiteCatConfiguration(final Builder builder) {
+		super();
+		methodForwarderGeneratorFactory = builder.methodForwarderGeneratorFactory;
+		proxyHandlerFactory = builder.proxyHandlerFactory;
+		roleBoosterFactory = builder.roleBoosterFactory;
+		roleDescriptorBuilderFactory = builder.roleDescriptorBuilderFactory;
+		taskExecutionResultFactory = builder.taskExecutionResultFactory;
+		taskSchedulerFactory = builder.taskSchedulerFactory;
+		generateTaskInvokers = builder.generateTaskInvokers;
+		inPlaceRoleBooster = builder.inPlaceRoleBooster;
+
+		if (builder.asyncRoleBooster != null)
+			asyncRoleBooster = builder.asyncRoleBooster;
+		else asyncRoleBooster = new AsyncRoleBooster();
+
+		if (builder.proxyStorage != null)
+			proxyStorage = builder.proxyStorage;
+		else proxyStorage = ProxyStorageImpl.getInstance();
+
+		if (builder.rolePool != null)
+			rolePool = builder.rolePool;
+		else{
+			final RolePoolImpl defaultRolePool = new RolePoolImpl();
+			defaultRolePool.setMaxIdleRoles( builder.maxIdleRoles );
+			rolePool = defaultRolePool;
+		}
+
+		if (builder.roleRepository != null)
+			roleRepository = builder.roleRepository;
+		else{
+			final RoleRepositoryImpl defaultRoleRepository = new RoleRepositoryImpl();
+			defaultRoleRepository
+					.setRoleDescriptorBuilder( getRoleDescriptorBuilder() );
+			roleRepository = defaultRoleRepository;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.IWhiteCatConfiguration#getAsyncRoleBooster()
+	 */
+	public IAsyncRoleBooster getAsyncRoleBooster() {
+		return asyncRoleBooster;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.IWhiteCatConfiguration#getMethodForwarderGenerator()
+	 */
+	public IMethodForwarderGenerator getMethodForwarderGenerator() {
+		if (methodForwarderGeneratorFactory != null)
+			return (IMethodForwarderGenerator) methodForwarderGeneratorFactory
+					.newInstance();
+		else return new LocalForwarderMethodGenerator();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.IWhiteCatConfiguration#getNewRoleOperation()
+	 */
+	public IRoleOperation getNewRoleOperation() {
+		final RoleOperationImpl operation = new RoleOperationImpl();
+		operation.setAgentProxyHandler( getProxyHandler() );
+		operation.setMethodForwarderGenerator( getMethodForwarderGenerator() );
+		return operation;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.IWhiteCatConfiguration#getProxyHandler()
+	 */
+	public IProxyHandler getProxyHandler() {
+		if (proxyHandlerFactory != null)
+			return (IProxyHandler) proxyHandlerFactory.newInstance();
+		else return new LocalProxyHandler();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.IWhiteCatConfiguration#getProxyStorage()
+	 */
+	public IProxyStorage getProxyStorage() {
+		return proxyStorage;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.IWhiteCatConfiguration#getRoleBooster()
+	 */
+	@SuppressWarnings("deprecation")
+	public IRoleBooster getRoleBooster() {
+		final IRoleBooster booster;
+		if (roleBoosterFactory != null)
+			booster = (IRoleBooster) roleBoosterFactory.newInstance();
+		else if (inPlaceRoleBooster)
+			booster = new InPlaceRoleBooster();
+		else booster = new RoleBooster();
+
+		booster.setCurrentRoleOperation( getNewRoleOperation() );
+		return booster;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.IWhiteCatConfiguration#getRoleDescriptorBuilder()
+	 */
+	public IRoleDescriptorBuilder getRoleDescriptorBuilder() {
+		if (roleDescriptorBuilderFactory != null)
+			return (IRoleDescriptorBuilder) roleDescriptorBuilderFactory
+					.newInstance();
+
+		final AnnotationRoleDescriptorBuilder builder = new AnnotationRoleDescriptorBuilder();
+		builder.setGenerateTaskInvokers( generateTaskInvokers );
+		return builder;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.IWhiteCatConfiguration#getRolePool()
+	 */
+	public IRolePool getRolePool() {
+		return rolePool;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.IWhiteCatConfiguration#getRoleRepository()
+	 */
+	public IRoleRepository getRoleRepository() {
+		return roleRepository;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.IWhiteCatConfiguration#getTaskExecutionResult()
+	 */
+	public ITaskExecutionResult getTaskExecutionResult() {
+		if (taskExecutionResultFactory != null)
+			return (ITaskExecutionResult) taskExecutionResultFactory
+					.newInstance();
+		else return new FutureTaskExecutionResultImpl();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.IWhiteCatConfiguration#getTaskScheduler()
+	 */
+	public ITaskScheduler getTaskScheduler() {
+		if (taskSchedulerFactory != null)
+			return (ITaskScheduler) taskSchedulerFactory.newInstance();
+		else return new TaskSchedulerImpl();
+	}
+
+}
@@ -38,15 +38,26 @@
  */
 package whitecat.core.agents;
 
-import java.util.HashMap;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import whitecat.core.IProxyStorage;
+import whitecat.core.WCException;
 import whitecat.core.WhiteCat;
 import whitecat.core.role.IRole;
+import whitecat.core.role.LazyRole;
 
 /**
  * A local proxy, that is a proxy that handles an agent locally.
  * 
+ * Besides the forwarder methods added by the role booster, the proxy keeps a
+ * dispatch table of the public roles injected in place (i.e., without creating
+ * a new proxy instance), that can be used thru the role views of the proxy.
+ * 
  * @author Luca Ferrari - fluca1978 (at) gmail.com
  * 
  */
@@ -58,9 +69,120 @@ public class LocalAgentProxy extends AgentProxy {
 	private WCAgent						myAgent	= null;
 
 	/**
-	 * A map that stores the references to the public role implementation.
+	 * A map that stores the references to the public role implementation. The
+	 * map is immutable, so it is shared with the proxies created by the role
+	 * manipulations and replaced at each change.
+	 */
+	protected volatile RoleMap			roleMap	= RoleMap.EMPTY;
+
+	/**
+	 * The public roles injected in place, replaced atomically at each role
+	 * change. The field is null until the first role is injected in place, so
+	 * that the proxies that never get such a role do not pay for it.
+	 */
+	private volatile RoleDispatchTable									dispatchTable		= null;
+
+	/**
+	 * The updater for the atomic replacement of the dispatch table.
+	 */
+	private static final AtomicReferenceFieldUpdater<LocalAgentProxy, RoleDispatchTable>	DISPATCH_TABLE	= AtomicReferenceFieldUpdater
+																										.newUpdater(
+																												LocalAgentProxy.class,
+																												RoleDispatchTable.class,
+																												"dispatchTable" );
+
+	/**
+	 * The views of this proxy, one for each public role interface requested.
+	 * The map is created at the first view request.
+	 */
+	private volatile ConcurrentHashMap<Class, Object>					roleViews			= null;
+
+	/**
+	 * The updater for the lazy creation of the view map.
+	 */
+	private static final AtomicReferenceFieldUpdater<LocalAgentProxy, ConcurrentHashMap>	ROLE_VIEWS		= AtomicReferenceFieldUpdater
+																										.newUpdater(
+																												LocalAgentProxy.class,
+																												ConcurrentHashMap.class,
+																												"roleViews" );
+
+	/**
+	 * The invocation handler of the role views, that forwards each call to the
+	 * role currently bound to the interface.
+	 * 
+	 * @author Luca Ferrari - fluca1978 (at) gmail.com
+	 * 
+	 */
+	private static final class RoleViewHandler implements InvocationHandler {
+
+		/**
+		 * The proxy the view belongs to.
+		 */
+		private final LocalAgentProxy	proxy;
+
+		/**
+		 * The public role interface of the view.
+		 */
+		private final Class				roleInterface;
+
+		RoleViewHandler(final LocalAgentProxy proxy, final Class roleInterface) {
+			super();
+			this.proxy = proxy;
+			this.roleInterface = roleInterface;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object,
+		 * java.lang.reflect.Method, java.lang.Object[])
+		 */
+		public Object invoke(final Object view, final Method method,
+								final Object[] args) throws Throwable {
+			// the object methods are served by the handler itself
+			if (method.getDeclaringClass() == Object.class){
+				if (method.getName().equals( "equals" ))
+					return Boolean.valueOf( view == args[0] );
+				else if (method.getName().equals( "hashCode" ))
+					return Integer.valueOf( System.identityHashCode( view ) );
+				else return roleInterface.getName() + " view of proxy "
+						+ proxy.getAgentProxyID();
+			}
+
+			final IRole role = proxy.getDispatchedRole( roleInterface );
+			if (role == null)
+				throw new IllegalStateException( "The role interface "
+						+ roleInterface.getName()
+						+ " is not played by the proxy" );
+
+			try{
+				return method.invoke( role, args );
+			}catch (final InvocationTargetException e){
+				throw e.getCause();
+			}
+		}
+	}
+
+	/**
+	 * Materializes a role, if it has been injected as a {@link LazyRole}.
+	 * 
+	 * @param role
+	 *            the role
+	 * @return the role instance
+	 * @throws IllegalStateException
+	 *             if the lazy role cannot be created
 	 */
-	protected HashMap<String, IRole>	roleMap	= new HashMap<String, IRole>();
+	private static IRole materialize(final IRole role) {
+		if (!(role instanceof LazyRole))
+			return role;
+
+		try{
+			return ((LazyRole) role).getRole();
+		}catch (final WCException e){
+			throw new IllegalStateException( "Cannot create the role "
+					+ ((LazyRole) role).getRoleClass().getName(), e );
+		}
+	}
 
 	/**
 	 * Default constructor, used by the role engine for instantiating a new
@@ -80,16 +202,71 @@ public class LocalAgentProxy extends AgentProxy {
 	 *            the role implementation reference
 	 * @return true if the role has been added
 	 */
-	public final boolean addRoleImplementationReference(final String key,
-														final IRole role) {
+	public final synchronized boolean addRoleImplementationReference(	final String key,
+																		final IRole role) {
 		// check arguments
 		if ((key == null) || (role == null))
 			return false;
 
-		roleMap.put( key, role );
+		roleMap = roleMap.with( key, role );
 		return true;
 	}
 
+	/**
+	 * Binds a role injected in place to its public role interface. The dispatch
+	 * table is replaced atomically, so that concurrent calls thru the views see
+	 * either the old or the new table.
+	 * 
+	 * @param roleInterface
+	 *            the public role interface
+	 * @param role
+	 *            the role implementation
+	 * @return true if the role has been bound
+	 */
+	public final boolean bindDispatchedRole(final Class roleInterface,
+											final IRole role) {
+		// check arguments
+		if ((roleInterface == null) || (role == null))
+			return false;
+
+		RoleDispatchTable current;
+		do{
+			current = dispatchTable;
+		}while (!DISPATCH_TABLE.compareAndSet(
+				this,
+				current,
+				(current == null ? RoleDispatchTable.EMPTY : current).with(
+						roleInterface,
+						role ) ));
+
+		return true;
+	}
+
+	/**
+	 * Provides the dispatch table of the roles injected in place.
+	 * 
+	 * @return the current dispatch table
+	 */
+	public final RoleDispatchTable getDispatchTable() {
+		final RoleDispatchTable current = dispatchTable;
+		return (current == null ? RoleDispatchTable.EMPTY : current);
+	}
+
+	/**
+	 * Provides the role injected in place for the specified interface. If the
+	 * role has been injected as a {@link LazyRole}, the role instance is
+	 * created at the first call.
+	 * 
+	 * @param roleInterface
+	 *            the public role interface
+	 * @return the role implementation, or null if the interface is not bound
+	 * @throws IllegalStateException
+	 *             if the lazy role cannot be created
+	 */
+	public final IRole getDispatchedRole(final Class roleInterface) {
+		return materialize( getDispatchTable().getRole( roleInterface ) );
+	}
+
 	/**
 	 * Provides the value of the myAgent field.
 	 * 
@@ -110,9 +287,97 @@ public class LocalAgentProxy extends AgentProxy {
 	public void initializeByCopy(final AgentProxy proxy) {
 		super.initializeByCopy( proxy );
 
-		if (proxy instanceof LocalAgentProxy)
-			roleMap.putAll( ((LocalAgentProxy) proxy).roleMap );
+		if (proxy instanceof LocalAgentProxy){
+			// the maps are immutable and can be shared
+			roleMap = ((LocalAgentProxy) proxy).roleMap;
+			dispatchTable = ((LocalAgentProxy) proxy).dispatchTable;
+		}
+
+	}
+
+	/**
+	 * Provides the role implementation bound to a key, used by the forwarder
+	 * methods. If the role has been injected as a {@link LazyRole}, the role
+	 * instance is created at the first call.
+	 * 
+	 * @param key
+	 *            the key of the role
+	 * @return the role implementation, or null if no role is bound to the key
+	 * @throws IllegalStateException
+	 *             if the lazy role cannot be created (the forwarder methods
+	 *             cannot throw checked exceptions)
+	 */
+	public final IRole getRoleImplementation(final String key) {
+		return materialize( roleMap.get( key ) );
+	}
+
+	/**
+	 * Provides a view of this proxy as the specified public role interface.
+	 * The view does not change when roles are injected in place or removed:
+	 * each call is forwarded to the role bound to the interface at the time of
+	 * the call.
+	 * 
+	 * @param roleInterface
+	 *            the public role interface
+	 * @return the view implementing the interface
+	 * @throws IllegalArgumentException
+	 *             if the class is not an interface
+	 */
+	public final <T> T getRoleView(final Class<T> roleInterface) {
+		if ((roleInterface == null) || (!roleInterface.isInterface()))
+			throw new IllegalArgumentException( "A role view requires an interface" );
+
+		ConcurrentHashMap<Class, Object> views = roleViews;
+		if (views == null){
+			ROLE_VIEWS.compareAndSet(
+					this,
+					null,
+					new ConcurrentHashMap<Class, Object>() );
+			views = roleViews;
+		}
+
+		Object view = views.get( roleInterface );
+		if (view == null){
+			final Object created = Proxy.newProxyInstance(
+					roleInterface.getClassLoader(),
+					new Class[] { roleInterface },
+					new RoleViewHandler( this, roleInterface ) );
+			view = views.putIfAbsent( roleInterface, created );
+			if (view == null)
+				view = created;
+		}
+
+		return roleInterface.cast( view );
+	}
+
+	/**
+	 * Unbinds a role injected in place, and optionally all the roles injected
+	 * after it.
+	 * 
+	 * @param role
+	 *            the role implementation
+	 * @param following
+	 *            true if the roles injected after the specified one must be
+	 *            unbound too
+	 * @return the table that has been replaced, that still holds all the
+	 *         unbound roles, or null if the role was not bound
+	 */
+	public final RoleDispatchTable unbindDispatchedRole(final IRole role,
+														final boolean following) {
+		RoleDispatchTable current;
+		RoleDispatchTable changed;
+		do{
+			current = dispatchTable;
+			if (current == null)
+				return null;
+
+			changed = (following ? current.until( role ) : current
+					.without( role ));
+			if (changed == current)
+				return null;
+		}while (!DISPATCH_TABLE.compareAndSet( this, current, changed ));
 
+		return current;
 	}
 
 	/**
@@ -129,7 +394,9 @@ public class LocalAgentProxy extends AgentProxy {
 	public AgentProxy update() {
 		// return the proxy associated with the agent
 		final IProxyStorage storage = WhiteCat.getProxyStorage();
-		return storage.getLastUpdatedAgentProxy( getAgentProxyID() );
+		final AgentProxy updated = storage
+				.getLastUpdatedAgentProxy( getAgentProxyID() );
+		return (updated != null ? updated : this);
 	}
 
 }
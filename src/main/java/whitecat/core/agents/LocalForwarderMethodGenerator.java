@@ -43,12 +43,14 @@ import javassist.CtMethod;
 import whitecat.core.IRoleOperation;
 import whitecat.core.exceptions.WCForwarderMethodException;
 import whitecat.core.role.IRole;
+import whitecat.core.role.LazyRole;
 
 /**
  * A method forwarder generator that works assuming that the proxy and the agent
  * using the role are local each other. The method generated exploits a
  * capability of the LocalAgentProxy that is an hashmap that stores references
- * to the role instance.
+ * to the role instance. The forwarders get the role thru the proxy, so that a
+ * {@link LazyRole} is created only when the first forwarder is called.
  * 
  * @author Luca Ferrari - fluca1978 (at) gmail.com
  * 
@@ -127,7 +129,7 @@ public class LocalForwarderMethodGenerator implements IMethodForwarderGenerator
 			methodCode.append( " ((" );
 			methodCode.append( roleClassName );
 			methodCode.append( " ) " );
-			methodCode.append( " this.roleMap.get(\"" );
+			methodCode.append( " this.getRoleImplementation(\"" );
 			methodCode.append( hashMapKey );
 			methodCode.append( "\"))." );
 			methodCode.append( interfaceMethod.getName() );
@@ -145,7 +147,7 @@ public class LocalForwarderMethodGenerator implements IMethodForwarderGenerator
 	public synchronized final void init(final IRoleOperation roleOperation) {
 		this.init(
 				roleOperation.getAgentProxy().getClass().getName(),
-				roleOperation.getRole().getClass().getName(),
+				LazyRole.roleClassOf( roleOperation.getRole() ).getName(),
 				roleOperation.getRoleImplementationAccessKey() );
 	}
 
@@ -56,6 +56,24 @@ public class LocalProxyHandler implements IProxyHandler<LocalAgentProxy> {
 	private LocalAgentProxy	sourceProxy			= null;
 	private LocalAgentProxy	destinationProxy	= null;
 
+	/**
+	 * Provides the destination proxy of this handler.
+	 * 
+	 * @return the destination proxy, or null if not set yet
+	 */
+	protected final LocalAgentProxy getDestinationProxy() {
+		return destinationProxy;
+	}
+
+	/**
+	 * Provides the source proxy of this handler.
+	 * 
+	 * @return the source proxy, or null if not set yet
+	 */
+	protected final LocalAgentProxy getSourceProxy() {
+		return sourceProxy;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -122,8 +140,8 @@ public class LocalProxyHandler implements IProxyHandler<LocalAgentProxy> {
 		// bad!
 		if ((sourceProxy instanceof IClonableAgentProxy)
 				&& (destinationProxy instanceof IClonableAgentProxy))
-			((IClonableAgentProxy) sourceProxy)
-					.cloneAgentProxyState( (IClonableAgentProxy) destinationProxy );
+			((IClonableAgentProxy) destinationProxy)
+					.cloneAgentProxyState( (IClonableAgentProxy) sourceProxy );
 
 		return true;
 	}
@@ -0,0 +1,180 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core.agents;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import whitecat.core.exceptions.WCProxyException;
+
+/**
+ * A local proxy handler that moves the state of the source proxy into the
+ * destination proxy instead of copying it. Each instance field of the source
+ * proxy is assigned, by reference, to the field with the same name declared by
+ * the class with the same name in the destination hierarchy: the role map, the
+ * agent proxy id and the extended state of the proxy are not duplicated, and
+ * the cloneAgentProxyState method of clonable proxies is not called at all.
+ * 
+ * This handler must be used only when the source proxy is discarded after the
+ * update, as the role booster does, since both the proxies share the same
+ * state once updated. The fields of each proxy class are collected once and
+ * kept for the following updates.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public class MovingProxyHandler extends LocalProxyHandler {
+
+	/**
+	 * The instance fields of each proxy class, keyed by the name of the
+	 * declaring class and the name of the field.
+	 */
+	private static final ConcurrentHashMap<Class, Map<String, Field>>	fields	= new ConcurrentHashMap<Class, Map<String, Field>>();
+
+	/**
+	 * Drops all the collected fields, so that the proxy classes will be
+	 * analyzed again.
+	 */
+	public static final void clearFields() {
+		fields.clear();
+	}
+
+	/**
+	 * Collects the instance fields of the specified class and of its
+	 * superclasses, making them accessible.
+	 * 
+	 * @param clazz
+	 *            the proxy class
+	 * @return the fields keyed by declaring class name and field name
+	 */
+	private static Map<String, Field> collectFields(final Class clazz) {
+		final Map<String, Field> collected = new HashMap<String, Field>();
+		for (Class current = clazz; current != null; current = current
+				.getSuperclass())
+			for (final Field field : current.getDeclaredFields()){
+				if (Modifier.isStatic( field.getModifiers() )
+						|| field.isSynthetic())
+					continue;
+
+				field.setAccessible( true );
+				collected.put( current.getName() + "." + field.getName(), field );
+			}
+
+		return collected;
+	}
+
+	/**
+	 * Provides the instance fields of the specified class, collecting them the
+	 * first time.
+	 * 
+	 * @param clazz
+	 *            the proxy class
+	 * @return the fields keyed by declaring class name and field name
+	 */
+	private static Map<String, Field> getFields(final Class clazz) {
+		final Map<String, Field> known = fields.get( clazz );
+		if (known != null)
+			return known;
+
+		final Map<String, Field> collected = collectFields( clazz );
+		final Map<String, Field> installed = fields.putIfAbsent(
+				clazz,
+				collected );
+		return (installed != null ? installed : collected);
+	}
+
+	/**
+	 * Moves the state of the source proxy into the destination one. A field is
+	 * moved only if the destination field can hold the value of the source
+	 * one, the other fields are left untouched.
+	 * 
+	 * @param source
+	 *            the proxy to move the state from
+	 * @param destination
+	 *            the proxy to move the state to
+	 * @throws WCProxyException
+	 *             if a field cannot be accessed
+	 */
+	private static void moveState(final LocalAgentProxy source,
+									final LocalAgentProxy destination)
+																		throws WCProxyException {
+		final Map<String, Field> sourceFields = getFields( source.getClass() );
+		final Map<String, Field> destinationFields = getFields( destination
+				.getClass() );
+
+		try{
+			for (final Map.Entry<String, Field> entry : destinationFields
+					.entrySet()){
+				final Field sourceField = sourceFields.get( entry.getKey() );
+				final Field destinationField = entry.getValue();
+				if ((sourceField == null)
+						|| (!destinationField.getType().isAssignableFrom(
+								sourceField.getType() )))
+					continue;
+
+				destinationField.set( destination, sourceField.get( source ) );
+			}
+		}catch (final IllegalAccessException e){
+			throw new WCProxyException( "Cannot move the proxy state", e );
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.agents.LocalProxyHandler#updateProxy()
+	 */
+	@Override
+	public boolean updateProxy() throws WCProxyException {
+		final LocalAgentProxy source = getSourceProxy();
+		final LocalAgentProxy destination = getDestinationProxy();
+
+		// check if both the proxy are in the right place
+		if ((source == null) || (destination == null))
+			throw new WCProxyException(
+					"Source or destination proxies are not set yet!" );
+
+		moveState( source, destination );
+		return true;
+	}
+
+}
@@ -0,0 +1,237 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core.agents;
+
+import whitecat.core.role.IRole;
+
+/**
+ * An immutable table that binds the public role interfaces played by an agent
+ * to the role implementations, in the order the roles have been injected. The
+ * table is never changed: each role change builds a new table, that can
+ * replace the old one atomically in the proxy.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public final class RoleDispatchTable {
+
+	/**
+	 * The table without roles.
+	 */
+	public static final RoleDispatchTable	EMPTY		= new RoleDispatchTable(
+																new Class[0],
+																new IRole[0] );
+
+	/**
+	 * The public role interfaces, in injection order.
+	 */
+	private final Class[]					interfaces;
+
+	/**
+	 * The role implementations, at the same index of their interfaces.
+	 */
+	private final IRole[]					roles;
+
+	/**
+	 * Builds the table over the specified arrays, that must not be changed
+	 * anymore.
+	 * 
+	 * @param interfaces
+	 *            the public role interfaces
+	 * @param roles
+	 *            the role implementations
+	 */
+	private RoleDispatchTable(final Class[] interfaces, final IRole[] roles) {
+		super();
+		this.interfaces = interfaces;
+		this.roles = roles;
+	}
+
+	/**
+	 * Checks if the specified role is in the table.
+	 * 
+	 * @param role
+	 *            the role implementation
+	 * @return true if the role is bound to an interface
+	 */
+	public boolean contains(final IRole role) {
+		return indexOf( role ) >= 0;
+	}
+
+	/**
+	 * Provides the specified role and all the roles injected after it, that is
+	 * the roles a call to {@link #until(IRole)} drops.
+	 * 
+	 * @param role
+	 *            the role implementation
+	 * @return the roles in injection order, empty if the role is not in the
+	 *         table
+	 */
+	public IRole[] from(final IRole role) {
+		final int index = indexOf( role );
+		if (index < 0)
+			return new IRole[0];
+
+		final IRole[] following = new IRole[roles.length - index];
+		System.arraycopy( roles, index, following, 0, following.length );
+		return following;
+	}
+
+	/**
+	 * Provides the role bound to the specified interface.
+	 * 
+	 * @param roleInterface
+	 *            the public role interface
+	 * @return the role implementation, or null if the interface is not bound
+	 */
+	public IRole getRole(final Class roleInterface) {
+		for (int i = 0; i < interfaces.length; i++)
+			if (interfaces[i] == roleInterface)
+				return roles[i];
+
+		return null;
+	}
+
+	/**
+	 * Provides the index of the specified role.
+	 * 
+	 * @param role
+	 *            the role implementation
+	 * @return the index of the role, or -1 if the role is not in the table
+	 */
+	private int indexOf(final IRole role) {
+		for (int i = 0; i < roles.length; i++)
+			if (roles[i] == role)
+				return i;
+
+		return -1;
+	}
+
+	/**
+	 * Provides the number of roles in the table.
+	 * 
+	 * @return the number of bound interfaces
+	 */
+	public int size() {
+		return roles.length;
+	}
+
+	/**
+	 * Builds a table without the specified role and all the roles injected
+	 * after it.
+	 * 
+	 * @param role
+	 *            the role to remove
+	 * @return the new table, or this table if the role is not in the table
+	 */
+	public RoleDispatchTable until(final IRole role) {
+		final int index = indexOf( role );
+		if (index < 0)
+			return this;
+		else if (index == 0)
+			return EMPTY;
+
+		final Class[] newInterfaces = new Class[index];
+		final IRole[] newRoles = new IRole[index];
+		System.arraycopy( interfaces, 0, newInterfaces, 0, index );
+		System.arraycopy( roles, 0, newRoles, 0, index );
+		return new RoleDispatchTable( newInterfaces, newRoles );
+	}
+
+	/**
+	 * Builds a table with the specified role bound to the interface. If the
+	 * interface is already bound, the new role replaces the old one.
+	 * 
+	 * @param roleInterface
+	 *            the public role interface
+	 * @param role
+	 *            the role implementation
+	 * @return the new table
+	 */
+	public RoleDispatchTable with(final Class roleInterface, final IRole role) {
+		for (int i = 0; i < interfaces.length; i++)
+			if (interfaces[i] == roleInterface){
+				final IRole[] newRoles = roles.clone();
+				newRoles[i] = role;
+				return new RoleDispatchTable( interfaces, newRoles );
+			}
+
+		final Class[] newInterfaces = new Class[interfaces.length + 1];
+		final IRole[] newRoles = new IRole[roles.length + 1];
+		System.arraycopy( interfaces, 0, newInterfaces, 0, interfaces.length );
+		System.arraycopy( roles, 0, newRoles, 0, roles.length );
+		newInterfaces[interfaces.length] = roleInterface;
+		newRoles[roles.length] = role;
+		return new RoleDispatchTable( newInterfaces, newRoles );
+	}
+
+	/**
+	 * Builds a table without the specified role.
+	 * 
+	 * @param role
+	 *            the role to remove
+	 * @return the new table, or this table if the role is not in the table
+	 */
+	public RoleDispatchTable without(final IRole role) {
+		final int index = indexOf( role );
+		if (index < 0)
+			return this;
+		else if (roles.length == 1)
+			return EMPTY;
+
+		final Class[] newInterfaces = new Class[interfaces.length - 1];
+		final IRole[] newRoles = new IRole[roles.length - 1];
+		System.arraycopy( interfaces, 0, newInterfaces, 0, index );
+		System.arraycopy( roles, 0, newRoles, 0, index );
+		System.arraycopy(
+				interfaces,
+				index + 1,
+				newInterfaces,
+				index,
+				interfaces.length - index - 1 );
+		System.arraycopy(
+				roles,
+				index + 1,
+				newRoles,
+				index,
+				roles.length - index - 1 );
+		return new RoleDispatchTable( newInterfaces, newRoles );
+	}
+
+}
@@ -0,0 +1,255 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core.agents;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import whitecat.core.role.IRole;
+
+/**
+ * An immutable map of the role implementations bound to a proxy, keyed by the
+ * keys used by the forwarder methods. Up to {@link #MAX_ARRAY_SIZE} roles the
+ * map is kept in two small arrays, that is the common case for an agent; a
+ * hash map is used only beyond that size. Since the map never changes, it is
+ * shared between the old and the new proxy after a role manipulation, and
+ * each role change builds a new map.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public final class RoleMap {
+
+	/**
+	 * The map without roles.
+	 */
+	public static final RoleMap		EMPTY			= new RoleMap(
+															new String[0],
+															new IRole[0] );
+
+	/**
+	 * The maximum number of roles kept in the arrays.
+	 */
+	public static final int			MAX_ARRAY_SIZE	= 8;
+
+	/**
+	 * The keys of the roles, if the map is array based.
+	 */
+	private final String[]			keys;
+
+	/**
+	 * The roles, at the same index of their keys, if the map is array based.
+	 */
+	private final IRole[]			roles;
+
+	/**
+	 * The roles keyed by their keys, if the map is too big for the arrays.
+	 */
+	private final Map<String, IRole>	map;
+
+	/**
+	 * Builds an array based map over the specified arrays, that must not be
+	 * changed anymore.
+	 * 
+	 * @param keys
+	 *            the keys of the roles
+	 * @param roles
+	 *            the roles
+	 */
+	private RoleMap(final String[] keys, final IRole[] roles) {
+		super();
+		this.keys = keys;
+		this.roles = roles;
+		map = null;
+	}
+
+	/**
+	 * Builds a hash based map over the specified map, that must not be changed
+	 * anymore.
+	 * 
+	 * @param map
+	 *            the roles keyed by their keys
+	 */
+	private RoleMap(final Map<String, IRole> map) {
+		super();
+		keys = null;
+		roles = null;
+		this.map = map;
+	}
+
+	/**
+	 * Provides the role bound to the specified key.
+	 * 
+	 * @param key
+	 *            the key of the role
+	 * @return the role, or null if no role is bound to the key
+	 */
+	public IRole get(final String key) {
+		if (map != null)
+			return map.get( key );
+
+		final int index = indexOf( key );
+		return (index < 0 ? null : roles[index]);
+	}
+
+	/**
+	 * Provides the index of the specified key in the arrays.
+	 * 
+	 * @param key
+	 *            the key to search for
+	 * @return the index of the key, or -1 if the key is not in the map
+	 */
+	private int indexOf(final String key) {
+		// the keys are usually the same string instances, check them first
+		for (int i = 0; i < keys.length; i++)
+			if (keys[i] == key)
+				return i;
+
+		if (key != null)
+			for (int i = 0; i < keys.length; i++)
+				if (key.equals( keys[i] ))
+					return i;
+
+		return -1;
+	}
+
+	/**
+	 * Provides the number of roles in the map.
+	 * 
+	 * @return the number of roles
+	 */
+	public int size() {
+		return (map != null ? map.size() : keys.length);
+	}
+
+	/**
+	 * Builds a map with the specified role bound to the key. If the key is
+	 * already bound, the new role replaces the old one.
+	 * 
+	 * @param key
+	 *            the key of the role
+	 * @param role
+	 *            the role
+	 * @return the new map
+	 */
+	public RoleMap with(final String key, final IRole role) {
+		if (map != null){
+			final Map<String, IRole> newMap = new HashMap<String, IRole>( map );
+			newMap.put( key, role );
+			return new RoleMap( newMap );
+		}
+
+		final int index = indexOf( key );
+		if (index >= 0){
+			if (roles[index] == role)
+				return this;
+
+			final IRole[] newRoles = roles.clone();
+			newRoles[index] = role;
+			return new RoleMap( keys, newRoles );
+		}
+
+		// too many roles for the arrays
+		if (keys.length == MAX_ARRAY_SIZE){
+			final Map<String, IRole> newMap = new HashMap<String, IRole>();
+			for (int i = 0; i < keys.length; i++)
+				newMap.put( keys[i], roles[i] );
+			newMap.put( key, role );
+			return new RoleMap( newMap );
+		}
+
+		final String[] newKeys = new String[keys.length + 1];
+		final IRole[] newRoles = new IRole[roles.length + 1];
+		System.arraycopy( keys, 0, newKeys, 0, keys.length );
+		System.arraycopy( roles, 0, newRoles, 0, roles.length );
+		newKeys[keys.length] = key;
+		newRoles[roles.length] = role;
+		return new RoleMap( newKeys, newRoles );
+	}
+
+	/**
+	 * Builds a map without the role bound to the specified key.
+	 * 
+	 * @param key
+	 *            the key of the role to remove
+	 * @return the new map, or this map if the key is not bound
+	 */
+	public RoleMap without(final String key) {
+		if (map != null){
+			if (!map.containsKey( key ))
+				return this;
+
+			final Map<String, IRole> newMap = new HashMap<String, IRole>( map );
+			newMap.remove( key );
+			if (newMap.size() > MAX_ARRAY_SIZE)
+				return new RoleMap( newMap );
+
+			// small enough to get back to the arrays
+			RoleMap arrays = EMPTY;
+			for (final Map.Entry<String, IRole> entry : newMap.entrySet())
+				arrays = arrays.with( entry.getKey(), entry.getValue() );
+			return arrays;
+		}
+
+		final int index = indexOf( key );
+		if (index < 0)
+			return this;
+		else if (keys.length == 1)
+			return EMPTY;
+
+		final String[] newKeys = new String[keys.length - 1];
+		final IRole[] newRoles = new IRole[roles.length - 1];
+		System.arraycopy( keys, 0, newKeys, 0, index );
+		System.arraycopy( roles, 0, newRoles, 0, index );
+		System.arraycopy(
+				keys,
+				index + 1,
+				newKeys,
+				index,
+				keys.length - index - 1 );
+		System.arraycopy(
+				roles,
+				index + 1,
+				newRoles,
+				index,
+				roles.length - index - 1 );
+		return new RoleMap( newKeys, newRoles );
+	}
+
+}
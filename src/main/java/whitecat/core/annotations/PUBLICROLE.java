@@ -76,4 +76,16 @@ public @interface PUBLICROLE {
 	 * @return the fully qualified role interface name
 	 */
 	public String roleInterface() default "";
+
+	/**
+	 * How the instances of this role are shared among the agents (see
+	 * {@link whitecat.core.role.IRolePool}). The scope is applied only to the
+	 * instances acquired thru the role pool or a
+	 * {@link whitecat.core.role.LazyRole}: a role instance created by the
+	 * caller and passed to a role booster is always played by that agent
+	 * only.
+	 * 
+	 * @return the scope of the role
+	 */
+	public RoleScope scope() default RoleScope.PER_AGENT;
 }
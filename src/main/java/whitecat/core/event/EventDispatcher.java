@@ -41,8 +41,10 @@ package whitecat.core.event;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import whitecat.core.agents.AgentProxyID;
+import whitecat.core.metrics.RoleEngineMetrics;
 import whitecat.core.role.descriptors.RoleDescriptor;
 
 /**
@@ -82,6 +84,11 @@ public class EventDispatcher {
 	 */
 	private final List<EventListener>							globalEventListeners	= new LinkedList<EventListener>();
 
+	/**
+	 * The number of events being dispatched or waiting for the dispatcher.
+	 */
+	private final AtomicInteger									queueDepth				= new AtomicInteger();
+
 	/**
 	 * Adds a new event listener to the global map of the listeners. Each
 	 * listener is interested in a set of proxyID.
@@ -146,9 +153,30 @@ public class EventDispatcher {
 	 *            the role descriptor the firing event refers to
 	 * @return the number of listeners notified (including the global ones).
 	 */
-	public synchronized int fireEvent(final AgentProxyID proxyID,
-										final EventType type,
-										final RoleDescriptor roleDescriptor) {
+	public int fireEvent(	final AgentProxyID proxyID, final EventType type,
+							final RoleDescriptor roleDescriptor) {
+		queueDepth.incrementAndGet();
+		try{
+			return dispatchEvent( proxyID, type, roleDescriptor );
+		}finally{
+			queueDepth.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Dispatches an event to the listeners, one event at a time.
+	 * 
+	 * @param proxyID
+	 *            the id of the proxy
+	 * @param type
+	 *            the type of the event
+	 * @param roleDescriptor
+	 *            the role descriptor the firing event refers to
+	 * @return the number of listeners notified (including the global ones).
+	 */
+	private synchronized int dispatchEvent(	final AgentProxyID proxyID,
+											final EventType type,
+											final RoleDescriptor roleDescriptor) {
 		// check arguments
 		if ((proxyID == null)
 				|| (type == null)
@@ -156,6 +184,8 @@ public class EventDispatcher {
 						.isEmpty()))
 			return 0;
 
+		RoleEngineMetrics.getInstance().eventDispatched();
+
 		// the counter of the notified events
 		int notified = 0;
 
@@ -191,6 +221,16 @@ public class EventDispatcher {
 		return notified;
 	}
 
+	/**
+	 * Provides the number of events being dispatched, including the ones
+	 * waiting for the dispatcher to be available.
+	 * 
+	 * @return the dispatch queue depth
+	 */
+	public final int getQueueDepth() {
+		return queueDepth.get();
+	}
+
 	/**
 	 * Removes the specified listener for the specified proxy id.
 	 * 
@@ -38,6 +38,8 @@
  */
 package whitecat.core.lock;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import whitecat.core.agents.AgentProxy;
 
 /**
@@ -61,6 +63,21 @@ public class AgentProxyStatus {
 		return new AgentProxyStatus( proxy );
 	}
 
+	/**
+	 * The number of threads waiting on any proxy status.
+	 */
+	private static final AtomicInteger	allWaiters	= new AtomicInteger();
+
+	/**
+	 * Provides the number of threads currently waiting for any proxy to be
+	 * unlocked.
+	 * 
+	 * @return the number of waiting threads
+	 */
+	public static int getAllWaiters() {
+		return allWaiters.get();
+	}
+
 	/**
 	 * The proxy (last updated) this status is referred to.
 	 */
@@ -83,6 +100,11 @@ public class AgentProxyStatus {
 	 */
 	private final Object	lockingObject		= new Object();
 
+	/**
+	 * The number of threads waiting on the locking object.
+	 */
+	private final AtomicInteger	waiters			= new AtomicInteger();
+
 	/**
 	 * Default constructor: it is possible to build a proxy status only having a
 	 * proxy to wrap into.
@@ -95,6 +117,26 @@ public class AgentProxyStatus {
 		this.proxy = proxy;
 	}
 
+	/**
+	 * Suspends the calling thread on the locking object, keeping track of the
+	 * waiting threads. The caller must own the monitor of the locking object.
+	 * 
+	 * @param timeout
+	 *            the max time to wait for, zero to wait until notified
+	 * @throws InterruptedException
+	 *             if the thread is interrupted while waiting
+	 */
+	private final void await(final long timeout) throws InterruptedException {
+		waiters.incrementAndGet();
+		allWaiters.incrementAndGet();
+		try{
+			lockingObject.wait( timeout );
+		}finally{
+			allWaiters.decrementAndGet();
+			waiters.decrementAndGet();
+		}
+	}
+
 	/**
 	 * Decrement the lock count, that is a thread is no more locking this proxy.
 	 */
@@ -137,7 +179,7 @@ public class AgentProxyStatus {
 		try{
 			synchronized (lockingObject){
 				while (lockCount > 0)
-					lockingObject.wait();
+					await( 0 );
 			}
 		}catch (final InterruptedException e){
 			e.printStackTrace();
@@ -146,6 +188,16 @@ public class AgentProxyStatus {
 		return proxy;
 	}
 
+	/**
+	 * Provides the number of threads currently waiting for this proxy to be
+	 * unlocked.
+	 * 
+	 * @return the number of waiting threads
+	 */
+	public final int getWaiters() {
+		return waiters.get();
+	}
+
 	/**
 	 * Increments the lock count, that is another thread/agent is locking this
 	 * proxy.
@@ -178,7 +230,7 @@ public class AgentProxyStatus {
 		try{
 			synchronized (lockingObject){
 				incrementLockCount();
-				lockingObject.wait();
+				await( 0 );
 			}
 		}catch (final InterruptedException e){
 			e.printStackTrace();
@@ -195,7 +247,7 @@ public class AgentProxyStatus {
 		try{
 			synchronized (lockingObject){
 				incrementLockCount();
-				lockingObject.wait( thresold );
+				await( thresold );
 			}
 		}catch (final InterruptedException e){
 			e.printStackTrace();
@@ -0,0 +1,187 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A latency histogram with power of two buckets, that can be updated by many
+ * threads without locking. The bucket <i>i</i> counts the samples below 2^i
+ * microseconds (and not below 2^(i-1) microseconds), the last bucket counts
+ * also all the longer samples. The percentiles are therefore approximated to
+ * the upper bound of their bucket.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public final class LatencyHistogram {
+
+	/**
+	 * The number of buckets, the last one is above half an hour.
+	 */
+	public static final int			BUCKETS	= 32;
+
+	/**
+	 * The samples in each bucket.
+	 */
+	private final AtomicLongArray	counts	= new AtomicLongArray( BUCKETS );
+
+	/**
+	 * The sum of all the samples, in nanoseconds.
+	 */
+	private final AtomicLong		total	= new AtomicLong();
+
+	/**
+	 * The longest sample, in nanoseconds.
+	 */
+	private final AtomicLong		max		= new AtomicLong();
+
+	/**
+	 * Provides the bucket a sample belongs to.
+	 * 
+	 * @param nanos
+	 *            the sample in nanoseconds
+	 * @return the index of the bucket
+	 */
+	static final int bucketOf(final long nanos) {
+		final long micros = nanos / 1000;
+		if (micros <= 0)
+			return 0;
+
+		return Math.min( BUCKETS - 1, 64 - Long.numberOfLeadingZeros( micros ) );
+	}
+
+	/**
+	 * Provides the number of samples.
+	 * 
+	 * @return the number of samples
+	 */
+	public final long getCount() {
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++)
+			count += counts.get( i );
+
+		return count;
+	}
+
+	/**
+	 * Provides a snapshot of the buckets.
+	 * 
+	 * @return the number of samples of each bucket
+	 */
+	public final long[] getCounts() {
+		final long[] snapshot = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++)
+			snapshot[i] = counts.get( i );
+
+		return snapshot;
+	}
+
+	/**
+	 * Provides the longest sample.
+	 * 
+	 * @return the longest sample in microseconds
+	 */
+	public final long getMaxMicros() {
+		return max.get() / 1000;
+	}
+
+	/**
+	 * Provides the mean of the samples.
+	 * 
+	 * @return the mean in microseconds, zero if there are no samples
+	 */
+	public final long getMeanMicros() {
+		final long count = getCount();
+		return (count == 0) ? 0 : (total.get() / count) / 1000;
+	}
+
+	/**
+	 * Provides the approximated percentile of the samples.
+	 * 
+	 * @param percentile
+	 *            the percentile, between 0 and 100
+	 * @return the upper bound of the bucket the percentile falls in, in
+	 *         microseconds, zero if there are no samples
+	 */
+	public final long getPercentileMicros(final double percentile) {
+		final long[] snapshot = getCounts();
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++)
+			count += snapshot[i];
+		if (count == 0)
+			return 0;
+
+		final long rank = (long) Math.ceil( (count * percentile) / 100 );
+		long seen = 0;
+		for (int i = 0; i < (BUCKETS - 1); i++){
+			seen += snapshot[i];
+			if (seen >= rank)
+				return 1L << i;
+		}
+
+		return getMaxMicros();
+	}
+
+	/**
+	 * Records a sample.
+	 * 
+	 * @param nanos
+	 *            the sample in nanoseconds
+	 */
+	public final void record(final long nanos) {
+		counts.incrementAndGet( bucketOf( nanos ) );
+		total.addAndGet( nanos );
+
+		long current = max.get();
+		while ((nanos > current) && !max.compareAndSet( current, nanos ))
+			current = max.get();
+	}
+
+	/**
+	 * Discards all the samples.
+	 */
+	public final void reset() {
+		for (int i = 0; i < BUCKETS; i++)
+			counts.set( i, 0 );
+		total.set( 0 );
+		max.set( 0 );
+	}
+}
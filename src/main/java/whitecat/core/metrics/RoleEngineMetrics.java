@@ -0,0 +1,638 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+import whitecat.core.ProxyStorageImpl;
+import whitecat.core.RoleInjectionType;
+import whitecat.core.event.EventDispatcher;
+
+/**
+ * The metrics of the role engine: the role operations per injection type, the
+ * classes generated and reused, the class generation latency, the proxy lock
+ * waiters, the event dispatches and the scheduled tasks. The components update
+ * the metrics thru the single instance of this class, that is exposed as a
+ * platform MBean once {@link #register()} has been called.
+ * 
+ * The counters are plain atomic variables, so updating them costs a single
+ * atomic instruction and never blocks the role operations. The traces of the
+ * last role operations, kept by the {@link RoleOperationTracer}, can be dumped
+ * thru the MBean too.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public final class RoleEngineMetrics implements RoleEngineMetricsMBean {
+
+	/**
+	 * The name the metrics are registered with in the MBean server.
+	 */
+	public static final String				OBJECT_NAME	= "whitecat:type=RoleEngineMetrics";
+
+	/**
+	 * The logger for the metrics.
+	 */
+	private static Logger					logger		= org.apache.log4j.Logger
+																.getLogger( RoleEngineMetrics.class );
+
+	/**
+	 * The single instance.
+	 */
+	private static final RoleEngineMetrics	mySelf		= new RoleEngineMetrics();
+
+	/**
+	 * Indicates if the metrics have been registered in the MBean server.
+	 */
+	private static boolean					registered	= false;
+
+	/**
+	 * Provides the metrics instance.
+	 * 
+	 * @return the role engine metrics
+	 */
+	public static RoleEngineMetrics getInstance() {
+		return mySelf;
+	}
+
+	/**
+	 * Registers the metrics in the platform MBean server, if not registered
+	 * yet. A failure is logged but does not prevent the role engine from
+	 * working.
+	 * 
+	 * @return true if the metrics are registered
+	 */
+	public synchronized static boolean register() {
+		if (registered)
+			return true;
+
+		try{
+			final MBeanServer server = ManagementFactory
+					.getPlatformMBeanServer();
+			final ObjectName name = new ObjectName( OBJECT_NAME );
+			if (!server.isRegistered( name ))
+				server.registerMBean( mySelf, name );
+			registered = true;
+		}catch (final JMException e){
+			logger.warn( "Cannot register the role engine metrics", e );
+		}catch (final SecurityException e){
+			logger.warn( "Cannot register the role engine metrics", e );
+		}
+
+		return registered;
+	}
+
+	/**
+	 * Removes the metrics from the platform MBean server, if registered.
+	 */
+	public synchronized static void unregister() {
+		if (!registered)
+			return;
+
+		try{
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+					new ObjectName( OBJECT_NAME ) );
+		}catch (final JMException e){
+			logger.warn( "Cannot unregister the role engine metrics", e );
+		}
+
+		registered = false;
+	}
+
+	/**
+	 * The role operations completed, indexed by the injection type ordinal.
+	 */
+	private final AtomicLongArray	completedOperations	= new AtomicLongArray(
+																RoleInjectionType
+																		.values().length );
+
+	/**
+	 * The role operations failed, indexed by the injection type ordinal.
+	 */
+	private final AtomicLongArray	failedOperations	= new AtomicLongArray(
+																RoleInjectionType
+																		.values().length );
+
+	/**
+	 * The proxy classes generated.
+	 */
+	private final AtomicLong		generatedClasses	= new AtomicLong();
+
+	/**
+	 * The proxy classes reused without generating them.
+	 */
+	private final AtomicLong		classCacheHits		= new AtomicLong();
+
+	/**
+	 * The task invoker classes generated.
+	 */
+	private final AtomicLong		generatedInvokers	= new AtomicLong();
+
+	/**
+	 * The task invokers served without generating them.
+	 */
+	private final AtomicLong		invokerCacheHits	= new AtomicLong();
+
+	/**
+	 * The class generation latency.
+	 */
+	private final LatencyHistogram	generationLatency	= new LatencyHistogram();
+
+	/**
+	 * The events dispatched.
+	 */
+	private final AtomicLong		eventsDispatched	= new AtomicLong();
+
+	/**
+	 * The tasks currently scheduled.
+	 */
+	private final AtomicInteger		scheduledTasks		= new AtomicInteger();
+
+	/**
+	 * The role bound timers currently running.
+	 */
+	private final AtomicInteger		runningTimers		= new AtomicInteger();
+
+	/**
+	 * The scheduled tasks executed.
+	 */
+	private final AtomicLong		tasksExecuted		= new AtomicLong();
+
+	/**
+	 * The scheduled tasks failed.
+	 */
+	private final AtomicLong		tasksFailed			= new AtomicLong();
+
+	private RoleEngineMetrics() {
+		super();
+	}
+
+	/**
+	 * Records a proxy class reused without generating it.
+	 */
+	public final void classCacheHit() {
+		classCacheHits.incrementAndGet();
+	}
+
+	/**
+	 * Records a proxy class generation.
+	 * 
+	 * @param nanos
+	 *            the time spent generating the class, in nanoseconds
+	 */
+	public final void classGenerated(final long nanos) {
+		generatedClasses.incrementAndGet();
+		generationLatency.record( nanos );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.metrics.RoleEngineMetricsMBean#dumpRoleOperationTraces()
+	 */
+	public String[] dumpRoleOperationTraces() {
+		final List<RoleOperationTrace> traces = RoleOperationTracer.getTraces();
+		final String[] dump = new String[traces.size()];
+		for (int i = 0; i < dump.length; i++)
+			dump[i] = traces.get( i ).toString();
+
+		return dump;
+	}
+
+	/**
+	 * Records a task invoker served without generating it.
+	 */
+	public final void invokerCacheHit() {
+		invokerCacheHits.incrementAndGet();
+	}
+
+	/**
+	 * Records a task invoker class generation.
+	 */
+	public final void invokerGenerated() {
+		generatedInvokers.incrementAndGet();
+	}
+
+	/**
+	 * Records an event dispatched.
+	 */
+	public final void eventDispatched() {
+		eventsDispatched.incrementAndGet();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.metrics.RoleEngineMetricsMBean#getClassCacheHits()
+	 */
+	public long getClassCacheHits() {
+		return classCacheHits.get();
+	}
+
+	/**
+	 * Provides the number of role operations completed of the specified type.
+	 * 
+	 * @param type
+	 *            the injection type
+	 * @return the completed operations
+	 */
+	public final long getCompletedOperations(final RoleInjectionType type) {
+		return completedOperations.get( type.ordinal() );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.metrics.RoleEngineMetricsMBean#getEventDispatchQueueDepth()
+	 */
+	public int getEventDispatchQueueDepth() {
+		return EventDispatcher.getInstance().getQueueDepth();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.metrics.RoleEngineMetricsMBean#getEventsDispatched()
+	 */
+	public long getEventsDispatched() {
+		return eventsDispatched.get();
+	}
+
+	/**
+	 * Provides the number of role operations failed of the specified type.
+	 * 
+	 * @param type
+	 *            the injection type
+	 * @return the failed operations
+	 */
+	public final long getFailedOperations(final RoleInjectionType type) {
+		return failedOperations.get( type.ordinal() );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.metrics.RoleEngineMetricsMBean#getGeneratedClasses()
+	 */
+	public long getGeneratedClasses() {
+		return generatedClasses.get();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.metrics.RoleEngineMetricsMBean#getGeneratedInvokers()
+	 */
+	public long getGeneratedInvokers() {
+		return generatedInvokers.get();
+	}
+
+	/**
+	 * Provides the class generation latency histogram.
+	 * 
+	 * @return the histogram
+	 */
+	public final LatencyHistogram getGenerationLatency() {
+		return generationLatency;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.metrics.RoleEngineMetricsMBean#getGenerationLatency50thMicros
+	 * ()
+	 */
+	public long getGenerationLatency50thMicros() {
+		return generationLatency.getPercentileMicros( 50 );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.metrics.RoleEngineMetricsMBean#getGenerationLatency99thMicros
+	 * ()
+	 */
+	public long getGenerationLatency99thMicros() {
+		return generationLatency.getPercentileMicros( 99 );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.metrics.RoleEngineMetricsMBean#getGenerationLatencyHistogram
+	 * ()
+	 */
+	public long[] getGenerationLatencyHistogram() {
+		return generationLatency.getCounts();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.metrics.RoleEngineMetricsMBean#getGenerationLatencyMaxMicros
+	 * ()
+	 */
+	public long getGenerationLatencyMaxMicros() {
+		return generationLatency.getMaxMicros();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.metrics.RoleEngineMetricsMBean#getGenerationLatencyMeanMicros
+	 * ()
+	 */
+	public long getGenerationLatencyMeanMicros() {
+		return generationLatency.getMeanMicros();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.metrics.RoleEngineMetricsMBean#getInvokerCacheHits()
+	 */
+	public long getInvokerCacheHits() {
+		return invokerCacheHits.get();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.metrics.RoleEngineMetricsMBean#getLockWaiters()
+	 */
+	public int getLockWaiters() {
+		return ProxyStorageImpl.getInstance().getLockWaiters();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.metrics.RoleEngineMetricsMBean#getPublicRoleInjectionFailures
+	 * ()
+	 */
+	public long getPublicRoleInjectionFailures() {
+		return getFailedOperations( RoleInjectionType.ROLE_PUBLIC_INTERFACE_ADDITION_TO_PROXY );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.metrics.RoleEngineMetricsMBean#getPublicRoleInjections()
+	 */
+	public long getPublicRoleInjections() {
+		return getCompletedOperations( RoleInjectionType.ROLE_PUBLIC_INTERFACE_ADDITION_TO_PROXY );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.metrics.RoleEngineMetricsMBean#getPublicRoleRemovalFailures
+	 * ()
+	 */
+	public long getPublicRoleRemovalFailures() {
+		return getFailedOperations( RoleInjectionType.ROLE_PUBLIC_INTERFACE_REMOVAL_FROM_PROXY );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.metrics.RoleEngineMetricsMBean#getPublicRoleRemovals()
+	 */
+	public long getPublicRoleRemovals() {
+		return getCompletedOperations( RoleInjectionType.ROLE_PUBLIC_INTERFACE_REMOVAL_FROM_PROXY );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.metrics.RoleEngineMetricsMBean#getRunningTimers()
+	 */
+	public int getRunningTimers() {
+		return runningTimers.get();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.metrics.RoleEngineMetricsMBean#getScheduledTasks()
+	 */
+	public int getScheduledTasks() {
+		return scheduledTasks.get();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.metrics.RoleEngineMetricsMBean#getTasksExecuted()
+	 */
+	public long getTasksExecuted() {
+		return tasksExecuted.get();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.metrics.RoleEngineMetricsMBean#getTasksFailed()
+	 */
+	public long getTasksFailed() {
+		return tasksFailed.get();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.metrics.RoleEngineMetricsMBean#getVisibleRoleInjectionFailures
+	 * ()
+	 */
+	public long getVisibleRoleInjectionFailures() {
+		return getFailedOperations( RoleInjectionType.ROLE_ANNOTATION_ADDITION_TO_PROXY );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.metrics.RoleEngineMetricsMBean#getVisibleRoleInjections()
+	 */
+	public long getVisibleRoleInjections() {
+		return getCompletedOperations( RoleInjectionType.ROLE_ANNOTATION_ADDITION_TO_PROXY );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.metrics.RoleEngineMetricsMBean#getVisibleRoleRemovalFailures
+	 * ()
+	 */
+	public long getVisibleRoleRemovalFailures() {
+		return getFailedOperations( RoleInjectionType.ROLE_ANNOTATION_REMOVAL_FROM_PROXY );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.metrics.RoleEngineMetricsMBean#getVisibleRoleRemovals()
+	 */
+	public long getVisibleRoleRemovals() {
+		return getCompletedOperations( RoleInjectionType.ROLE_ANNOTATION_REMOVAL_FROM_PROXY );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.metrics.RoleEngineMetricsMBean#isTracingEnabled()
+	 */
+	public boolean isTracingEnabled() {
+		return RoleOperationTracer.isEnabled();
+	}
+
+	/**
+	 * Records the end of a role operation.
+	 * 
+	 * @param type
+	 *            the injection type of the operation
+	 * @param successful
+	 *            true if the operation has been completed, false if it has
+	 *            failed
+	 */
+	public final void operationCompleted(	final RoleInjectionType type,
+											final boolean successful) {
+		if (type == null)
+			return;
+
+		if (successful)
+			completedOperations.incrementAndGet( type.ordinal() );
+		else failedOperations.incrementAndGet( type.ordinal() );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.metrics.RoleEngineMetricsMBean#reset()
+	 */
+	public void reset() {
+		for (int i = 0; i < completedOperations.length(); i++){
+			completedOperations.set( i, 0 );
+			failedOperations.set( i, 0 );
+		}
+
+		generatedClasses.set( 0 );
+		classCacheHits.set( 0 );
+		generatedInvokers.set( 0 );
+		invokerCacheHits.set( 0 );
+		generationLatency.reset();
+		eventsDispatched.set( 0 );
+		tasksExecuted.set( 0 );
+		tasksFailed.set( 0 );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.metrics.RoleEngineMetricsMBean#setTracingEnabled(boolean)
+	 */
+	public void setTracingEnabled(final boolean enabled) {
+		RoleOperationTracer.setEnabled( enabled );
+	}
+
+	/**
+	 * Records the execution of a scheduled task.
+	 * 
+	 * @param successful
+	 *            true if the task has been executed, false if it has failed
+	 */
+	public final void taskExecuted(final boolean successful) {
+		if (successful)
+			tasksExecuted.incrementAndGet();
+		else tasksFailed.incrementAndGet();
+	}
+
+	/**
+	 * Records a task added to a scheduler.
+	 */
+	public final void taskScheduled() {
+		scheduledTasks.incrementAndGet();
+	}
+
+	/**
+	 * Records a task removed from a scheduler.
+	 */
+	public final void taskUnscheduled() {
+		scheduledTasks.decrementAndGet();
+	}
+
+	/**
+	 * Records a role bound timer started.
+	 */
+	public final void timerStarted() {
+		runningTimers.incrementAndGet();
+	}
+
+	/**
+	 * Records a role bound timer stopped, because it has been cancelled or it
+	 * has fired for the last time.
+	 */
+	public final void timerStopped() {
+		runningTimers.decrementAndGet();
+	}
+}
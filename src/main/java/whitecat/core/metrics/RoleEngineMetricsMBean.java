@@ -0,0 +1,250 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core.metrics;
+
+/**
+ * The management interface of the role engine metrics, exposed thru JMX. The
+ * counters grow from the start of the virtual machine (or from the last reset),
+ * while the gauges report the current value.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public interface RoleEngineMetricsMBean {
+
+	/**
+	 * Dumps the traces of the last role operations, with the time spent in
+	 * each phase.
+	 * 
+	 * @return a line for each trace, from the oldest one
+	 */
+	public String[] dumpRoleOperationTraces();
+
+	/**
+	 * Provides the number of proxy classes reused without generating them.
+	 * 
+	 * @return the class cache hits
+	 */
+	public long getClassCacheHits();
+
+	/**
+	 * Provides the number of event dispatches waiting for the dispatcher,
+	 * including the ones running.
+	 * 
+	 * @return the event dispatch queue depth
+	 */
+	public int getEventDispatchQueueDepth();
+
+	/**
+	 * Provides the number of events dispatched.
+	 * 
+	 * @return the dispatched events
+	 */
+	public long getEventsDispatched();
+
+	/**
+	 * Provides the number of proxy classes generated.
+	 * 
+	 * @return the generated classes
+	 */
+	public long getGeneratedClasses();
+
+	/**
+	 * Provides the number of task invoker classes generated.
+	 * 
+	 * @return the generated invokers
+	 */
+	public long getGeneratedInvokers();
+
+	/**
+	 * Provides the 50th percentile of the class generation latency.
+	 * 
+	 * @return the median latency in microseconds
+	 */
+	public long getGenerationLatency50thMicros();
+
+	/**
+	 * Provides the 99th percentile of the class generation latency.
+	 * 
+	 * @return the 99th percentile latency in microseconds
+	 */
+	public long getGenerationLatency99thMicros();
+
+	/**
+	 * Provides the class generation latency histogram: the element <i>i</i> is
+	 * the number of generations that lasted less than 2^i microseconds (and
+	 * not less than 2^(i-1)).
+	 * 
+	 * @return the histogram buckets
+	 */
+	public long[] getGenerationLatencyHistogram();
+
+	/**
+	 * Provides the longest class generation.
+	 * 
+	 * @return the maximum latency in microseconds
+	 */
+	public long getGenerationLatencyMaxMicros();
+
+	/**
+	 * Provides the mean class generation latency.
+	 * 
+	 * @return the mean latency in microseconds
+	 */
+	public long getGenerationLatencyMeanMicros();
+
+	/**
+	 * Provides the number of task invokers served without generating them.
+	 * 
+	 * @return the invoker cache hits
+	 */
+	public long getInvokerCacheHits();
+
+	/**
+	 * Provides the number of threads waiting for a locked agent proxy.
+	 * 
+	 * @return the lock waiters of the proxy storage
+	 */
+	public int getLockWaiters();
+
+	/**
+	 * Provides the number of public role injections completed.
+	 * 
+	 * @return the public role injections
+	 */
+	public long getPublicRoleInjections();
+
+	/**
+	 * Provides the number of public role injections failed.
+	 * 
+	 * @return the failed public role injections
+	 */
+	public long getPublicRoleInjectionFailures();
+
+	/**
+	 * Provides the number of public role removals completed.
+	 * 
+	 * @return the public role removals
+	 */
+	public long getPublicRoleRemovals();
+
+	/**
+	 * Provides the number of public role removals failed.
+	 * 
+	 * @return the failed public role removals
+	 */
+	public long getPublicRoleRemovalFailures();
+
+	/**
+	 * Provides the number of role bound timers running.
+	 * 
+	 * @return the running timers
+	 */
+	public int getRunningTimers();
+
+	/**
+	 * Provides the number of tasks scheduled in the task schedulers.
+	 * 
+	 * @return the scheduled tasks
+	 */
+	public int getScheduledTasks();
+
+	/**
+	 * Provides the number of scheduled tasks executed.
+	 * 
+	 * @return the executed tasks
+	 */
+	public long getTasksExecuted();
+
+	/**
+	 * Provides the number of scheduled tasks failed.
+	 * 
+	 * @return the failed tasks
+	 */
+	public long getTasksFailed();
+
+	/**
+	 * Provides the number of visible role injections completed.
+	 * 
+	 * @return the visible role injections
+	 */
+	public long getVisibleRoleInjections();
+
+	/**
+	 * Provides the number of visible role injections failed.
+	 * 
+	 * @return the failed visible role injections
+	 */
+	public long getVisibleRoleInjectionFailures();
+
+	/**
+	 * Provides the number of visible role removals completed.
+	 * 
+	 * @return the visible role removals
+	 */
+	public long getVisibleRoleRemovals();
+
+	/**
+	 * Provides the number of visible role removals failed.
+	 * 
+	 * @return the failed visible role removals
+	 */
+	public long getVisibleRoleRemovalFailures();
+
+	/**
+	 * Notifies if the role operations are traced.
+	 * 
+	 * @return true if the tracing is enabled
+	 */
+	public boolean isTracingEnabled();
+
+	/**
+	 * Resets the counters and the latency histogram. The gauges are not
+	 * affected.
+	 */
+	public void reset();
+
+	/**
+	 * Enables or disables the tracing of the role operations.
+	 * 
+	 * @param enabled
+	 *            true to trace the operations
+	 */
+	public void setTracingEnabled(boolean enabled);
+}
@@ -0,0 +1,212 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core.metrics;
+
+import whitecat.core.RoleInjectionType;
+import whitecat.core.RoleOperationPhase;
+
+/**
+ * The trace of a single role operation: when it started, how long it took and
+ * how much time has been spent in each phase. A trace is filled by the thread
+ * performing the operation and is not changed anymore once it has been
+ * recorded by the {@link RoleOperationTracer}.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public final class RoleOperationTrace {
+
+	/**
+	 * The type of the operation.
+	 */
+	private final RoleInjectionType	injectionType;
+
+	/**
+	 * The sequence id of the agent proxy, or -1 if unknown.
+	 */
+	private final long				proxyID;
+
+	/**
+	 * The time the operation started, in milliseconds.
+	 */
+	private final long				startMillis		= System
+															.currentTimeMillis();
+
+	/**
+	 * The time the operation started, in nanoseconds.
+	 */
+	private final long				startNanos		= System.nanoTime();
+
+	/**
+	 * The time spent in each phase, indexed by the phase ordinal.
+	 */
+	private final long[]			phaseNanos		= new long[RoleOperationPhase
+															.values().length];
+
+	/**
+	 * The whole duration of the operation.
+	 */
+	private long					durationNanos	= 0;
+
+	/**
+	 * Indicates if the operation has been completed.
+	 */
+	private boolean					successful		= false;
+
+	/**
+	 * The nesting level of the operation, the inner ones are part of this
+	 * trace.
+	 */
+	int								depth			= 1;
+
+	/**
+	 * Starts the trace of an operation.
+	 * 
+	 * @param injectionType
+	 *            the type of the operation
+	 * @param proxyID
+	 *            the sequence id of the agent proxy
+	 */
+	RoleOperationTrace(final RoleInjectionType injectionType, final long proxyID) {
+		super();
+		this.injectionType = injectionType;
+		this.proxyID = proxyID;
+	}
+
+	/**
+	 * Adds the time spent in a phase.
+	 * 
+	 * @param phase
+	 *            the phase
+	 * @param nanos
+	 *            the time spent, in nanoseconds
+	 */
+	final void addPhase(final RoleOperationPhase phase, final long nanos) {
+		phaseNanos[phase.ordinal()] += nanos;
+	}
+
+	/**
+	 * Completes the trace.
+	 * 
+	 * @param successful
+	 *            true if the operation has been completed successfully
+	 */
+	final void complete(final boolean successful) {
+		durationNanos = System.nanoTime() - startNanos;
+		this.successful = successful;
+	}
+
+	/**
+	 * Provides the whole duration of the operation.
+	 * 
+	 * @return the duration in nanoseconds
+	 */
+	public final long getDurationNanos() {
+		return durationNanos;
+	}
+
+	/**
+	 * Provides the type of the operation.
+	 * 
+	 * @return the injection type
+	 */
+	public final RoleInjectionType getInjectionType() {
+		return injectionType;
+	}
+
+	/**
+	 * Provides the time spent in a phase.
+	 * 
+	 * @param phase
+	 *            the phase
+	 * @return the time in nanoseconds, zero if the operation did not go thru
+	 *         the phase
+	 */
+	public final long getPhaseNanos(final RoleOperationPhase phase) {
+		return phaseNanos[phase.ordinal()];
+	}
+
+	/**
+	 * Provides the sequence id of the agent proxy the operation worked on.
+	 * 
+	 * @return the proxy sequence id, or -1 if unknown
+	 */
+	public final long getProxyID() {
+		return proxyID;
+	}
+
+	/**
+	 * Provides the time the operation started.
+	 * 
+	 * @return the start time in milliseconds
+	 */
+	public final long getStartMillis() {
+		return startMillis;
+	}
+
+	/**
+	 * Notifies if the operation has been completed successfully.
+	 * 
+	 * @return true if the operation has been successful
+	 */
+	public final boolean isSuccessful() {
+		return successful;
+	}
+
+	/**
+	 * Provides a single line description of the trace, with the times in
+	 * microseconds. Overridden version.
+	 * 
+	 * @overrides @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		final StringBuffer buffer = new StringBuffer( 200 );
+		buffer.append( startMillis );
+		buffer.append( " type=" ).append( injectionType );
+		buffer.append( " proxy=" ).append( proxyID );
+		buffer.append( " successful=" ).append( successful );
+		buffer.append( " totalMicros=" ).append( durationNanos / 1000 );
+		for (final RoleOperationPhase phase : RoleOperationPhase.values())
+			buffer.append( " " ).append( phase ).append( "=" )
+					.append( phaseNanos[phase.ordinal()] / 1000 );
+
+		return buffer.toString();
+	}
+}
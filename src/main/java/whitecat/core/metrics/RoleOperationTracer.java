@@ -0,0 +1,238 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core.metrics;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import whitecat.core.RoleInjectionType;
+import whitecat.core.RoleOperationPhase;
+import whitecat.core.agents.AgentProxy;
+
+/**
+ * Records the traces of the role operations in a ring buffer, so that the last
+ * operations can be dumped (e.g., thru the role engine metrics MBean) to find
+ * out which phase is responsible of a slow operation.
+ * 
+ * A trace is bound to the thread performing the operation: the operation is
+ * begun and ended around the role booster call, while the components working
+ * in between add the time spent in their phase. An operation begun while
+ * another one is running on the same thread (e.g., a role booster delegating
+ * to another one) is part of the outer trace.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public final class RoleOperationTracer {
+
+	/**
+	 * The default number of traces kept.
+	 */
+	public static final int										DEFAULT_CAPACITY	= 256;
+
+	/**
+	 * The trace of the operation running on each thread.
+	 */
+	private static final ThreadLocal<RoleOperationTrace>		current				= new ThreadLocal<RoleOperationTrace>();
+
+	/**
+	 * The ring buffer of the recorded traces.
+	 */
+	private static volatile AtomicReferenceArray<RoleOperationTrace>	traces				= new AtomicReferenceArray<RoleOperationTrace>(
+																								DEFAULT_CAPACITY );
+
+	/**
+	 * The number of traces recorded, used to find the next slot of the ring
+	 * buffer.
+	 */
+	private static final AtomicLong								recorded			= new AtomicLong();
+
+	/**
+	 * Indicates if the operations are traced.
+	 */
+	private static volatile boolean								enabled				= true;
+
+	/**
+	 * Begins the trace of a role operation on the current thread.
+	 * 
+	 * @param injectionType
+	 *            the type of the operation
+	 * @param proxy
+	 *            the agent proxy the operation works on
+	 */
+	public static final void begin(	final RoleInjectionType injectionType,
+									final AgentProxy proxy) {
+		final RoleOperationTrace trace = current.get();
+		if (trace != null)
+			trace.depth++;
+		else if (enabled){
+			final long proxyID = ((proxy != null) && (proxy.getAgentProxyID() != null)) ? proxy
+					.getAgentProxyID().getSequenceID()
+					: -1;
+			current.set( new RoleOperationTrace( injectionType, proxyID ) );
+		}
+	}
+
+	/**
+	 * Discards all the recorded traces.
+	 */
+	public static final void clear() {
+		final AtomicReferenceArray<RoleOperationTrace> buffer = traces;
+		for (int i = 0; i < buffer.length(); i++)
+			buffer.set( i, null );
+	}
+
+	/**
+	 * Prints the recorded traces, one per line, from the oldest one.
+	 * 
+	 * @param os
+	 *            the stream to print to
+	 */
+	public static final void dump(final PrintStream os) {
+		for (final RoleOperationTrace trace : getTraces())
+			os.println( trace );
+	}
+
+	/**
+	 * Ends the trace of the role operation on the current thread. Once the
+	 * outer operation ends, its trace is recorded in the ring buffer.
+	 * 
+	 * @param successful
+	 *            true if the operation has been completed successfully
+	 */
+	public static final void end(final boolean successful) {
+		final RoleOperationTrace trace = current.get();
+		if ((trace == null) || (--trace.depth > 0))
+			return;
+
+		current.remove();
+		trace.complete( successful );
+
+		final AtomicReferenceArray<RoleOperationTrace> buffer = traces;
+		buffer.set(
+				(int) (recorded.getAndIncrement() % buffer.length()),
+				trace );
+	}
+
+	/**
+	 * Provides the number of traces the ring buffer can keep.
+	 * 
+	 * @return the capacity
+	 */
+	public static final int getCapacity() {
+		return traces.length();
+	}
+
+	/**
+	 * Provides the recorded traces.
+	 * 
+	 * @return the traces, from the oldest one
+	 */
+	public static final List<RoleOperationTrace> getTraces() {
+		final AtomicReferenceArray<RoleOperationTrace> buffer = traces;
+		final int capacity = buffer.length();
+		final int next = (int) (recorded.get() % capacity);
+
+		final List<RoleOperationTrace> snapshot = new ArrayList<RoleOperationTrace>(
+				capacity );
+		for (int i = 0; i < capacity; i++){
+			final RoleOperationTrace trace = buffer.get( (next + i) % capacity );
+			if (trace != null)
+				snapshot.add( trace );
+		}
+
+		return snapshot;
+	}
+
+	/**
+	 * Notifies if the role operations are traced.
+	 * 
+	 * @return true if the tracing is enabled
+	 */
+	public static final boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Adds the time spent in a phase to the operation running on the current
+	 * thread, if any.
+	 * 
+	 * @param phase
+	 *            the phase
+	 * @param nanos
+	 *            the time spent, in nanoseconds
+	 */
+	public static final void phase(final RoleOperationPhase phase, final long nanos) {
+		final RoleOperationTrace trace = current.get();
+		if (trace != null)
+			trace.addPhase( phase, nanos );
+	}
+
+	/**
+	 * Changes the number of traces the ring buffer can keep. The recorded
+	 * traces are discarded.
+	 * 
+	 * @param capacity
+	 *            the new capacity
+	 */
+	public static final void setCapacity(final int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException( "The capacity must be positive" );
+
+		traces = new AtomicReferenceArray<RoleOperationTrace>( capacity );
+	}
+
+	/**
+	 * Enables or disables the tracing of the role operations. The operations
+	 * already begun are traced anyway.
+	 * 
+	 * @param enabled
+	 *            true to trace the operations
+	 */
+	public static final void setEnabled(final boolean enabled) {
+		RoleOperationTracer.enabled = enabled;
+	}
+
+	private RoleOperationTracer() {
+		super();
+	}
+}
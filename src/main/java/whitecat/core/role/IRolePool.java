@@ -0,0 +1,104 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core.role;
+
+import whitecat.core.WCException;
+import whitecat.core.annotations.RoleScope;
+
+/**
+ * A pool of role instances. The pool provides the instances of a role class
+ * depending on the scope declared in its {@link whitecat.core.annotations.PUBLICROLE}
+ * annotation: a new instance for each agent, a single shared instance, or an
+ * instance leased from a pool of idle instances.
+ * 
+ * The pool is opt-in: it is used only by the callers that acquire the roles
+ * thru it (or thru a {@link LazyRole}), since the role boosters inject the
+ * instances they are given. Only the in place role booster releases the
+ * instances to the pool, when it unbinds them from the proxy; the class
+ * manipulating role booster does not, since the proxy it replaces could
+ * still play the role. The leased instances must not override equals() and
+ * hashCode(), since the pool recognizes them by equality.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public interface IRolePool {
+
+	/**
+	 * Provides an instance of a role to be played by an agent.
+	 * 
+	 * @param roleClass
+	 *            the role class, that must have a public no-argument
+	 *            constructor
+	 * @return the role instance
+	 * @throws WCException
+	 *             if the role cannot be instantiated
+	 */
+	public <T extends IRole> T acquireRole(Class<T> roleClass)
+																throws WCException;
+
+	/**
+	 * Provides the number of idle instances of a pooled role.
+	 * 
+	 * @param roleClass
+	 *            the role class
+	 * @return the number of instances that can be leased without creating a
+	 *         new one
+	 */
+	public int getIdleCount(Class<? extends IRole> roleClass);
+
+	/**
+	 * Provides the scope of a role class.
+	 * 
+	 * @param roleClass
+	 *            the role class
+	 * @return the scope declared by the role, PER_AGENT if none
+	 */
+	public RoleScope getRoleScope(Class<? extends IRole> roleClass);
+
+	/**
+	 * Releases a role instance that is not played anymore. Only the instances
+	 * leased by this pool are taken back, the others are ignored.
+	 * 
+	 * @param role
+	 *            the role instance
+	 * @return true if the instance can be leased again
+	 */
+	public boolean releaseRole(IRole role);
+}
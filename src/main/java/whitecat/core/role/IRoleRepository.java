@@ -1,6 +1,8 @@
 package whitecat.core.role;
 
+import java.io.File;
 import java.util.List;
+import java.util.Map;
 
 import whitecat.core.exceptions.WCRoleRepositoryException;
 import whitecat.core.role.descriptors.IRoleDescriptorBuilder;
@@ -42,6 +44,18 @@ public interface IRoleRepository {
 	 */
 	public RoleDescriptor getRoleDescriptor(IRole role);
 
+	/**
+	 * Searches the installed role descriptors that match a query.
+	 * 
+	 * @param query
+	 *            the query with the keywords and the task conditions
+	 * @return the list of the matching descriptors (empty if none matches)
+	 * @throws WCRoleRepositoryException
+	 *             if the query is not valid
+	 */
+	public List<RoleDescriptor> findRoleDescriptors(RoleQuery query)
+																	throws WCRoleRepositoryException;
+
 	/**
 	 * Install a role in the repository without a role descriptor. This method
 	 * can be used only if the role repository is using a good role descriptor
@@ -82,6 +96,53 @@ public interface IRoleRepository {
 								boolean overrideIfExists)
 															throws WCRoleRepositoryException;
 
+	/**
+	 * Installs a set of roles at once, as installRole(RoleDescriptor, IRole,
+	 * boolean) does for each of them.
+	 * 
+	 * @param roles
+	 *            the role implementations keyed by their descriptors
+	 * @param overrideIfExists
+	 *            true if the roles must override the installed ones
+	 * @return the number of roles installed
+	 * @throws WCRoleRepositoryException
+	 *             if a role or a descriptor is null
+	 */
+	public int installRoles(Map<RoleDescriptor, IRole> roles,
+							boolean overrideIfExists)
+														throws WCRoleRepositoryException;
+
+	/**
+	 * Installs a role only if no role is installed with the specified
+	 * descriptor. The check and the installation are performed atomically.
+	 * 
+	 * @param descriptor
+	 *            the role descriptor to bind the role implementation to
+	 * @param role
+	 *            the role implementation
+	 * @return null if the role has been installed, or the role already
+	 *         installed with the descriptor
+	 * @throws WCRoleRepositoryException
+	 *             if the role is already installed with another descriptor
+	 */
+	public IRole installRoleIfAbsent(RoleDescriptor descriptor, IRole role)
+																			throws WCRoleRepositoryException;
+
+	/**
+	 * Restores the roles saved in a snapshot file, instantiating each role and
+	 * installing it with its saved descriptor.
+	 * 
+	 * @param snapshot
+	 *            the snapshot file
+	 * @param overrideIfExists
+	 *            true if the restored roles must override the installed ones
+	 * @return the number of roles installed
+	 * @throws WCRoleRepositoryException
+	 *             if the snapshot cannot be read or a role cannot be restored
+	 */
+	public int loadSnapshot(File snapshot, boolean overrideIfExists)
+																	throws WCRoleRepositoryException;
+
 	/**
 	 * Removes a role from the repository.
 	 * 
@@ -105,6 +166,35 @@ public interface IRoleRepository {
 	public boolean removeRole(RoleDescriptor descriptor)
 														throws WCRoleRepositoryException;
 
+	/**
+	 * Replaces the role installed with the specified descriptor, only if it is
+	 * the expected one. The check and the replacement are performed atomically.
+	 * 
+	 * @param descriptor
+	 *            the role descriptor the role is installed with
+	 * @param expectedRole
+	 *            the role that must be currently installed
+	 * @param newRole
+	 *            the role to install instead
+	 * @return true if the role has been replaced, false if the installed role
+	 *         was not the expected one
+	 * @throws WCRoleRepositoryException
+	 *             if something goes wrong
+	 */
+	public boolean replaceRole(RoleDescriptor descriptor, IRole expectedRole,
+								IRole newRole) throws WCRoleRepositoryException;
+
+	/**
+	 * Saves the installed roles and their descriptors to a snapshot file, that
+	 * can be restored without rebuilding the descriptors.
+	 * 
+	 * @param snapshot
+	 *            the snapshot file
+	 * @throws WCRoleRepositoryException
+	 *             if a role cannot be saved or the file cannot be written
+	 */
+	public void saveSnapshot(File snapshot) throws WCRoleRepositoryException;
+
 	/**
 	 * Sets a role descriptor builder, if needed. The role descriptor builder is
 	 * used to add a role descriptor when a new role is installed without a role
@@ -0,0 +1,188 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core.role;
+
+import whitecat.core.WCException;
+import whitecat.core.WhiteCat;
+
+/**
+ * A placeholder for a role that has not been instantiated yet. A lazy role can
+ * be injected into a proxy in place of the role instance: the booster uses the
+ * role class to weave the proxy, while the role instance is created by the
+ * supplier only the first time a forwarder method is called on the proxy.
+ * Roles that are injected but never used are therefore never instantiated.
+ * 
+ * Without a specific supplier, the role instance is acquired from the role
+ * pool, so that the scope of the role is honored.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public final class LazyRole implements IRole {
+
+	/**
+	 * The supplier that acquires the roles from the role pool.
+	 */
+	private static final IRoleSupplier		poolSupplier	= new IRoleSupplier() {
+
+		public IRole createRole(final Class<? extends IRole> roleClass)
+																		throws WCException {
+			return WhiteCat.getRolePool().acquireRole( roleClass );
+		}
+	};
+
+	/**
+	 * Provides the class of a role, that is the class of the role to create if
+	 * the role is a lazy one.
+	 * 
+	 * @param role
+	 *            the role or the lazy role
+	 * @return the class of the role
+	 */
+	public static final Class<? extends IRole> roleClassOf(final IRole role) {
+		if (role instanceof LazyRole)
+			return ((LazyRole) role).roleClass;
+		else return role.getClass();
+	}
+
+	/**
+	 * The class of the role to create.
+	 */
+	private final Class<? extends IRole>	roleClass;
+
+	/**
+	 * The supplier of the role instance.
+	 */
+	private final IRoleSupplier				supplier;
+
+	/**
+	 * The role instance, once created.
+	 */
+	private volatile IRole					role			= null;
+
+	/**
+	 * Builds a lazy role whose instance will be acquired from the role pool.
+	 * 
+	 * @param roleClass
+	 *            the class of the role
+	 */
+	public LazyRole(final Class<? extends IRole> roleClass) {
+		this( roleClass, poolSupplier );
+	}
+
+	/**
+	 * Builds a lazy role whose instance will be created by a supplier.
+	 * 
+	 * @param roleClass
+	 *            the class of the role
+	 * @param supplier
+	 *            the supplier of the role instance
+	 */
+	public LazyRole(final Class<? extends IRole> roleClass,
+					final IRoleSupplier supplier) {
+		super();
+		if ((roleClass == null) || (supplier == null))
+			throw new IllegalArgumentException(
+					"A lazy role needs the role class and a supplier" );
+
+		this.roleClass = roleClass;
+		this.supplier = supplier;
+	}
+
+	/**
+	 * Provides the role instance, creating it the first time.
+	 * 
+	 * @return the role instance
+	 * @throws WCException
+	 *             if the supplier cannot create the role, or creates a role of
+	 *             another class
+	 */
+	public final IRole getRole() throws WCException {
+		IRole current = role;
+		if (current != null)
+			return current;
+
+		synchronized (this){
+			current = role;
+			if (current == null){
+				current = supplier.createRole( roleClass );
+				if (!roleClass.isInstance( current ))
+					throw new WCException( "The supplier has not created a role "
+							+ roleClass.getName() );
+
+				role = current;
+			}
+
+			return current;
+		}
+	}
+
+	/**
+	 * Provides the role instance only if it has already been created.
+	 * 
+	 * @return the role instance, or null if the role has not been used yet
+	 */
+	public final IRole getMaterializedRole() {
+		return role;
+	}
+
+	/**
+	 * Provides the class of the role.
+	 * 
+	 * @return the role class
+	 */
+	public final Class<? extends IRole> getRoleClass() {
+		return roleClass;
+	}
+
+	/**
+	 * Notifies if the role instance has been created.
+	 * 
+	 * @return true if the role has been used
+	 */
+	public final boolean isMaterialized() {
+		return role != null;
+	}
+
+	@Override
+	public String toString() {
+		return "LazyRole[" + roleClass.getName()
+				+ (isMaterialized() ? ", materialized]" : "]");
+	}
+}
@@ -0,0 +1,201 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core.role;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A query over the role descriptors installed in a role repository. A query
+ * is built adding conditions, and a descriptor matches the query if it
+ * satisfies all of them:
+ * <ul>
+ * <li>it has all the keywords specified with {@link #withAllKeywords(String...)}
+ * </li>
+ * <li>it has at least one of the keywords specified with
+ * {@link #withAnyKeywords(String...)}</li>
+ * <li>it has a task whose return type can be assigned to the one specified with
+ * {@link #withTaskReturnType(Class)} and whose parameters are exactly the ones
+ * specified with {@link #withTaskParameters(Class...)}</li>
+ * </ul>
+ * A query without conditions matches every installed descriptor.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public class RoleQuery {
+
+	/**
+	 * The keywords that must be all present.
+	 */
+	private final Set<String>	allKeywords		= new LinkedHashSet<String>();
+
+	/**
+	 * The keywords of which at least one must be present.
+	 */
+	private final Set<String>	anyKeywords		= new LinkedHashSet<String>();
+
+	/**
+	 * The return type of the task, null if any.
+	 */
+	private Class				taskReturnType	= null;
+
+	/**
+	 * The parameters of the task, null if any.
+	 */
+	private List<Class>			taskParameters	= null;
+
+	/**
+	 * Provides the keywords that must be all present.
+	 * 
+	 * @return the keywords
+	 */
+	public final Set<String> getAllKeywords() {
+		return Collections.unmodifiableSet( allKeywords );
+	}
+
+	/**
+	 * Provides the keywords of which at least one must be present.
+	 * 
+	 * @return the keywords
+	 */
+	public final Set<String> getAnyKeywords() {
+		return Collections.unmodifiableSet( anyKeywords );
+	}
+
+	/**
+	 * Provides the parameters the task must have.
+	 * 
+	 * @return the parameters, or null if any signature matches
+	 */
+	public final List<Class> getTaskParameters() {
+		return taskParameters;
+	}
+
+	/**
+	 * Provides the type the task must return.
+	 * 
+	 * @return the return type, or null if any type matches
+	 */
+	public final Class getTaskReturnType() {
+		return taskReturnType;
+	}
+
+	/**
+	 * Notifies if this query has a condition on the tasks.
+	 * 
+	 * @return true if the tasks must be checked
+	 */
+	public final boolean hasTaskConditions() {
+		return (taskReturnType != null) || (taskParameters != null);
+	}
+
+	/**
+	 * Checks if a task matches the conditions of this query.
+	 * 
+	 * @param returnType
+	 *            the return type of the task
+	 * @param parameters
+	 *            the parameters of the task
+	 * @return true if the task matches
+	 */
+	public final boolean matchesTask(final Class returnType,
+										final List<Class> parameters) {
+		if ((taskReturnType != null)
+				&& ((returnType == null) || !taskReturnType
+						.isAssignableFrom( returnType )))
+			return false;
+
+		if ((taskParameters != null) && !taskParameters.equals( parameters ))
+			return false;
+
+		return true;
+	}
+
+	/**
+	 * Requires all the specified keywords to be present.
+	 * 
+	 * @param keywords
+	 *            the keywords
+	 * @return this query
+	 */
+	public final RoleQuery withAllKeywords(final String... keywords) {
+		allKeywords.addAll( Arrays.asList( keywords ) );
+		return this;
+	}
+
+	/**
+	 * Requires at least one of the specified keywords to be present.
+	 * 
+	 * @param keywords
+	 *            the keywords
+	 * @return this query
+	 */
+	public final RoleQuery withAnyKeywords(final String... keywords) {
+		anyKeywords.addAll( Arrays.asList( keywords ) );
+		return this;
+	}
+
+	/**
+	 * Requires a task with exactly the specified parameters.
+	 * 
+	 * @param parameters
+	 *            the parameter types, in order
+	 * @return this query
+	 */
+	public final RoleQuery withTaskParameters(final Class... parameters) {
+		taskParameters = Arrays.asList( parameters );
+		return this;
+	}
+
+	/**
+	 * Requires a task that returns the specified type (or a subtype of it).
+	 * 
+	 * @param returnType
+	 *            the return type
+	 * @return this query
+	 */
+	public final RoleQuery withTaskReturnType(final Class returnType) {
+		taskReturnType = returnType;
+		return this;
+	}
+}
@@ -20,7 +20,9 @@
 package whitecat.core.role.descriptors;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -39,6 +41,11 @@ import java.util.Set;
  * publically read, but not written, in order to not allow an external process
  * to change the descriptor.
  * 
+ * A descriptor can be frozen, usually by the builder that creates it: a frozen
+ * descriptor cannot be changed anymore, and therefore can be safely used as a
+ * key in hash maps; its hash code is computed only once and its strings are
+ * interned.
+ * 
  * @author Luca Ferrari - cat4hire@users.sourceforge.net
  * 
  * 
@@ -67,6 +74,17 @@ public abstract class AbstractDescriptor {
 	 */
 	private Set<String>	keywords		= null;
 
+	/**
+	 * Indicates if this descriptor has been frozen, and therefore cannot be
+	 * changed anymore.
+	 */
+	private volatile boolean	immutable	= false;
+
+	/**
+	 * The hash code of this descriptor, computed once it has been frozen.
+	 */
+	private int					hash		= 0;
+
 	/**
 	 * Adds the specified keyword to the keyword of this descriptor.
 	 * 
@@ -76,9 +94,41 @@ public abstract class AbstractDescriptor {
 	 * @see java.util.Set#add(java.lang.Object)
 	 */
 	protected final synchronized boolean addKeyword(final String key) {
+		checkMutable();
 		return keywords.add( key );
 	}
 
+	/**
+	 * Ensures this descriptor can be changed. All the methods that change the
+	 * descriptor must call this method before doing anything.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the descriptor has been frozen
+	 */
+	protected final void checkMutable() {
+		if (immutable)
+			throw new IllegalStateException( "The descriptor " + name
+					+ " is immutable" );
+	}
+
+	/**
+	 * Computes the hash value for this descriptor starting from the hash codes
+	 * of the properties. Subclasses that add properties must extend this
+	 * method, that is called at each hashCode() call only until the descriptor
+	 * is frozen.
+	 * 
+	 * @return the hash value
+	 */
+	protected int computeHashCode() {
+		int hash = (int) (version * 100);
+
+		hash = 31 * hash + (aim == null ? 0 : aim.hashCode());
+		hash = 31 * hash + (keywords == null ? 0 : keywords.hashCode());
+		hash = 31 * hash + (name == null ? 0 : name.hashCode());
+		hash = 31 * hash + (creationDate == null ? 0 : creationDate.hashCode());
+		return hash;
+	}
+
 	/**
 	 * Checks if the specified keyword is contained in the current keyword set.
 	 * 
@@ -88,7 +138,7 @@ public abstract class AbstractDescriptor {
 	 * @see java.util.Set#contains(java.lang.Object)
 	 */
 	public final synchronized boolean containsKeyword(final String key) {
-		return keywords.contains( key );
+		return (keywords != null) && keywords.contains( key );
 	}
 
 	/**
@@ -99,7 +149,9 @@ public abstract class AbstractDescriptor {
 	 * @return true if all the keywords are contained in this descriptor
 	 */
 	public final synchronized boolean containsKeywords(final List<String> keys) {
-		return keywords.containsAll( keys );
+		if (keywords == null)
+			return keys.isEmpty();
+		else return keywords.containsAll( keys );
 	}
 
 	/**
@@ -115,6 +167,13 @@ public abstract class AbstractDescriptor {
 		else{
 			// deeply compare the properties of the two descriptors
 			final AbstractDescriptor descriptor = (AbstractDescriptor) o;
+			if (descriptor == this)
+				return true;
+
+			// two frozen descriptors with different hashes cannot be equal
+			if (immutable && descriptor.immutable
+					&& (hash != descriptor.hash))
+				return false;
 
 			if ((aim != null) && (!(aim.equals( descriptor.aim ))))
 				return false;
@@ -138,6 +197,32 @@ public abstract class AbstractDescriptor {
 		}
 	}
 
+	/**
+	 * Freezes this descriptor: from now on it cannot be changed, its hash code
+	 * is computed once, the strings are interned and the collections cannot be
+	 * changed. Subclasses must override this method to freeze their own
+	 * properties, and then call the super implementation, that computes the
+	 * hash code.
+	 */
+	protected synchronized void freeze() {
+		if (immutable)
+			return;
+
+		if (name != null)
+			name = name.intern();
+		if (aim != null)
+			aim = aim.intern();
+		if (keywords != null){
+			final Set<String> interned = new HashSet<String>();
+			for (final String keyword : keywords)
+				interned.add( keyword.intern() );
+			keywords = Collections.unmodifiableSet( interned );
+		}
+
+		hash = computeHashCode();
+		immutable = true;
+	}
+
 	/**
 	 * This method can be used to set the value of the aim field, providing thus
 	 * read access to the aim property.
@@ -162,10 +247,12 @@ public abstract class AbstractDescriptor {
 	 * This method can be used to set the value of the keywords field, providing
 	 * thus read access to the keywords property.
 	 * 
-	 * @return the keywords value iterator
+	 * @return the keywords value iterator (empty if there are no keywords)
 	 */
 	public final Iterator<String> getKeywords() {
-		return keywords.iterator();
+		if (keywords == null)
+			return Collections.<String> emptySet().iterator();
+		else return keywords.iterator();
 	}
 
 	/**
@@ -190,19 +277,25 @@ public abstract class AbstractDescriptor {
 
 	/**
 	 * Provides the hash value for this descriptor, calculated starting from the
-	 * hash codes of the properties. Overridden version.
+	 * hash codes of the properties. A frozen descriptor provides the hash value
+	 * computed when it has been frozen. Overridden version.
 	 * 
 	 * @overrides @see java.lang.Object#hashCode()
 	 */
 	@Override
 	public int hashCode() {
-		int hash = (int) (version * 100);
+		if (immutable)
+			return hash;
+		else return computeHashCode();
+	}
 
-		hash = 31 * hash + (aim == null ? 0 : aim.hashCode());
-		hash = 31 * hash + (keywords == null ? 0 : keywords.hashCode());
-		hash = 31 * hash + (name == null ? 0 : name.hashCode());
-		hash = 31 * hash + (creationDate == null ? 0 : creationDate.hashCode());
-		return hash;
+	/**
+	 * Notifies if this descriptor has been frozen.
+	 * 
+	 * @return true if this descriptor cannot be changed anymore
+	 */
+	public final boolean isImmutable() {
+		return immutable;
 	}
 
 	/**
@@ -212,7 +305,7 @@ public abstract class AbstractDescriptor {
 	 * @see java.util.Set#size()
 	 */
 	public final synchronized int keywordCount() {
-		return keywords.size();
+		return (keywords == null) ? 0 : keywords.size();
 	}
 
 	@Deprecated
@@ -243,6 +336,7 @@ public abstract class AbstractDescriptor {
 	 * @see java.util.Set#remove(java.lang.Object)
 	 */
 	protected final synchronized boolean removeKeyword(final String key) {
+		checkMutable();
 		return keywords.remove( key );
 	}
 
@@ -254,6 +348,7 @@ public abstract class AbstractDescriptor {
 	 *            the aim to set with the specified value.
 	 */
 	protected final void setAim(final String aim) {
+		checkMutable();
 		this.aim = aim;
 	}
 
@@ -265,6 +360,7 @@ public abstract class AbstractDescriptor {
 	 *            the creationDate to set with the specified value.
 	 */
 	protected final void setCreationDate(final Date creationDate) {
+		checkMutable();
 		this.creationDate = creationDate;
 	}
 
@@ -276,6 +372,7 @@ public abstract class AbstractDescriptor {
 	 *            the keywords to set with the specified value.
 	 */
 	protected final void setKeywords(final Set<String> keywords) {
+		checkMutable();
 		this.keywords = keywords;
 	}
 
@@ -287,6 +384,7 @@ public abstract class AbstractDescriptor {
 	 *            the name to set with the specified value.
 	 */
 	protected final void setName(final String name) {
+		checkMutable();
 		this.name = name;
 	}
 
@@ -298,6 +396,7 @@ public abstract class AbstractDescriptor {
 	 *            the version to set with the specified value.
 	 */
 	protected final void setVersion(final float version) {
+		checkMutable();
 		this.version = version;
 	}
 
@@ -19,6 +19,8 @@
  */
 package whitecat.core.role.descriptors;
 
+import java.util.Date;
+
 /**
  * A descriptor of an event. The event descriptor is described in the article
  * <i> Injecting roles in Java agents through runtime bytecode manipulation IBM
@@ -37,6 +39,103 @@ package whitecat.core.role.descriptors;
  */
 public class EventDescriptor extends AbstractDescriptor {
 
+	/**
+	 * A builder of immutable event descriptors.
+	 */
+	public static final class Builder {
+
+		/**
+		 * The descriptor being built.
+		 */
+		private final EventDescriptor	descriptor	= new EventDescriptor();
+
+		private Builder() {
+			super();
+		}
+
+		/**
+		 * Builds the descriptor. The builder cannot be used anymore.
+		 * 
+		 * @return the immutable event descriptor
+		 */
+		public final EventDescriptor build() {
+			descriptor.freeze();
+			return descriptor;
+		}
+
+		/**
+		 * Sets the aim of the event.
+		 * 
+		 * @param aim
+		 *            the aim
+		 * @return this builder
+		 */
+		public final Builder withAim(final String aim) {
+			descriptor.setAim( aim );
+			return this;
+		}
+
+		/**
+		 * Sets the creation date of the event.
+		 * 
+		 * @param creationDate
+		 *            the creation date, can be null
+		 * @return this builder
+		 */
+		public final Builder withCreationDate(final Date creationDate) {
+			descriptor.setCreationDate( creationDate );
+			return this;
+		}
+
+		/**
+		 * Specifies if the event can be issued.
+		 * 
+		 * @param issuing
+		 *            true if the event can be issued
+		 * @return this builder
+		 */
+		public final Builder withIssuing(final boolean issuing) {
+			descriptor.setIssuing( issuing );
+			return this;
+		}
+
+		/**
+		 * Sets the name of the event.
+		 * 
+		 * @param name
+		 *            the name
+		 * @return this builder
+		 */
+		public final Builder withName(final String name) {
+			descriptor.setName( name );
+			return this;
+		}
+
+		/**
+		 * Specifies if the event can be received.
+		 * 
+		 * @param receiving
+		 *            true if the event can be received
+		 * @return this builder
+		 */
+		public final Builder withReceiving(final boolean receiving) {
+			descriptor.setReceiving( receiving );
+			return this;
+		}
+
+		/**
+		 * Sets the version of the event descriptor.
+		 * 
+		 * @param version
+		 *            the version
+		 * @return this builder
+		 */
+		public final Builder withVersion(final float version) {
+			descriptor.setVersion( version );
+			return this;
+		}
+	}
+
 	/**
 	 * Builds up an event descriptor instance with the specified properties.
 	 * 
@@ -67,6 +166,15 @@ public class EventDescriptor extends AbstractDescriptor {
 		return descriptor;
 	}
 
+	/**
+	 * Provides a builder for an immutable event descriptor.
+	 * 
+	 * @return the builder
+	 */
+	public static final Builder newBuilder() {
+		return new Builder();
+	}
+
 	/**
 	 * Specifies if the event can be received or is just sent out.
 	 */
@@ -115,11 +223,11 @@ public class EventDescriptor extends AbstractDescriptor {
 	 * descriptor and the base properties. Overridden version.
 	 * 
 	 * @overrides @see
-	 *            it.unimo.polaris.rolex.roles.AbstractDescriptor#hashCode()
+	 *            it.unimo.polaris.rolex.roles.AbstractDescriptor#computeHashCode()
 	 */
 	@Override
-	public int hashCode() {
-		int hash = super.hashCode();
+	protected int computeHashCode() {
+		int hash = super.computeHashCode();
 		hash = hash * 31 + Boolean.toString( issuing ).hashCode();
 		hash = hash * 31 + Boolean.toString( receiving ).hashCode();
 		return hash;
@@ -153,6 +261,7 @@ public class EventDescriptor extends AbstractDescriptor {
 	 *            the issuing to set with the specified value.
 	 */
 	protected final void setIssuing(final boolean issuing) {
+		checkMutable();
 		this.issuing = issuing;
 	}
 
@@ -164,6 +273,7 @@ public class EventDescriptor extends AbstractDescriptor {
 	 *            the receiving to set with the specified value.
 	 */
 	protected final void setReceiving(final boolean receiving) {
+		checkMutable();
 		this.receiving = receiving;
 	}
 }
@@ -19,7 +19,11 @@
  */
 package whitecat.core.role.descriptors;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +49,125 @@ import whitecat.core.role.task.IRoleTask;
  */
 public class RoleDescriptor extends AbstractDescriptor {
 
+	/**
+	 * A builder of immutable role descriptors. The task and event descriptors
+	 * added to the role are frozen together with the role descriptor.
+	 */
+	public static final class Builder {
+
+		/**
+		 * The descriptor being built.
+		 */
+		private final RoleDescriptor	descriptor	= new RoleDescriptor();
+
+		private Builder() {
+			super();
+			descriptor.tasks = new HashMap<IRoleTask, TaskDescriptor>();
+			descriptor.eventDescriptors = new LinkedList<EventDescriptor>();
+			descriptor.setKeywords( new HashSet<String>() );
+		}
+
+		/**
+		 * Adds an event descriptor directly tied to the role.
+		 * 
+		 * @param eventDescriptor
+		 *            the event descriptor
+		 * @return this builder
+		 */
+		public final Builder addEventDescriptor(final EventDescriptor eventDescriptor) {
+			descriptor.checkMutable();
+			if (eventDescriptor != null)
+				descriptor.eventDescriptors.add( eventDescriptor );
+			return this;
+		}
+
+		/**
+		 * Adds a task to the role.
+		 * 
+		 * @param task
+		 *            the executable task
+		 * @param taskDescriptor
+		 *            the descriptor of the task
+		 * @return this builder
+		 */
+		public final Builder addTask(	final IRoleTask task,
+										final TaskDescriptor taskDescriptor) {
+			descriptor.checkMutable();
+			descriptor.tasks.put( task, taskDescriptor );
+			return this;
+		}
+
+		/**
+		 * Builds the descriptor. The builder cannot be used anymore.
+		 * 
+		 * @return the immutable role descriptor
+		 */
+		public final RoleDescriptor build() {
+			descriptor.freeze();
+			return descriptor;
+		}
+
+		/**
+		 * Sets the aim of the role.
+		 * 
+		 * @param aim
+		 *            the aim
+		 * @return this builder
+		 */
+		public final Builder withAim(final String aim) {
+			descriptor.setAim( aim );
+			return this;
+		}
+
+		/**
+		 * Sets the creation date of the role.
+		 * 
+		 * @param creationDate
+		 *            the creation date, can be null
+		 * @return this builder
+		 */
+		public final Builder withCreationDate(final Date creationDate) {
+			descriptor.setCreationDate( creationDate );
+			return this;
+		}
+
+		/**
+		 * Sets the keywords of the role.
+		 * 
+		 * @param keywords
+		 *            the keywords
+		 * @return this builder
+		 */
+		public final Builder withKeywords(final Set<String> keywords) {
+			descriptor.setKeywords( new HashSet<String>( keywords ) );
+			return this;
+		}
+
+		/**
+		 * Sets the name of the role.
+		 * 
+		 * @param name
+		 *            the name
+		 * @return this builder
+		 */
+		public final Builder withName(final String name) {
+			descriptor.setName( name );
+			return this;
+		}
+
+		/**
+		 * Sets the version of the role descriptor.
+		 * 
+		 * @param version
+		 *            the version
+		 * @return this builder
+		 */
+		public final Builder withVersion(final float version) {
+			descriptor.setVersion( version );
+			return this;
+		}
+	}
+
 	/**
 	 * Factory method to create a role descriptor.
 	 * 
@@ -78,6 +201,15 @@ public class RoleDescriptor extends AbstractDescriptor {
 		return descriptor;
 	}
 
+	/**
+	 * Provides a builder for an immutable role descriptor.
+	 * 
+	 * @return the builder
+	 */
+	public static final Builder newBuilder() {
+		return new Builder();
+	}
+
 	/**
 	 * A map that contains all the tasks this role can execute. An IRoleTask is
 	 * the executable unit of a role, and is described by a task descriptor that
@@ -106,7 +238,7 @@ public class RoleDescriptor extends AbstractDescriptor {
 	 * @return true if the task is included
 	 */
 	public final synchronized boolean containsTask(final IRoleTask task) {
-		return tasks.containsKey( task );
+		return (tasks != null) && tasks.containsKey( task );
 	}
 
 	/**
@@ -116,7 +248,7 @@ public class RoleDescriptor extends AbstractDescriptor {
 	 * @return the number of event descriptors tied to this role descriptor.
 	 */
 	public final synchronized int eventDescriptorsCount() {
-		return eventDescriptors.size();
+		return (eventDescriptors == null ? 0 : eventDescriptors.size());
 	}
 
 	/**
@@ -126,11 +258,11 @@ public class RoleDescriptor extends AbstractDescriptor {
 	 * @return the total count of the event descriptors contained in this role
 	 */
 	public final synchronized int eventDescriptorsTotalCount() {
-		int count = 0;
-		count += eventDescriptors.size();
+		int count = eventDescriptorsCount();
 
-		for (final IRoleTask rt : tasks.keySet())
-			count += tasks.get( rt ).eventDescriptorsCount();
+		if (tasks != null)
+			for (final TaskDescriptor taskDescriptor : tasks.values())
+				count += taskDescriptor.eventDescriptorsCount();
 
 		return count;
 	}
@@ -151,8 +283,9 @@ public class RoleDescriptor extends AbstractDescriptor {
 		if ((eventDescriptors != null) && (eventDescriptors.size() > 0))
 			descriptors.addAll( eventDescriptors );
 
-		for (final IRoleTask rt : tasks.keySet())
-			descriptors.addAll( tasks.get( rt ).getEventDescriptors() );
+		if (tasks != null)
+			for (final TaskDescriptor taskDescriptor : tasks.values())
+				descriptors.addAll( taskDescriptor.getEventDescriptors() );
 
 		return descriptors;
 	}
@@ -166,9 +299,44 @@ public class RoleDescriptor extends AbstractDescriptor {
 	 * @return the eventDscriptors value.
 	 */
 	public final List<EventDescriptor> getEventDscriptors() {
+		if (eventDescriptors == null)
+			return new LinkedList<EventDescriptor>();
+
 		return new LinkedList<EventDescriptor>( eventDescriptors );
 	}
 
+	/**
+	 * Freezes this role descriptor together with its task and event
+	 * descriptors. Overridden version.
+	 * 
+	 * @overrides @see whitecat.core.role.descriptors.AbstractDescriptor#freeze()
+	 */
+	@Override
+	protected synchronized void freeze() {
+		if (isImmutable())
+			return;
+
+		final List<EventDescriptor> events = new ArrayList<EventDescriptor>();
+		if (eventDescriptors != null)
+			for (final EventDescriptor eventDescriptor : eventDescriptors){
+				eventDescriptor.freeze();
+				events.add( eventDescriptor );
+			}
+		eventDescriptors = Collections.unmodifiableList( events );
+
+		final Map<IRoleTask, TaskDescriptor> frozenTasks = new HashMap<IRoleTask, TaskDescriptor>();
+		if (tasks != null)
+			for (final Map.Entry<IRoleTask, TaskDescriptor> entry : tasks
+					.entrySet()){
+				if (entry.getValue() != null)
+					entry.getValue().freeze();
+				frozenTasks.put( entry.getKey(), entry.getValue() );
+			}
+		tasks = Collections.unmodifiableMap( frozenTasks );
+
+		super.freeze();
+	}
+
 	/**
 	 * Provides the role descriptor from a task object.
 	 * 
@@ -177,7 +345,7 @@ public class RoleDescriptor extends AbstractDescriptor {
 	 * @return the role descriptor associated
 	 */
 	public final synchronized TaskDescriptor getTaskDescriptor(	final IRoleTask task) {
-		return tasks.get( task );
+		return (tasks == null ? null : tasks.get( task ));
 	}
 
 	/**
@@ -187,6 +355,9 @@ public class RoleDescriptor extends AbstractDescriptor {
 	 */
 	public final List<TaskDescriptor> getTaskDescriptors() {
 		final LinkedList<TaskDescriptor> descriptors = new LinkedList<TaskDescriptor>();
+		if (tasks == null)
+			return descriptors;
+
 		for (final IRoleTask task : tasks.keySet())
 			descriptors.add( tasks.get( task ) );
 
@@ -217,6 +388,7 @@ public class RoleDescriptor extends AbstractDescriptor {
 	 *            the eventDscriptors to set with the specified value.
 	 */
 	protected synchronized final void setEventDscriptors(	final List<EventDescriptor> eventDscriptors) {
+		checkMutable();
 		eventDescriptors = eventDscriptors;
 	}
 
@@ -20,6 +20,9 @@
 package whitecat.core.role.descriptors;
 
 import java.security.Permission;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -41,6 +44,149 @@ import java.util.Set;
  */
 public class TaskDescriptor extends AbstractDescriptor {
 
+	/**
+	 * A builder of immutable task descriptors.
+	 */
+	public static final class Builder {
+
+		/**
+		 * The descriptor being built.
+		 */
+		private final TaskDescriptor	descriptor	= new TaskDescriptor();
+
+		private Builder() {
+			super();
+			descriptor.setKeywords( new HashSet<String>() );
+		}
+
+		/**
+		 * Adds an event descriptor to the task.
+		 * 
+		 * @param eventDescriptor
+		 *            the event descriptor (it will be frozen too)
+		 * @return this builder
+		 */
+		public final Builder addEventDescriptor(final EventDescriptor eventDescriptor) {
+			descriptor.addEventDescriptor( eventDescriptor );
+			return this;
+		}
+
+		/**
+		 * Adds a permission to the task.
+		 * 
+		 * @param permission
+		 *            the permission
+		 * @return this builder
+		 */
+		public final Builder addPermission(final Permission permission) {
+			descriptor.addPermission( permission );
+			return this;
+		}
+
+		/**
+		 * Builds the descriptor. The builder cannot be used anymore.
+		 * 
+		 * @return the immutable task descriptor
+		 */
+		public final TaskDescriptor build() {
+			descriptor.freeze();
+			return descriptor;
+		}
+
+		/**
+		 * Sets the aim of the task.
+		 * 
+		 * @param aim
+		 *            the aim
+		 * @return this builder
+		 */
+		public final Builder withAim(final String aim) {
+			descriptor.setAim( aim );
+			return this;
+		}
+
+		/**
+		 * Sets the creation date of the task.
+		 * 
+		 * @param creationDate
+		 *            the creation date, can be null
+		 * @return this builder
+		 */
+		public final Builder withCreationDate(final Date creationDate) {
+			descriptor.setCreationDate( creationDate );
+			return this;
+		}
+
+		/**
+		 * Sets the keywords of the task.
+		 * 
+		 * @param keywords
+		 *            the keywords
+		 * @return this builder
+		 */
+		public final Builder withKeywords(final Set<String> keywords) {
+			descriptor.setKeywords( new HashSet<String>( keywords ) );
+			return this;
+		}
+
+		/**
+		 * Sets the name of the task.
+		 * 
+		 * @param name
+		 *            the name
+		 * @return this builder
+		 */
+		public final Builder withName(final String name) {
+			descriptor.setName( name );
+			return this;
+		}
+
+		/**
+		 * Sets the parameters of the task.
+		 * 
+		 * @param parameters
+		 *            the parameter types, in order
+		 * @return this builder
+		 */
+		public final Builder withParameters(final List<Class> parameters) {
+			descriptor.setParameters( new LinkedList<Class>( parameters ) );
+			return this;
+		}
+
+		/**
+		 * Sets the return type of the task.
+		 * 
+		 * @param returnType
+		 *            the return type
+		 * @return this builder
+		 */
+		public final Builder withReturnType(final Class returnType) {
+			descriptor.setReturnType( returnType );
+			return this;
+		}
+
+		/**
+		 * Sets the version of the task descriptor.
+		 * 
+		 * @param version
+		 *            the version
+		 * @return this builder
+		 */
+		public final Builder withVersion(final float version) {
+			descriptor.setVersion( version );
+			return this;
+		}
+	}
+
+	/**
+	 * Provides a builder for an immutable task descriptor.
+	 * 
+	 * @return the builder
+	 */
+	public static final Builder newBuilder() {
+		return new Builder();
+	}
+
 	/**
 	 * Provides an instance of a specified task descriptor..
 	 * 
@@ -135,6 +281,7 @@ public class TaskDescriptor extends AbstractDescriptor {
 	 * @return true if the descriptor has been added
 	 */
 	public synchronized final boolean addEventDescriptor(	final EventDescriptor toAdd) {
+		checkMutable();
 		return eventDescriptors.add( toAdd );
 	}
 
@@ -147,6 +294,7 @@ public class TaskDescriptor extends AbstractDescriptor {
 	 * @return true if the parameter has been added
 	 */
 	protected synchronized final boolean addParameter(final Class toAdd) {
+		checkMutable();
 		return parameters.add( toAdd );
 	}
 
@@ -161,6 +309,7 @@ public class TaskDescriptor extends AbstractDescriptor {
 	 */
 	protected synchronized final void addParameter(final Class toAdd,
 													final int position) {
+		checkMutable();
 		parameters.add( position, toAdd );
 	}
 
@@ -173,6 +322,7 @@ public class TaskDescriptor extends AbstractDescriptor {
 	 *         permission is already contained in the set).
 	 */
 	protected synchronized final boolean addPermission(final Permission toAdd) {
+		checkMutable();
 		return permissions.add( toAdd );
 	}
 
@@ -202,6 +352,29 @@ public class TaskDescriptor extends AbstractDescriptor {
 
 	}
 
+	/**
+	 * Freezes this task descriptor, its collections and its event descriptors.
+	 * Overridden version.
+	 * 
+	 * @overrides @see whitecat.core.role.descriptors.AbstractDescriptor#freeze()
+	 */
+	@Override
+	protected synchronized void freeze() {
+		if (isImmutable())
+			return;
+
+		for (final EventDescriptor eventDescriptor : eventDescriptors)
+			eventDescriptor.freeze();
+
+		eventDescriptors = Collections
+				.unmodifiableList( new ArrayList<EventDescriptor>(
+						eventDescriptors ) );
+		parameters = Collections.unmodifiableList( new ArrayList<Class>(
+				parameters ) );
+		permissions = Collections.unmodifiableSet( permissions );
+		super.freeze();
+	}
+
 	/**
 	 * The number of events tied to this task descriptor.
 	 * 
@@ -255,11 +428,11 @@ public class TaskDescriptor extends AbstractDescriptor {
 	 * Calculates the hash code of this object. Overridden version.
 	 * 
 	 * @overrides @see
-	 *            it.unimo.polaris.rolex.roles.AbstractDescriptor#hashCode()
+	 *            it.unimo.polaris.rolex.roles.AbstractDescriptor#computeHashCode()
 	 */
 	@Override
-	public int hashCode() {
-		int hash = super.hashCode();
+	protected int computeHashCode() {
+		int hash = super.computeHashCode();
 		hash = 31 * hash + (parameters == null ? 0 : parameters.hashCode());
 		hash = 31 * hash + (permissions == null ? 0 : permissions.hashCode());
 		hash = 31 * hash + (returnType == null ? 0 : returnType.hashCode());
@@ -277,6 +450,7 @@ public class TaskDescriptor extends AbstractDescriptor {
 	 * @return true if the event descriptor has been removed
 	 */
 	protected synchronized final boolean removeEventDescriptor(	final EventDescriptor toRemove) {
+		checkMutable();
 		return eventDescriptors.remove( toRemove );
 	}
 
@@ -288,6 +462,7 @@ public class TaskDescriptor extends AbstractDescriptor {
 	 * @return true if the parameter has been removed
 	 */
 	protected synchronized final boolean removeParameter(final Class toRemove) {
+		checkMutable();
 		return parameters.remove( toRemove );
 	}
 
@@ -299,6 +474,7 @@ public class TaskDescriptor extends AbstractDescriptor {
 	 * @return the object that was present at such position
 	 */
 	protected synchronized final Class removeParameter(final int position) {
+		checkMutable();
 		return parameters.remove( position );
 	}
 
@@ -311,6 +487,7 @@ public class TaskDescriptor extends AbstractDescriptor {
 	 *         the permission is not included in the set).
 	 */
 	protected synchronized final boolean removePermission(	final Permission toRemove) {
+		checkMutable();
 		return permissions.remove( toRemove );
 	}
 
@@ -322,6 +499,7 @@ public class TaskDescriptor extends AbstractDescriptor {
 	 *            the eventDescriptors to set with the specified value.
 	 */
 	protected synchronized final void setEventDescriptors(	final List<EventDescriptor> eventDescriptors) {
+		checkMutable();
 		this.eventDescriptors = eventDescriptors;
 	}
 
@@ -333,6 +511,7 @@ public class TaskDescriptor extends AbstractDescriptor {
 	 *            the parameters to set with the specified value.
 	 */
 	protected synchronized final void setParameters(final List<Class> parameters) {
+		checkMutable();
 		this.parameters = parameters;
 	}
 
@@ -344,6 +523,7 @@ public class TaskDescriptor extends AbstractDescriptor {
 	 *            the permissions to set with the specified value.
 	 */
 	protected synchronized final void setPermissions(	final Set<Permission> permissions) {
+		checkMutable();
 		this.permissions = permissions;
 	}
 
@@ -355,6 +535,7 @@ public class TaskDescriptor extends AbstractDescriptor {
 	 *            the returnType to set with the specified value.
 	 */
 	protected synchronized final void setReturnType(final Class returnType) {
+		checkMutable();
 		this.returnType = returnType;
 	}
 
@@ -85,6 +85,15 @@ public @interface AnnotationTaskDescriptor {
 	 */
 	public String name() default "";
 
+	/**
+	 * Indicates if the subtasks of this task (i.e., the tasks that specify this
+	 * task id as addToTaskID) are independent and can be executed
+	 * concurrently.
+	 * 
+	 * @return true if the subtasks can run in parallel, by default false
+	 */
+	public boolean parallelSubTasks() default false;
+
 	/**
 	 * A task id, used to group tasks together to compose complex tasks.
 	 * 
@@ -38,15 +38,22 @@
  */
 package whitecat.core.role.impl;
 
+import java.lang.ref.SoftReference;
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.WeakHashMap;
 
+import whitecat.core.WCException;
 import whitecat.core.role.IRole;
 import whitecat.core.role.descriptors.EventDescriptor;
 import whitecat.core.role.descriptors.IRoleDescriptorBuilder;
@@ -55,18 +62,156 @@ import whitecat.core.role.descriptors.TaskDescriptor;
 import whitecat.core.role.descriptors.annotation.AnnotationEventDescriptor;
 import whitecat.core.role.descriptors.annotation.AnnotationRoleDescriptor;
 import whitecat.core.role.descriptors.annotation.AnnotationTaskDescriptor;
-import whitecat.core.role.task.IRoleTask;
 import whitecat.core.role.task.MethodTaskExecutor;
+import whitecat.core.role.task.TaskInvokerGenerator;
 
 /**
  * A role descriptor builder that can analyze a role and build a role descriptor
  * from its annotations.
  * 
+ * The annotations of a role class are analyzed only once: the result is kept
+ * as a template shared by all the builders, made by the immutable task and
+ * event descriptors of the class. Building the descriptor of another instance
+ * of the same class only binds new task executors to such instance.
+ * 
+ * Optionally, the task executors can be bound to invokers generated for each
+ * task method, that call the role directly instead of thru reflection (see
+ * {@link TaskInvokerGenerator}).
+ * 
  * @author Luca Ferrari - fluca1978 (at) gmail.com
  * 
  */
 public class AnnotationRoleDescriptorBuilder implements IRoleDescriptorBuilder {
 
+	/**
+	 * The description of a task method of a role class.
+	 */
+	private static final class TaskTemplate {
+
+		/**
+		 * The method to execute.
+		 */
+		private final Method			method;
+
+		/**
+		 * Indicates if the subtasks must be executed concurrently.
+		 */
+		private final boolean			parallelSubTasks;
+
+		/**
+		 * The immutable descriptor of the task.
+		 */
+		private final TaskDescriptor	descriptor;
+
+		/**
+		 * The index of the task this task must be added to, or -1.
+		 */
+		private int						mainTask	= -1;
+
+		TaskTemplate(	final Method method, final boolean parallelSubTasks,
+						final TaskDescriptor descriptor) {
+			super();
+			this.method = method;
+			this.parallelSubTasks = parallelSubTasks;
+			this.descriptor = descriptor;
+		}
+	}
+
+	/**
+	 * The description of a role class, built from its annotations.
+	 */
+	private static final class RoleTemplate {
+
+		/**
+		 * The annotation descriptor of the role.
+		 */
+		private final AnnotationRoleDescriptor	annotation;
+
+		/**
+		 * The keywords of the role.
+		 */
+		private final Set<String>				keywords;
+
+		/**
+		 * The event directly tied to the role, or null.
+		 */
+		private final EventDescriptor			event;
+
+		/**
+		 * The tasks of the role, in a deterministic order.
+		 */
+		private final TaskTemplate[]			tasks;
+
+		RoleTemplate(	final AnnotationRoleDescriptor annotation,
+						final Set<String> keywords,
+						final EventDescriptor event, final TaskTemplate[] tasks) {
+			super();
+			this.annotation = annotation;
+			this.keywords = keywords;
+			this.event = event;
+			this.tasks = tasks;
+		}
+	}
+
+	/**
+	 * Sorts the methods of a role, so that tasks and subtasks are always built
+	 * in the same order (the order of getMethods() is not specified).
+	 */
+	private static final Comparator<Method>						methodComparator	= new Comparator<Method>() {
+
+		public int compare(final Method m1, final Method m2) {
+			final int byName = m1.getName().compareTo( m2.getName() );
+			if (byName != 0)
+				return byName;
+			else return m1.toString().compareTo( m2.toString() );
+		}
+	};
+
+	/**
+	 * The templates of the analyzed classes, shared by all the builders. The
+	 * classes are weak keys and the templates, that refer to the class methods,
+	 * are softly referenced, so that the cache does not prevent the class
+	 * loaders of the roles from being unloaded.
+	 */
+	private static final Map<Class, SoftReference<RoleTemplate>>	templates			= Collections
+																						.synchronizedMap( new WeakHashMap<Class, SoftReference<RoleTemplate>>() );
+
+	/**
+	 * The template of the classes that are not annotated as roles.
+	 */
+	private static final RoleTemplate							NO_TEMPLATE			= new RoleTemplate(
+																				null, null, null,
+																				new TaskTemplate[0] );
+
+	/**
+	 * Indicates if the tasks must be bound to generated invokers.
+	 */
+	private boolean														generateTaskInvokers	= false;
+
+	/**
+	 * Drops all the templates, so that the annotations of each class will be
+	 * analyzed again.
+	 */
+	public static final void clearTemplates() {
+		templates.clear();
+	}
+
+	/**
+	 * Drops the templates of the classes loaded by the specified class loader,
+	 * for instance before discarding the loader of a set of plugged roles.
+	 * 
+	 * @param classLoader
+	 *            the class loader of the roles
+	 */
+	public static final void clearTemplates(final ClassLoader classLoader) {
+		synchronized (templates){
+			final Iterator<Class> classes = templates.keySet().iterator();
+			while (classes.hasNext())
+				if (classes.next().getClassLoader() == classLoader)
+					classes.remove();
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -79,24 +224,89 @@ public class AnnotationRoleDescriptorBuilder implements IRoleDescriptorBuilder {
 		if (role == null)
 			return null;
 
-		// get the class
-		final Class clazz = role.getClass();
+		// get the template of the class, analyzing it if this is the first time
+		final RoleTemplate template = getTemplate( role.getClass() );
+		if (template == NO_TEMPLATE)
+			return null; // cannot proceed
+
+		// bind a new executor to the role for each task
+		final MethodTaskExecutor[] executors = new MethodTaskExecutor[template.tasks.length];
+		for (int i = 0; i < executors.length; i++){
+			executors[i] = new MethodTaskExecutor();
+			executors[i].setMethodToExecute( template.tasks[i].method );
+			executors[i].setExecutingRole( role );
+			executors[i].setParallelSubTasks( template.tasks[i].parallelSubTasks );
+
+			if (isGenerateTaskInvokers())
+				try{
+					executors[i].setTaskInvoker( TaskInvokerGenerator.bind(
+							template.tasks[i].method,
+							role ) );
+				}catch (final WCException e){
+					// the task will be bound thru reflection at the first
+					// execution
+				}
+		}
 
+		// link each subtask to its main task, in a deterministic order
+		for (int i = 0; i < executors.length; i++)
+			if (template.tasks[i].mainTask >= 0)
+				executors[template.tasks[i].mainTask].addSubTask( executors[i] );
+
+		// build the role descriptor, sharing the task descriptors
+		final RoleDescriptor.Builder roleBuilder = RoleDescriptor.newBuilder()
+				.withName( template.annotation.name() )
+				.withAim( template.annotation.aim() )
+				.withKeywords( template.keywords );
+
+		for (int i = 0; i < executors.length; i++)
+			roleBuilder.addTask( executors[i], template.tasks[i].descriptor );
+
+		if (template.event != null)
+			roleBuilder.addEventDescriptor( template.event );
+
+		// all done, the descriptor cannot be changed anymore
+		return roleBuilder.build();
+	}
+
+	/**
+	 * Builds an immutable event descriptor from its annotation.
+	 * 
+	 * @param aed
+	 *            the annotation event descriptor
+	 * @return the event descriptor
+	 */
+	private EventDescriptor buildEventDescriptor(final AnnotationEventDescriptor aed) {
+		return EventDescriptor.newBuilder().withName( aed.name() )
+				.withAim( aed.aim() ).withIssuing( aed.issuing() )
+				.withReceiving( aed.receiving() ).build();
+	}
+
+	/**
+	 * Analyzes the annotations of a role class.
+	 * 
+	 * @param clazz
+	 *            the role class
+	 * @return the template of the class, NO_TEMPLATE if the class is not
+	 *         annotated
+	 */
+	private RoleTemplate buildTemplate(final Class clazz) {
 		// see if the class has a role annotation
 		if (!clazz.isAnnotationPresent( AnnotationRoleDescriptor.class ))
-			return null; // cannot proceed
+			return NO_TEMPLATE; // cannot proceed
 
-		// a map of the tasks, used to combine subtasks
-		final Map<String, MethodTaskExecutor> tasks = new HashMap<String, MethodTaskExecutor>();
+		// the main tasks by their id, used to combine subtasks
+		final Map<String, Integer> mainTasks = new HashMap<String, Integer>();
 
-		// a map of tasks and task descriptors used for the role descriptor
-		final Map<IRoleTask, TaskDescriptor> roleTasks = new HashMap<IRoleTask, TaskDescriptor>();
+		// the id of the main task of each subtask
+		final Map<Integer, String> subTasks = new HashMap<Integer, String>();
 
-		// get all the methods for the role
-		for (final Method method : clazz.getMethods()){
+		final List<TaskTemplate> tasks = new LinkedList<TaskTemplate>();
 
-			MethodTaskExecutor executor = null;
-			TaskDescriptor taskDescriptor = null;
+		// get all the methods for the role
+		final Method[] methods = clazz.getMethods();
+		Arrays.sort( methods, methodComparator );
+		for (final Method method : methods){
 
 			// if the method is annotated as a task, this must be a task
 			if (method.isAnnotationPresent( AnnotationTaskDescriptor.class )){
@@ -104,28 +314,23 @@ public class AnnotationRoleDescriptorBuilder implements IRoleDescriptorBuilder {
 				final AnnotationTaskDescriptor atd = method
 						.getAnnotation( AnnotationTaskDescriptor.class );
 
-				// construct a task executor thru reflection
-				executor = new MethodTaskExecutor();
-				executor.setMethodToExecute( method );
-				executor.setExecutingRole( role );
-				final String taskID = atd.taskID();
-
-				// must this task need to be added to another task?
-				if (tasks.containsKey( atd.addToTaskID() )){
-					final IRoleTask mainTask = tasks.get( atd.addToTaskID() );
-					mainTask.addSubTask( executor );
-				}else
+				// must this task need to be added to another task? The main
+				// task could not have been analyzed yet, so link it later
+				if ((atd.addToTaskID() != null)
+						&& (atd.addToTaskID().length() > 0))
+					subTasks.put( tasks.size(), atd.addToTaskID() );
+				else
 				// single task
-				tasks.put( taskID, executor );
+				mainTasks.put( atd.taskID(), tasks.size() );
 
-				// build a task descriptor for this task
-				// construct the task descriptor
-				taskDescriptor = TaskDescriptor.getInstance(
-						atd.name(),
-						atd.aim(),
-						this.getKeywords( atd ),
-						method.getReturnType(),
-						parametersAsList( method.getParameterTypes() ) );
+				// build an immutable task descriptor for this task
+				final TaskDescriptor.Builder taskBuilder = TaskDescriptor
+						.newBuilder().withName( atd.name() )
+						.withAim( atd.aim() )
+						.withKeywords( this.getKeywords( atd ) )
+						.withReturnType( method.getReturnType() )
+						.withParameters(
+								parametersAsList( method.getParameterTypes() ) );
 
 				// if I've got an event descriptor, add it to the task
 				// descriptor
@@ -136,54 +341,35 @@ public class AnnotationRoleDescriptorBuilder implements IRoleDescriptorBuilder {
 							.getAnnotation( AnnotationEventDescriptor.class );
 
 					// build an event descriptor and add to the task descriptor
-					final EventDescriptor eventDescriptor = EventDescriptor
-							.getInstance(
-									aed.name(),
-									aed.aim(),
-									aed.issuing(),
-									aed.receiving() );
-					taskDescriptor.addEventDescriptor( eventDescriptor );
+					taskBuilder.addEventDescriptor( buildEventDescriptor( aed ) );
 				}
 
-				// now add the task and its descriptor to the tasks of the role
-				// descriptor
-				roleTasks.put( executor, taskDescriptor );
-
+				tasks.add( new TaskTemplate( method, atd.parallelSubTasks(),
+						taskBuilder.build() ) );
 			}
 
 		}
 
+		final TaskTemplate[] taskTemplates = tasks
+				.toArray( new TaskTemplate[tasks.size()] );
+		for (final Map.Entry<Integer, String> subTask : subTasks.entrySet()){
+			final Integer mainTask = mainTasks.get( subTask.getValue() );
+			if (mainTask != null)
+				taskTemplates[subTask.getKey()].mainTask = mainTask;
+		}
+
 		// now get the annotation descriptor
 		final AnnotationRoleDescriptor aDesc = (AnnotationRoleDescriptor) clazz
 				.getAnnotation( AnnotationRoleDescriptor.class );
 
 		// does this role has events?
-		final List<EventDescriptor> events = null;
-		if (clazz.isAnnotationPresent( AnnotationEventDescriptor.class )){
-			final AnnotationEventDescriptor aed = (AnnotationEventDescriptor) clazz
-					.getAnnotation( AnnotationEventDescriptor.class );
-
-			// build an event descriptor
-			final EventDescriptor ed = EventDescriptor.getInstance(
-					aed.name(),
-					aed.aim(),
-					aed.issuing(),
-					aed.receiving() );
-			// add the event to the role events
-			events.add( ed );
-		}
-
-		// build the role descriptor
-		final RoleDescriptor roleDescriptor = RoleDescriptor.getInstance(
-				aDesc.name(),
-				aDesc.aim(),
-				roleTasks,
-				events,
-				this.getKeywords( aDesc ) );
-
-		// all done
-		return roleDescriptor;
+		EventDescriptor event = null;
+		if (clazz.isAnnotationPresent( AnnotationEventDescriptor.class ))
+			event = buildEventDescriptor( (AnnotationEventDescriptor) clazz
+					.getAnnotation( AnnotationEventDescriptor.class ) );
 
+		return new RoleTemplate( aDesc, this.getKeywords( aDesc ), event,
+				taskTemplates );
 	}
 
 	/**
@@ -224,6 +410,35 @@ public class AnnotationRoleDescriptorBuilder implements IRoleDescriptorBuilder {
 		return keywords;
 	}
 
+	/**
+	 * Provides the template of a class, analyzing the class the first time.
+	 * 
+	 * @param clazz
+	 *            the role class
+	 * @return the template of the class
+	 */
+	private RoleTemplate getTemplate(final Class clazz) {
+		final SoftReference<RoleTemplate> cached = templates.get( clazz );
+		final RoleTemplate template = (cached != null) ? cached.get() : null;
+		if (template != null)
+			return template;
+
+		// two threads could analyze the same class, the templates are
+		// equivalent and the last one is kept
+		final RoleTemplate built = buildTemplate( clazz );
+		templates.put( clazz, new SoftReference<RoleTemplate>( built ) );
+		return built;
+	}
+
+	/**
+	 * Notifies if the tasks are bound to generated invokers.
+	 * 
+	 * @return true if the invokers are generated
+	 */
+	public synchronized final boolean isGenerateTaskInvokers() {
+		return generateTaskInvokers;
+	}
+
 	/**
 	 * Converts an array of class to a list.
 	 * 
@@ -240,4 +455,15 @@ public class AnnotationRoleDescriptorBuilder implements IRoleDescriptorBuilder {
 		return parameters;
 	}
 
+	/**
+	 * Specifies if the tasks must be bound to invokers generated for each task
+	 * method, instead of being bound thru reflection at their first execution.
+	 * 
+	 * @param generateTaskInvokers
+	 *            true to generate the invokers
+	 */
+	public synchronized final void setGenerateTaskInvokers(	final boolean generateTaskInvokers) {
+		this.generateTaskInvokers = generateTaskInvokers;
+	}
+
 }
@@ -0,0 +1,424 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core.role.impl;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ClassFile;
+
+import org.apache.log4j.Logger;
+
+import whitecat.core.annotations.PUBLICROLE;
+import whitecat.core.exceptions.WCRoleRepositoryException;
+import whitecat.core.role.IRole;
+import whitecat.core.role.IRoleRepository;
+import whitecat.core.role.descriptors.IRoleDescriptorBuilder;
+import whitecat.core.role.descriptors.RoleDescriptor;
+import whitecat.core.role.descriptors.annotation.AnnotationRoleDescriptor;
+
+/**
+ * A scanner that searches the role classes in packages or jar files and
+ * installs them in a role repository.
+ * 
+ * The classes are not loaded while scanning: each class file is parsed thru
+ * Javassist and only the classes annotated with {@link AnnotationRoleDescriptor}
+ * or {@link PUBLICROLE} are selected. The selected roles are then
+ * instantiated and their descriptors built in parallel, and finally installed
+ * all together in the repository.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public class RoleClassScanner {
+
+	/**
+	 * The suffix of the class files.
+	 */
+	private static final String		CLASS_SUFFIX		= ".class";
+
+	/**
+	 * The annotations a class must have to be selected.
+	 */
+	private static final String[]	ROLE_ANNOTATIONS	= new String[] {
+			AnnotationRoleDescriptor.class.getName(), PUBLICROLE.class.getName() };
+
+	private static Logger			logger				= org.apache.log4j.Logger
+																.getLogger( RoleClassScanner.class );
+
+	/**
+	 * The builder used to build the descriptors of the scanned roles.
+	 */
+	private final IRoleDescriptorBuilder	builder;
+
+	/**
+	 * The class loader used to search the packages and to load the roles.
+	 */
+	private final ClassLoader				classLoader;
+
+	/**
+	 * The executor used to build the descriptors, null to use a temporary pool
+	 * for each installation.
+	 */
+	private ExecutorService					executor	= null;
+
+	/**
+	 * Builds a scanner that uses the context class loader.
+	 * 
+	 * @param builder
+	 *            the builder for the role descriptors
+	 */
+	public RoleClassScanner(final IRoleDescriptorBuilder builder) {
+		this( builder, null );
+	}
+
+	/**
+	 * Builds a scanner.
+	 * 
+	 * @param builder
+	 *            the builder for the role descriptors
+	 * @param classLoader
+	 *            the class loader to scan and to load the roles with, null for
+	 *            the context class loader
+	 */
+	public RoleClassScanner(final IRoleDescriptorBuilder builder,
+							final ClassLoader classLoader) {
+		super();
+		this.builder = builder;
+
+		if (classLoader != null)
+			this.classLoader = classLoader;
+		else if (Thread.currentThread().getContextClassLoader() != null)
+			this.classLoader = Thread.currentThread().getContextClassLoader();
+		else this.classLoader = RoleClassScanner.class.getClassLoader();
+	}
+
+	/**
+	 * Builds the descriptors of the specified role classes in parallel.
+	 * Classes that cannot be instantiated or described are skipped, as well as
+	 * the classes described by a descriptor equal to the one of a previous
+	 * class (the descriptors do not take into account the role class).
+	 * 
+	 * @param classNames
+	 *            the role class names
+	 * @return the roles keyed by their descriptors, in the order of the class
+	 *         names
+	 * @throws WCRoleRepositoryException
+	 *             if the building is interrupted
+	 */
+	public Map<RoleDescriptor, IRole> buildRoles(final Collection<String> classNames)
+																						throws WCRoleRepositoryException {
+		// check arguments
+		if (builder == null)
+			throw new WCRoleRepositoryException(
+					"Cannot build the roles without a role descriptor builder" );
+
+		final ExecutorService configured = getExecutor();
+		final ExecutorService service = (configured != null ? configured
+				: Executors.newFixedThreadPool( Runtime.getRuntime()
+						.availableProcessors() ));
+		try{
+			final List<Future<Object[]>> futures = new ArrayList<Future<Object[]>>();
+			for (final String className : classNames)
+				futures.add( service.submit( new Callable<Object[]>() {
+
+					public Object[] call() throws Exception {
+						final IRole role = (IRole) Class.forName( className,
+								true, classLoader ).newInstance();
+						return new Object[] { builder.buildRoleDescriptor( role ),
+								role };
+					}
+				} ) );
+
+			final Map<RoleDescriptor, IRole> roles = new LinkedHashMap<RoleDescriptor, IRole>();
+			for (final Future<Object[]> future : futures)
+				try{
+					final Object[] built = future.get();
+					if (built[0] == null)
+						continue;
+
+					final IRole previous = roles.get( built[0] );
+					if (previous != null)
+						logger.warn( "Skipping the role "
+								+ built[1].getClass().getName()
+								+ ", its descriptor is equal to the one of the role "
+								+ previous.getClass().getName() );
+					else roles.put( (RoleDescriptor) built[0], (IRole) built[1] );
+				}catch (final ExecutionException e){
+					logger.warn( "Cannot build a scanned role", e.getCause() );
+				}
+
+			return roles;
+		}catch (final InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new WCRoleRepositoryException(
+					"Interrupted while building the roles", e );
+		}finally{
+			if (service != configured)
+				service.shutdown();
+		}
+	}
+
+	/**
+	 * Provides the executor used to build the descriptors.
+	 * 
+	 * @return the executor, null if a temporary pool is used
+	 */
+	public synchronized final ExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Scans the specified packages, builds the role descriptors and installs
+	 * all the roles in the repository.
+	 * 
+	 * @param repository
+	 *            the repository to install the roles in
+	 * @param overrideIfExists
+	 *            true if the roles must override the installed ones
+	 * @param packages
+	 *            the packages to scan
+	 * @return the number of installed roles
+	 * @throws WCRoleRepositoryException
+	 *             if the packages cannot be scanned or the roles installed
+	 */
+	public int installRoles(final IRoleRepository repository,
+							final boolean overrideIfExists,
+							final String... packages)
+														throws WCRoleRepositoryException {
+		return repository.installRoles(
+				buildRoles( scanPackages( packages ) ),
+				overrideIfExists );
+	}
+
+	/**
+	 * Checks if a class file describes a concrete role class.
+	 * 
+	 * @param input
+	 *            the class file bytes
+	 * @return the class name if the class is a role, null otherwise
+	 * @throws IOException
+	 *             if the class file cannot be read
+	 */
+	private String readRoleClass(final InputStream input) throws IOException {
+		final ClassFile classFile = new ClassFile( new DataInputStream(
+				new BufferedInputStream( input ) ) );
+
+		if (classFile.isInterface() || classFile.isAbstract())
+			return null;
+
+		final AnnotationsAttribute annotations = (AnnotationsAttribute) classFile
+				.getAttribute( AnnotationsAttribute.visibleTag );
+		if (annotations == null)
+			return null;
+
+		for (final String annotation : ROLE_ANNOTATIONS)
+			if (annotations.getAnnotation( annotation ) != null)
+				return classFile.getName();
+
+		return null;
+	}
+
+	/**
+	 * Scans a directory recursively.
+	 * 
+	 * @param directory
+	 *            the directory
+	 * @param found
+	 *            the set to add the role class names to
+	 * @throws IOException
+	 *             if a class file cannot be read
+	 */
+	private void scanDirectory(final File directory, final Collection<String> found)
+																					throws IOException {
+		final File[] files = directory.listFiles();
+		if (files == null)
+			return;
+
+		for (final File file : files)
+			if (file.isDirectory())
+				scanDirectory( file, found );
+			else if (file.getName().endsWith( CLASS_SUFFIX )){
+				final InputStream input = new FileInputStream( file );
+				try{
+					final String className = readRoleClass( input );
+					if (className != null)
+						found.add( className );
+				}finally{
+					input.close();
+				}
+			}
+	}
+
+	/**
+	 * Scans a jar file.
+	 * 
+	 * @param jar
+	 *            the jar file
+	 * @return the sorted names of the role classes
+	 * @throws WCRoleRepositoryException
+	 *             if the jar cannot be read
+	 */
+	public List<String> scanJar(final File jar)
+												throws WCRoleRepositoryException {
+		final TreeSet<String> found = new TreeSet<String>();
+		try{
+			scanJar( new JarFile( jar ), "", found );
+		}catch (final IOException e){
+			throw new WCRoleRepositoryException( "Cannot scan the jar "
+					+ jar.getPath(), e );
+		}
+
+		return new ArrayList<String>( found );
+	}
+
+	/**
+	 * Scans the entries of a jar file below a path, closing the jar at the
+	 * end.
+	 * 
+	 * @param jar
+	 *            the jar file
+	 * @param path
+	 *            the path of the package, empty for the whole jar
+	 * @param found
+	 *            the set to add the role class names to
+	 * @throws IOException
+	 *             if an entry cannot be read
+	 */
+	private void scanJar(	final JarFile jar, final String path,
+							final Collection<String> found) throws IOException {
+		try{
+			final Enumeration<JarEntry> entries = jar.entries();
+			while (entries.hasMoreElements()){
+				final JarEntry entry = entries.nextElement();
+				if (entry.isDirectory() || !entry.getName().startsWith( path )
+						|| !entry.getName().endsWith( CLASS_SUFFIX ))
+					continue;
+
+				final InputStream input = jar.getInputStream( entry );
+				try{
+					final String className = readRoleClass( input );
+					if (className != null)
+						found.add( className );
+				}finally{
+					input.close();
+				}
+			}
+		}finally{
+			jar.close();
+		}
+	}
+
+	/**
+	 * Scans the specified packages (and their subpackages) in all the
+	 * directories and jars visible to the class loader.
+	 * 
+	 * @param packages
+	 *            the package names
+	 * @return the sorted names of the role classes
+	 * @throws WCRoleRepositoryException
+	 *             if a package cannot be scanned
+	 */
+	public List<String> scanPackages(final String... packages)
+																throws WCRoleRepositoryException {
+		final TreeSet<String> found = new TreeSet<String>();
+
+		for (final String packageName : packages){
+			final String path = packageName.replace( '.', '/' );
+			try{
+				final Enumeration<URL> resources = classLoader
+						.getResources( path );
+				while (resources.hasMoreElements()){
+					final URL resource = resources.nextElement();
+					if ("file".equals( resource.getProtocol() ))
+						scanDirectory(
+								new File( URLDecoder.decode(
+										resource.getPath(),
+										"UTF-8" ) ),
+								found );
+					else if ("jar".equals( resource.getProtocol() )){
+						final JarURLConnection connection = (JarURLConnection) resource
+								.openConnection();
+						connection.setUseCaches( false );
+						scanJar( connection.getJarFile(), path + "/", found );
+					}else logger.warn( "Cannot scan the resource " + resource );
+				}
+			}catch (final IOException e){
+				throw new WCRoleRepositoryException( "Cannot scan the package "
+						+ packageName, e );
+			}
+		}
+
+		return new ArrayList<String>( found );
+	}
+
+	/**
+	 * Sets the executor used to build the descriptors. The executor is not
+	 * shut down by the scanner.
+	 * 
+	 * @param executor
+	 *            the executor, null to use a temporary pool for each
+	 *            installation
+	 */
+	public synchronized final void setExecutor(final ExecutorService executor) {
+		this.executor = executor;
+	}
+}
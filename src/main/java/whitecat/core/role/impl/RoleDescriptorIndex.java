@@ -0,0 +1,374 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core.role.impl;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import whitecat.core.role.RoleQuery;
+import whitecat.core.role.descriptors.RoleDescriptor;
+import whitecat.core.role.descriptors.TaskDescriptor;
+
+/**
+ * An inverted index over the installed role descriptors. Each descriptor is
+ * given a slot, and for each keyword, task return type and task signature the
+ * index keeps the set of slots of the descriptors that have it as a bit set.
+ * A query is then resolved intersecting (all keywords) and joining (any
+ * keyword) bit sets, and only the candidates that survive are checked
+ * against the task conditions.
+ * 
+ * The index reflects the descriptors as they were when they have been added;
+ * a descriptor must be removed and added again to reflect a change.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public class RoleDescriptorIndex {
+
+	/**
+	 * A descriptor in the index, with the keys it has been indexed with, so
+	 * that it can be removed without scanning all the keys.
+	 */
+	private static final class IndexedDescriptor {
+		final RoleDescriptor	descriptor;
+		final List<String>		keywords	= new LinkedList<String>();
+		final List<Class>		returnTypes	= new LinkedList<Class>();
+		final List<List<Class>>	signatures	= new LinkedList<List<Class>>();
+
+		IndexedDescriptor(final RoleDescriptor descriptor) {
+			super();
+			this.descriptor = descriptor;
+		}
+	}
+
+	/**
+	 * The descriptors indexed, by slot.
+	 */
+	private final List<IndexedDescriptor>		slots			= new ArrayList<IndexedDescriptor>();
+
+	/**
+	 * The slot of each descriptor.
+	 */
+	private final Map<RoleDescriptor, Integer>	slotOf			= new HashMap<RoleDescriptor, Integer>();
+
+	/**
+	 * The slots that are in use.
+	 */
+	private final BitSet						occupied		= new BitSet();
+
+	/**
+	 * The slots by keyword.
+	 */
+	private final Map<String, BitSet>			byKeyword		= new HashMap<String, BitSet>();
+
+	/**
+	 * The slots by task return type.
+	 */
+	private final Map<Class, BitSet>			byReturnType	= new HashMap<Class, BitSet>();
+
+	/**
+	 * The slots by task signature.
+	 */
+	private final Map<List<Class>, BitSet>		bySignature		= new HashMap<List<Class>, BitSet>();
+
+	/**
+	 * The lock that protects the index.
+	 */
+	private final ReadWriteLock					lock			= new ReentrantReadWriteLock();
+
+	/**
+	 * Indexes a descriptor. If the descriptor is already indexed it is indexed
+	 * again.
+	 * 
+	 * @param descriptor
+	 *            the descriptor to index
+	 */
+	public final void add(final RoleDescriptor descriptor) {
+		if (descriptor == null)
+			return;
+
+		lock.writeLock().lock();
+		try{
+			unindex( descriptor );
+
+			final IndexedDescriptor indexed = new IndexedDescriptor( descriptor );
+			final Iterator<String> keywords = descriptor.getKeywords();
+			while (keywords.hasNext())
+				indexed.keywords.add( keywords.next() );
+			for (final TaskDescriptor task : descriptor.getTaskDescriptors()){
+				indexed.returnTypes.add( task.getReturnType() );
+				indexed.signatures.add( new ArrayList<Class>( task
+						.getParameters() ) );
+			}
+
+			// reuse a free slot if any
+			final int slot = occupied.nextClearBit( 0 );
+			if (slot == slots.size())
+				slots.add( indexed );
+			else slots.set( slot, indexed );
+			occupied.set( slot );
+			slotOf.put( descriptor, slot );
+
+			for (final String keyword : indexed.keywords)
+				mark( byKeyword, keyword, slot );
+			for (final Class returnType : indexed.returnTypes)
+				mark( byReturnType, returnType, slot );
+			for (final List<Class> signature : indexed.signatures)
+				mark( bySignature, signature, slot );
+		}finally{
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes all the descriptors from the index.
+	 */
+	public final void clear() {
+		lock.writeLock().lock();
+		try{
+			slots.clear();
+			slotOf.clear();
+			occupied.clear();
+			byKeyword.clear();
+			byReturnType.clear();
+			bySignature.clear();
+		}finally{
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Sets a slot in the bit set of the specified key.
+	 * 
+	 * @param index
+	 *            the index to update
+	 * @param key
+	 *            the key
+	 * @param slot
+	 *            the slot to set
+	 */
+	private final <K> void mark(final Map<K, BitSet> index, final K key,
+								final int slot) {
+		if (key == null)
+			return;
+
+		BitSet bits = index.get( key );
+		if (bits == null){
+			bits = new BitSet();
+			index.put( key, bits );
+		}
+
+		bits.set( slot );
+	}
+
+	/**
+	 * Provides the descriptors that match a query.
+	 * 
+	 * @param query
+	 *            the query
+	 * @return the matching descriptors
+	 */
+	public final List<RoleDescriptor> query(final RoleQuery query) {
+		final List<RoleDescriptor> result = new LinkedList<RoleDescriptor>();
+
+		lock.readLock().lock();
+		try{
+			final BitSet candidates = (BitSet) occupied.clone();
+
+			// all the keywords
+			for (final String keyword : query.getAllKeywords()){
+				final BitSet bits = byKeyword.get( keyword );
+				if (bits == null)
+					return result;
+				candidates.and( bits );
+			}
+
+			// any of the keywords
+			if (!query.getAnyKeywords().isEmpty()){
+				final BitSet any = new BitSet();
+				for (final String keyword : query.getAnyKeywords()){
+					final BitSet bits = byKeyword.get( keyword );
+					if (bits != null)
+						any.or( bits );
+				}
+				candidates.and( any );
+			}
+
+			// the tasks: return types can be assigned, so join all the
+			// compatible ones
+			if (query.getTaskReturnType() != null){
+				final BitSet compatible = new BitSet();
+				for (final Map.Entry<Class, BitSet> entry : byReturnType
+						.entrySet())
+					if (query.getTaskReturnType().isAssignableFrom(
+							entry.getKey() ))
+						compatible.or( entry.getValue() );
+				candidates.and( compatible );
+			}
+
+			if (query.getTaskParameters() != null){
+				final BitSet bits = bySignature.get( new ArrayList<Class>(
+						query.getTaskParameters() ) );
+				if (bits == null)
+					return result;
+				candidates.and( bits );
+			}
+
+			for (int slot = candidates.nextSetBit( 0 ); slot >= 0; slot = candidates
+					.nextSetBit( slot + 1 )){
+				final RoleDescriptor descriptor = slots.get( slot ).descriptor;
+
+				// with both the task conditions, the same task must satisfy
+				// them
+				if ((query.getTaskReturnType() != null)
+						&& (query.getTaskParameters() != null)
+						&& !hasMatchingTask( descriptor, query ))
+					continue;
+
+				result.add( descriptor );
+			}
+
+			return result;
+		}finally{
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Checks if a descriptor has a task that matches the task conditions of a
+	 * query.
+	 * 
+	 * @param descriptor
+	 *            the descriptor
+	 * @param query
+	 *            the query
+	 * @return true if a task matches
+	 */
+	private final boolean hasMatchingTask(	final RoleDescriptor descriptor,
+											final RoleQuery query) {
+		for (final TaskDescriptor task : descriptor.getTaskDescriptors())
+			if (query.matchesTask( task.getReturnType(), task.getParameters() ))
+				return true;
+
+		return false;
+	}
+
+	/**
+	 * Removes a descriptor from the index.
+	 * 
+	 * @param descriptor
+	 *            the descriptor to remove
+	 */
+	public final void remove(final RoleDescriptor descriptor) {
+		if (descriptor == null)
+			return;
+
+		lock.writeLock().lock();
+		try{
+			unindex( descriptor );
+		}finally{
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Provides the number of indexed descriptors.
+	 * 
+	 * @return the number of descriptors
+	 */
+	public final int size() {
+		lock.readLock().lock();
+		try{
+			return slotOf.size();
+		}finally{
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Clears the slot of a descriptor in the index. Must be called holding the
+	 * write lock.
+	 * 
+	 * @param descriptor
+	 *            the descriptor
+	 */
+	private final void unindex(final RoleDescriptor descriptor) {
+		final Integer slot = slotOf.remove( descriptor );
+		if (slot == null)
+			return;
+
+		final IndexedDescriptor indexed = slots.set( slot, null );
+		occupied.clear( slot );
+		for (final String keyword : indexed.keywords)
+			unmark( byKeyword, keyword, slot );
+		for (final Class returnType : indexed.returnTypes)
+			unmark( byReturnType, returnType, slot );
+		for (final List<Class> signature : indexed.signatures)
+			unmark( bySignature, signature, slot );
+	}
+
+	/**
+	 * Clears a slot in the bit set of the specified key, dropping the bit set
+	 * if it becomes empty.
+	 * 
+	 * @param index
+	 *            the index to update
+	 * @param key
+	 *            the key
+	 * @param slot
+	 *            the slot to clear
+	 */
+	private final <K> void unmark(final Map<K, BitSet> index, final K key,
+									final int slot) {
+		final BitSet bits = index.get( key );
+		if (bits == null)
+			return;
+
+		bits.clear( slot );
+		if (bits.isEmpty())
+			index.remove( key );
+	}
+}
@@ -0,0 +1,263 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core.role.impl;
+
+import java.util.LinkedList;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import whitecat.core.WCException;
+import whitecat.core.annotations.PUBLICROLE;
+import whitecat.core.annotations.RoleScope;
+import whitecat.core.role.IRole;
+import whitecat.core.role.IRolePool;
+
+/**
+ * A concrete implementation of the role pool. The instances of each role class
+ * are kept in a separated entry, so that only the agents acquiring the same
+ * role contend for the same lock.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public class RolePoolImpl implements IRolePool {
+
+	/**
+	 * The instances of a role class.
+	 */
+	private static final class PoolEntry {
+
+		/**
+		 * The scope of the role.
+		 */
+		private final RoleScope						scope;
+
+		/**
+		 * The shared instance of a singleton role.
+		 */
+		private IRole								singleton	= null;
+
+		/**
+		 * The idle instances of a pooled role.
+		 */
+		private final LinkedList<IRole>				idle		= new LinkedList<IRole>();
+
+		/**
+		 * The leased instances of a pooled role. The instances are weakly
+		 * referenced, so that the instances never released (e.g., the ones of
+		 * discarded agents) are not kept by the pool.
+		 */
+		private final WeakHashMap<IRole, Boolean>	leased		= new WeakHashMap<IRole, Boolean>();
+
+		PoolEntry(final RoleScope scope) {
+			super();
+			this.scope = scope;
+		}
+	}
+
+	/**
+	 * The default maximum number of idle instances kept for each pooled role.
+	 */
+	public static final int								DEFAULT_MAX_IDLE_ROLES	= 32;
+
+	/**
+	 * The entries of the pool, keyed by role class.
+	 */
+	private final ConcurrentHashMap<Class, PoolEntry>	entries			= new ConcurrentHashMap<Class, PoolEntry>();
+
+	/**
+	 * The maximum number of idle instances kept for each pooled role.
+	 */
+	private volatile int								maxIdleRoles	= DEFAULT_MAX_IDLE_ROLES;
+
+	public RolePoolImpl() {
+		super();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.role.IRolePool#acquireRole(java.lang.Class)
+	 */
+	public <T extends IRole> T acquireRole(final Class<T> roleClass)
+																		throws WCException {
+		// check arguments
+		if (roleClass == null)
+			throw new WCException( "Cannot acquire a role without its class" );
+
+		final PoolEntry entry = getEntry( roleClass );
+		if (entry.scope == RoleScope.PER_AGENT)
+			return newRole( roleClass );
+
+		synchronized (entry){
+			if (entry.scope == RoleScope.SINGLETON){
+				if (entry.singleton == null)
+					entry.singleton = newRole( roleClass );
+
+				return roleClass.cast( entry.singleton );
+			}
+
+			// pooled role, reuse an idle instance if any
+			final IRole role = (entry.idle.isEmpty() ? newRole( roleClass )
+					: entry.idle.removeFirst());
+			entry.leased.put( role, Boolean.TRUE );
+			return roleClass.cast( role );
+		}
+	}
+
+	/**
+	 * Provides the entry of a role class, creating it the first time.
+	 * 
+	 * @param roleClass
+	 *            the role class
+	 * @return the entry of the class
+	 */
+	private final PoolEntry getEntry(final Class roleClass) {
+		final PoolEntry entry = entries.get( roleClass );
+		if (entry != null)
+			return entry;
+
+		RoleScope scope = RoleScope.PER_AGENT;
+		final PUBLICROLE publicRole = (PUBLICROLE) roleClass
+				.getAnnotation( PUBLICROLE.class );
+		if (publicRole != null)
+			scope = publicRole.scope();
+
+		final PoolEntry created = new PoolEntry( scope );
+		final PoolEntry installed = entries.putIfAbsent( roleClass, created );
+		return (installed != null ? installed : created);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.role.IRolePool#getIdleCount(java.lang.Class)
+	 */
+	public int getIdleCount(final Class<? extends IRole> roleClass) {
+		final PoolEntry entry = entries.get( roleClass );
+		if (entry == null)
+			return 0;
+
+		synchronized (entry){
+			return entry.idle.size();
+		}
+	}
+
+	/**
+	 * Provides the maximum number of idle instances kept for each role.
+	 * 
+	 * @return the maximum number of idle instances
+	 */
+	public final int getMaxIdleRoles() {
+		return maxIdleRoles;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.role.IRolePool#getRoleScope(java.lang.Class)
+	 */
+	public RoleScope getRoleScope(final Class<? extends IRole> roleClass) {
+		if (roleClass == null)
+			return RoleScope.PER_AGENT;
+
+		return getEntry( roleClass ).scope;
+	}
+
+	/**
+	 * Instantiates a role.
+	 * 
+	 * @param roleClass
+	 *            the role class
+	 * @return the new instance
+	 * @throws WCException
+	 *             if the role cannot be instantiated
+	 */
+	private final <T extends IRole> T newRole(final Class<T> roleClass)
+																		throws WCException {
+		try{
+			return roleClass.newInstance();
+		}catch (final InstantiationException e){
+			throw new WCException( "Cannot instantiate the role "
+					+ roleClass.getName(), e );
+		}catch (final IllegalAccessException e){
+			throw new WCException( "Cannot instantiate the role "
+					+ roleClass.getName(), e );
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.role.IRolePool#releaseRole(whitecat.core.role.IRole)
+	 */
+	public boolean releaseRole(final IRole role) {
+		// check arguments
+		if (role == null)
+			return false;
+
+		final PoolEntry entry = entries.get( role.getClass() );
+		if ((entry == null) || (entry.scope != RoleScope.POOLED))
+			return false;
+
+		synchronized (entry){
+			if (entry.leased.remove( role ) == null)
+				return false;
+
+			// keep the instance only if the pool is not full
+			if (entry.idle.size() >= maxIdleRoles)
+				return false;
+
+			entry.idle.addLast( role );
+			return true;
+		}
+	}
+
+	/**
+	 * Sets the maximum number of idle instances kept for each role; the
+	 * instances released when the pool is full are left to the garbage
+	 * collector.
+	 * 
+	 * @param maxIdleRoles
+	 *            the maximum number of idle instances
+	 */
+	public final void setMaxIdleRoles(final int maxIdleRoles) {
+		this.maxIdleRoles = maxIdleRoles;
+	}
+}
@@ -38,40 +38,127 @@
  */
 package whitecat.core.role.impl;
 
-import java.util.HashMap;
+import java.io.File;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import whitecat.core.exceptions.WCRoleRepositoryException;
 import whitecat.core.role.IRole;
 import whitecat.core.role.IRoleRepository;
+import whitecat.core.role.RoleQuery;
 import whitecat.core.role.descriptors.IRoleDescriptorBuilder;
 import whitecat.core.role.descriptors.RoleDescriptor;
 
 /**
  * A concrete implementation of a role repository.
  * 
+ * The repository keeps two indexes: the installed roles keyed by their
+ * descriptors, and a reverse index from each role instance to its descriptor.
+ * The reverse index is based on the role identity, so that searching the
+ * descriptor of a role (as done by the proxy storage aspect at each role
+ * injection and removal) is a constant time operation. The two indexes are
+ * always kept one to one: a role instance is installed with a single
+ * descriptor.
+ * 
+ * The repository is shared by all the threads injecting roles, so both the
+ * indexes are concurrent maps: reads do not lock, while the updates are
+ * serialized on a write lock so that the two indexes change together. A read
+ * performed during an update sees either the old or the new installation of
+ * the role it is searching for.
+ * 
+ * The installed descriptors can be searched by keywords and task signatures
+ * thru a {@link RoleQuery}, resolved by an inverted index kept aligned with the
+ * installed roles.
+ * 
+ * The installed roles can be saved to a {@link RoleRepositorySnapshot} and
+ * restored at startup, so that the descriptors do not have to be built again.
+ * 
  * @author Luca Ferrari - fluca1978 (at) gmail.com
  * 
  */
 public class RoleRepositoryImpl implements IRoleRepository {
 
+	/**
+	 * A key of the reverse index: roles are compared by identity, no matter
+	 * how they implement equals().
+	 */
+	private static final class RoleIdentity {
+		private final IRole	role;
+
+		RoleIdentity(final IRole role) {
+			super();
+			this.role = role;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			return (o instanceof RoleIdentity)
+					&& (((RoleIdentity) o).role == role);
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode( role );
+		}
+	}
+
 	/**
 	 * A role descriptor builder used to build descriptors when no one is
 	 * provided.
 	 */
-	private IRoleDescriptorBuilder			roleDescriptorBuilder	= null;
+	private volatile IRoleDescriptorBuilder								roleDescriptorBuilder	= null;
+
+	/**
+	 * A map with the installed roles. The map is keyed by the descriptors and
+	 * has each implementation of the roles.
+	 */
+	private final ConcurrentHashMap<RoleDescriptor, IRole>				roles					= new ConcurrentHashMap<RoleDescriptor, IRole>();
+
+	/**
+	 * The reverse index of the installed roles, keyed by the role instances.
+	 */
+	private final ConcurrentHashMap<RoleIdentity, RoleDescriptor>		descriptors				= new ConcurrentHashMap<RoleIdentity, RoleDescriptor>();
+
+	/**
+	 * The inverted index used to query the installed descriptors.
+	 */
+	private final RoleDescriptorIndex									queryIndex				= new RoleDescriptorIndex();
 
 	/**
-	 * An hashmap with the installed roles. The map is keyed by the descriptors
-	 * and has each implementation of the roles.
+	 * The lock the updates of the indexes are serialized on.
 	 */
-	private HashMap<RoleDescriptor, IRole>	roles					= null;
+	private final Object												writeLock				= new Object();
 
 	public RoleRepositoryImpl() {
 		super();
-		roles = new HashMap<RoleDescriptor, IRole>();
+	}
+
+	/**
+	 * Binds a role to a descriptor in both the indexes, dropping any previous
+	 * binding of the descriptor and of the role. Must be called holding the
+	 * write lock.
+	 * 
+	 * @param descriptor
+	 *            the descriptor
+	 * @param role
+	 *            the role
+	 */
+	private final void bind(final RoleDescriptor descriptor, final IRole role) {
+		final RoleDescriptor installedDescriptor = descriptors
+				.put( new RoleIdentity( role ), descriptor );
+		if ((installedDescriptor != null)
+				&& !installedDescriptor.equals( descriptor )
+				&& roles.remove( installedDescriptor, role ))
+			queryIndex.remove( installedDescriptor );
+
+		final IRole replacedRole = roles.put( descriptor, role );
+		if ((replacedRole != null) && (replacedRole != role))
+			descriptors.remove( new RoleIdentity( replacedRole ), descriptor );
+
+		queryIndex.add( descriptor );
 	}
 
 	/*
@@ -91,6 +178,22 @@ public class RoleRepositoryImpl implements IRoleRepository {
 		return roles.get( descriptor );
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.role.IRoleRepository#findRoleDescriptors(whitecat.core.
+	 * role.RoleQuery)
+	 */
+	public List<RoleDescriptor> findRoleDescriptors(final RoleQuery query)
+																			throws WCRoleRepositoryException {
+		// check arguments
+		if (query == null)
+			throw new WCRoleRepositoryException( "Cannot search with a null query" );
+
+		return queryIndex.query( query );
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -101,37 +204,27 @@ public class RoleRepositoryImpl implements IRoleRepository {
 		return new LinkedList<RoleDescriptor>( roles.keySet() );
 	}
 
-	public synchronized final RoleDescriptor getRoleDescriptor(final IRole role) {
+	public final RoleDescriptor getRoleDescriptor(final IRole role) {
 		// check arguments
-		if ((role == null) || roles.isEmpty()
-				|| (roles.containsValue( role ) == false))
+		if (role == null)
 			return null;
 
-		// now search the key for the specified role
-		for (final RoleDescriptor desc : roles.keySet()){
-			final IRole keyRole = roles.get( desc );
-			if (keyRole.equals( role ))
-				return desc;
-		}
-
-		return null;
-
+		return descriptors.get( new RoleIdentity( role ) );
 	}
 
-	public synchronized boolean installRole(final IRole role,
-											final boolean overrideIfExsist)
-																			throws WCRoleRepositoryException {
+	public boolean installRole(final IRole role, final boolean overrideIfExsist)
+																				throws WCRoleRepositoryException {
 		// check arguments
 		if (role == null)
 			return false;
 
-		if (roleDescriptorBuilder == null)
+		final IRoleDescriptorBuilder builder = roleDescriptorBuilder;
+		if (builder == null)
 			throw new WCRoleRepositoryException(
 					"Cannot install a role without the role descriptor and a descriptor builder" );
 
 		// get the role descriptor
-		final RoleDescriptor desc = roleDescriptorBuilder
-				.buildRoleDescriptor( role );
+		final RoleDescriptor desc = builder.buildRoleDescriptor( role );
 		if (desc == null)
 			throw new WCRoleRepositoryException(
 					"Cannot build the descriptor for the specified role" );
@@ -150,34 +243,130 @@ public class RoleRepositoryImpl implements IRoleRepository {
 	public boolean installRole(final RoleDescriptor descriptor,
 								final IRole role, final boolean overrideIfExists)
 																					throws WCRoleRepositoryException {
+		// check arguments
+		if ((descriptor == null) || (role == null))
+			throw new WCRoleRepositoryException(
+					"Cannot install a role without the role and its descriptor" );
 
-		if (!overrideIfExists){
-			// check if the role is already contained in the hashmap
-			if (roles.containsValue( role )){
-				// get the key (the role descriptor) this role is associated
-				// with
-				final Set<RoleDescriptor> descriptors = roles.keySet();
-				for (final Object element : descriptors){
-					final RoleDescriptor roleDescriptor = (RoleDescriptor) element;
-
-					if (roles.get( roleDescriptor ).equals( role )
-							&& roleDescriptor.equals( descriptor ))
-						return true;
+		synchronized (writeLock){
+			return install( descriptor, role, overrideIfExists );
+		}
+	}
 
-				}
+	/**
+	 * Installs a role, if it is not installed with another descriptor or if it
+	 * can be overridden. Must be called holding the write lock.
+	 * 
+	 * @param descriptor
+	 *            the descriptor
+	 * @param role
+	 *            the role
+	 * @param overrideIfExists
+	 *            true if a previous installation can be overridden
+	 * @return true if the role is installed with the descriptor
+	 */
+	private final boolean install(	final RoleDescriptor descriptor,
+									final IRole role,
+									final boolean overrideIfExists) {
+		// check if the role is already installed
+		final RoleDescriptor installedDescriptor = getRoleDescriptor( role );
+		if (installedDescriptor != null){
+			// same role with the same descriptor, nothing to do
+			if (installedDescriptor.equals( descriptor ))
+				return true;
 
-				// if here the same role has been installed with a different
-				// role descriptor
+			// if here the same role has been installed with a different
+			// role descriptor
+			if (!overrideIfExists)
 				return false;
-			}
-
 		}
 
-		// install the role
-		roles.put( descriptor, role );
+		// install the role, keeping the reverse index aligned
+		bind( descriptor, role );
 		return true;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.role.IRoleRepository#installRoles(java.util.Map,
+	 * boolean)
+	 */
+	public int installRoles(final Map<RoleDescriptor, IRole> toInstall,
+							final boolean overrideIfExists)
+															throws WCRoleRepositoryException {
+		// check arguments
+		if (toInstall == null)
+			return 0;
+
+		for (final Map.Entry<RoleDescriptor, IRole> entry : toInstall
+				.entrySet())
+			if ((entry.getKey() == null) || (entry.getValue() == null))
+				throw new WCRoleRepositoryException(
+						"Cannot install a role without the role and its descriptor" );
+
+		// install all the roles holding the lock once
+		int installed = 0;
+		synchronized (writeLock){
+			for (final Map.Entry<RoleDescriptor, IRole> entry : toInstall
+					.entrySet())
+				if (install( entry.getKey(), entry.getValue(), overrideIfExists ))
+					installed++;
+		}
+
+		return installed;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.role.IRoleRepository#installRoleIfAbsent(whitecat.core.
+	 * role.descriptors.RoleDescriptor, whitecat.core.role.IRole)
+	 */
+	public IRole installRoleIfAbsent(final RoleDescriptor descriptor,
+										final IRole role)
+															throws WCRoleRepositoryException {
+		// check arguments
+		if ((descriptor == null) || (role == null))
+			throw new WCRoleRepositoryException(
+					"Cannot install a role without the role and its descriptor" );
+
+		// lock-free fast path, the role is already there
+		final IRole current = roles.get( descriptor );
+		if (current != null)
+			return current;
+
+		synchronized (writeLock){
+			final IRole installedRole = roles.get( descriptor );
+			if (installedRole != null)
+				return installedRole;
+
+			final RoleDescriptor installedDescriptor = getRoleDescriptor( role );
+			if (installedDescriptor != null)
+				throw new WCRoleRepositoryException(
+						"The role is already installed with another descriptor" );
+
+			bind( descriptor, role );
+			return null;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.role.IRoleRepository#loadSnapshot(java.io.File,
+	 * boolean)
+	 */
+	public int loadSnapshot(final File snapshot, final boolean overrideIfExists)
+																				throws WCRoleRepositoryException {
+		// read the whole snapshot before installing anything
+		final Map<RoleDescriptor, IRole> snapshotRoles = RoleRepositorySnapshot
+				.load( snapshot );
+
+		return installRoles( snapshotRoles, overrideIfExists );
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -186,23 +375,20 @@ public class RoleRepositoryImpl implements IRoleRepository {
 	 */
 	public boolean removeRole(final IRole role)
 												throws WCRoleRepositoryException {
-		if (roles.containsValue( role )){
-			final Set<RoleDescriptor> descriptors = roles.keySet();
-			for (final Object element : descriptors){
-				final RoleDescriptor roleDescriptor = (RoleDescriptor) element;
-				if (roles.get( roleDescriptor ).equals( role )){
-					roles.remove( roleDescriptor );
-					return true;
-				}
-
-			}
-
-			// should never happen
+		if (role == null)
 			return false;
-		}else
-		// the role is not contained
-		return false;
 
+		synchronized (writeLock){
+			final RoleDescriptor descriptor = descriptors
+					.remove( new RoleIdentity( role ) );
+			if (descriptor != null){
+				if (roles.remove( descriptor, role ))
+					queryIndex.remove( descriptor );
+				return true;
+			}else
+			// the role is not contained
+			return false;
+		}
 	}
 
 	/**
@@ -210,13 +396,61 @@ public class RoleRepositoryImpl implements IRoleRepository {
 	 */
 	public boolean removeRole(final RoleDescriptor descriptor)
 																throws WCRoleRepositoryException {
-		if (roles.containsKey( descriptor )){
-			roles.remove( descriptor );
+		if (descriptor == null)
+			return false;
+
+		synchronized (writeLock){
+			final IRole role = roles.remove( descriptor );
+			if (role != null){
+				descriptors.remove( new RoleIdentity( role ), descriptor );
+				queryIndex.remove( descriptor );
+				return true;
+			}else return false;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.role.IRoleRepository#replaceRole(whitecat.core.role.descriptors
+	 * .RoleDescriptor, whitecat.core.role.IRole, whitecat.core.role.IRole)
+	 */
+	public boolean replaceRole(final RoleDescriptor descriptor,
+								final IRole expectedRole, final IRole newRole)
+																				throws WCRoleRepositoryException {
+		// check arguments
+		if ((descriptor == null) || (newRole == null))
+			throw new WCRoleRepositoryException(
+					"Cannot replace a role without the new role and its descriptor" );
+
+		synchronized (writeLock){
+			if (roles.get( descriptor ) != expectedRole)
+				return false;
+
+			bind( descriptor, newRole );
 			return true;
-		}else return false;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.role.IRoleRepository#saveSnapshot(java.io.File)
+	 */
+	public void saveSnapshot(final File snapshot)
+													throws WCRoleRepositoryException {
+		// copy the roles under the write lock, so that the snapshot is
+		// consistent
+		final Map<RoleDescriptor, IRole> installedRoles;
+		synchronized (writeLock){
+			installedRoles = new LinkedHashMap<RoleDescriptor, IRole>( roles );
+		}
+
+		RoleRepositorySnapshot.save( installedRoles, snapshot );
 	}
 
-	public synchronized void setRoleDescriptorBuilder(	final IRoleDescriptorBuilder builder) {
+	public void setRoleDescriptorBuilder(final IRoleDescriptorBuilder builder) {
 		roleDescriptorBuilder = builder;
 	}
 
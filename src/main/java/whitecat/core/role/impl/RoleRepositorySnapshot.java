@@ -0,0 +1,743 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core.role.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.Permission;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import whitecat.core.exceptions.WCRoleRepositoryException;
+import whitecat.core.role.IRole;
+import whitecat.core.role.descriptors.AbstractDescriptor;
+import whitecat.core.role.descriptors.EventDescriptor;
+import whitecat.core.role.descriptors.RoleDescriptor;
+import whitecat.core.role.descriptors.TaskDescriptor;
+import whitecat.core.role.task.IRoleTask;
+import whitecat.core.role.task.MethodTaskExecutor;
+
+/**
+ * A binary snapshot of the roles installed in a role repository. The snapshot
+ * contains the role descriptors together with the class names and method
+ * signatures needed to instantiate the roles and to bind their tasks again, so
+ * that a repository can be restored without analyzing the role annotations.
+ * 
+ * The snapshot is written sequentially and read back at once in a heap buffer,
+ * so that the file is closed (and not kept mapped) as soon as it has been
+ * read. The file layout is:
+ * <ul>
+ * <li>a magic number, the format version and the number of roles;</li>
+ * <li>for each role, the role class name and the role descriptor (name, aim,
+ * keywords, version, creation date, events) followed by its tasks;</li>
+ * <li>for each task, the method name and parameter types, the parallel flag,
+ * the indexes of its subtasks and the task descriptor (name, aim, keywords,
+ * version, creation date, return type, parameter types, events and
+ * permissions);</li>
+ * <li>for each event, its name, aim, issuing and receiving flags, version and
+ * creation date.</li>
+ * </ul>
+ * Strings are stored as an UTF-8 length-prefixed sequence, a negative length
+ * meaning a null string, while dates are stored as milliseconds, a negative
+ * value meaning a null date. All the tasks must be method tasks and the roles must
+ * have a public no-argument constructor, otherwise the snapshot cannot be
+ * taken.
+ * 
+ * The restored descriptors are immutable.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public final class RoleRepositorySnapshot {
+
+	/**
+	 * The magic number at the beginning of a snapshot file ("WCRS").
+	 */
+	private static final int					MAGIC		= 0x57435253;
+
+	/**
+	 * The version of the file format.
+	 */
+	private static final int					VERSION		= 2;
+
+	/**
+	 * The charset used for the strings.
+	 */
+	private static final String					CHARSET		= "UTF-8";
+
+	/**
+	 * The primitive types, that cannot be loaded by name.
+	 */
+	private static final Map<String, Class>	primitives	= new HashMap<String, Class>();
+
+	static{
+		final Class[] types = new Class[] { boolean.class, byte.class,
+				char.class, short.class, int.class, long.class, float.class,
+				double.class, void.class };
+		for (final Class type : types)
+			primitives.put( type.getName(), type );
+	}
+
+	/**
+	 * Reads a snapshot file and instantiates the roles it contains, binding
+	 * their tasks to the new instances.
+	 * 
+	 * @param file
+	 *            the snapshot file
+	 * @return the roles keyed by their descriptors, in the order they have been
+	 *         saved
+	 * @throws WCRoleRepositoryException
+	 *             if the file cannot be read, is not a valid snapshot or a role
+	 *             cannot be instantiated
+	 */
+	public static final Map<RoleDescriptor, IRole> load(final File file)
+																		throws WCRoleRepositoryException {
+		// check arguments
+		if (file == null)
+			throw new WCRoleRepositoryException(
+					"Cannot load a snapshot without a file" );
+
+		FileInputStream input = null;
+		try{
+			input = new FileInputStream( file );
+			final FileChannel channel = input.getChannel();
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new WCRoleRepositoryException( "The snapshot "
+						+ file.getPath() + " is too large" );
+
+			// read the whole file, so that it can be closed immediately
+			final ByteBuffer buffer = ByteBuffer
+					.allocate( (int) channel.size() );
+			while (buffer.hasRemaining())
+				if (channel.read( buffer ) < 0)
+					break;
+			buffer.flip();
+
+			if ((buffer.remaining() < 12) || (buffer.getInt() != MAGIC))
+				throw new WCRoleRepositoryException( "The file "
+						+ file.getPath() + " is not a role repository snapshot" );
+
+			final int version = buffer.getInt();
+			if (version != VERSION)
+				throw new WCRoleRepositoryException(
+						"Unsupported snapshot version " + version );
+
+			final int roleCount = buffer.getInt();
+			final Map<RoleDescriptor, IRole> roles = new LinkedHashMap<RoleDescriptor, IRole>();
+			for (int i = 0; i < roleCount; i++){
+				final IRole role = newRole( readString( buffer ) );
+				roles.put( readRoleDescriptor( buffer, role ), role );
+			}
+
+			return roles;
+		}catch (final IOException e){
+			throw new WCRoleRepositoryException( "Cannot read the snapshot "
+					+ file.getPath(), e );
+		}catch (final BufferUnderflowException e){
+			throw new WCRoleRepositoryException( "The snapshot "
+					+ file.getPath() + " is truncated", e );
+		}finally{
+			close( input );
+		}
+	}
+
+	/**
+	 * Writes a snapshot of the specified roles. The snapshot is written to a
+	 * temporary file that replaces the specified one only when complete.
+	 * 
+	 * @param roles
+	 *            the roles keyed by their descriptors
+	 * @param file
+	 *            the snapshot file
+	 * @throws WCRoleRepositoryException
+	 *             if a role cannot be saved or the file cannot be written
+	 */
+	public static final void save(	final Map<RoleDescriptor, IRole> roles,
+									final File file)
+													throws WCRoleRepositoryException {
+		// check arguments
+		if ((roles == null) || (file == null))
+			throw new WCRoleRepositoryException(
+					"Cannot save a snapshot without the roles and the file" );
+
+		final File temporary = new File( file.getPath() + ".tmp" );
+		DataOutputStream output = null;
+		try{
+			output = new DataOutputStream( new BufferedOutputStream(
+					new FileOutputStream( temporary ) ) );
+			output.writeInt( MAGIC );
+			output.writeInt( VERSION );
+			output.writeInt( roles.size() );
+
+			for (final Map.Entry<RoleDescriptor, IRole> entry : roles.entrySet()){
+				writeString( output, entry.getValue().getClass().getName() );
+				writeRoleDescriptor( output, entry.getKey() );
+			}
+
+			output.close();
+			output = null;
+
+			if (file.exists() && !file.delete())
+				throw new WCRoleRepositoryException(
+						"Cannot replace the snapshot " + file.getPath() );
+			if (!temporary.renameTo( file ))
+				throw new WCRoleRepositoryException( "Cannot write the snapshot "
+						+ file.getPath() );
+		}catch (final IOException e){
+			throw new WCRoleRepositoryException( "Cannot write the snapshot "
+					+ file.getPath(), e );
+		}finally{
+			if (output != null){
+				close( output );
+				temporary.delete();
+			}
+		}
+	}
+
+	/**
+	 * Closes a stream, ignoring any error.
+	 * 
+	 * @param closeable
+	 *            the stream to close
+	 */
+	private static final void close(final java.io.Closeable closeable) {
+		if (closeable != null)
+			try{
+				closeable.close();
+			}catch (final IOException e){
+				// nothing to do
+			}
+	}
+
+	/**
+	 * Loads a class by name, including primitive types.
+	 * 
+	 * @param className
+	 *            the name of the class
+	 * @return the class
+	 * @throws WCRoleRepositoryException
+	 *             if the class cannot be found
+	 */
+	private static final Class loadClass(final String className)
+																throws WCRoleRepositoryException {
+		final Class primitive = primitives.get( className );
+		if (primitive != null)
+			return primitive;
+
+		try{
+			ClassLoader loader = Thread.currentThread().getContextClassLoader();
+			if (loader == null)
+				loader = RoleRepositorySnapshot.class.getClassLoader();
+
+			return Class.forName( className, false, loader );
+		}catch (final ClassNotFoundException e){
+			throw new WCRoleRepositoryException( "Cannot find the class "
+					+ className, e );
+		}
+	}
+
+	/**
+	 * Instantiates a role thru its no-argument constructor.
+	 * 
+	 * @param className
+	 *            the role class name
+	 * @return the role instance
+	 * @throws WCRoleRepositoryException
+	 *             if the role cannot be instantiated
+	 */
+	private static final IRole newRole(final String className)
+																throws WCRoleRepositoryException {
+		final Class roleClass = loadClass( className );
+		if (!IRole.class.isAssignableFrom( roleClass ))
+			throw new WCRoleRepositoryException( "The class " + className
+					+ " is not a role" );
+
+		try{
+			return (IRole) roleClass.newInstance();
+		}catch (final InstantiationException e){
+			throw new WCRoleRepositoryException( "Cannot instantiate the role "
+					+ className, e );
+		}catch (final IllegalAccessException e){
+			throw new WCRoleRepositoryException( "Cannot instantiate the role "
+					+ className, e );
+		}
+	}
+
+	/**
+	 * Reads the base properties of a descriptor.
+	 * 
+	 * @param buffer
+	 *            the buffer to read from
+	 * @param keywords
+	 *            the set to fill with the keywords
+	 * @return the name and the aim of the descriptor
+	 */
+	private static final String[] readBase(	final ByteBuffer buffer,
+											final Set<String> keywords)
+																		throws WCRoleRepositoryException {
+		final String name = readString( buffer );
+		final String aim = readString( buffer );
+		final int keywordCount = buffer.getInt();
+		for (int i = 0; i < keywordCount; i++)
+			keywords.add( readString( buffer ) );
+
+		return new String[] { name, aim };
+	}
+
+	/**
+	 * Reads a date.
+	 * 
+	 * @param buffer
+	 *            the buffer to read from
+	 * @return the date, or null
+	 */
+	private static final Date readDate(final ByteBuffer buffer) {
+		final long time = buffer.getLong();
+		return (time < 0) ? null : new Date( time );
+	}
+
+	/**
+	 * Reads a list of class names.
+	 * 
+	 * @param buffer
+	 *            the buffer to read from
+	 * @return the classes
+	 * @throws WCRoleRepositoryException
+	 *             if a class cannot be found
+	 */
+	private static final List<Class> readClasses(final ByteBuffer buffer)
+																			throws WCRoleRepositoryException {
+		final int count = buffer.getInt();
+		final List<Class> classes = new ArrayList<Class>( count );
+		for (int i = 0; i < count; i++)
+			classes.add( loadClass( readString( buffer ) ) );
+
+		return classes;
+	}
+
+	/**
+	 * Reads an event descriptor.
+	 * 
+	 * @param buffer
+	 *            the buffer to read from
+	 * @return the immutable event descriptor
+	 */
+	private static final EventDescriptor readEventDescriptor(final ByteBuffer buffer)
+																						throws WCRoleRepositoryException {
+		final String name = readString( buffer );
+		final String aim = readString( buffer );
+		return EventDescriptor.newBuilder().withName( name ).withAim( aim )
+				.withIssuing( buffer.get() != 0 )
+				.withReceiving( buffer.get() != 0 )
+				.withVersion( buffer.getFloat() )
+				.withCreationDate( readDate( buffer ) ).build();
+	}
+
+	/**
+	 * Reads a permission, built thru its (name, actions) or (name)
+	 * constructor.
+	 * 
+	 * @param buffer
+	 *            the buffer to read from
+	 * @return the permission
+	 * @throws WCRoleRepositoryException
+	 *             if the permission cannot be built
+	 */
+	private static final Permission readPermission(final ByteBuffer buffer)
+																			throws WCRoleRepositoryException {
+		final Class permissionClass = loadClass( readString( buffer ) );
+		final String name = readString( buffer );
+		final String actions = readString( buffer );
+
+		try{
+			if ((actions != null) && (actions.length() > 0)){
+				final Constructor constructor = permissionClass
+						.getConstructor( new Class[] { String.class,
+								String.class } );
+				return (Permission) constructor.newInstance( new Object[] {
+						name, actions } );
+			}else{
+				final Constructor constructor = permissionClass
+						.getConstructor( new Class[] { String.class } );
+				return (Permission) constructor
+						.newInstance( new Object[] { name } );
+			}
+		}catch (final Exception e){
+			throw new WCRoleRepositoryException( "Cannot build the permission "
+					+ permissionClass.getName(), e );
+		}
+	}
+
+	/**
+	 * Reads a role descriptor and binds its tasks to the role.
+	 * 
+	 * @param buffer
+	 *            the buffer to read from
+	 * @param role
+	 *            the role the tasks will be executed on
+	 * @return the immutable role descriptor
+	 * @throws WCRoleRepositoryException
+	 *             if a task method cannot be found
+	 */
+	private static final RoleDescriptor readRoleDescriptor(	final ByteBuffer buffer,
+															final IRole role)
+																				throws WCRoleRepositoryException {
+		final Set<String> keywords = new HashSet<String>();
+		final String[] base = readBase( buffer, keywords );
+		final RoleDescriptor.Builder builder = RoleDescriptor.newBuilder()
+				.withName( base[0] ).withAim( base[1] )
+				.withKeywords( keywords ).withVersion( buffer.getFloat() )
+				.withCreationDate( readDate( buffer ) );
+
+		final int eventCount = buffer.getInt();
+		for (int i = 0; i < eventCount; i++)
+			builder.addEventDescriptor( readEventDescriptor( buffer ) );
+
+		final int taskCount = buffer.getInt();
+		final MethodTaskExecutor[] tasks = new MethodTaskExecutor[taskCount];
+		final int[][] subTasks = new int[taskCount][];
+		for (int i = 0; i < taskCount; i++){
+			final String methodName = readString( buffer );
+			final List<Class> methodParameters = readClasses( buffer );
+			final Method method;
+			try{
+				method = role.getClass().getMethod(
+						methodName,
+						methodParameters.toArray( new Class[methodParameters
+								.size()] ) );
+			}catch (final NoSuchMethodException e){
+				throw new WCRoleRepositoryException( "The role "
+						+ role.getClass().getName() + " has not the task method "
+						+ methodName, e );
+			}
+
+			tasks[i] = new MethodTaskExecutor();
+			tasks[i].setMethodToExecute( method );
+			tasks[i].setExecutingRole( role );
+			tasks[i].setParallelSubTasks( buffer.get() != 0 );
+
+			subTasks[i] = new int[buffer.getInt()];
+			for (int j = 0; j < subTasks[i].length; j++)
+				subTasks[i][j] = buffer.getInt();
+
+			builder.addTask( tasks[i], readTaskDescriptor( buffer ) );
+		}
+
+		// link the subtasks, now that all the tasks exist
+		for (int i = 0; i < taskCount; i++)
+			for (final int subTask : subTasks[i]){
+				if ((subTask < 0) || (subTask >= taskCount))
+					throw new WCRoleRepositoryException(
+							"Invalid subtask index in the snapshot" );
+				tasks[i].addSubTask( tasks[subTask] );
+			}
+
+		return builder.build();
+	}
+
+	/**
+	 * Reads a string.
+	 * 
+	 * @param buffer
+	 *            the buffer to read from
+	 * @return the string, or null
+	 * @throws WCRoleRepositoryException
+	 *             if the string is corrupted
+	 */
+	private static final String readString(final ByteBuffer buffer)
+																	throws WCRoleRepositoryException {
+		final int length = buffer.getInt();
+		if (length < 0)
+			return null;
+		if (length > buffer.remaining())
+			throw new WCRoleRepositoryException(
+					"Invalid string length in the snapshot" );
+
+		final byte[] bytes = new byte[length];
+		buffer.get( bytes );
+		try{
+			return new String( bytes, CHARSET );
+		}catch (final IOException e){
+			throw new WCRoleRepositoryException( "Cannot decode a string", e );
+		}
+	}
+
+	/**
+	 * Reads a task descriptor.
+	 * 
+	 * @param buffer
+	 *            the buffer to read from
+	 * @return the immutable task descriptor
+	 */
+	private static final TaskDescriptor readTaskDescriptor(final ByteBuffer buffer)
+																					throws WCRoleRepositoryException {
+		final Set<String> keywords = new HashSet<String>();
+		final String[] base = readBase( buffer, keywords );
+		final TaskDescriptor.Builder builder = TaskDescriptor.newBuilder()
+				.withName( base[0] ).withAim( base[1] )
+				.withKeywords( keywords ).withVersion( buffer.getFloat() )
+				.withCreationDate( readDate( buffer ) )
+				.withReturnType( loadClass( readString( buffer ) ) )
+				.withParameters( readClasses( buffer ) );
+
+		final int eventCount = buffer.getInt();
+		for (int i = 0; i < eventCount; i++)
+			builder.addEventDescriptor( readEventDescriptor( buffer ) );
+
+		final int permissionCount = buffer.getInt();
+		for (int i = 0; i < permissionCount; i++)
+			builder.addPermission( readPermission( buffer ) );
+
+		return builder.build();
+	}
+
+	/**
+	 * Writes the base properties of a descriptor.
+	 * 
+	 * @param output
+	 *            the stream to write to
+	 * @param descriptor
+	 *            the descriptor
+	 * @throws IOException
+	 *             if the stream cannot be written
+	 */
+	private static final void writeBase(final DataOutputStream output,
+										final AbstractDescriptor descriptor)
+																			throws IOException {
+		writeString( output, descriptor.getName() );
+		writeString( output, descriptor.getAim() );
+
+		output.writeInt( descriptor.keywordCount() );
+		final Iterator<String> keywords = descriptor.getKeywords();
+		while (keywords.hasNext())
+			writeString( output, keywords.next() );
+
+		writeVersion( output, descriptor );
+	}
+
+	/**
+	 * Writes a list of classes by name.
+	 * 
+	 * @param output
+	 *            the stream to write to
+	 * @param classes
+	 *            the classes
+	 * @throws IOException
+	 *             if the stream cannot be written
+	 */
+	private static final void writeClasses(	final DataOutputStream output,
+											final List<Class> classes)
+																		throws IOException {
+		output.writeInt( classes.size() );
+		for (final Class clazz : classes)
+			writeString( output, clazz.getName() );
+	}
+
+	/**
+	 * Writes an event descriptor.
+	 * 
+	 * @param output
+	 *            the stream to write to
+	 * @param descriptor
+	 *            the event descriptor
+	 * @throws IOException
+	 *             if the stream cannot be written
+	 */
+	private static final void writeEventDescriptor(	final DataOutputStream output,
+													final EventDescriptor descriptor)
+																						throws IOException {
+		writeString( output, descriptor.getName() );
+		writeString( output, descriptor.getAim() );
+		output.writeBoolean( descriptor.isIssuing() );
+		output.writeBoolean( descriptor.isReceiving() );
+		writeVersion( output, descriptor );
+	}
+
+	/**
+	 * Writes a role descriptor with its tasks.
+	 * 
+	 * @param output
+	 *            the stream to write to
+	 * @param descriptor
+	 *            the role descriptor
+	 * @throws IOException
+	 *             if the stream cannot be written
+	 * @throws WCRoleRepositoryException
+	 *             if a task is not a method task
+	 */
+	private static final void writeRoleDescriptor(	final DataOutputStream output,
+													final RoleDescriptor descriptor)
+																					throws IOException,
+																					WCRoleRepositoryException {
+		writeBase( output, descriptor );
+
+		final List<EventDescriptor> events = descriptor.getEventDscriptors();
+		output.writeInt( events.size() );
+		for (final EventDescriptor event : events)
+			writeEventDescriptor( output, event );
+
+		final List<IRoleTask> tasks = descriptor.getTasks();
+		final Map<IRoleTask, Integer> indexes = new HashMap<IRoleTask, Integer>();
+		for (final IRoleTask task : tasks){
+			if (!(task instanceof MethodTaskExecutor))
+				throw new WCRoleRepositoryException( "The task " + task
+						+ " of the role " + descriptor.getName()
+						+ " is not a method task and cannot be saved" );
+
+			indexes.put( task, indexes.size() );
+		}
+
+		output.writeInt( tasks.size() );
+		for (final IRoleTask task : tasks){
+			final MethodTaskExecutor executor = (MethodTaskExecutor) task;
+			final Method method = executor.getMethodToExecute();
+			writeString( output, method.getName() );
+
+			final List<Class> parameters = new LinkedList<Class>();
+			for (final Class parameter : method.getParameterTypes())
+				parameters.add( parameter );
+			writeClasses( output, parameters );
+
+			output.writeBoolean( executor.isParallelSubTasks() );
+
+			// only the subtasks that are part of the role can be restored
+			final List<Integer> subTasks = new LinkedList<Integer>();
+			for (final IRoleTask subTask : executor.getSubTasks())
+				if (indexes.containsKey( subTask ))
+					subTasks.add( indexes.get( subTask ) );
+			output.writeInt( subTasks.size() );
+			for (final Integer subTask : subTasks)
+				output.writeInt( subTask );
+
+			writeTaskDescriptor( output, descriptor.getTaskDescriptor( task ) );
+		}
+	}
+
+	/**
+	 * Writes a string.
+	 * 
+	 * @param output
+	 *            the stream to write to
+	 * @param value
+	 *            the string, can be null
+	 * @throws IOException
+	 *             if the stream cannot be written
+	 */
+	private static final void writeString(	final DataOutputStream output,
+											final String value)
+																throws IOException {
+		if (value == null)
+			output.writeInt( -1 );
+		else{
+			final byte[] bytes = value.getBytes( CHARSET );
+			output.writeInt( bytes.length );
+			output.write( bytes );
+		}
+	}
+
+	/**
+	 * Writes a task descriptor.
+	 * 
+	 * @param output
+	 *            the stream to write to
+	 * @param descriptor
+	 *            the task descriptor
+	 * @throws IOException
+	 *             if the stream cannot be written
+	 */
+	private static final void writeTaskDescriptor(	final DataOutputStream output,
+													final TaskDescriptor descriptor)
+																					throws IOException {
+		writeBase( output, descriptor );
+		writeString( output, descriptor.getReturnType().getName() );
+		writeClasses( output, descriptor.getParameters() );
+
+		final List<EventDescriptor> events = descriptor.getEventDescriptors();
+		output.writeInt( events.size() );
+		for (final EventDescriptor event : events)
+			writeEventDescriptor( output, event );
+
+		final Set<Permission> permissions = descriptor.getPermissions();
+		output.writeInt( permissions.size() );
+		for (final Permission permission : permissions){
+			writeString( output, permission.getClass().getName() );
+			writeString( output, permission.getName() );
+			writeString( output, permission.getActions() );
+		}
+	}
+
+	/**
+	 * Writes the version and the creation date of a descriptor.
+	 * 
+	 * @param output
+	 *            the stream to write to
+	 * @param descriptor
+	 *            the descriptor
+	 * @throws IOException
+	 *             if the stream cannot be written
+	 */
+	private static final void writeVersion(	final DataOutputStream output,
+											final AbstractDescriptor descriptor)
+																				throws IOException {
+		output.writeFloat( descriptor.getVersion() );
+		final Date creationDate = descriptor.getCreationDate();
+		output.writeLong( (creationDate == null) ? -1 : creationDate.getTime() );
+	}
+
+	private RoleRepositorySnapshot() {
+		super();
+	}
+}
@@ -7,6 +7,7 @@ import whitecat.core.RoleOperationStatus;
 import whitecat.core.WCException;
 import whitecat.core.agents.AgentProxy;
 import whitecat.core.agents.IMethodForwarderGenerator;
+import whitecat.core.metrics.RoleEngineMetrics;
 import whitecat.core.role.IRole;
 
 /* 
@@ -226,17 +227,24 @@ public class RoleOperationImpl implements IRoleOperation {
 
 		// consistency!
 		if (operationException != null)
-			operationStatus = RoleOperationStatus.ROLE_OPERATION_COMPLETED_FAILURE;
+			setOperationStatus( RoleOperationStatus.ROLE_OPERATION_COMPLETED_FAILURE );
 	}
 
 	/**
 	 * Sets the value of the operationStatus field as specified by the value of
-	 * operationStatus.
+	 * operationStatus. When the operation gets completed, its outcome is
+	 * recorded in the role engine metrics.
 	 * 
 	 * @param operationStatus
 	 *            the operationStatus to set
 	 */
 	public synchronized final void setOperationStatus(	final RoleOperationStatus operationStatus) {
+		if ((operationStatus != this.operationStatus)
+				&& ((operationStatus == RoleOperationStatus.ROLE_OPERATION_COMPLETED_SUCCESFUL) || (operationStatus == RoleOperationStatus.ROLE_OPERATION_COMPLETED_FAILURE)))
+			RoleEngineMetrics.getInstance().operationCompleted(
+					injectionType,
+					operationStatus == RoleOperationStatus.ROLE_OPERATION_COMPLETED_SUCCESFUL );
+
 		this.operationStatus = operationStatus;
 	}
 
@@ -0,0 +1,388 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core.role.task;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.log4j.Logger;
+
+import whitecat.core.WCException;
+
+/**
+ * The default implementation of the future task execution result. The result
+ * is completed only once, with a value (null included), with an exception or
+ * by a cancellation; waiting callers are parked on a latch, while the
+ * completion listeners are notified on the completing thread.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public class FutureTaskExecutionResultImpl implements
+		IFutureTaskExecutionResult {
+
+	/**
+	 * The logger for this class.
+	 */
+	private static Logger				logger		= org.apache.log4j.Logger
+															.getLogger( ITaskExecutionResult.class );
+
+	/**
+	 * The states of the result.
+	 */
+	private static final int			PENDING		= 0;
+	private static final int			COMPLETED	= 1;
+	private static final int			FAILED		= 2;
+	private static final int			CANCELLED	= 3;
+
+	/**
+	 * The current state, it is changed only once.
+	 */
+	private volatile int				state		= PENDING;
+
+	/**
+	 * The result of the task execution.
+	 */
+	private Object						result		= null;
+
+	/**
+	 * The exception the task has completed with.
+	 */
+	private Throwable					exception	= null;
+
+	/**
+	 * The latch the waiting callers are parked on.
+	 */
+	private final CountDownLatch		completion	= new CountDownLatch( 1 );
+
+	/**
+	 * The listeners to notify at the completion, null once completed.
+	 */
+	private List<ITaskCompletionListener>	listeners	= new LinkedList<ITaskCompletionListener>();
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.role.task.IFutureTaskExecutionResult#addCompletionListener
+	 * (whitecat.core.role.task.ITaskCompletionListener)
+	 */
+	public final void addCompletionListener(final ITaskCompletionListener listener) {
+		if (listener == null)
+			return;
+
+		synchronized (this){
+			if (listeners != null){
+				listeners.add( listener );
+				return;
+			}
+		}
+
+		// already completed
+		notifyListener( listener );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.role.task.ITaskExecutionResult#cancel()
+	 */
+	public final void cancel() {
+		complete( CANCELLED, null, null );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.concurrent.Future#cancel(boolean)
+	 */
+	public final boolean cancel(final boolean mayInterruptIfRunning) {
+		return complete( CANCELLED, null, null );
+	}
+
+	/**
+	 * Completes this result, if not already completed, and notifies the
+	 * waiting callers and the listeners.
+	 * 
+	 * @param newState
+	 *            the final state
+	 * @param value
+	 *            the result value
+	 * @param cause
+	 *            the exception
+	 * @return true if the result has been completed by this call
+	 */
+	private final boolean complete(final int newState, final Object value,
+									final Throwable cause) {
+		final List<ITaskCompletionListener> toNotify;
+		synchronized (this){
+			if (state != PENDING)
+				return false;
+
+			result = value;
+			exception = cause;
+			state = newState;
+			toNotify = listeners;
+			listeners = null;
+		}
+
+		completion.countDown();
+		for (final ITaskCompletionListener listener : toNotify)
+			notifyListener( listener );
+
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.concurrent.Future#get()
+	 */
+	public final Object get() throws InterruptedException, ExecutionException {
+		completion.await();
+		return getCompleted();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.concurrent.Future#get(long,
+	 * java.util.concurrent.TimeUnit)
+	 */
+	public final Object get(final long timeout, final TimeUnit unit)
+																	throws InterruptedException,
+																	ExecutionException,
+																	TimeoutException {
+		if (!completion.await( timeout, unit ))
+			throw new TimeoutException( "The task result is not available yet" );
+
+		return getCompleted();
+	}
+
+	/**
+	 * Provides the outcome of a completed task with the Future semantic.
+	 * 
+	 * @return the result
+	 * @throws ExecutionException
+	 *             if the task has failed
+	 */
+	private final Object getCompleted() throws ExecutionException {
+		switch (state){
+			case CANCELLED:
+				throw new CancellationException( "The task has been cancelled" );
+			case FAILED:
+				throw new ExecutionException( exception );
+			default:
+				return result;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.role.task.IFutureTaskExecutionResult#getException()
+	 */
+	public final Throwable getException() {
+		return (state == FAILED) ? exception : null;
+	}
+
+	/**
+	 * Provides the outcome of a completed task with the task execution result
+	 * semantic: a cancelled task has a null result.
+	 * 
+	 * @return the result
+	 * @throws WCException
+	 *             if the task has failed
+	 */
+	private final Object getResultOrThrow() throws WCException {
+		if (state == FAILED){
+			if (exception instanceof WCException)
+				throw (WCException) exception;
+			else throw new WCException( "The task has failed", exception );
+		}else return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.role.task.ITaskExecutionResult#getTaskResult(boolean)
+	 */
+	public final Object getTaskResult(final boolean blocking)
+																throws WCException {
+		if (blocking)
+			try{
+				completion.await();
+			}catch (final InterruptedException e){
+				throw new WCException(
+						"Exception caught while waiting for a task result", e );
+			}
+		else if (state == PENDING)
+			return null;
+
+		return getResultOrThrow();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.role.task.ITaskExecutionResult#getTaskResult(long)
+	 */
+	public final Object getTaskResult(final long timeout) throws WCException {
+		if ((state == PENDING) && (timeout > 0))
+			try{
+				completion.await( timeout, TimeUnit.MILLISECONDS );
+			}catch (final InterruptedException e){
+				throw new WCException(
+						"Exception caught while waiting for a task result", e );
+			}
+
+		if (state == PENDING)
+			return null;
+		else return getResultOrThrow();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.concurrent.Future#isCancelled()
+	 */
+	public final boolean isCancelled() {
+		return state == CANCELLED;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.role.task.IFutureTaskExecutionResult#isCompletedExceptionally
+	 * ()
+	 */
+	public final boolean isCompletedExceptionally() {
+		return state == FAILED;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.concurrent.Future#isDone()
+	 */
+	public final boolean isDone() {
+		return state != PENDING;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.role.task.ITaskExecutionResult#isResultAvailable()
+	 */
+	public final boolean isResultAvailable() {
+		return state != PENDING;
+	}
+
+	/**
+	 * Notifies a single listener, a failing listener does not prevent the
+	 * others from being notified.
+	 * 
+	 * @param listener
+	 *            the listener to notify
+	 */
+	private final void notifyListener(final ITaskCompletionListener listener) {
+		try{
+			listener.taskCompleted( this );
+		}catch (final RuntimeException e){
+			logger.error( "A task completion listener has failed", e );
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.role.task.IFutureTaskExecutionResult#setException(java.lang
+	 * .Throwable)
+	 */
+	public final boolean setException(final Throwable exception) {
+		return complete( FAILED, null, exception );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.role.task.ITaskExecutionResult#setResult(java.lang.Object)
+	 */
+	public final boolean setResult(final Object result) {
+		return complete( COMPLETED, result, null );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.role.task.IFutureTaskExecutionResult#thenApply(whitecat
+	 * .core.role.task.ITaskResultTransformer)
+	 */
+	public final IFutureTaskExecutionResult thenApply(final ITaskResultTransformer transformer) {
+		final FutureTaskExecutionResultImpl next = new FutureTaskExecutionResultImpl();
+
+		addCompletionListener( new ITaskCompletionListener() {
+
+			public void taskCompleted(final IFutureTaskExecutionResult completed) {
+				if (completed.isCancelled())
+					next.cancel();
+				else if (completed.isCompletedExceptionally())
+					next.setException( completed.getException() );
+				else try{
+					next.setResult( transformer.transform( result ) );
+				}catch (final WCException e){
+					next.setException( e );
+				}catch (final RuntimeException e){
+					next.setException( e );
+				}
+			}
+		} );
+
+		return next;
+	}
+}
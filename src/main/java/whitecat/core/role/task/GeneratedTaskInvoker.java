@@ -0,0 +1,138 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core.role.task;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import whitecat.core.WCException;
+
+/**
+ * The base class of the task invokers generated by the
+ * {@link TaskInvokerGenerator}. A generated invoker calls the task method
+ * directly on the role, unboxing the arguments to the parameter types of the
+ * method, so that no reflection is involved in the call.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public abstract class GeneratedTaskInvoker implements ITaskInvoker {
+
+	/**
+	 * An empty argument array, used for methods without parameters.
+	 */
+	private static final Object[]	NO_ARGUMENTS	= new Object[0];
+
+	/**
+	 * The method the invoker has been generated for.
+	 */
+	private final Method			method;
+
+	/**
+	 * The role instance the method is bound to.
+	 */
+	protected final Object			target;
+
+	/**
+	 * The number of parameters of the method.
+	 */
+	private final int				arity;
+
+	/**
+	 * Binds the invoker to a role instance.
+	 * 
+	 * @param method
+	 *            the method the invoker has been generated for
+	 * @param target
+	 *            the role instance to invoke the method on (null for static
+	 *            methods)
+	 * @throws WCException
+	 *             if the method cannot be invoked on the target
+	 */
+	protected GeneratedTaskInvoker(final Method method, final Object target)
+																			throws WCException {
+		super();
+		if (!Modifier.isStatic( method.getModifiers() )
+				&& !method.getDeclaringClass().isInstance( target ))
+			throw new WCException( "The method " + method.getName()
+					+ " cannot be invoked on the role " + target );
+
+		this.method = method;
+		this.target = target;
+		arity = method.getParameterTypes().length;
+	}
+
+	/**
+	 * Provides the method this invoker is bound to.
+	 * 
+	 * @return the method
+	 */
+	public final Method getMethod() {
+		return method;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.role.task.ITaskInvoker#invoke(java.lang.Object[])
+	 */
+	public final Object invoke(final Object[] arguments) throws WCException {
+		final Object[] actualArguments = (arguments == null) ? NO_ARGUMENTS
+				: arguments;
+		if (actualArguments.length != arity)
+			throw new WCException( "Wrong number of parameters or type!" );
+
+		return invokeTarget( actualArguments );
+	}
+
+	/**
+	 * Calls the method on the target. This method is generated for each task
+	 * method.
+	 * 
+	 * @param arguments
+	 *            the arguments, already checked against the method arity
+	 * @return the value returned by the method, boxed if primitive, or null if
+	 *         the method is void
+	 * @throws WCException
+	 *             if an argument has a wrong type or the method throws an
+	 *             exception
+	 */
+	protected abstract Object invokeTarget(Object[] arguments)
+																throws WCException;
+}
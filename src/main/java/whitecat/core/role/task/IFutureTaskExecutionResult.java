@@ -0,0 +1,103 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core.role.task;
+
+import java.util.concurrent.Future;
+
+/**
+ * A task execution result that is also a {@link Future}, and that allows the
+ * caller to be notified of the completion instead of waiting for it. Differently
+ * from the basic execution result, a null value is a valid result (e.g., for
+ * void tasks), and a task can complete with an exception that is propagated to
+ * the callers.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public interface IFutureTaskExecutionResult extends ITaskExecutionResult,
+		Future<Object> {
+
+	/**
+	 * Adds a listener that will be notified once the task completes (with a
+	 * result, with an exception or because it has been cancelled). If the task
+	 * is already completed, the listener is notified immediately on the
+	 * calling thread, otherwise it is notified on the thread that completes
+	 * the task.
+	 * 
+	 * @param listener
+	 *            the listener to notify
+	 */
+	public void addCompletionListener(ITaskCompletionListener listener);
+
+	/**
+	 * Provides the exception the task has completed with.
+	 * 
+	 * @return the exception, or null if the task has not completed
+	 *         exceptionally
+	 */
+	public Throwable getException();
+
+	/**
+	 * Notifies if the task has completed with an exception.
+	 * 
+	 * @return true if the task has failed
+	 */
+	public boolean isCompletedExceptionally();
+
+	/**
+	 * Completes the task with an exception. Callers waiting for the result will
+	 * get the exception.
+	 * 
+	 * @param exception
+	 *            the exception the task has failed with
+	 * @return true if the task has been completed, false if it was already
+	 *         completed
+	 */
+	public boolean setException(Throwable exception);
+
+	/**
+	 * Provides a new result that will be completed with the transformation of
+	 * this one. If this task fails or is cancelled, so does the new result.
+	 * 
+	 * @param transformer
+	 *            the transformation to apply to the result of this task
+	 * @return the result of the transformation
+	 */
+	public IFutureTaskExecutionResult thenApply(ITaskResultTransformer transformer);
+}
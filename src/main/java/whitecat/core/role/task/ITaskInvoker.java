@@ -0,0 +1,66 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core.role.task;
+
+import whitecat.core.WCException;
+
+/**
+ * An invoker is the executable part of a task bound to a specific method and to
+ * a specific role instance. It is built once, when the task is bound, and then
+ * used for every execution of the task, so that the cost of resolving and
+ * checking the method is not paid at each call.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public interface ITaskInvoker {
+
+	/**
+	 * Invokes the task method on the bound role instance.
+	 * 
+	 * @param arguments
+	 *            the arguments of the method, the array is not modified by the
+	 *            invoker
+	 * @return the value returned by the method, boxed if primitive, or null if
+	 *         the method is void
+	 * @throws WCException
+	 *             if the method cannot be invoked or throws an exception
+	 */
+	public Object invoke(Object[] arguments) throws WCException;
+}
@@ -38,14 +38,20 @@
  */
 package whitecat.core.role.task;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
+import whitecat.core.DaemonThreadFactory;
 import whitecat.core.WCException;
 import whitecat.core.WhiteCat;
 import whitecat.core.role.IRole;
@@ -55,21 +61,70 @@ import whitecat.core.role.IRole;
  * executor can be used with Java reflection, passing the method object to use
  * as a task.
  * 
+ * A task can contain subtasks, that are executed together with the main method;
+ * the results are collected in an array whose first element is the result of
+ * the main method, followed by the results of the subtasks in the order they
+ * have been added. Subtasks are executed one after another, unless the
+ * parallel mode is enabled: in such case the subtasks are submitted to an
+ * executor service and run concurrently with the main method, while the results
+ * are still assembled in the same order.
+ * 
+ * At the first execution the method is bound to the executing role thru an
+ * {@link ITaskInvoker}, unless an invoker has already been set. The default
+ * one is a {@link ReflectiveTaskInvoker}, that caches the method lookup and
+ * the access checks but still calls Method.invoke() at each execution; a
+ * {@link GeneratedTaskInvoker} calls the method directly. Each execution
+ * passes its own copy of the parameters to the invoker, since the executions
+ * (e.g., parallel subtasks) can run concurrently.
+ * 
  * @author Luca Ferrari - fluca1978 (at) gmail.com
  * 
  */
 public class MethodTaskExecutor implements IRoleTask, IRole {
 
+	/**
+	 * The executor service shared by all the tasks that run their subtasks in
+	 * parallel without a specific executor. It is lazily created.
+	 */
+	private static ExecutorService	defaultSubTaskExecutor	= null;
+
+	/**
+	 * Provides the default executor service for the parallel subtasks,
+	 * creating it if it does not exist yet. Since subtasks are mostly bound to
+	 * I/O, the executor is a cached thread pool of daemon threads.
+	 * 
+	 * @return the shared default executor service
+	 */
+	private static synchronized final ExecutorService getDefaultSubTaskExecutor() {
+		if (defaultSubTaskExecutor == null)
+			defaultSubTaskExecutor = Executors
+					.newCachedThreadPool( new DaemonThreadFactory(
+							"whitecat-subtask-" ) );
+
+		return defaultSubTaskExecutor;
+	}
+
 	/**
 	 * The method to execute as task.
 	 */
 	private Method			methodToExecute	= null;
 
 	/**
-	 * Collection of uniques tasks to execute within this one.
+	 * Collection of uniques tasks to execute within this one, kept in the order
+	 * they have been added.
 	 */
 	private Set<IRoleTask>	subTasks		= null;
 
+	/**
+	 * Indicates if the subtasks must be executed concurrently.
+	 */
+	private boolean			parallelSubTasks	= false;
+
+	/**
+	 * The executor for the parallel subtasks, null to use the default one.
+	 */
+	private ExecutorService	subTaskExecutor		= null;
+
 	/**
 	 * A list of parameters to use when executing this task.
 	 */
@@ -81,13 +136,19 @@ public class MethodTaskExecutor implements IRoleTask, IRole {
 	 */
 	private IRole			executingRole	= null;
 
+	/**
+	 * The invoker bound to the method and to the executing role, built at the
+	 * first execution.
+	 */
+	private ITaskInvoker	invoker			= null;
+
 	/**
 	 * Default constructor.
 	 */
 	public MethodTaskExecutor() {
 		super();
 		parameters = new LinkedList();
-		subTasks = new HashSet<IRoleTask>();
+		subTasks = new LinkedHashSet<IRoleTask>();
 	}
 
 	/*
@@ -135,44 +196,118 @@ public class MethodTaskExecutor implements IRoleTask, IRole {
 			throw new WCException(
 					"Cannot execute a task without the method to invoke!" );
 
+		// execute the method: if there are not subtasks, do only this,
+		// otherwise invoke all the subtasks and keep them in an array
+		if (subTasks.size() == 0){
+			final ITaskExecutionResult resultWrapper = WhiteCat
+					.getTaskExecutionResult();
+			resultWrapper.setResult( invokeMethod() );
+			return resultWrapper;
+		}else if (isParallelSubTasks())
+			return executeInParallel();
+		else{
+			final Object[] returns = new Object[subTasks.size() + 1];
+			returns[0] = invokeMethod();
+
+			final Iterator<IRoleTask> iter = subTasks.iterator();
+			int i = 1;
+			while (iter.hasNext()){
+				returns[i] = iter.next().execute();
+				i++;
+			}
+
+			// all done
+			final ITaskExecutionResult resultWrapper = WhiteCat
+					.getTaskExecutionResult();
+			resultWrapper.setResult( returns );
+			return resultWrapper;
+		}
+	}
+
+	/**
+	 * Executes the subtasks concurrently: each subtask is submitted to the
+	 * executor service, then the main method is executed on the calling thread
+	 * and at last the results of the subtasks are collected in the order the
+	 * subtasks have been added.
+	 * 
+	 * @return the result wrapper with the array of results
+	 * @throws WCException
+	 *             if the main method or one of the subtasks fails
+	 */
+	private final ITaskExecutionResult executeInParallel() throws WCException {
+		// take a snapshot of the subtasks, so that they can be changed while
+		// running
+		final IRoleTask[] currentSubTasks;
+		synchronized (this){
+			currentSubTasks = subTasks.toArray( new IRoleTask[subTasks.size()] );
+		}
+
+		final ExecutorService executor = getSubTaskExecutor();
+		final List<Future<ITaskExecutionResult>> futures = new LinkedList<Future<ITaskExecutionResult>>();
+
 		try{
-			// execute the method: if there are not subtasks, do only this,
-			// otherwise invoke all the subtasks and keep them in an array
-			if (subTasks.size() == 0){
-				final ITaskExecutionResult resultWrapper = WhiteCat
-						.getTaskExecutionResult();
-				if (parameters.isEmpty())
-					resultWrapper.setResult( methodToExecute
-							.invoke( executingRole ) );
-				else resultWrapper.setResult( methodToExecute.invoke(
-						executingRole,
-						parameters.toArray() ) );
-
-				return resultWrapper;
-			}else{
-				final Object[] returns = new Object[subTasks.size() + 1];
-				returns[0] = methodToExecute.invoke( parameters.toArray() );
-
-				final Iterator<IRoleTask> iter = subTasks.iterator();
-				int i = 1;
-				while (iter.hasNext()){
-					returns[i] = iter.next().execute();
-					i++;
-				}
-
-				// all done
-				final ITaskExecutionResult resultWrapper = WhiteCat
-						.getTaskExecutionResult();
-				resultWrapper.setResult( returns );
-				return resultWrapper;
+			for (final IRoleTask subTask : currentSubTasks)
+				futures.add( executor.submit( new Callable<ITaskExecutionResult>() {
+
+					public ITaskExecutionResult call() throws WCException {
+						return subTask.execute();
+					}
+				} ) );
+
+			final Object[] returns = new Object[currentSubTasks.length + 1];
+			returns[0] = invokeMethod();
+
+			int i = 1;
+			for (final Future<ITaskExecutionResult> future : futures){
+				returns[i] = future.get();
+				i++;
 			}
-		}catch (final IllegalArgumentException e){
-			throw new WCException( "Wrong number of parameters or type!" );
-		}catch (final IllegalAccessException e){
-			throw new WCException( "Cannot invoke the method!" );
-		}catch (final InvocationTargetException e){
-			throw new WCException( "Cannot invoke the method on the target !" );
+
+			// all done
+			final ITaskExecutionResult resultWrapper = WhiteCat
+					.getTaskExecutionResult();
+			resultWrapper.setResult( returns );
+			return resultWrapper;
+
+		}catch (final RejectedExecutionException e){
+			throw new WCException( "Cannot submit the subtasks!", e );
+		}catch (final InterruptedException e){
+			throw new WCException( "Interrupted while waiting for the subtasks!",
+					e );
+		}catch (final ExecutionException e){
+			if (e.getCause() instanceof WCException)
+				throw (WCException) e.getCause();
+			else throw new WCException( "A subtask has failed!", e.getCause() );
+		}finally{
+			// do not leave subtasks running if something went wrong
+			for (final Future<ITaskExecutionResult> future : futures)
+				if (!future.isDone())
+					future.cancel( true );
+		}
+	}
+
+	/**
+	 * Invokes the method of this task on the executing role. The invoker is
+	 * built at the first call and reused by the following ones, while each
+	 * call gets its own argument array, so that an invoker or a method that
+	 * changes it cannot affect the other calls.
+	 * 
+	 * @return the value returned by the method
+	 * @throws WCException
+	 *             if the method cannot be invoked
+	 */
+	private final Object invokeMethod() throws WCException {
+		final ITaskInvoker currentInvoker;
+		final Object[] currentArguments;
+		synchronized (this){
+			if (invoker == null)
+				invoker = new ReflectiveTaskInvoker( methodToExecute,
+						executingRole );
+			currentInvoker = invoker;
+			currentArguments = parameters.toArray();
 		}
+
+		return currentInvoker.invoke( currentArguments );
 	}
 
 	/**
@@ -193,6 +328,35 @@ public class MethodTaskExecutor implements IRoleTask, IRole {
 		return methodToExecute;
 	}
 
+	/**
+	 * Provides the invoker this task is bound to.
+	 * 
+	 * @return the invoker, or null if the task has not been bound yet
+	 */
+	public synchronized final ITaskInvoker getTaskInvoker() {
+		return invoker;
+	}
+
+	/**
+	 * Provides the subtasks of this task, in the order they are executed.
+	 * 
+	 * @return a copy of the list of subtasks
+	 */
+	public synchronized final List<IRoleTask> getSubTasks() {
+		return new LinkedList<IRoleTask>( subTasks );
+	}
+
+	/**
+	 * Provides the executor service used to run the subtasks in parallel.
+	 * 
+	 * @return the subtask executor
+	 */
+	public synchronized final ExecutorService getSubTaskExecutor() {
+		if (subTaskExecutor == null)
+			return getDefaultSubTaskExecutor();
+		else return subTaskExecutor;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -203,6 +367,15 @@ public class MethodTaskExecutor implements IRoleTask, IRole {
 		return methodToExecute.hashCode();
 	}
 
+	/**
+	 * Notifies if the subtasks are executed concurrently.
+	 * 
+	 * @return true if the parallel mode is enabled
+	 */
+	public synchronized final boolean isParallelSubTasks() {
+		return parallelSubTasks;
+	}
+
 	public synchronized boolean removeSubTask(final IRoleTask toRemove) {
 		if (subTasks.contains( toRemove )){
 			subTasks.remove( toRemove );
@@ -224,6 +397,41 @@ public class MethodTaskExecutor implements IRoleTask, IRole {
 	 */
 	public synchronized final void setExecutingRole(final IRole executingRole) {
 		this.executingRole = executingRole;
+		invoker = null;
+	}
+
+	/**
+	 * Enables or disables the concurrent execution of the subtasks.
+	 * 
+	 * @param parallelSubTasks
+	 *            true if the subtasks must be executed concurrently
+	 */
+	public synchronized final void setParallelSubTasks(	final boolean parallelSubTasks) {
+		this.parallelSubTasks = parallelSubTasks;
+	}
+
+	/**
+	 * Sets the executor service used to run the subtasks in parallel. The
+	 * executor is not shut down by the task.
+	 * 
+	 * @param subTaskExecutor
+	 *            the executor to use, or null to use the default shared one
+	 */
+	public synchronized final void setSubTaskExecutor(	final ExecutorService subTaskExecutor) {
+		this.subTaskExecutor = subTaskExecutor;
+	}
+
+	/**
+	 * Binds this task to a specific invoker, that will be used instead of the
+	 * reflective one. The invoker must be bound to the method and to the
+	 * executing role of this task.
+	 * 
+	 * @param invoker
+	 *            the invoker to use, or null to bind the task again at the next
+	 *            execution
+	 */
+	public synchronized final void setTaskInvoker(final ITaskInvoker invoker) {
+		this.invoker = invoker;
 	}
 
 	/**
@@ -235,6 +443,7 @@ public class MethodTaskExecutor implements IRoleTask, IRole {
 	 */
 	public synchronized final void setMethodToExecute(	final Method methodToExecute) {
 		this.methodToExecute = methodToExecute;
+		invoker = null;
 	}
 
 }
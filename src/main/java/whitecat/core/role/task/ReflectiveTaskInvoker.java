@@ -0,0 +1,141 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core.role.task;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import whitecat.core.WCException;
+
+/**
+ * A task invoker that uses reflection with a cached lookup: the method is bound
+ * to the role instance once, and the Java language access checks are
+ * suppressed at the binding time, but each invocation still goes thru
+ * Method.invoke(). A {@link GeneratedTaskInvoker} avoids reflection at all.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public class ReflectiveTaskInvoker implements ITaskInvoker {
+
+	/**
+	 * An empty argument array, used for methods without parameters.
+	 */
+	private static final Object[]	NO_ARGUMENTS	= new Object[0];
+
+	/**
+	 * The method to invoke.
+	 */
+	private final Method			method;
+
+	/**
+	 * The role instance the method is bound to.
+	 */
+	private final Object			target;
+
+	/**
+	 * The number of parameters of the method.
+	 */
+	private final int				arity;
+
+	/**
+	 * Binds a method to a role instance.
+	 * 
+	 * @param method
+	 *            the method to invoke
+	 * @param target
+	 *            the role instance to invoke the method on (null for static
+	 *            methods)
+	 * @throws WCException
+	 *             if the method cannot be invoked on the target
+	 */
+	public ReflectiveTaskInvoker(final Method method, final Object target)
+																			throws WCException {
+		super();
+		if (method == null)
+			throw new WCException( "Cannot bind a task without a method!" );
+		if (!Modifier.isStatic( method.getModifiers() )
+				&& !method.getDeclaringClass().isInstance( target ))
+			throw new WCException( "The method " + method.getName()
+					+ " cannot be invoked on the role " + target );
+
+		this.method = method;
+		this.target = target;
+		arity = method.getParameterTypes().length;
+
+		try{
+			method.setAccessible( true );
+		}catch (final SecurityException e){
+			// the access checks will be performed at each call
+		}
+	}
+
+	/**
+	 * Provides the method this invoker is bound to.
+	 * 
+	 * @return the method
+	 */
+	public final Method getMethod() {
+		return method;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see whitecat.core.role.task.ITaskInvoker#invoke(java.lang.Object[])
+	 */
+	public Object invoke(final Object[] arguments) throws WCException {
+		final Object[] actualArguments = (arguments == null) ? NO_ARGUMENTS
+				: arguments;
+		if (actualArguments.length != arity)
+			throw new WCException( "Wrong number of parameters or type!" );
+
+		try{
+			return method.invoke( target, actualArguments );
+		}catch (final IllegalArgumentException e){
+			throw new WCException( "Wrong number of parameters or type!" );
+		}catch (final IllegalAccessException e){
+			throw new WCException( "Cannot invoke the method!" );
+		}catch (final InvocationTargetException e){
+			throw new WCException( "Cannot invoke the method on the target !",
+					e.getCause() );
+		}
+	}
+}
@@ -42,7 +42,9 @@ import whitecat.core.WCException;
 
 /**
  * The default implementation of the task execution result. Implements a simple
- * future reply mechanism.
+ * future reply mechanism. A null result is a valid one, that completes the
+ * result without a value (e.g., for a void task); a caller can tell it from a
+ * cancellation thru {@link #isCancelled()}.
  * 
  * @author Luca Ferrari - fluca1978 (at) gmail.com
  * 
@@ -54,6 +56,11 @@ public class TaskExecutionResultImpl implements ITaskExecutionResult {
 	 */
 	private Object	result		= null;
 
+	/**
+	 * Indicates if the result has been set, even if null.
+	 */
+	private boolean	isCompleted	= false;
+
 	/**
 	 * Indicates if this task result has been cancelled.
 	 */
@@ -129,15 +136,26 @@ public class TaskExecutionResultImpl implements ITaskExecutionResult {
 	 * ()
 	 */
 	public final synchronized boolean isResultAvailable() {
-		return ((result != null) || isCancelled);
+		return (isCompleted || isCancelled);
+	}
+
+	/**
+	 * Notifies if this task result has been cancelled instead of being
+	 * completed.
+	 * 
+	 * @return true if the result has been cancelled
+	 */
+	public final synchronized boolean isCancelled() {
+		return isCancelled && !isCompleted;
 	}
 
 	public final synchronized boolean setResult(final Object result) {
 		// do not allow setting the result more than once
-		if (this.result != null)
+		if (isCompleted)
 			return false;
 		else{
 			this.result = result;
+			isCompleted = true;
 			notifyAll();
 			return true;
 		}
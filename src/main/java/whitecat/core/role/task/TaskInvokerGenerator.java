@@ -0,0 +1,454 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core.role.task;
+
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+
+import org.apache.log4j.Logger;
+
+import whitecat.core.WCException;
+import whitecat.core.metrics.RoleEngineMetrics;
+
+/**
+ * Generates a {@link GeneratedTaskInvoker} for each task method thru
+ * Javassist. The generated class casts the role to the declaring class of the
+ * method and calls the method directly, unboxing the arguments to the
+ * parameter types.
+ * 
+ * A class is generated only once for each method, and is then instantiated for
+ * each role instance. All the invokers of the methods of a class are defined
+ * in the same class loader, and the cache of a class neither prevents the
+ * class from being unloaded nor survives a memory shortage: the invokers
+ * already bound keep working, while new ones are generated again if needed.
+ * Only public methods of public classes can be called by
+ * a generated invoker: for the other methods, or if the generation fails, a
+ * {@link ReflectiveTaskInvoker} is used.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public final class TaskInvokerGenerator {
+
+	/**
+	 * The invokers of the methods of a class, defined in their own class
+	 * loader.
+	 */
+	private static final class ClassInvokers {
+
+		/**
+		 * The constructors of the generated invokers, keyed by method.
+		 */
+		final ConcurrentHashMap<Method, Constructor>	constructors	= new ConcurrentHashMap<Method, Constructor>();
+
+		/**
+		 * The class loader the invokers are defined in.
+		 */
+		final InvokerClassLoader						loader;
+
+		/**
+		 * The methods an invoker cannot be generated for.
+		 */
+		final ConcurrentHashMap<Method, Boolean>		unsupported		= new ConcurrentHashMap<Method, Boolean>();
+
+		ClassInvokers(final Class declaringClass) {
+			super();
+			final ClassLoader parent = declaringClass.getClassLoader();
+			loader = new InvokerClassLoader(
+					(parent != null) ? parent : TaskInvokerGenerator.class
+							.getClassLoader() );
+		}
+	}
+
+	/**
+	 * The class loader the invokers are defined in, child of the loader of the
+	 * role class.
+	 */
+	private static final class InvokerClassLoader extends ClassLoader {
+
+		InvokerClassLoader(final ClassLoader parent) {
+			super( parent );
+		}
+
+		synchronized Class define(final String className, final byte[] bytecode) {
+			return defineClass( className, bytecode, 0, bytecode.length );
+		}
+	}
+
+	/**
+	 * The package of the generated invokers.
+	 */
+	private static final String									PACKAGE			= "whitecat.core.role.task.generated.";
+
+	private static Logger										logger			= org.apache.log4j.Logger
+																						.getLogger( TaskInvokerGenerator.class );
+
+	/**
+	 * The invokers of each class. The classes are weak keys and the invokers,
+	 * that refer to the classes thru their class loader, are softly
+	 * referenced.
+	 */
+	private static final Map<Class, SoftReference<ClassInvokers>>	invokers		= new WeakHashMap<Class, SoftReference<ClassInvokers>>();
+
+	/**
+	 * A counter used to build unique class names.
+	 */
+	private static final AtomicInteger							classCounter	= new AtomicInteger();
+
+	/**
+	 * Binds a method to a role instance, generating the invoker class if this
+	 * is the first time for the method.
+	 * 
+	 * @param method
+	 *            the method to invoke
+	 * @param target
+	 *            the role instance
+	 * @return the generated invoker, or a reflective one if an invoker cannot
+	 *         be generated for the method
+	 * @throws WCException
+	 *             if the method cannot be invoked on the target
+	 */
+	public static final ITaskInvoker bind(final Method method, final Object target)
+																					throws WCException {
+		if (method == null)
+			throw new WCException( "Cannot bind a task without a method!" );
+
+		final Constructor constructor = getConstructor( method );
+		if (constructor == null)
+			return new ReflectiveTaskInvoker( method, target );
+
+		try{
+			return (ITaskInvoker) constructor.newInstance( new Object[] {
+					method, target } );
+		}catch (final InvocationTargetException e){
+			if (e.getCause() instanceof WCException)
+				throw (WCException) e.getCause();
+			throw new WCException( "Cannot bind the task invoker", e.getCause() );
+		}catch (final Exception e){
+			throw new WCException( "Cannot bind the task invoker", e );
+		}
+	}
+
+	/**
+	 * Drops the invokers generated for the methods of a class, so that their
+	 * class loader can be discarded. The invokers already bound keep working.
+	 * 
+	 * @param roleClass
+	 *            the class declaring the task methods
+	 */
+	public static final void evict(final Class roleClass) {
+		synchronized (invokers){
+			invokers.remove( roleClass );
+		}
+	}
+
+	/**
+	 * Provides the invokers of a class, creating them if needed.
+	 * 
+	 * @param declaringClass
+	 *            the class declaring the task methods
+	 * @return the invokers of the class
+	 */
+	private static final ClassInvokers getClassInvokers(final Class declaringClass) {
+		synchronized (invokers){
+			final SoftReference<ClassInvokers> cached = invokers
+					.get( declaringClass );
+			ClassInvokers classInvokers = (cached != null) ? cached.get()
+					: null;
+			if (classInvokers == null){
+				classInvokers = new ClassInvokers( declaringClass );
+				invokers.put(
+						declaringClass,
+						new SoftReference<ClassInvokers>( classInvokers ) );
+			}
+
+			return classInvokers;
+		}
+	}
+
+	/**
+	 * Builds the expression that converts an argument to a parameter type.
+	 * 
+	 * @param type
+	 *            the parameter type
+	 * @param index
+	 *            the index of the argument
+	 * @return the source of the expression
+	 */
+	private static final String unboxArgument(final Class type, final int index) {
+		final String argument = "$1[" + index + "]";
+		if (!type.isPrimitive())
+			return "(" + typeName( type ) + ") " + argument;
+
+		final String wrapper;
+		if (type == boolean.class)
+			wrapper = "java.lang.Boolean";
+		else if (type == char.class)
+			wrapper = "java.lang.Character";
+		else if (type == byte.class)
+			wrapper = "java.lang.Byte";
+		else if (type == short.class)
+			wrapper = "java.lang.Short";
+		else if (type == int.class)
+			wrapper = "java.lang.Integer";
+		else if (type == long.class)
+			wrapper = "java.lang.Long";
+		else if (type == float.class)
+			wrapper = "java.lang.Float";
+		else wrapper = "java.lang.Double";
+
+		return "((" + wrapper + ") " + argument + ")." + type.getName()
+				+ "Value()";
+	}
+
+	/**
+	 * Generates the invoker class for a method.
+	 * 
+	 * @param method
+	 *            the method
+	 * @param loader
+	 *            the class loader to define the invoker in
+	 * @return the constructor of the generated class
+	 * @throws Exception
+	 *             if the class cannot be generated
+	 */
+	private static final Constructor generate(	final Method method,
+												final InvokerClassLoader loader)
+																				throws Exception {
+		final Class declaringClass = method.getDeclaringClass();
+
+		final ClassPool pool = new ClassPool( true );
+		pool.appendClassPath( new LoaderClassPath( loader.getParent() ) );
+		pool.appendClassPath( new LoaderClassPath(
+				TaskInvokerGenerator.class.getClassLoader() ) );
+
+		final String className = PACKAGE
+				+ declaringClass.getName().replace( '.', '_' ) + "$"
+				+ method.getName() + "$" + classCounter.incrementAndGet();
+		final CtClass invokerClass = pool.makeClass( className,
+				pool.get( GeneratedTaskInvoker.class.getName() ) );
+
+		invokerClass.addConstructor( CtNewConstructor.make( "public "
+				+ className.substring( PACKAGE.length() )
+				+ "(java.lang.reflect.Method method, Object target) "
+				+ "throws whitecat.core.WCException { super( method, target ); }",
+				invokerClass ) );
+
+		// unbox the arguments first, so that a wrong argument is not
+		// confused with an exception thrown by the method
+		final Class[] parameters = method.getParameterTypes();
+		final StringBuffer source = new StringBuffer(
+				"protected Object invokeTarget(Object[] arguments) throws whitecat.core.WCException {\n" );
+		for (int i = 0; i < parameters.length; i++)
+			source.append( typeName( parameters[i] ) ).append( " a" ).append( i )
+					.append( " = " ).append( defaultValue( parameters[i] ) )
+					.append( ";\n" );
+
+		if (parameters.length > 0){
+			source.append( "try{\n" );
+			for (int i = 0; i < parameters.length; i++)
+				source.append( "a" ).append( i ).append( " = " )
+						.append( unboxArgument( parameters[i], i ) )
+						.append( ";\n" );
+			source.append( "}catch (RuntimeException e){\n"
+					+ "throw new whitecat.core.WCException( \"Wrong number of parameters or type!\" );\n"
+					+ "}\n" );
+		}
+
+		final StringBuffer call = new StringBuffer();
+		if (Modifier.isStatic( method.getModifiers() ))
+			call.append( typeName( declaringClass ) );
+		else call.append( "((" ).append( typeName( declaringClass ) )
+				.append( ") target)" );
+		call.append( "." ).append( method.getName() ).append( "(" );
+		for (int i = 0; i < parameters.length; i++)
+			call.append( (i > 0 ? ", " : "") ).append( "a" ).append( i );
+		call.append( ")" );
+
+		source.append( "try{\n" );
+		if (method.getReturnType() == void.class)
+			source.append( call ).append( ";\nreturn null;\n" );
+		else source.append( "return ($w) " ).append( call ).append( ";\n" );
+		source.append( "}catch (Throwable t){\n"
+				+ "throw new whitecat.core.WCException( \"Cannot invoke the method on the target !\", t );\n"
+				+ "}\n}" );
+
+		invokerClass.addMethod( CtNewMethod.make(
+				source.toString(),
+				invokerClass ) );
+
+		final byte[] bytecode = invokerClass.toBytecode();
+		invokerClass.detach();
+
+		final Class generated = loader.define( className, bytecode );
+		return generated.getConstructor( new Class[] { Method.class,
+				Object.class } );
+	}
+
+	/**
+	 * Provides the default value of a type, used to initialize the local
+	 * variables of the generated code.
+	 * 
+	 * @param type
+	 *            the type
+	 * @return the source of the default value
+	 */
+	private static final String defaultValue(final Class type) {
+		if (!type.isPrimitive())
+			return "null";
+		else if (type == boolean.class)
+			return "false";
+		else if (type == char.class)
+			return "(char) 0";
+		else return "(" + type.getName() + ") 0";
+	}
+
+	/**
+	 * Provides the constructor of the invoker for a method, generating the
+	 * class if needed.
+	 * 
+	 * @param method
+	 *            the method
+	 * @return the constructor, or null if an invoker cannot be generated
+	 */
+	private static final Constructor getConstructor(final Method method) {
+		final ClassInvokers classInvokers = getClassInvokers( method
+				.getDeclaringClass() );
+		final Constructor constructor = classInvokers.constructors.get( method );
+		if (constructor != null){
+			RoleEngineMetrics.getInstance().invokerCacheHit();
+			return constructor;
+		}
+		if (!isSupported( method )
+				|| classInvokers.unsupported.containsKey( method ))
+			return null;
+
+		try{
+			// two threads could generate the same invoker, only one is kept
+			final Constructor generated = generate(
+					method,
+					classInvokers.loader );
+			RoleEngineMetrics.getInstance().invokerGenerated();
+			final Constructor installed = classInvokers.constructors.putIfAbsent(
+					method,
+					generated );
+			return (installed != null ? installed : generated);
+		}catch (final Exception e){
+			logger.warn( "Cannot generate the invoker for " + method
+					+ ", using reflection", e );
+		}catch (final LinkageError e){
+			logger.warn( "Cannot define the invoker for " + method
+					+ ", using reflection", e );
+		}
+
+		classInvokers.unsupported.put( method, Boolean.TRUE );
+		return null;
+	}
+
+	/**
+	 * Checks if a generated invoker can call a method: the method, its class
+	 * and all the types in its signature must be public.
+	 * 
+	 * @param method
+	 *            the method
+	 * @return true if an invoker can be generated
+	 */
+	private static final boolean isSupported(final Method method) {
+		if (!Modifier.isPublic( method.getModifiers() )
+				|| !isPublic( method.getDeclaringClass() ))
+			return false;
+
+		for (final Class parameter : method.getParameterTypes())
+			if (!isPublic( parameter ))
+				return false;
+
+		return isPublic( method.getReturnType() );
+	}
+
+	/**
+	 * Checks if a type can be referenced by a class in another package.
+	 * 
+	 * @param type
+	 *            the type
+	 * @return true if the type and its enclosing classes are public
+	 */
+	private static final boolean isPublic(final Class type) {
+		if (type.isPrimitive())
+			return true;
+		if (type.isArray())
+			return isPublic( type.getComponentType() );
+
+		for (Class current = type; current != null; current = current
+				.getDeclaringClass())
+			if (!Modifier.isPublic( current.getModifiers() ))
+				return false;
+
+		return true;
+	}
+
+	/**
+	 * Provides the name of a type as it must appear in the generated source.
+	 * 
+	 * @param type
+	 *            the type
+	 * @return the source name of the type
+	 */
+	private static final String typeName(final Class type) {
+		if (type.isArray())
+			return typeName( type.getComponentType() ) + "[]";
+		else return type.getName();
+	}
+
+	private TaskInvokerGenerator() {
+		super();
+	}
+}
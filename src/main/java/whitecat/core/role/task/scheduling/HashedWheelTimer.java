@@ -0,0 +1,537 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.core.role.task.scheduling;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A timer based on a hashed wheel. The wheel is made of a fixed number of
+ * buckets, and a single worker thread advances one bucket at each tick: the
+ * timeouts stored in the current bucket whose rounds have been consumed are
+ * expired, and their task is executed on the worker thread. Adding and
+ * cancelling a timeout are constant time operations that do not lock, so that
+ * the timer can handle a very large number of pending timeouts with a single
+ * thread. The price to pay is the precision: a timeout expires within one tick
+ * from its deadline.
+ * 
+ * Tasks are executed on the worker thread, so they should be short and should
+ * hand off any long computation to another thread (as the task scheduler does
+ * submitting the role tasks to its executor).
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public class HashedWheelTimer {
+
+	/**
+	 * A bucket of the wheel. It is a doubly linked list of timeouts, and it is
+	 * accessed only by the worker thread.
+	 */
+	private static final class Bucket {
+		WheelTimeout	head	= null;
+		WheelTimeout	tail	= null;
+
+		/**
+		 * Appends a timeout to this bucket.
+		 * 
+		 * @param timeout
+		 *            the timeout to add
+		 */
+		void add(final WheelTimeout timeout) {
+			timeout.bucket = this;
+			if (head == null)
+				head = tail = timeout;
+			else{
+				tail.next = timeout;
+				timeout.prev = tail;
+				tail = timeout;
+			}
+		}
+
+		/**
+		 * Expires all the timeouts of this bucket that have no more rounds to
+		 * wait, and decrements the rounds of the others.
+		 * 
+		 * @param deadline
+		 *            the time of the current tick
+		 * @return the number of timeouts expired
+		 */
+		int expire(final long deadline) {
+			int expired = 0;
+			WheelTimeout timeout = head;
+			while (timeout != null){
+				final WheelTimeout next = timeout.next;
+				if (timeout.isCancelled())
+					remove( timeout );
+				else if ((timeout.remainingRounds <= 0)
+						&& (timeout.deadline <= deadline)){
+					remove( timeout );
+					timeout.expire();
+					expired++;
+				}else if (timeout.remainingRounds > 0)
+					timeout.remainingRounds--;
+
+				timeout = next;
+			}
+
+			return expired;
+		}
+
+		/**
+		 * Unlinks a timeout from this bucket.
+		 * 
+		 * @param timeout
+		 *            the timeout to remove
+		 */
+		void remove(final WheelTimeout timeout) {
+			if (timeout.prev != null)
+				timeout.prev.next = timeout.next;
+			if (timeout.next != null)
+				timeout.next.prev = timeout.prev;
+			if (timeout == head)
+				head = timeout.next;
+			if (timeout == tail)
+				tail = timeout.prev;
+
+			timeout.prev = timeout.next = null;
+			timeout.bucket = null;
+		}
+	}
+
+	/**
+	 * The implementation of a timeout of this timer.
+	 */
+	private final class WheelTimeout implements ITimeout {
+
+		/**
+		 * The task to run at the expiration.
+		 */
+		private final Runnable		task;
+
+		/**
+		 * The deadline of this timeout, in nanoseconds relative to the timer
+		 * start time.
+		 */
+		final long					deadline;
+
+		/**
+		 * The number of complete wheel rounds to wait before expiring. It is
+		 * handled only by the worker thread.
+		 */
+		long						remainingRounds	= 0;
+
+		/**
+		 * The state of the timeout, one of the STATE_ constants.
+		 */
+		private final AtomicInteger	state			= new AtomicInteger(
+															STATE_PENDING );
+
+		/**
+		 * Linking data, handled only by the worker thread.
+		 */
+		Bucket						bucket			= null;
+		WheelTimeout				next			= null;
+		WheelTimeout				prev			= null;
+
+		WheelTimeout(final Runnable task, final long deadline) {
+			super();
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see whitecat.core.role.task.scheduling.ITimeout#cancel()
+		 */
+		public boolean cancel() {
+			if (!state.compareAndSet( STATE_PENDING, STATE_CANCELLED ))
+				return false;
+
+			// let the worker thread unlink the timeout from its bucket
+			pendingTimeouts.decrementAndGet();
+			cancelledTimeouts.add( this );
+			return true;
+		}
+
+		/**
+		 * Executes the task of this timeout, if it has not been cancelled.
+		 */
+		void expire() {
+			if (!state.compareAndSet( STATE_PENDING, STATE_EXPIRED ))
+				return;
+
+			pendingTimeouts.decrementAndGet();
+			try{
+				task.run();
+			}catch (final Throwable t){
+				logger.warn( "A timer task has thrown an exception", t );
+			}
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see whitecat.core.role.task.scheduling.ITimeout#getTask()
+		 */
+		public Runnable getTask() {
+			return task;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see whitecat.core.role.task.scheduling.ITimeout#isCancelled()
+		 */
+		public boolean isCancelled() {
+			return state.get() == STATE_CANCELLED;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see whitecat.core.role.task.scheduling.ITimeout#isExpired()
+		 */
+		public boolean isExpired() {
+			return state.get() == STATE_EXPIRED;
+		}
+	}
+
+	/**
+	 * The worker that advances the wheel.
+	 */
+	private final class Worker implements Runnable {
+
+		/**
+		 * The current tick of the wheel.
+		 */
+		private long	tick	= 0;
+
+		public void run() {
+			while (workerState.get() == WORKER_STARTED){
+				final long deadline = waitForNextTick();
+				if (deadline < 0)
+					continue;
+
+				final Bucket bucket = wheel[(int) (tick & mask)];
+				processCancelledTimeouts();
+				transferPendingTimeouts();
+				bucket.expire( deadline );
+				tick++;
+			}
+		}
+
+		/**
+		 * Places the newly added timeouts into their buckets. The number of
+		 * timeouts handled at each tick is bounded, so that a burst of new
+		 * timeouts does not stall the wheel.
+		 */
+		private void transferPendingTimeouts() {
+			for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++){
+				final WheelTimeout timeout = newTimeouts.poll();
+				if (timeout == null)
+					break;
+				if (timeout.isCancelled())
+					continue;
+
+				final long expectedTicks = timeout.deadline / tickDuration;
+				timeout.remainingRounds = (expectedTicks - tick) / wheel.length;
+
+				// do not place a timeout in the past, it will expire at the
+				// current tick
+				final long ticks = Math.max( expectedTicks, tick );
+				wheel[(int) (ticks & mask)].add( timeout );
+			}
+		}
+
+		/**
+		 * Unlinks the cancelled timeouts from their buckets, so that they do
+		 * not occupy memory until their bucket is reached.
+		 */
+		private void processCancelledTimeouts() {
+			WheelTimeout timeout = null;
+			while ((timeout = cancelledTimeouts.poll()) != null)
+				if (timeout.bucket != null)
+					timeout.bucket.remove( timeout );
+		}
+
+		/**
+		 * Sleeps until the next tick.
+		 * 
+		 * @return the current time relative to the start time, or a negative
+		 *         value if the sleep has been interrupted
+		 */
+		private long waitForNextTick() {
+			final long deadline = tickDuration * (tick + 1);
+
+			for (;;){
+				final long currentTime = System.nanoTime() - startTime;
+				final long sleepTime = (deadline - currentTime + 999999) / 1000000;
+				if (sleepTime <= 0)
+					return currentTime;
+
+				try{
+					Thread.sleep( sleepTime );
+				}catch (final InterruptedException e){
+					if (workerState.get() != WORKER_STARTED)
+						return -1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * The logger for this class.
+	 */
+	private static Logger					logger					= org.apache.log4j.Logger
+																			.getLogger( ITaskScheduler.class );
+
+	/**
+	 * Timeout states.
+	 */
+	private static final int				STATE_PENDING			= 0;
+	private static final int				STATE_CANCELLED			= 1;
+	private static final int				STATE_EXPIRED			= 2;
+
+	/**
+	 * Worker states.
+	 */
+	private static final int				WORKER_INIT				= 0;
+	private static final int				WORKER_STARTED			= 1;
+	private static final int				WORKER_STOPPED			= 2;
+
+	/**
+	 * The max number of new timeouts placed into the wheel at each tick.
+	 */
+	private static final int				MAX_TRANSFER_PER_TICK	= 100000;
+
+	/**
+	 * A counter of the timers, used to name the worker threads.
+	 */
+	private static final AtomicInteger		timerCounter			= new AtomicInteger();
+
+	/**
+	 * The duration of a tick, in nanoseconds.
+	 */
+	private final long						tickDuration;
+
+	/**
+	 * The wheel, its length is always a power of two.
+	 */
+	private final Bucket[]					wheel;
+
+	/**
+	 * The mask to compute the bucket index from a tick.
+	 */
+	private final int						mask;
+
+	/**
+	 * The timeouts added and not yet placed into the wheel.
+	 */
+	private final Queue<WheelTimeout>		newTimeouts				= new ConcurrentLinkedQueue<WheelTimeout>();
+
+	/**
+	 * The timeouts cancelled and not yet removed from the wheel.
+	 */
+	private final Queue<WheelTimeout>		cancelledTimeouts		= new ConcurrentLinkedQueue<WheelTimeout>();
+
+	/**
+	 * The number of timeouts not yet expired nor cancelled.
+	 */
+	private final AtomicLong				pendingTimeouts			= new AtomicLong();
+
+	/**
+	 * The state of the worker thread.
+	 */
+	private final AtomicInteger				workerState				= new AtomicInteger(
+																			WORKER_INIT );
+
+	/**
+	 * The worker thread.
+	 */
+	private final Thread					workerThread;
+
+	/**
+	 * The instant the worker started, all deadlines are relative to it.
+	 */
+	private volatile long					startTime				= 0;
+
+	/**
+	 * Builds a timer with a tick of 100 milliseconds and 512 buckets.
+	 */
+	public HashedWheelTimer() {
+		this( 100, TimeUnit.MILLISECONDS, 512 );
+	}
+
+	/**
+	 * Builds a timer.
+	 * 
+	 * @param tickDuration
+	 *            the duration of a tick, that is the precision of the timer
+	 * @param unit
+	 *            the unit of the tick duration
+	 * @param ticksPerWheel
+	 *            the number of buckets of the wheel, it will be rounded to the
+	 *            next power of two
+	 */
+	public HashedWheelTimer(final long tickDuration, final TimeUnit unit,
+							final int ticksPerWheel) {
+		super();
+		if ((unit == null) || (tickDuration <= 0) || (ticksPerWheel <= 0)
+				|| (ticksPerWheel > (1 << 30)))
+			throw new IllegalArgumentException( "Invalid timer configuration" );
+
+		int wheelLength = 1;
+		while (wheelLength < ticksPerWheel)
+			wheelLength <<= 1;
+
+		wheel = new Bucket[wheelLength];
+		for (int i = 0; i < wheel.length; i++)
+			wheel[i] = new Bucket();
+
+		mask = wheel.length - 1;
+		this.tickDuration = unit.toNanos( tickDuration );
+
+		workerThread = new Thread( new Worker(), "whitecat-timer-"
+				+ timerCounter.incrementAndGet() );
+		workerThread.setDaemon( true );
+	}
+
+	/**
+	 * Provides the number of timeouts that are waiting to expire.
+	 * 
+	 * @return the number of pending timeouts
+	 */
+	public final long getPendingTimeouts() {
+		return pendingTimeouts.get();
+	}
+
+	/**
+	 * Provides the duration of a tick of this timer.
+	 * 
+	 * @param unit
+	 *            the unit to express the tick duration in
+	 * @return the tick duration
+	 */
+	public final long getTickDuration(final TimeUnit unit) {
+		return unit.convert( tickDuration, TimeUnit.NANOSECONDS );
+	}
+
+	/**
+	 * Schedules a task for the execution after the specified delay. The timer
+	 * is started at the first timeout added.
+	 * 
+	 * @param task
+	 *            the task to execute, it will run on the timer thread
+	 * @param delay
+	 *            the delay after which the task will be executed
+	 * @param unit
+	 *            the unit of the delay
+	 * @return the timeout handle
+	 * @throws IllegalStateException
+	 *             if the timer has been stopped
+	 */
+	public final ITimeout newTimeout(final Runnable task, final long delay,
+										final TimeUnit unit) {
+		if ((task == null) || (unit == null))
+			throw new IllegalArgumentException( "Task and unit are required" );
+
+		start();
+
+		final long deadline = (System.nanoTime() - startTime)
+				+ unit.toNanos( Math.max( delay, 0 ) );
+		final WheelTimeout timeout = new WheelTimeout( task, deadline );
+		pendingTimeouts.incrementAndGet();
+		newTimeouts.add( timeout );
+		return timeout;
+	}
+
+	/**
+	 * Starts the worker thread, if not already started.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the timer has been stopped
+	 */
+	public final void start() {
+		switch (workerState.get()){
+			case WORKER_INIT:
+				synchronized (workerThread){
+					if (workerState.get() == WORKER_INIT){
+						startTime = System.nanoTime();
+						workerState.set( WORKER_STARTED );
+						workerThread.start();
+					}
+				}
+				break;
+			case WORKER_STARTED:
+				break;
+			default:
+				throw new IllegalStateException(
+						"The timer has already been stopped" );
+		}
+	}
+
+	/**
+	 * Stops the timer. The pending timeouts will never expire.
+	 * 
+	 * @return the number of timeouts that were pending
+	 */
+	public final long stop() {
+		if (Thread.currentThread() == workerThread)
+			throw new IllegalStateException(
+					"The timer cannot be stopped by one of its tasks" );
+
+		if (workerState.getAndSet( WORKER_STOPPED ) == WORKER_STARTED){
+			workerThread.interrupt();
+			try{
+				workerThread.join();
+			}catch (final InterruptedException e){
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		return pendingTimeouts.get();
+	}
+}
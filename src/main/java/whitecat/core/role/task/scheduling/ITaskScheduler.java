@@ -38,6 +38,8 @@
  */
 package whitecat.core.role.task.scheduling;
 
+import java.util.concurrent.TimeUnit;
+
 import whitecat.core.agents.AgentProxyID;
 import whitecat.core.exceptions.WCSchedulingException;
 import whitecat.core.role.task.IRoleTask;
@@ -47,7 +49,9 @@ import whitecat.core.role.task.ITaskExecutionResult;
  * The scheduler for the execution of tasks. A task can be scheduled for the
  * execution by one or more agents at the role assumption or before the role
  * release. This allows agents to asynchonously cooperate each other asking for
- * services to be executed as soon as possible.
+ * services to be executed as soon as possible. Tasks can also be bound to
+ * timers started at the role assumption (after a delay, periodically or at a
+ * deadline); such timers are cancelled as soon as the role is released.
  * 
  * @author Luca Ferrari - fluca1978 (at) gmail.com
  * 
@@ -107,4 +111,41 @@ public interface ITaskScheduler {
 								TaskSchedulingInstant executionInstancePolicy,
 								ITaskExecutionResult result)
 															throws WCSchedulingException;
+
+	/**
+	 * Schedules a new task for a time based execution by the specified agent
+	 * proxy. The timer is started when the role the task belongs to is assumed
+	 * and it is cancelled when the role is released.
+	 * 
+	 * @param toExecute
+	 *            the task to execute
+	 * @param executor
+	 *            the agent proxy that will execute the task (or null if any
+	 *            agent proxy can execute the task)
+	 * @param executorMatchPolicy
+	 *            the type of executor match (only one agent proxy or any agent
+	 *            proxy)
+	 * @param executionInstancePolicy
+	 *            when the task must be executed
+	 * @param time
+	 *            the delay from the role assumption, the period for periodic
+	 *            tasks, or the deadline (time since the epoch) for deadline
+	 *            tasks
+	 * @param unit
+	 *            the unit of the time
+	 * @param result
+	 *            the task execution result to use for getting back the task
+	 *            execution result (for a periodic task only the first execution
+	 *            result is placed into it)
+	 * @return true if the task has been scheduled, false if it cannot be
+	 *         scheduled
+	 * @throws WCSchedulingException
+	 *             if something bad goes with the scheduling
+	 */
+	public boolean scheduleTask(IRoleTask toExecute, AgentProxyID executor,
+								TaskSchedulingExecutor executorMatchPolicy,
+								TaskSchedulingInstant executionInstancePolicy,
+								long time, TimeUnit unit,
+								ITaskExecutionResult result)
+															throws WCSchedulingException;
 }
@@ -40,19 +40,28 @@ package whitecat.core.role.task.scheduling;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Logger;
-import org.apache.log4j.xml.DOMConfigurator;
 
+import whitecat.core.DaemonThreadFactory;
 import whitecat.core.WCException;
 import whitecat.core.agents.AgentProxyID;
 import whitecat.core.event.Event;
 import whitecat.core.event.EventListener;
 import whitecat.core.event.EventType;
 import whitecat.core.exceptions.WCSchedulingException;
+import whitecat.core.metrics.RoleEngineMetrics;
 import whitecat.core.role.descriptors.RoleDescriptor;
+import whitecat.core.role.task.IFutureTaskExecutionResult;
 import whitecat.core.role.task.IRoleTask;
+import whitecat.core.role.task.ITaskCompletionListener;
 import whitecat.core.role.task.ITaskExecutionResult;
+import whitecat.core.role.task.TaskExecutionResultImpl;
 
 /**
  * The default implementation of the task scheduler. The scheduler keep a queue
@@ -60,6 +69,19 @@ import whitecat.core.role.task.ITaskExecutionResult;
  * role that generated the event, and checks for a task to execute on such role.
  * If found, and every execution condition matches, then the task is executed.
  * 
+ * Tasks are not executed on the thread that delivers the event (that is the
+ * thread performing the role operation), but are submitted to an executor
+ * service; the task result is then placed into the task execution result
+ * provided at the scheduling time. By default all the schedulers share a pool
+ * of daemon threads, but a different executor can be configured thru
+ * {@link #setTaskExecutor(ExecutorService)}.
+ * 
+ * Time based tasks are handled by a {@link HashedWheelTimer}: when the role is
+ * assumed a timer bound to the agent proxy and the task is started, and when
+ * the role is being released the timer is cancelled. The timer only hands off
+ * the task to the executor service, so a single timer thread can handle a very
+ * large number of role bound schedules.
+ * 
  * @author Luca Ferrari - fluca1978 (at) gmail.com
  * 
  */
@@ -74,8 +96,16 @@ public class TaskSchedulerImpl implements ITaskScheduler, EventListener {
 		public AgentProxyID				executor				= null;
 		public TaskSchedulingExecutor	executorMatchPolicy		= null;
 		public TaskSchedulingInstant	executionInstantPolicy	= null;
+		public long						time					= 0;
+		public TimeUnit					unit					= null;
 		ITaskExecutionResult			result					= null;
 
+		/**
+		 * The timers currently running for this task, indexed by the agent
+		 * proxy that holds the role.
+		 */
+		final Map<AgentProxyID, RoleBoundTimer>	timers		= new HashMap<AgentProxyID, RoleBoundTimer>();
+
 		@Override
 		public boolean equals(final Object o) {
 			if (!(o instanceof ScheduledTaskData))
@@ -83,13 +113,121 @@ public class TaskSchedulerImpl implements ITaskScheduler, EventListener {
 			else{
 				final ScheduledTaskData st = (ScheduledTaskData) o;
 				return (st.toExecute.equals( toExecute )
-						&& st.executor.equals( executor )
+						&& ((st.executor == null) ? (executor == null)
+								: st.executor.equals( executor ))
 						&& st.executionInstantPolicy
-								.equals( executionInstantPolicy ) && st.executorMatchPolicy
-						.equals( executionInstantPolicy ));
+								.equals( executionInstantPolicy )
+						&& st.executorMatchPolicy.equals( executorMatchPolicy )
+						&& (st.time == time) && (st.unit == unit));
 			}
 
 		}
+
+		@Override
+		public int hashCode() {
+			return toExecute.hashCode();
+		}
+	}
+
+	/**
+	 * A timer bound to a task and to the agent proxy holding the role the task
+	 * belongs to. When the timer fires the task is handed off to the executor;
+	 * a periodic timer rearms itself until it is cancelled.
+	 */
+	class RoleBoundTimer implements Runnable {
+
+		/**
+		 * The task this timer executes.
+		 */
+		private final ScheduledTaskData	scheduledTaskData;
+
+		/**
+		 * The agent proxy holding the role.
+		 */
+		private final AgentProxyID		proxyID;
+
+		/**
+		 * The period in nanoseconds, zero for a one shot timer.
+		 */
+		private final long				period;
+
+		/**
+		 * The current timeout of the wheel.
+		 */
+		private volatile ITimeout		timeout		= null;
+
+		/**
+		 * Indicates if this timer has been cancelled.
+		 */
+		private volatile boolean		cancelled	= false;
+
+		/**
+		 * Indicates if this timer has been accounted as stopped.
+		 */
+		private final AtomicBoolean		stopped		= new AtomicBoolean();
+
+		RoleBoundTimer(final ScheduledTaskData scheduledTaskData,
+						final AgentProxyID proxyID, final long period) {
+			super();
+			this.scheduledTaskData = scheduledTaskData;
+			this.proxyID = proxyID;
+			this.period = period;
+		}
+
+		/**
+		 * Arms the timer to fire after the specified delay.
+		 * 
+		 * @param delay
+		 *            the delay in nanoseconds
+		 */
+		final void arm(final long delay) {
+			timeout = getTimer().newTimeout( this, delay, TimeUnit.NANOSECONDS );
+			// the timer could have been cancelled while arming
+			if (cancelled)
+				timeout.cancel();
+		}
+
+		/**
+		 * Cancels this timer, so that the task will not be executed anymore.
+		 */
+		final void cancel() {
+			cancelled = true;
+			final ITimeout current = timeout;
+			if (current != null)
+				current.cancel();
+			stop();
+		}
+
+		/**
+		 * Accounts this timer as stopped, only once.
+		 */
+		private final void stop() {
+			if (stopped.compareAndSet( false, true ))
+				RoleEngineMetrics.getInstance().timerStopped();
+		}
+
+		public void run() {
+			if (cancelled)
+				return;
+
+			// a periodic task is rearmed, while a one shot timer is no more
+			// bound to the proxy
+			if (period > 0)
+				arm( period );
+			else{
+				synchronized (TaskSchedulerImpl.this){
+					if (scheduledTaskData.timers.get( proxyID ) == this)
+						scheduledTaskData.timers.remove( proxyID );
+				}
+				stop();
+			}
+
+			try{
+				execute( scheduledTaskData );
+			}catch (final WCException e){
+				logger.error( "Cannot execute a timed task ", e );
+			}
+		}
 	}
 
 	/**
@@ -98,11 +236,56 @@ public class TaskSchedulerImpl implements ITaskScheduler, EventListener {
 	private static Logger							logger			= org.apache.log4j.Logger
 																			.getLogger( ITaskScheduler.class );
 
-	// configure the logger
-	static{
-		DOMConfigurator.configure( "whitecat.log4j.xml" );
+	/**
+	 * The executor service shared by all the schedulers that have not been
+	 * configured with a specific one. It is lazily created.
+	 */
+	private static ExecutorService					defaultTaskExecutor	= null;
+
+	/**
+	 * Provides the default executor service, creating it if it does not exist
+	 * yet. The executor is a cached thread pool of daemon threads, so that
+	 * pending tasks do not prevent the virtual machine from exiting.
+	 * 
+	 * @return the shared default executor service
+	 */
+	private static synchronized final ExecutorService getDefaultTaskExecutor() {
+		if (defaultTaskExecutor == null)
+			defaultTaskExecutor = Executors
+					.newCachedThreadPool( new DaemonThreadFactory(
+							"whitecat-task-" ) );
+
+		return defaultTaskExecutor;
+	}
+
+	/**
+	 * The timer shared by all the schedulers that have not been configured with
+	 * a specific one. It is lazily created.
+	 */
+	private static HashedWheelTimer					defaultTimer		= null;
+
+	/**
+	 * Provides the default timer, creating it if it does not exist yet.
+	 * 
+	 * @return the shared default timer
+	 */
+	private static synchronized final HashedWheelTimer getDefaultTimer() {
+		if (defaultTimer == null)
+			defaultTimer = new HashedWheelTimer();
+
+		return defaultTimer;
 	}
 
+	/**
+	 * The executor service used to run the tasks once their event happens.
+	 */
+	private ExecutorService							taskExecutor	= getDefaultTaskExecutor();
+
+	/**
+	 * The timer used for the time based tasks.
+	 */
+	private HashedWheelTimer						timer			= null;
+
 	/**
 	 * A role descriptor contains a set of tasks, but here we need to find a
 	 * role descriptor by the task, so we keep a map of role descriptors and
@@ -128,6 +311,12 @@ public class TaskSchedulerImpl implements ITaskScheduler, EventListener {
 	 * utility method that contains the logic to exeucte a single task. It
 	 * requires that the task data and its main fields are not null!
 	 * 
+	 * The task is submitted to the task executor, so this method returns
+	 * immediately; once the task completes its result is placed into the task
+	 * execution result of the scheduled data, while if the task fails the
+	 * failure is reported to the execution result so that waiting callers are
+	 * released.
+	 * 
 	 * @param scheduledTaskData
 	 *            the data of the task to execute
 	 */
@@ -137,8 +326,210 @@ public class TaskSchedulerImpl implements ITaskScheduler, EventListener {
 		assert (scheduledTaskData.result != null);
 		assert (scheduledTaskData.toExecute != null);
 
-		// executed the task and place the result
-		scheduledTaskData.result = scheduledTaskData.toExecute.execute();
+		final IRoleTask toExecute = scheduledTaskData.toExecute;
+		final ITaskExecutionResult result = scheduledTaskData.result;
+
+		try{
+			taskExecutor.execute( new Runnable() {
+
+				public void run() {
+					try{
+						// execute the task and place the result
+						final ITaskExecutionResult taskResult = toExecute
+								.execute();
+						complete( result, taskResult );
+						RoleEngineMetrics.getInstance().taskExecuted( true );
+
+					}catch (final WCException e){
+						logger.error(
+								"Something bad happened while executing a task ",
+								e );
+						RoleEngineMetrics.getInstance().taskExecuted( false );
+						fail( result, e );
+					}catch (final RuntimeException e){
+						logger.error(
+								"Unexpected error while executing a task ", e );
+						RoleEngineMetrics.getInstance().taskExecuted( false );
+						fail( result, e );
+					}
+				}
+			} );
+		}catch (final RejectedExecutionException e){
+			RoleEngineMetrics.getInstance().taskExecuted( false );
+			fail( result, e );
+			throw new WCException( "Cannot submit the task for the execution",
+					e );
+		}
+	}
+
+	/**
+	 * Cancels all the timers of a task.
+	 * 
+	 * @param scheduledTaskData
+	 *            the task data
+	 */
+	private final void cancelTimers(final ScheduledTaskData scheduledTaskData) {
+		for (final RoleBoundTimer roleBoundTimer : scheduledTaskData.timers
+				.values())
+			roleBoundTimer.cancel();
+
+		scheduledTaskData.timers.clear();
+	}
+
+	/**
+	 * Starts the timer of a time based task for the specified agent proxy,
+	 * unless a timer is already running for it.
+	 * 
+	 * @param scheduledTaskData
+	 *            the data of the task to execute
+	 * @param proxyID
+	 *            the agent proxy that has assumed the role
+	 */
+	private final void startTimer(	final ScheduledTaskData scheduledTaskData,
+									final AgentProxyID proxyID) {
+		if (scheduledTaskData.timers.containsKey( proxyID ))
+			return;
+
+		long delay = 0;
+		long period = 0;
+		switch (scheduledTaskData.executionInstantPolicy){
+			case SCHEDULE_AFTER_ROLE_ASSUMPTION:
+				delay = scheduledTaskData.unit.toNanos( scheduledTaskData.time );
+				break;
+			case SCHEDULE_PERIODICALLY_WHILE_ROLE_HELD:
+				delay = period = scheduledTaskData.unit
+						.toNanos( scheduledTaskData.time );
+				break;
+			default:
+				// the deadline is absolute, if it is already expired the task
+				// cannot be executed anymore
+				final long millis = scheduledTaskData.unit
+						.toMillis( scheduledTaskData.time )
+						- System.currentTimeMillis();
+				if (millis < 0)
+					return;
+				delay = TimeUnit.MILLISECONDS.toNanos( millis );
+		}
+
+		final RoleBoundTimer roleBoundTimer = new RoleBoundTimer(
+				scheduledTaskData, proxyID, period );
+		scheduledTaskData.timers.put( proxyID, roleBoundTimer );
+		RoleEngineMetrics.getInstance().timerStarted();
+		roleBoundTimer.arm( delay );
+	}
+
+	/**
+	 * Places the outcome of a task execution into the execution result
+	 * provided at the scheduling time. Only the first execution is reported:
+	 * the following ones (e.g., the firings of a periodic task) find the
+	 * result already completed and are discarded.
+	 * 
+	 * A task without an execution result completes the result without a
+	 * value. A future result is forwarded once it completes, while a plain
+	 * result cannot notify its completion and is therefore waited for (it is
+	 * already available for the tasks that complete before returning it).
+	 * 
+	 * @param result
+	 *            the execution result of the schedule
+	 * @param taskResult
+	 *            the execution result returned by the task, can be null
+	 * @throws WCException
+	 *             if the task result cannot be read
+	 */
+	private static final void complete(	final ITaskExecutionResult result,
+										final ITaskExecutionResult taskResult)
+																				throws WCException {
+		if (result.isResultAvailable()){
+			if (logger.isDebugEnabled())
+				logger.debug( "Discarding the result of a task already reported" );
+		}else if (taskResult == null)
+			result.setResult( null );
+		else if (taskResult instanceof IFutureTaskExecutionResult)
+			((IFutureTaskExecutionResult) taskResult)
+					.addCompletionListener( new ITaskCompletionListener() {
+
+						public void taskCompleted(final IFutureTaskExecutionResult completed) {
+							if (completed.isCancelled())
+								result.cancel();
+							else if (completed.isCompletedExceptionally())
+								fail( result, completed.getException() );
+							else try{
+								result.setResult( completed
+										.getTaskResult( false ) );
+							}catch (final WCException e){
+								fail( result, e );
+							}
+						}
+					} );
+		else{
+			final Object value = taskResult.getTaskResult( true );
+			if ((taskResult instanceof TaskExecutionResultImpl)
+					&& ((TaskExecutionResultImpl) taskResult).isCancelled())
+				result.cancel();
+			else result.setResult( value );
+		}
+	}
+
+	/**
+	 * Reports the failure of a task to its execution result: a future result
+	 * gets the exception, while a plain one can only be cancelled.
+	 * 
+	 * @param result
+	 *            the task execution result
+	 * @param cause
+	 *            the failure
+	 */
+	private static final void fail(final ITaskExecutionResult result,
+									final Throwable cause) {
+		if (result instanceof IFutureTaskExecutionResult)
+			((IFutureTaskExecutionResult) result).setException( cause );
+		else result.cancel();
+	}
+
+	/**
+	 * Provides the executor service this scheduler runs the tasks on.
+	 * 
+	 * @return the task executor
+	 */
+	public final synchronized ExecutorService getTaskExecutor() {
+		return taskExecutor;
+	}
+
+	/**
+	 * Sets the executor service this scheduler will run the tasks on. The
+	 * executor is not shut down by the scheduler, its lifecycle is up to the
+	 * caller.
+	 * 
+	 * @param taskExecutor
+	 *            the executor to use, or null to use the default shared one
+	 */
+	public final synchronized void setTaskExecutor(final ExecutorService taskExecutor) {
+		if (taskExecutor == null)
+			this.taskExecutor = getDefaultTaskExecutor();
+		else this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Provides the timer this scheduler uses for the time based tasks.
+	 * 
+	 * @return the timer
+	 */
+	public final synchronized HashedWheelTimer getTimer() {
+		if (timer == null)
+			timer = getDefaultTimer();
+
+		return timer;
+	}
+
+	/**
+	 * Sets the timer this scheduler will use for the time based tasks. The
+	 * timer is not stopped by the scheduler, its lifecycle is up to the caller.
+	 * 
+	 * @param timer
+	 *            the timer to use, or null to use the default shared one
+	 */
+	public final synchronized void setTimer(final HashedWheelTimer timer) {
+		this.timer = timer;
 	}
 
 	public synchronized void handleEvent(final Event event) {
@@ -191,8 +582,22 @@ public class TaskSchedulerImpl implements ITaskScheduler, EventListener {
 						){
 							// execute the task for this event
 							execute( scheduledTaskData );
+						}else if (eType.equals( EventType.PUBLIC_ROLE_ADDED )
+								&& scheduledTaskData.executionInstantPolicy
+										.isTimeBased()){
+							// start the timer bound to the role
+							startTimer( scheduledTaskData, srcProxyID );
 						}
 					}
+
+					// the role is being released, so any timer bound to it
+					// must not fire anymore
+					if (eType.equals( EventType.PUBLIC_ROLE_REMOVING )){
+						final RoleBoundTimer roleBoundTimer = scheduledTaskData.timers
+								.remove( srcProxyID );
+						if (roleBoundTimer != null)
+							roleBoundTimer.cancel();
+					}
 				}
 			}
 		}catch (final WCException e){
@@ -226,8 +631,17 @@ public class TaskSchedulerImpl implements ITaskScheduler, EventListener {
 		singleTask.executor = executor;
 		singleTask.result = result;
 
-		if (scheduledTasks.containsKey( singleTask )){
-			scheduledTasks.remove( singleTask );
+		final ScheduledTaskData current = scheduledTasks.get( toExecute );
+		if ((current != null)
+				&& current.toExecute.equals( singleTask.toExecute )
+				&& ((current.executor == null) ? (executor == null)
+						: current.executor.equals( executor ))
+				&& current.executorMatchPolicy.equals( executorMatchPolicy )
+				&& current.executionInstantPolicy
+						.equals( executionInstantPolicy )){
+			scheduledTasks.remove( toExecute );
+			RoleEngineMetrics.getInstance().taskUnscheduled();
+			cancelTimers( current );
 			return true;
 		}else return false;
 	}
@@ -248,6 +662,45 @@ public class TaskSchedulerImpl implements ITaskScheduler, EventListener {
 													final TaskSchedulingInstant executionInstantPolicy,
 													final ITaskExecutionResult result)
 																						throws WCSchedulingException {
+		if ((executionInstantPolicy != null)
+				&& executionInstantPolicy.isTimeBased())
+			throw new WCSchedulingException( "The execution instant "
+					+ executionInstantPolicy + " requires a time" );
+
+		return scheduleTask( toExecute, executor, executorMatchPolicy,
+				executionInstantPolicy, 0, null, result );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * whitecat.core.role.task.scheduling.ITaskScheduler#scheduleTask(whitecat
+	 * .core.role.task.IRoleTask, whitecat.core.agents.AgentProxyID,
+	 * whitecat.core.role.task.scheduling.TaskSchedulingExecutor,
+	 * whitecat.core.role.task.scheduling.TaskSchedulingInstant, long,
+	 * java.util.concurrent.TimeUnit,
+	 * whitecat.core.role.task.ITaskExecutionResult)
+	 */
+	public final synchronized boolean scheduleTask(	final IRoleTask toExecute,
+													final AgentProxyID executor,
+													final TaskSchedulingExecutor executorMatchPolicy,
+													final TaskSchedulingInstant executionInstantPolicy,
+													final long time,
+													final TimeUnit unit,
+													final ITaskExecutionResult result)
+																						throws WCSchedulingException {
+		// check arguments
+		if ((toExecute == null) || (executorMatchPolicy == null)
+				|| (executionInstantPolicy == null) || (result == null))
+			throw new WCSchedulingException(
+					"Cannot schedule a task without its execution data" );
+		if (executionInstantPolicy.isTimeBased()
+				&& ((unit == null) || (time < 0) || ((time == 0) && executionInstantPolicy
+						.equals( TaskSchedulingInstant.SCHEDULE_PERIODICALLY_WHILE_ROLE_HELD ))))
+			throw new WCSchedulingException( "Invalid time for the execution instant "
+					+ executionInstantPolicy );
+
 		// build a scheduled task object
 		final ScheduledTaskData singleTask = new ScheduledTaskData();
 		singleTask.toExecute = toExecute;
@@ -255,12 +708,23 @@ public class TaskSchedulerImpl implements ITaskScheduler, EventListener {
 		singleTask.executorMatchPolicy = executorMatchPolicy;
 		singleTask.executor = executor;
 		singleTask.result = result;
+		if (executionInstantPolicy.isTimeBased()){
+			singleTask.time = time;
+			singleTask.unit = unit;
+		}
 
 		// if this task has been already scheduled, do not add it again
 		if (scheduledTasks.containsValue( singleTask ))
 			return false;
 		else{
-			scheduledTasks.put( toExecute, singleTask );
+			// a task replacing a previous schedule must not leave its timers
+			// running
+			final ScheduledTaskData previous = scheduledTasks.put( toExecute,
+					singleTask );
+			if (previous != null)
+				cancelTimers( previous );
+			else RoleEngineMetrics.getInstance().taskScheduled();
+
 			return true;
 		}
 	}
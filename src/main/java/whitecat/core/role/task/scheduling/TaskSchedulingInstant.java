@@ -42,6 +42,12 @@ package whitecat.core.role.task.scheduling;
  * Defines when a task must be scheduled for execution. The time for the
  * execution depends on when a role is assumed or released.
  * 
+ * The time based instants require a time to be specified at the scheduling
+ * (see
+ * {@link ITaskScheduler#scheduleTask(whitecat.core.role.task.IRoleTask, whitecat.core.agents.AgentProxyID, TaskSchedulingExecutor, TaskSchedulingInstant, long, java.util.concurrent.TimeUnit, whitecat.core.role.task.ITaskExecutionResult)}
+ * ), and their timers are always bound to the role: if the role is released
+ * before the timer expires, the task is not executed.
+ * 
  * @author Luca Ferrari - fluca1978 (at) gmail.com
  * 
  */
@@ -49,7 +55,28 @@ public enum TaskSchedulingInstant {
 
 	SCHEDULE_AT_ROLE_ASSUMPTION, // the task must be executed when the role is
 									// assumed
-	SCHEDULE_AT_ROLE_RELEASE
-	// the task must be executed when the role is released
+	SCHEDULE_AT_ROLE_RELEASE, // the task must be executed when the role is
+								// released
+	SCHEDULE_AFTER_ROLE_ASSUMPTION, // the task must be executed once, after a
+									// fixed delay from the role assumption
+	SCHEDULE_PERIODICALLY_WHILE_ROLE_HELD, // the task must be executed
+											// periodically, as long as the role
+											// is held (only the result of the
+											// first execution is reported)
+	SCHEDULE_AT_DEADLINE;
+	// the task must be executed at an absolute instant, if the role is held at
+	// that time
+
+	/**
+	 * Notifies if this instant requires a time to be specified, and is
+	 * therefore handled by a timer.
+	 * 
+	 * @return true if this is a time based instant
+	 */
+	public boolean isTimeBased() {
+		return (this == SCHEDULE_AFTER_ROLE_ASSUMPTION)
+				|| (this == SCHEDULE_PERIODICALLY_WHILE_ROLE_HELD)
+				|| (this == SCHEDULE_AT_DEADLINE);
+	}
 
 }
@@ -40,6 +40,7 @@ package whitecat.example;
 
 import whitecat.core.annotations.PUBLICROLE;
 import whitecat.core.annotations.ROLE;
+import whitecat.core.annotations.RoleScope;
 
 /**
  * An example of logger role.
@@ -49,8 +50,9 @@ import whitecat.core.annotations.ROLE;
  */
 @ROLE()
 // here I specify the part of the role that can be visible
-// to outsider and that will be applied to the proxy
-@PUBLICROLE(roleInterface = "whitecat.example.ILogger", roleAnnotation = "whitecat.example.DBRoleAnnotation")
+// to outsider and that will be applied to the proxy; the role is stateless,
+// so a single instance is shared by all the agents
+@PUBLICROLE(roleInterface = "whitecat.example.ILogger", roleAnnotation = "whitecat.example.DBRoleAnnotation", scope = RoleScope.SINGLETON)
 public class LoggerRole implements ILogger {
 
 	public boolean log(final String msg) {
@@ -40,7 +40,10 @@ package whitecat.test;
 
 import static org.junit.Assert.fail;
 
+import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -142,6 +145,100 @@ public class AnnotationRoleDescriptorBuilderTest {
 
 	}
 
+	@Test
+	public void testTemplateCache() {
+		final IRoleDescriptorBuilder builder = WhiteCat
+				.getRoleDescriptorBuilder();
+		final IRole role1 = new AnnotatedRoleExample();
+		final IRole role2 = new AnnotatedRoleExample();
+
+		final RoleDescriptor desc1 = builder.buildRoleDescriptor( role1 );
+		final RoleDescriptor desc2 = WhiteCat.getRoleDescriptorBuilder()
+				.buildRoleDescriptor( role2 );
+		if (!desc1.equals( desc2 ))
+			fail( "The descriptors of the same class are different!" );
+
+		// the task descriptors are shared, the executors are not
+		for (final IRoleTask task1 : desc1.getTasks()){
+			final MethodTaskExecutor executor1 = (MethodTaskExecutor) task1;
+			if (executor1.getExecutingRole() != role1)
+				fail( "The task is bound to the wrong role!" );
+
+			boolean found = false;
+			for (final IRoleTask task2 : desc2.getTasks()){
+				final MethodTaskExecutor executor2 = (MethodTaskExecutor) task2;
+				if (!executor2.getMethodToExecute().equals(
+						executor1.getMethodToExecute() ))
+					continue;
+
+				found = true;
+				if (executor2.getExecutingRole() != role2)
+					fail( "The task is bound to the wrong role!" );
+				if (desc1.getTaskDescriptor( task1 ) != desc2
+						.getTaskDescriptor( task2 ))
+					fail( "The task descriptor has not been shared!" );
+				if (executor1.getSubTasks().size() != executor2.getSubTasks()
+						.size())
+					fail( "The subtasks have not been linked the same way!" );
+			}
+
+			if (!found)
+				fail( "The task is missing in the second descriptor!" );
+		}
+	}
+
+	@Test
+	public void testImmutableDescriptors() {
+		final IRole role = new AnnotatedRoleExample();
+		final RoleDescriptor desc = WhiteCat.getRoleDescriptorBuilder()
+				.buildRoleDescriptor( role );
+
+		// the built descriptors must be frozen
+		if (!desc.isImmutable())
+			fail( "The role descriptor is not immutable!" );
+
+		for (final TaskDescriptor td : desc.getTaskDescriptors()){
+			if (!td.isImmutable())
+				fail( "The task descriptor is not immutable!" );
+
+			// a frozen task descriptor cannot get new events
+			try{
+				td.addEventDescriptor( EventDescriptor.getInstance(
+						"name",
+						"aim",
+						true,
+						false ) );
+				fail( "Changed an immutable task descriptor!" );
+			}catch (final IllegalStateException e){
+				// ok
+			}
+		}
+
+		// the event descriptors are frozen too
+		for (final EventDescriptor event : desc.getAllEventDescriptors())
+			if (!event.isImmutable())
+				fail( "The event descriptor is not immutable!" );
+
+		// an immutable descriptor is equal to a mutable one with the same
+		// properties
+		final Set<String> keywords = new HashSet<String>();
+		final List<Class> parameters = new LinkedList<Class>();
+		parameters.add( Integer.class );
+		final TaskDescriptor mutable = TaskDescriptor.getInstance(
+				"Name",
+				"Aim",
+				keywords,
+				String.class,
+				parameters );
+		final TaskDescriptor frozen = TaskDescriptor.newBuilder()
+				.withName( "Name" ).withAim( "Aim" ).withKeywords( keywords )
+				.withReturnType( String.class ).withParameters( parameters )
+				.build();
+		if (!frozen.equals( mutable ) || !mutable.equals( frozen )
+				|| (frozen.hashCode() != mutable.hashCode()))
+			fail( "The immutable descriptor is different from the mutable one" );
+	}
+
 	@Test
 	public void testRoleRepository() throws WCRoleRepositoryException {
 		// get the role
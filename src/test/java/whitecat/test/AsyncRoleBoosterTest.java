@@ -0,0 +1,248 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.test;
+
+import static org.junit.Assert.fail;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import whitecat.core.AsyncRoleBooster;
+import whitecat.core.IRoleOperationFuture;
+import whitecat.core.InPlaceRoleBooster;
+import whitecat.core.RoleBooster;
+import whitecat.core.RoleOperationStatus;
+import whitecat.core.WCException;
+import whitecat.core.WhiteCat;
+import whitecat.core.agents.AgentProxy;
+import whitecat.core.agents.WCAgent;
+import whitecat.core.role.IRole;
+import whitecat.example.DBAgent;
+import whitecat.example.DBProxy;
+import whitecat.example.DatabaseAdministrator;
+import whitecat.example.LoggerRole;
+
+/**
+ * Tests the queued role operations of the asynchronous role booster.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public class AsyncRoleBoosterTest {
+
+	/**
+	 * Creates an asynchronous role booster that injects the roles in place.
+	 * 
+	 * @return the asynchronous role booster
+	 */
+	private AsyncRoleBooster createAsyncRoleBooster() {
+		final InPlaceRoleBooster booster = new InPlaceRoleBooster();
+		booster.setRoleBooster( (RoleBooster) WhiteCat.getRoleBooster() );
+
+		final AsyncRoleBooster asyncBooster = new AsyncRoleBooster();
+		asyncBooster.setRoleBooster( booster );
+		return asyncBooster;
+	}
+
+	@Test
+	public void testFailedOperation() throws InterruptedException,
+										TimeoutException {
+		final AsyncRoleBooster asyncBooster = createAsyncRoleBooster();
+		final DBProxy proxy = new DBProxy( new DBAgent() );
+
+		// a removal without the agent cannot be done
+		final IRoleOperationFuture future = asyncBooster.removePublicRole(
+				null,
+				proxy,
+				new LoggerRole() );
+		try{
+			if (future.get( 10, TimeUnit.SECONDS ) != null)
+				fail( "The operation has provided a proxy!" );
+		}catch (final ExecutionException e){
+			// ok, the failure is reported thru the future
+		}
+
+		if (future.getOperationStatus() != RoleOperationStatus.ROLE_OPERATION_COMPLETED_FAILURE)
+			fail( "The operation has not failed!" );
+	}
+
+	@Test
+	public void testOrderedOperations() throws InterruptedException,
+										ExecutionException, TimeoutException {
+		final AsyncRoleBooster asyncBooster = createAsyncRoleBooster();
+		final DBAgent agent = new DBAgent();
+		final DBProxy proxy = new DBProxy( agent );
+
+		final DatabaseAdministrator administrator = new DatabaseAdministrator();
+		final IRoleOperationFuture first = asyncBooster.injectPublicRole(
+				agent,
+				proxy,
+				administrator );
+		final IRoleOperationFuture second = asyncBooster.injectPublicRole(
+				agent,
+				proxy,
+				new LoggerRole() );
+		final IRoleOperationFuture last = asyncBooster.removeUntilRole(
+				agent,
+				proxy,
+				administrator );
+
+		// the removal can be completed only after both the injections
+		if (last.get( 10, TimeUnit.SECONDS ) != proxy)
+			fail( "The proxy has been replaced!" );
+		if (!first.isDone() || !second.isDone())
+			fail( "The operations have not been completed in order!" );
+		if ((first.getOperationStatus() != RoleOperationStatus.ROLE_OPERATION_COMPLETED_SUCCESFUL)
+				|| (second.getOperationStatus() != RoleOperationStatus.ROLE_OPERATION_COMPLETED_SUCCESFUL)
+				|| (last.getOperationStatus() != RoleOperationStatus.ROLE_OPERATION_COMPLETED_SUCCESFUL))
+			fail( "The operations have not been completed with success!" );
+		if (proxy.getDispatchTable().size() != 0)
+			fail( "The roles have not been removed!" );
+		if (!proxy.getAgentProxyID().equals( last.getAgentProxyID() ))
+			fail( "Wrong agent proxy id for the operation!" );
+	}
+
+	@Test
+	public void testOperationAfterRetiredQueue() throws InterruptedException,
+												ExecutionException,
+												TimeoutException {
+		// an in place role booster that replaces the proxy at each injection,
+		// keeping track of the proxies it has been asked to manipulate
+		final List<AgentProxy> manipulated = new LinkedList<AgentProxy>();
+		final InPlaceRoleBooster booster = new InPlaceRoleBooster() {
+
+			@Override
+			public AgentProxy injectPublicRole(	final WCAgent agent,
+												final AgentProxy proxy,
+												final IRole role)
+																	throws WCException {
+				manipulated.add( proxy );
+				super.injectPublicRole( agent, proxy, role );
+				final DBProxy replaced = new DBProxy();
+				replaced.initializeByCopy( proxy );
+				return replaced;
+			}
+		};
+		booster.setRoleBooster( (RoleBooster) WhiteCat.getRoleBooster() );
+		final AsyncRoleBooster asyncBooster = new AsyncRoleBooster();
+		asyncBooster.setRoleBooster( booster );
+
+		final DBAgent agent = new DBAgent();
+		final DBProxy proxy = new DBProxy( agent );
+		final AgentProxy first = asyncBooster.injectPublicRole(
+				agent,
+				proxy,
+				new DatabaseAdministrator() ).get( 10, TimeUnit.SECONDS );
+		if ((first == proxy)
+				|| !proxy.getAgentProxyID().equals( first.getAgentProxyID() ))
+			fail( "The proxy has not been replaced!" );
+
+		// wait for the queue of the proxy to be retired
+		for (int i = 0; (i < 100) && (asyncBooster.getPendingAgentProxies() > 0); i++)
+			Thread.sleep( 50 );
+		if (asyncBooster.getPendingAgentProxies() != 0)
+			fail( "The queue has not been retired!" );
+
+		// the caller still has the old proxy, but the operation must be
+		// applied to the last stored one
+		final AgentProxy last = asyncBooster.injectPublicRole(
+				agent,
+				proxy,
+				new LoggerRole() ).get( 10, TimeUnit.SECONDS );
+		if ((manipulated.size() != 2) || (manipulated.get( 0 ) != proxy)
+				|| (manipulated.get( 1 ) != first))
+			fail( "The operation has not been applied to the last proxy!" );
+		if ((last == first) || (proxy.update() != last))
+			fail( "The last proxy has not been stored!" );
+		if (((DBProxy) last).getDispatchTable().size() != 2)
+			fail( "The roles have not been injected in the last proxy!" );
+	}
+
+	@Test
+	public void testQueuedOperation() throws InterruptedException,
+										ExecutionException, TimeoutException {
+		final AsyncRoleBooster asyncBooster = createAsyncRoleBooster();
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		asyncBooster.setManipulationExecutor( executor );
+
+		try{
+			// keep the only manipulation thread busy
+			final CountDownLatch latch = new CountDownLatch( 1 );
+			executor.execute( new Runnable() {
+
+				public void run() {
+					try{
+						latch.await();
+					}catch (final InterruptedException e){
+						// exit
+					}
+				}
+			} );
+
+			final DBAgent agent = new DBAgent();
+			final DBProxy proxy = new DBProxy( agent );
+			final IRoleOperationFuture future = asyncBooster.injectPublicRole(
+					agent,
+					proxy,
+					new LoggerRole() );
+			if ((future.getOperationStatus() != RoleOperationStatus.ROLE_OPERATION_QUEUED)
+					|| future.isDone())
+				fail( "The operation has not been queued!" );
+			if (asyncBooster.getPendingAgentProxies() != 1)
+				fail( "The agent proxy is not pending!" );
+
+			latch.countDown();
+			final AgentProxy injected = future.get( 10, TimeUnit.SECONDS );
+			if ((injected != proxy) || (proxy.getDispatchTable().size() != 1))
+				fail( "The queued operation has not been performed!" );
+			if (future.getOperationStatus() != RoleOperationStatus.ROLE_OPERATION_COMPLETED_SUCCESFUL)
+				fail( "The operation has not been completed with success!" );
+		}finally{
+			executor.shutdownNow();
+		}
+	}
+}
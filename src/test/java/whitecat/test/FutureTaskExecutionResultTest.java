@@ -0,0 +1,196 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.test;
+
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import whitecat.core.WCException;
+import whitecat.core.WhiteCat;
+import whitecat.core.role.task.IFutureTaskExecutionResult;
+import whitecat.core.role.task.ITaskCompletionListener;
+import whitecat.core.role.task.ITaskExecutionResult;
+import whitecat.core.role.task.ITaskResultTransformer;
+
+/**
+ * A test for the future task execution result.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public class FutureTaskExecutionResultTest {
+
+	/**
+	 * Provides a new future result from the configuration.
+	 * 
+	 * @return the future result
+	 */
+	private IFutureTaskExecutionResult getFutureResult() {
+		final ITaskExecutionResult result = WhiteCat.getTaskExecutionResult();
+		if (!(result instanceof IFutureTaskExecutionResult))
+			fail( "The default task execution result is not a future!" );
+
+		return (IFutureTaskExecutionResult) result;
+	}
+
+	@Test
+	public void testCompletionListeners() throws Exception {
+		final IFutureTaskExecutionResult result = getFutureResult();
+		final AtomicInteger notified = new AtomicInteger();
+		final ITaskCompletionListener listener = new ITaskCompletionListener() {
+
+			public void taskCompleted(final IFutureTaskExecutionResult completed) {
+				if (!completed.isDone())
+					fail( "Notified a task not completed!" );
+				notified.incrementAndGet();
+			}
+		};
+
+		// a listener added before the completion is notified at the completion
+		result.addCompletionListener( listener );
+		if (notified.get() != 0)
+			fail( "Listener notified before the completion!" );
+
+		// the transformation is applied once the result is available
+		final IFutureTaskExecutionResult transformed = result
+				.thenApply( new ITaskResultTransformer() {
+
+					public Object transform(final Object value) {
+						return value + "-transformed";
+					}
+				} );
+		if (transformed.isDone())
+			fail( "The transformed result is done before the original one!" );
+
+		result.setResult( "value" );
+		if (notified.get() != 1)
+			fail( "Listener not notified at the completion!" );
+		if (!"value-transformed".equals( transformed.get( 1, TimeUnit.SECONDS ) ))
+			fail( "Wrong transformed result!" );
+
+		// a listener added after the completion is notified immediately
+		result.addCompletionListener( listener );
+		if (notified.get() != 2)
+			fail( "Listener not notified on a completed result!" );
+	}
+
+	@Test
+	public void testExceptionPropagation() throws InterruptedException {
+		final IFutureTaskExecutionResult result = getFutureResult();
+		final IFutureTaskExecutionResult transformed = result
+				.thenApply( new ITaskResultTransformer() {
+
+					public Object transform(final Object value) {
+						fail( "Transformation applied to a failed result!" );
+						return value;
+					}
+				} );
+
+		result.setException( new WCException( "failure" ) );
+		if (!result.isCompletedExceptionally()
+				|| !transformed.isCompletedExceptionally())
+			fail( "The failure has not been propagated!" );
+
+		try{
+			result.getTaskResult( true );
+			fail( "The failure has not been thrown!" );
+		}catch (final WCException e){
+			if (!"failure".equals( e.getMessage() ))
+				fail( "Wrong exception thrown!" );
+		}
+
+		try{
+			transformed.get();
+			fail( "The failure has not been thrown by get()!" );
+		}catch (final ExecutionException e){
+			if (!(e.getCause() instanceof WCException))
+				fail( "Wrong cause for the execution exception!" );
+		}
+
+		// the result cannot be set anymore
+		if (result.setResult( "value" ))
+			fail( "Set the result of a failed task!" );
+	}
+
+	@Test
+	public void testNullResultAndTimeouts() throws Exception {
+		final IFutureTaskExecutionResult result = getFutureResult();
+
+		// nothing available yet
+		if (result.getTaskResult( 10 ) != null)
+			fail( "Got a result before it was set!" );
+		try{
+			result.get( 10, TimeUnit.MILLISECONDS );
+			fail( "No timeout waiting for the result!" );
+		}catch (final TimeoutException e){
+			// ok
+		}
+
+		// a null result (e.g., a void task) completes the task
+		if (!result.setResult( null ))
+			fail( "Cannot set a null result!" );
+		if (!result.isResultAvailable() || !result.isDone())
+			fail( "A null result has not completed the task!" );
+		if (result.get() != null)
+			fail( "Wrong null result!" );
+		if (result.setResult( "value" ))
+			fail( "Set the result twice!" );
+
+		// a cancelled task
+		final IFutureTaskExecutionResult cancelled = getFutureResult();
+		cancelled.cancel();
+		if (!cancelled.isCancelled() || !cancelled.isResultAvailable())
+			fail( "The task has not been cancelled!" );
+		if (cancelled.getTaskResult( true ) != null)
+			fail( "A cancelled task has a result!" );
+		try{
+			cancelled.get();
+			fail( "A cancelled task returned from get()!" );
+		}catch (final CancellationException e){
+			// ok
+		}
+	}
+}
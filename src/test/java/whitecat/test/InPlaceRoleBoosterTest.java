@@ -0,0 +1,154 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.test;
+
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import whitecat.core.InPlaceRoleBooster;
+import whitecat.core.RoleBooster;
+import whitecat.core.WCException;
+import whitecat.core.WhiteCat;
+import whitecat.core.agents.AgentProxy;
+import whitecat.example.DBAgent;
+import whitecat.example.DBProxy;
+import whitecat.example.DatabaseAdministrator;
+import whitecat.example.IDatabaseAdministrator;
+import whitecat.example.ILogger;
+import whitecat.example.LoggerRole;
+
+/**
+ * Tests the injection of public roles in place.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public class InPlaceRoleBoosterTest {
+
+	/**
+	 * Creates an in place role booster.
+	 * 
+	 * @return the role booster
+	 */
+	private InPlaceRoleBooster createRoleBooster() {
+		final InPlaceRoleBooster booster = new InPlaceRoleBooster();
+		booster.setRoleBooster( (RoleBooster) WhiteCat.getRoleBooster() );
+		return booster;
+	}
+
+	@Test
+	public void testInPlaceInjection() throws WCException {
+		final InPlaceRoleBooster booster = createRoleBooster();
+		final DBAgent agent = new DBAgent();
+		final DBProxy proxy = new DBProxy( agent );
+
+		// the view exists before the role is injected, but cannot be used
+		final ILogger logger = proxy.getRoleView( ILogger.class );
+		try{
+			logger.log( "not played yet" );
+			fail( "Used a role not injected yet!" );
+		}catch (final IllegalStateException e){
+			// ok
+		}
+
+		final LoggerRole role = new LoggerRole();
+		final AgentProxy injected = booster.injectPublicRole(
+				agent,
+				proxy,
+				role );
+		if (injected != proxy)
+			fail( "The proxy has been replaced!" );
+		if (!booster.hasPublicRoleInterface( proxy ))
+			fail( "The proxy does not play the injected role!" );
+		if (!logger.log( "played in place" ))
+			fail( "The view does not forward to the role!" );
+		if (proxy.getRoleView( ILogger.class ) != logger)
+			fail( "The view has not been kept!" );
+
+		final AgentProxy removed = booster.removePublicRole(
+				agent,
+				proxy,
+				role );
+		if (removed != proxy)
+			fail( "The proxy has been replaced on removal!" );
+		try{
+			logger.log( "not played anymore" );
+			fail( "Used a removed role!" );
+		}catch (final IllegalStateException e){
+			// ok
+		}
+	}
+
+	@Test
+	public void testDefaultRoleBooster() throws WCException {
+		// a booster not configured thru spring must be usable as is
+		final InPlaceRoleBooster booster = new InPlaceRoleBooster();
+		if (booster.getRoleBooster() == null)
+			fail( "No default class manipulating role booster!" );
+		booster.setCurrentRoleOperation( WhiteCat.getRoleBooster()
+				.getCurrentRoleOperation() );
+
+		final DBAgent agent = new DBAgent();
+		final DBProxy proxy = new DBProxy( agent );
+		booster.injectPublicRole( agent, proxy, new LoggerRole() );
+		if (!booster.hasPublicRoleInterface( proxy ))
+			fail( "The proxy does not play the injected role!" );
+	}
+
+	@Test
+	public void testRemoveUntilRole() throws WCException {
+		final InPlaceRoleBooster booster = createRoleBooster();
+		final DBAgent agent = new DBAgent();
+		final DBProxy proxy = new DBProxy( agent );
+
+		final DatabaseAdministrator administrator = new DatabaseAdministrator();
+		booster.injectPublicRole( agent, proxy, administrator );
+		booster.injectPublicRole( agent, proxy, new LoggerRole() );
+		if (proxy.getDispatchTable().size() != 2)
+			fail( "Roles not bound in the dispatch table!" );
+
+		// removing the first role removes also the following ones
+		booster.removeUntilRole( agent, proxy, administrator );
+		if ((proxy.getDispatchTable().size() != 0)
+				|| (proxy.getDispatchedRole( ILogger.class ) != null)
+				|| (proxy.getDispatchedRole( IDatabaseAdministrator.class ) != null))
+			fail( "Roles not removed from the dispatch table!" );
+	}
+}
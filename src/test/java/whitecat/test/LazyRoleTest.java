@@ -0,0 +1,117 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.test;
+
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import whitecat.core.WCException;
+import whitecat.core.agents.LocalAgentProxy;
+import whitecat.core.role.IRole;
+import whitecat.core.role.IRoleSupplier;
+import whitecat.core.role.LazyRole;
+import whitecat.example.DatabaseAdministrator;
+import whitecat.example.LoggerRole;
+
+/**
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public class LazyRoleTest {
+
+	@Test
+	public void testLazyCreation() throws WCException {
+		final AtomicInteger created = new AtomicInteger();
+		final LazyRole lazyRole = new LazyRole( DatabaseAdministrator.class,
+				new IRoleSupplier() {
+
+					public IRole createRole(final Class<? extends IRole> roleClass)
+																					throws WCException {
+						created.incrementAndGet();
+						return new DatabaseAdministrator();
+					}
+				} );
+
+		if (LazyRole.roleClassOf( lazyRole ) != DatabaseAdministrator.class)
+			fail( "Wrong class for the lazy role!" );
+
+		// bind the role to a proxy, as the booster does
+		final LocalAgentProxy proxy = new LocalAgentProxy();
+		proxy.addRoleImplementationReference( "key", lazyRole );
+		if (lazyRole.isMaterialized() || (created.get() != 0))
+			fail( "The role has been created before its first use!" );
+
+		// the first forwarded call creates the role, the next ones reuse it
+		final IRole role = proxy.getRoleImplementation( "key" );
+		if (!(role instanceof DatabaseAdministrator))
+			fail( "The role has not been created!" );
+		if ((proxy.getRoleImplementation( "key" ) != role)
+				|| (created.get() != 1))
+			fail( "The role has been created more than once!" );
+
+		if (proxy.getRoleImplementation( "missing" ) != null)
+			fail( "Found a role that has not been bound!" );
+	}
+
+	@Test
+	public void testPoolSupplier() throws WCException {
+		// without a supplier the role is acquired from the pool
+		final LazyRole lazyRole = new LazyRole( LoggerRole.class );
+		if (!(lazyRole.getRole() instanceof LoggerRole))
+			fail( "The role has not been acquired from the pool!" );
+
+		// a supplier creating the wrong role is reported
+		final LazyRole wrongRole = new LazyRole( LoggerRole.class,
+				new IRoleSupplier() {
+
+					public IRole createRole(final Class<? extends IRole> roleClass) {
+						return new DatabaseAdministrator();
+					}
+				} );
+		try{
+			wrongRole.getRole();
+			fail( "Created a role of the wrong class!" );
+		}catch (final WCException e){
+			// ok
+		}
+	}
+}
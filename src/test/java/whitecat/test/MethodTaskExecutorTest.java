@@ -0,0 +1,274 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.test;
+
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import whitecat.core.WCException;
+import whitecat.core.WhiteCat;
+import whitecat.core.role.IRole;
+import whitecat.core.role.descriptors.RoleDescriptor;
+import whitecat.core.role.descriptors.annotation.AnnotationRoleDescriptor;
+import whitecat.core.role.descriptors.annotation.AnnotationTaskDescriptor;
+import whitecat.core.role.impl.AnnotationRoleDescriptorBuilder;
+import whitecat.core.role.task.GeneratedTaskInvoker;
+import whitecat.core.role.task.IRoleTask;
+import whitecat.core.role.task.ITaskExecutionResult;
+import whitecat.core.role.task.ITaskInvoker;
+import whitecat.core.role.task.MethodTaskExecutor;
+import whitecat.core.role.task.TaskInvokerGenerator;
+import whitecat.example.AnnotatedRoleExample;
+
+/**
+ * A test for the execution of composite tasks.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public class MethodTaskExecutorTest {
+
+	/**
+	 * A role with a composite task made of slow independent subtasks.
+	 */
+	@AnnotationRoleDescriptor(aim = "Slow AIM", name = "Slow NAME")
+	public static class SlowRole implements IRole {
+
+		@AnnotationTaskDescriptor(name = "main", taskID = "main", parallelSubTasks = true)
+		public String mainTask() {
+			return "main";
+		}
+
+		private String slow(final String value) {
+			try{
+				Thread.sleep( 300 );
+			}catch (final InterruptedException e){
+				// nothing to do
+			}
+			return value;
+		}
+
+		@AnnotationTaskDescriptor(name = "sub1", taskID = "sub1", addToTaskID = "main")
+		public String subTask1() {
+			return slow( "sub1" );
+		}
+
+		@AnnotationTaskDescriptor(name = "sub2", taskID = "sub2", addToTaskID = "main")
+		public String subTask2() {
+			return slow( "sub2" );
+		}
+
+		@AnnotationTaskDescriptor(name = "sub3", taskID = "sub3", addToTaskID = "main")
+		public String subTask3() {
+			return slow( "sub3" );
+		}
+
+		@AnnotationTaskDescriptor(name = "sub4", taskID = "sub4", addToTaskID = "main")
+		public String subTask4() {
+			return slow( "sub4" );
+		}
+	}
+
+	/**
+	 * Checks the results of the composite task are in the right order.
+	 * 
+	 * @param result
+	 *            the result of the task execution
+	 * @throws WCException
+	 */
+	private void checkResults(final ITaskExecutionResult result)
+																throws WCException {
+		final Object[] returns = (Object[]) result.getTaskResult( true );
+		if (returns.length != 5)
+			fail( "Wrong number of results!" );
+		if (!"main".equals( returns[0] ))
+			fail( "The first result is not the main task one!" );
+
+		for (int i = 1; i < returns.length; i++)
+			if (!("sub" + i).equals( ((ITaskExecutionResult) returns[i])
+					.getTaskResult( true ) ))
+				fail( "The subtask results are not in order!" );
+	}
+
+	/**
+	 * Finds the main task of the slow role.
+	 * 
+	 * @return the main task
+	 */
+	private MethodTaskExecutor getMainTask() {
+		final RoleDescriptor descriptor = WhiteCat.getRoleDescriptorBuilder()
+				.buildRoleDescriptor( new SlowRole() );
+		for (final IRoleTask task : descriptor.getTasks())
+			if ("mainTask".equals( ((MethodTaskExecutor) task)
+					.getMethodToExecute().getName() ))
+				return (MethodTaskExecutor) task;
+
+		fail( "Cannot find the main task!" );
+		return null;
+	}
+
+	@Test
+	public void testParallelSubTasks() throws WCException {
+		final MethodTaskExecutor mainTask = getMainTask();
+		if (!mainTask.isParallelSubTasks())
+			fail( "The main task is not in parallel mode!" );
+
+		final long start = System.currentTimeMillis();
+		final ITaskExecutionResult result = mainTask.execute();
+		final long elapsed = System.currentTimeMillis() - start;
+		checkResults( result );
+
+		// the subtasks sleep 300 ms each, if they run in parallel the whole
+		// task takes less than the sum of them
+		if (elapsed >= 1200)
+			fail( "The subtasks have not been executed in parallel!" );
+	}
+
+	@Test
+	public void testBoundInvocation() throws WCException,
+										NoSuchMethodException {
+		final MethodTaskExecutor task = new MethodTaskExecutor();
+		task.setMethodToExecute( AnnotatedRoleExample.class.getMethod(
+				"exampleTask1", int.class ) );
+		task.setExecutingRole( new AnnotatedRoleExample() );
+		task.addTaskParameter( 10 );
+
+		if (!Integer.valueOf( 10 ).equals(
+				task.execute().getTaskResult( true ) ))
+			fail( "Wrong result from the task!" );
+		if (task.getTaskInvoker() == null)
+			fail( "The task has not been bound to an invoker!" );
+
+		// the invoker must see the new parameters
+		task.resetParameters();
+		task.addTaskParameter( 20 );
+		if (!Integer.valueOf( 20 ).equals(
+				task.execute().getTaskResult( true ) ))
+			fail( "The task has not used the new parameters!" );
+
+		// each execution gets its own arguments, even if an invoker changes
+		// them
+		final ITaskInvoker bound = task.getTaskInvoker();
+		task.setTaskInvoker( new ITaskInvoker() {
+
+			public Object invoke(final Object[] arguments) throws WCException {
+				final Object result = bound.invoke( arguments );
+				arguments[0] = Integer.valueOf( -1 );
+				return result;
+			}
+		} );
+		task.execute();
+		if (!Integer.valueOf( 20 ).equals(
+				task.execute().getTaskResult( true ) ))
+			fail( "An execution has changed the arguments of the others!" );
+		task.setTaskInvoker( bound );
+
+		// a wrong number of parameters must be reported
+		task.addTaskParameter( 30 );
+		try{
+			task.execute();
+			fail( "Executed a task with a wrong number of parameters!" );
+		}catch (final WCException e){
+			// ok
+		}
+	}
+
+	@Test
+	public void testGeneratedInvokers() throws WCException,
+										NoSuchMethodException {
+		final AnnotatedRoleExample role = new AnnotatedRoleExample();
+		final ITaskInvoker invoker = TaskInvokerGenerator.bind(
+				AnnotatedRoleExample.class.getMethod( "exampleTask1", int.class ),
+				role );
+		if (!(invoker instanceof GeneratedTaskInvoker))
+			fail( "The invoker has not been generated!" );
+
+		if (!Integer.valueOf( 41 ).equals(
+				invoker.invoke( new Object[] { 41 } ) ))
+			fail( "Wrong result from the generated invoker!" );
+
+		// wrong arguments must be reported
+		try{
+			invoker.invoke( new Object[] { "41" } );
+			fail( "Invoked a task with a wrong parameter type!" );
+		}catch (final WCException e){
+			// ok
+		}
+		try{
+			invoker.invoke( null );
+			fail( "Invoked a task with a wrong number of parameters!" );
+		}catch (final WCException e){
+			// ok
+		}
+
+		// the builder binds the tasks to generated invokers
+		final AnnotationRoleDescriptorBuilder builder = new AnnotationRoleDescriptorBuilder();
+		builder.setGenerateTaskInvokers( true );
+		final RoleDescriptor descriptor = builder.buildRoleDescriptor( role );
+		for (final IRoleTask task : descriptor.getTasks()){
+			final MethodTaskExecutor executor = (MethodTaskExecutor) task;
+			if (!(executor.getTaskInvoker() instanceof GeneratedTaskInvoker))
+				fail( "The task has not been bound to a generated invoker!" );
+
+			if (executor.getMethodToExecute().getName().equals( "exampleTask2" )){
+				final Object[] results = (Object[]) executor.execute()
+						.getTaskResult( true );
+				if (!"Task2".equals( results[0] )
+						|| !"Task3".equals( ((ITaskExecutionResult) results[1])
+								.getTaskResult( true ) ))
+					fail( "Wrong results from the generated invokers!" );
+			}
+		}
+	}
+
+	@Test
+	public void testSequentialSubTasks() throws WCException {
+		final MethodTaskExecutor mainTask = getMainTask();
+		mainTask.setParallelSubTasks( false );
+
+		final long start = System.currentTimeMillis();
+		final ITaskExecutionResult result = mainTask.execute();
+		final long elapsed = System.currentTimeMillis() - start;
+		checkResults( result );
+
+		if (elapsed < 1200)
+			fail( "The subtasks have not been executed one after another!" );
+	}
+}
@@ -11,12 +11,15 @@ import org.junit.Test;
 import whitecat.core.IProxyHandler;
 import whitecat.core.WhiteCat;
 import whitecat.core.agents.AgentProxy;
+import whitecat.core.agents.MovingProxyHandler;
 import whitecat.core.agents.ProxyHandlerFactory;
+import whitecat.core.agents.RoleMap;
 import whitecat.core.agents.WCAgent;
 import whitecat.core.exceptions.WCProxyException;
 import whitecat.example.CloneableAgentProxy;
 import whitecat.example.DBAgent;
 import whitecat.example.DBProxy;
+import whitecat.example.LoggerRole;
 
 /**
  * Test the proxy handler.
@@ -65,6 +68,81 @@ public class ProxyHandlerTest {
 
 	}
 
+	@Test
+	public void testMovingProxyHandler() throws WCProxyException {
+		final CloneableAgentProxy proxy1 = new CloneableAgentProxy(
+				new DBAgent() );
+		final LoggerRole role = new LoggerRole();
+		proxy1.addRoleImplementationReference( "logger", role );
+		final CloneableAgentProxy proxy2 = new CloneableAgentProxy(
+				new DBAgent() );
+
+		final MovingProxyHandler handler = new MovingProxyHandler();
+		handler.setSourceProxy( proxy1 );
+		handler.setDestinationProxy( proxy2 );
+		handler.updateProxy();
+
+		// the state must be moved, not duplicated
+		if ((proxy1.getIntegerArray() != proxy2.getIntegerArray())
+				|| (proxy1.getStringVariable() != proxy2.getStringVariable())
+				|| (proxy1.getIntegerVariable() != proxy2.getIntegerVariable()))
+			fail( "Proxy extended state not moved!" );
+
+		if (proxy2.getRoleImplementation( "logger" ) != role)
+			fail( "Role references not moved!" );
+
+		if (proxy1.getAgentProxyID() != proxy2.getAgentProxyID())
+			fail( "Agent proxy id not moved!" );
+
+		// a moving handler cannot be reused
+		try{
+			handler.setSourceProxy( proxy2 );
+			fail( "Moving proxy handler reused!" );
+		}catch (final WCProxyException e){
+			// ok
+		}
+	}
+
+	@Test
+	public void testSharedRoleMap() throws WCProxyException {
+		final DBProxy proxy1 = new DBProxy( new DBAgent() );
+		final LoggerRole[] roles = new LoggerRole[RoleMap.MAX_ARRAY_SIZE + 2];
+		for (int i = 0; i < roles.length; i++){
+			roles[i] = new LoggerRole();
+			proxy1.addRoleImplementationReference( "key" + i, roles[i] );
+		}
+
+		final DBProxy proxy2 = new DBProxy( new DBAgent() );
+		final IProxyHandler<DBProxy> handler = ProxyHandlerFactory
+				.getProxyHandler();
+		handler.setSourceProxy( proxy1 );
+		handler.setDestinationProxy( proxy2 );
+		handler.updateProxy();
+
+		for (int i = 0; i < roles.length; i++)
+			if (proxy2.getRoleImplementation( "key" + i ) != roles[i])
+				fail( "Role reference not copied!" );
+
+		// a role bound to the new proxy is not seen by the old one
+		proxy2.addRoleImplementationReference( "added", new LoggerRole() );
+		if ((proxy1.getRoleImplementation( "added" ) != null)
+				|| (proxy2.getRoleImplementation( "added" ) == null))
+			fail( "Role map shared after a change!" );
+
+		// removing roles gets back to the array based map
+		RoleMap map = RoleMap.EMPTY;
+		for (int i = 0; i < roles.length; i++)
+			map = map.with( "key" + i, roles[i] );
+		for (int i = 0; i < roles.length; i++){
+			map = map.without( "key" + i );
+			if ((map.size() != roles.length - i - 1)
+					|| (map.get( "key" + i ) != null))
+				fail( "Role not removed from the map!" );
+		}
+		if (map != RoleMap.EMPTY)
+			fail( "Empty map not shared!" );
+	}
+
 	@Test
 	public void testProxyHandler() throws WCProxyException {
 		// create a new proxy
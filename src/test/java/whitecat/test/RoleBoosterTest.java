@@ -40,15 +40,25 @@ package whitecat.test;
 
 import static org.junit.Assert.fail;
 
+import java.util.LinkedList;
+import java.util.List;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
 import org.junit.Before;
 import org.junit.Test;
 
 import whitecat.core.IRoleBooster;
+import whitecat.core.RoleBooster;
+import whitecat.core.RoleInjectionType;
 import whitecat.core.WCException;
 import whitecat.core.WhiteCat;
 import whitecat.core.agents.AgentProxy;
 import whitecat.core.agents.WCAgent;
 import whitecat.core.role.IRole;
+import whitecat.core.role.operation.RoleOperationImpl;
 import whitecat.example.DBAgent;
 import whitecat.example.DBProxy;
 import whitecat.example.DatabaseAdministrator;
@@ -77,6 +87,87 @@ public class RoleBoosterTest {
 		booster = WhiteCat.getRoleBooster();
 	}
 
+	/**
+	 * Injects a role with a new role booster, counting how many times the
+	 * booster reads the injection type of its role operation.
+	 * 
+	 * @return the number of reads of the injection type
+	 * @throws WCException
+	 *             if the injection fails
+	 */
+	private int countInjectionTypeReads() throws WCException {
+		final int[] reads = new int[1];
+		final RoleOperationImpl operation = new RoleOperationImpl() {
+
+			@Override
+			public RoleInjectionType getRoleInjectionType() {
+				reads[0]++;
+				return super.getRoleInjectionType();
+			}
+		};
+		operation.setAgentProxyHandler( WhiteCat.getProxyHandler() );
+		operation.setMethodForwarderGenerator( WhiteCat
+				.getMethodForwarderGenerator() );
+
+		final IRoleBooster roleBooster = WhiteCat.getRoleBooster();
+		roleBooster.setCurrentRoleOperation( operation );
+		roleBooster.injectPublicRole(
+				new DBAgent(),
+				new DBProxy(),
+				new DatabaseAdministrator() );
+		return reads[0];
+	}
+
+	@Test
+	public void testGuardedDebugTraces() throws WCException {
+		final Logger logger = Logger.getLogger( RoleBooster.class );
+		final Level level = logger.getLevel();
+		final List<LoggingEvent> traces = new LinkedList<LoggingEvent>();
+		final AppenderSkeleton appender = new AppenderSkeleton() {
+
+			@Override
+			protected void append(final LoggingEvent event) {
+				if (Level.DEBUG.equals( event.getLevel() ))
+					traces.add( event );
+			}
+
+			public void close() {
+				// nothing to release
+			}
+
+			public boolean requiresLayout() {
+				return false;
+			}
+		};
+		logger.addAppender( appender );
+
+		try{
+			// the shipped configuration logs at warn: no trace is recorded
+			logger.setLevel( Level.WARN );
+			final int quietReads = countInjectionTypeReads();
+			if (!traces.isEmpty())
+				fail( "Debug traces recorded at warn level!" );
+
+			logger.setLevel( Level.DEBUG );
+			final int tracedReads = countInjectionTypeReads();
+			int startTraces = 0;
+			for (final LoggingEvent trace : traces)
+				if (trace.getRenderedMessage()
+						.startsWith( "manipulation started:" ))
+					startTraces++;
+			if (startTraces == 0)
+				fail( "The manipulation has not been traced at debug level!" );
+
+			// the manipulation start trace is the only one that reads the
+			// injection type, so at warn level its message has not been built
+			if ((tracedReads - quietReads) != startTraces)
+				fail( "Debug traces built at warn level!" );
+		}finally{
+			logger.removeAppender( appender );
+			logger.setLevel( level );
+		}
+	}
+
 	@Test
 	public void testPublicRoleInjection() throws WCException {
 		// an agent proxy now should not have any public role interface
@@ -0,0 +1,185 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.test;
+
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import whitecat.core.InPlaceRoleBooster;
+import whitecat.core.ProxyStorageImpl;
+import whitecat.core.RoleBooster;
+import whitecat.core.WhiteCat;
+import whitecat.core.metrics.LatencyHistogram;
+import whitecat.core.metrics.RoleEngineMetrics;
+import whitecat.core.role.task.TaskInvokerGenerator;
+import whitecat.example.AnnotatedRoleExample;
+import whitecat.example.DBAgent;
+import whitecat.example.DBProxy;
+import whitecat.example.LoggerRole;
+
+/**
+ * Tests the role engine metrics and their JMX exposure.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public class RoleEngineMetricsTest {
+
+	@Test
+	public void testInPlaceOperationsCounted() throws Exception {
+		final InPlaceRoleBooster booster = new InPlaceRoleBooster();
+		booster.setRoleBooster( (RoleBooster) WhiteCat.getRoleBooster() );
+		final RoleEngineMetrics metrics = RoleEngineMetrics.getInstance();
+		final long injections = metrics.getPublicRoleInjections();
+		final long removals = metrics.getPublicRoleRemovals();
+
+		final DBAgent agent = new DBAgent();
+		final DBProxy proxy = new DBProxy( agent );
+		final LoggerRole role = new LoggerRole();
+		booster.injectPublicRole( agent, proxy, role );
+		booster.removePublicRole( agent, proxy, role );
+
+		if (metrics.getPublicRoleInjections() <= injections)
+			fail( "Injection not counted!" );
+		if (metrics.getPublicRoleRemovals() <= removals)
+			fail( "Removal not counted!" );
+	}
+
+	@Test
+	public void testInvokersCounted() throws Exception {
+		final RoleEngineMetrics metrics = RoleEngineMetrics.getInstance();
+		final Method method = AnnotatedRoleExample.class.getMethod(
+				"exampleTask1",
+				int.class );
+		TaskInvokerGenerator.bind( method, new AnnotatedRoleExample() );
+		final long generated = metrics.getGeneratedInvokers();
+		final long invokerHits = metrics.getInvokerCacheHits();
+		final long classHits = metrics.getClassCacheHits();
+		final long classes = metrics.getGeneratedClasses();
+
+		// the invoker of the method has already been generated
+		TaskInvokerGenerator.bind( method, new AnnotatedRoleExample() );
+		if ((metrics.getInvokerCacheHits() != invokerHits + 1)
+				|| (metrics.getGeneratedInvokers() != generated))
+			fail( "The invoker reuse has not been counted!" );
+		if ((metrics.getClassCacheHits() != classHits)
+				|| (metrics.getGeneratedClasses() != classes))
+			fail( "The invoker has been counted as a proxy class!" );
+	}
+
+	@Test
+	public void testLatencyHistogram() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		if ((histogram.getCount() != 0)
+				|| (histogram.getPercentileMicros( 99 ) != 0))
+			fail( "An empty histogram has samples!" );
+
+		// 99 samples of 3 microseconds and one of 1 millisecond
+		for (int i = 0; i < 99; i++)
+			histogram.record( 3000 );
+		histogram.record( 1000000 );
+
+		if (histogram.getCount() != 100)
+			fail( "Wrong number of samples!" );
+		if (histogram.getCounts()[2] != 99)
+			fail( "Samples in the wrong bucket!" );
+		if (histogram.getPercentileMicros( 50 ) != 4)
+			fail( "Wrong median!" );
+		if (histogram.getPercentileMicros( 100 ) != 1024)
+			fail( "Wrong maximum percentile!" );
+		if (histogram.getMaxMicros() != 1000)
+			fail( "Wrong maximum!" );
+
+		histogram.reset();
+		if (histogram.getCount() != 0)
+			fail( "Samples not discarded!" );
+	}
+
+	@Test
+	public void testLockWaiters() throws Exception {
+		final DBProxy proxy = new DBProxy( new DBAgent() );
+		final ProxyStorageImpl storage = ProxyStorageImpl.getInstance();
+		storage.storeAgentProxy( proxy );
+
+		final Thread waiter = new Thread() {
+			@Override
+			public void run() {
+				storage.lockAgentProxy( proxy, true, 10000 );
+			}
+		};
+		waiter.start();
+
+		for (int i = 0; (i < 100) && (storage.getLockWaiters() == 0); i++)
+			Thread.sleep( 50 );
+		if (RoleEngineMetrics.getInstance().getLockWaiters() != 1)
+			fail( "The waiting thread is not counted!" );
+
+		storage.unlockAgentProxy( proxy, true );
+		waiter.join( 5000 );
+		if (storage.getLockWaiters() != 0)
+			fail( "The waiting thread is still counted!" );
+	}
+
+	@Test
+	public void testMBeanRegistration() throws Exception {
+		WhiteCat.getConfiguration();
+
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		final ObjectName name = new ObjectName( RoleEngineMetrics.OBJECT_NAME );
+		if (!server.isRegistered( name ))
+			fail( "Metrics not registered!" );
+
+		final Object injections = server.getAttribute(
+				name,
+				"PublicRoleInjections" );
+		if (!(injections instanceof Long))
+			fail( "Cannot read the injections thru JMX!" );
+		if (!(server.getAttribute( name, "GenerationLatencyHistogram" ) instanceof long[]))
+			fail( "Cannot read the latency histogram thru JMX!" );
+		if (((Integer) server.getAttribute( name, "EventDispatchQueueDepth" )) != 0)
+			fail( "Events queued while nothing is dispatched!" );
+	}
+}
@@ -0,0 +1,167 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.test;
+
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import whitecat.core.IRoleBooster;
+import whitecat.core.InPlaceRoleBooster;
+import whitecat.core.RoleBooster;
+import whitecat.core.RoleInjectionType;
+import whitecat.core.RoleOperationPhase;
+import whitecat.core.WhiteCat;
+import whitecat.core.metrics.RoleEngineMetrics;
+import whitecat.core.metrics.RoleOperationTrace;
+import whitecat.core.metrics.RoleOperationTracer;
+import whitecat.example.DBAgent;
+import whitecat.example.DBProxy;
+import whitecat.example.LoggerRole;
+
+/**
+ * Tests the traces of the role operations.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public class RoleOperationTracerTest {
+
+	@Before
+	public void setUp() {
+		RoleOperationTracer.setCapacity( RoleOperationTracer.DEFAULT_CAPACITY );
+		RoleOperationTracer.setEnabled( true );
+	}
+
+	@After
+	public void tearDown() {
+		RoleOperationTracer.setCapacity( RoleOperationTracer.DEFAULT_CAPACITY );
+		RoleOperationTracer.setEnabled( true );
+	}
+
+	@Test
+	public void testDisabledTracing() {
+		RoleOperationTracer.setEnabled( false );
+		RoleOperationTracer.begin(
+				RoleInjectionType.ROLE_PUBLIC_INTERFACE_ADDITION_TO_PROXY,
+				null );
+		RoleOperationTracer.end( true );
+
+		if (!RoleOperationTracer.getTraces().isEmpty())
+			fail( "Operation traced while the tracing is disabled!" );
+		if (RoleEngineMetrics.getInstance().isTracingEnabled())
+			fail( "The metrics report the tracing as enabled!" );
+	}
+
+	@Test
+	public void testOperationTraced() throws Exception {
+		final InPlaceRoleBooster inPlace = new InPlaceRoleBooster();
+		inPlace.setRoleBooster( (RoleBooster) WhiteCat.getRoleBooster() );
+		final IRoleBooster booster = inPlace;
+		final DBAgent agent = new DBAgent();
+		final DBProxy proxy = new DBProxy( agent );
+
+		booster.injectPublicRole( agent, proxy, new LoggerRole() );
+
+		final List<RoleOperationTrace> traces = RoleOperationTracer
+				.getTraces();
+		if (traces.size() != 1)
+			fail( "The operation has not been traced once!" );
+
+		final RoleOperationTrace trace = traces.get( 0 );
+		if ((trace.getInjectionType() != RoleInjectionType.ROLE_PUBLIC_INTERFACE_ADDITION_TO_PROXY)
+				|| (trace.getProxyID() != proxy.getAgentProxyID()
+						.getSequenceID()) || !trace.isSuccessful())
+			fail( "Wrong trace data: " + trace );
+
+		long phases = 0;
+		for (final RoleOperationPhase phase : RoleOperationPhase.values())
+			phases += trace.getPhaseNanos( phase );
+		if ((trace.getDurationNanos() <= 0)
+				|| (phases > trace.getDurationNanos()))
+			fail( "Wrong trace times: " + trace );
+
+		if (RoleEngineMetrics.getInstance().dumpRoleOperationTraces().length != 1)
+			fail( "The trace cannot be dumped thru the metrics!" );
+	}
+
+	@Test
+	public void testRingBuffer() {
+		RoleOperationTracer.setCapacity( 2 );
+
+		// an inner operation is part of the outer one
+		RoleOperationTracer.begin(
+				RoleInjectionType.ROLE_PUBLIC_INTERFACE_ADDITION_TO_PROXY,
+				null );
+		RoleOperationTracer.begin(
+				RoleInjectionType.ROLE_ANNOTATION_ADDITION_TO_PROXY,
+				null );
+		RoleOperationTracer.phase( RoleOperationPhase.STATE_COPY, 10 );
+		RoleOperationTracer.end( true );
+		RoleOperationTracer.phase( RoleOperationPhase.STATE_COPY, 5 );
+		RoleOperationTracer.end( true );
+
+		List<RoleOperationTrace> traces = RoleOperationTracer.getTraces();
+		if ((traces.size() != 1)
+				|| (traces.get( 0 ).getInjectionType() != RoleInjectionType.ROLE_PUBLIC_INTERFACE_ADDITION_TO_PROXY)
+				|| (traces.get( 0 ).getPhaseNanos( RoleOperationPhase.STATE_COPY ) != 15))
+			fail( "Nested operations not traced as one!" );
+
+		// two more operations overwrite the first one
+		RoleOperationTracer.begin(
+				RoleInjectionType.ROLE_ANNOTATION_ADDITION_TO_PROXY,
+				null );
+		RoleOperationTracer.end( true );
+		RoleOperationTracer.begin(
+				RoleInjectionType.ROLE_ANNOTATION_REMOVAL_FROM_PROXY,
+				null );
+		RoleOperationTracer.end( false );
+
+		traces = RoleOperationTracer.getTraces();
+		if ((traces.size() != 2)
+				|| (traces.get( 0 ).getInjectionType() != RoleInjectionType.ROLE_ANNOTATION_ADDITION_TO_PROXY)
+				|| (traces.get( 1 ).getInjectionType() != RoleInjectionType.ROLE_ANNOTATION_REMOVAL_FROM_PROXY)
+				|| traces.get( 1 ).isSuccessful())
+			fail( "The ring buffer does not keep the last traces in order!" );
+	}
+}
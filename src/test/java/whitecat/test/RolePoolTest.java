@@ -0,0 +1,115 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.test;
+
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import whitecat.core.WCException;
+import whitecat.core.WhiteCat;
+import whitecat.core.annotations.PUBLICROLE;
+import whitecat.core.annotations.RoleScope;
+import whitecat.core.role.IRole;
+import whitecat.core.role.IRolePool;
+import whitecat.core.role.impl.RolePoolImpl;
+import whitecat.example.DatabaseAdministrator;
+import whitecat.example.LoggerRole;
+
+/**
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public class RolePoolTest {
+
+	/**
+	 * A stateless role kept in a pool.
+	 */
+	@PUBLICROLE(scope = RoleScope.POOLED)
+	public static class PooledRole implements IRole {
+	}
+
+	@Test
+	public void testPooledRoles() throws WCException {
+		final RolePoolImpl pool = new RolePoolImpl();
+		pool.setMaxIdleRoles( 1 );
+
+		if (pool.getRoleScope( PooledRole.class ) != RoleScope.POOLED)
+			fail( "Wrong scope for a pooled role!" );
+
+		final PooledRole first = pool.acquireRole( PooledRole.class );
+		final PooledRole second = pool.acquireRole( PooledRole.class );
+		if (first == second)
+			fail( "A leased role has been leased again!" );
+
+		// released instances are reused, up to the maximum idle count
+		if (!pool.releaseRole( first ) || pool.releaseRole( second ))
+			fail( "The idle roles have not been bounded!" );
+		if (pool.getIdleCount( PooledRole.class ) != 1)
+			fail( "Wrong number of idle roles!" );
+
+		if (pool.acquireRole( PooledRole.class ) != first)
+			fail( "The idle role has not been reused!" );
+
+		// roles not leased by the pool are not taken back
+		if (pool.releaseRole( new PooledRole() ) || pool.releaseRole( second ))
+			fail( "A role not leased has been taken back!" );
+	}
+
+	@Test
+	public void testRoleScopes() throws WCException {
+		final IRolePool pool = WhiteCat.getRolePool();
+		if (pool != WhiteCat.getRolePool())
+			fail( "The role pool is not unique!" );
+
+		// a stateless role is shared
+		final LoggerRole logger = pool.acquireRole( LoggerRole.class );
+		if (pool.acquireRole( LoggerRole.class ) != logger)
+			fail( "The singleton role has not been shared!" );
+		if (pool.releaseRole( logger ))
+			fail( "A singleton role has been released!" );
+
+		// the default is an instance for each agent
+		if (pool.getRoleScope( DatabaseAdministrator.class ) != RoleScope.PER_AGENT)
+			fail( "Wrong default scope!" );
+		if (pool.acquireRole( DatabaseAdministrator.class ) == pool
+				.acquireRole( DatabaseAdministrator.class ))
+			fail( "A role has been shared among agents!" );
+	}
+}
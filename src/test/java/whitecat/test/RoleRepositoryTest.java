@@ -40,6 +40,19 @@ package whitecat.test;
 
 import static org.junit.Assert.fail;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -47,8 +60,17 @@ import whitecat.core.WhiteCat;
 import whitecat.core.exceptions.WCRoleRepositoryException;
 import whitecat.core.role.IRole;
 import whitecat.core.role.IRoleRepository;
+import whitecat.core.role.RoleQuery;
+import whitecat.core.role.descriptors.IRoleDescriptorBuilder;
 import whitecat.core.role.descriptors.RoleDescriptor;
+import whitecat.core.role.impl.RoleClassScanner;
+import whitecat.core.role.impl.RoleRepositoryImpl;
+import whitecat.core.role.task.IRoleTask;
+import whitecat.core.role.task.MethodTaskExecutor;
+import whitecat.example.AnnotatedRoleExample;
+import whitecat.example.DBAgent;
 import whitecat.example.DatabaseAdministrator;
+import whitecat.example.LoggerRole;
 
 /**
  * @author Luca Ferrari - fluca1978 (at) gmail.com
@@ -112,4 +134,335 @@ public class RoleRepositoryTest {
 			fail( "The role is still in the repository!" );
 
 	}
+
+	@Test
+	public void testReverseIndex() throws WCRoleRepositoryException {
+		final IRoleRepository repository = new RoleRepositoryImpl();
+		final DatabaseAdministrator role = new DatabaseAdministrator();
+		final RoleDescriptor desc1 = RoleDescriptor.getInstance( "first",
+				"first", null, null, null );
+		final RoleDescriptor desc2 = RoleDescriptor.getInstance( "second",
+				"second", null, null, null );
+
+		if (!repository.installRole( desc1, role, false )
+				|| (repository.getRoleDescriptor( role ) != desc1))
+			fail( "Cannot find the descriptor of the installed role!" );
+
+		// the same role cannot be installed with another descriptor...
+		if (repository.installRole( desc2, role, false ))
+			fail( "Role installed twice without overriding!" );
+
+		// ...unless it is overridden, and in such case it moves to the new
+		// descriptor
+		if (!repository.installRole( desc2, role, true )
+				|| (repository.getRoleDescriptor( role ) != desc2)
+				|| (repository.findRole( desc1 ) != null)
+				|| (repository.getAvailableRoleDescriptors().size() != 1))
+			fail( "The overridden role has not moved to the new descriptor!" );
+
+		// replacing the role of a descriptor drops the old role from the index
+		final DatabaseAdministrator other = new DatabaseAdministrator();
+		repository.installRole( desc2, other, false );
+		if ((repository.getRoleDescriptor( role ) != null)
+				|| (repository.getRoleDescriptor( other ) != desc2))
+			fail( "The reverse index has not been updated!" );
+
+		if (!repository.removeRole( other )
+				|| (repository.getRoleDescriptor( other ) != null)
+				|| !repository.getAvailableRoleDescriptors().isEmpty())
+			fail( "The role has not been removed!" );
+	}
+
+	@Test
+	public void testConcurrentAccess() throws Exception {
+		final IRoleRepository repository = new RoleRepositoryImpl();
+		final int threads = 8;
+		final int iterations = 2000;
+
+		// a few descriptors shared by all the threads, so that they compete
+		// for the same installations
+		final RoleDescriptor[] shared = new RoleDescriptor[4];
+		for (int i = 0; i < shared.length; i++)
+			shared[i] = RoleDescriptor.getInstance( "shared" + i, "shared",
+					null, null, null );
+
+		final ExecutorService executor = Executors.newFixedThreadPool( threads );
+		try{
+			final List<Future<Integer>> futures = new LinkedList<Future<Integer>>();
+			for (int t = 0; t < threads; t++){
+				final int threadNumber = t;
+				futures.add( executor.submit( new Callable<Integer>() {
+
+					public Integer call() throws Exception {
+						int installed = 0;
+						for (int i = 0; i < iterations; i++){
+							// a private role, installed and removed
+							final DatabaseAdministrator role = new DatabaseAdministrator();
+							final RoleDescriptor desc = RoleDescriptor
+									.getInstance( "role-" + threadNumber + "-"
+											+ i, "private", null, null, null );
+							if (!repository.installRole( desc, role, false ))
+								fail( "Cannot install a private role!" );
+							if (repository.getRoleDescriptor( role ) != desc)
+								fail( "Wrong descriptor for a private role!" );
+							if (repository.findRole( desc ) != role)
+								fail( "Wrong role for a private descriptor!" );
+							if (!repository.removeRole( role ))
+								fail( "Cannot remove a private role!" );
+
+							// a shared descriptor, only one thread wins
+							final RoleDescriptor sharedDesc = shared[i
+									% shared.length];
+							final DatabaseAdministrator candidate = new DatabaseAdministrator();
+							final IRole winner = repository.installRoleIfAbsent(
+									sharedDesc, candidate );
+							if (winner == null){
+								installed++;
+								if (!repository.removeRole( sharedDesc ))
+									fail( "Cannot remove the installed shared role!" );
+							}else if (repository.getRoleDescriptor( candidate ) != null)
+								fail( "A losing role has been installed!" );
+						}
+
+						return installed;
+					}
+				} ) );
+			}
+
+			int installed = 0;
+			for (final Future<Integer> future : futures)
+				installed += future.get();
+
+			if (installed == 0)
+				fail( "No shared role has ever been installed!" );
+			if (!repository.getAvailableRoleDescriptors().isEmpty())
+				fail( "The repository still contains roles: "
+						+ repository.getAvailableRoleDescriptors().size() );
+		}finally{
+			executor.shutdown();
+		}
+
+		// replace only works on the expected role
+		final DatabaseAdministrator first = new DatabaseAdministrator();
+		final DatabaseAdministrator second = new DatabaseAdministrator();
+		repository.installRoleIfAbsent( shared[0], first );
+		if (repository.replaceRole( shared[0], second, second ))
+			fail( "Replaced a role that was not the expected one!" );
+		if (!repository.replaceRole( shared[0], first, second )
+				|| (repository.findRole( shared[0] ) != second)
+				|| (repository.getRoleDescriptor( first ) != null))
+			fail( "The role has not been replaced!" );
+	}
+
+	@Test
+	public void testQueries() throws WCRoleRepositoryException {
+		final IRoleRepository repository = new RoleRepositoryImpl();
+		repository.setRoleDescriptorBuilder( WhiteCat
+				.getRoleDescriptorBuilder() );
+
+		// a role with tasks, and a few roles with keywords only
+		final AnnotatedRoleExample annotatedRole = new AnnotatedRoleExample();
+		repository.installRole( annotatedRole, false );
+		final RoleDescriptor annotated = repository
+				.getRoleDescriptor( annotatedRole );
+
+		final RoleDescriptor red = RoleDescriptor.getInstance( "red", "red",
+				null, null, new HashSet<String>( Arrays.asList( "color",
+						"warm" ) ) );
+		final RoleDescriptor blue = RoleDescriptor.getInstance( "blue", "blue",
+				null, null, new HashSet<String>( Arrays.asList( "color",
+						"cold" ) ) );
+		repository.installRole( red, new DatabaseAdministrator(), false );
+		repository.installRole( blue, new DatabaseAdministrator(), false );
+
+		List<RoleDescriptor> found = repository
+				.findRoleDescriptors( new RoleQuery() );
+		if (found.size() != 3)
+			fail( "An empty query must match all the roles!" );
+
+		found = repository.findRoleDescriptors( new RoleQuery()
+				.withAllKeywords( "color", "warm" ) );
+		if ((found.size() != 1) || !found.contains( red ))
+			fail( "Wrong roles with all the keywords: " + found.size() );
+
+		found = repository.findRoleDescriptors( new RoleQuery()
+				.withAnyKeywords( "warm", "cold", "keyword1" ) );
+		if (found.size() != 3)
+			fail( "Wrong roles with any of the keywords: " + found.size() );
+
+		found = repository.findRoleDescriptors( new RoleQuery()
+				.withAllKeywords( "color", "missing" ) );
+		if (!found.isEmpty())
+			fail( "Found roles with a missing keyword!" );
+
+		// task conditions
+		found = repository.findRoleDescriptors( new RoleQuery()
+				.withTaskReturnType( int.class ).withTaskParameters( int.class ) );
+		if ((found.size() != 1) || !found.contains( annotated ))
+			fail( "Cannot find the role by its task signature!" );
+
+		found = repository.findRoleDescriptors( new RoleQuery()
+				.withTaskReturnType( CharSequence.class ).withTaskParameters() );
+		if ((found.size() != 1) || !found.contains( annotated ))
+			fail( "Cannot find the role by an assignable return type!" );
+
+		found = repository.findRoleDescriptors( new RoleQuery()
+				.withTaskReturnType( String.class )
+				.withTaskParameters( int.class ) );
+		if (!found.isEmpty())
+			fail( "The task conditions have matched different tasks!" );
+
+		// removed roles are not found anymore
+		repository.removeRole( red );
+		found = repository.findRoleDescriptors( new RoleQuery()
+				.withAnyKeywords( "color" ) );
+		if ((found.size() != 1) || !found.contains( blue ))
+			fail( "A removed role has been found!" );
+	}
+
+	@Test
+	public void testSnapshot() throws Exception {
+		final IRoleRepository repository = new RoleRepositoryImpl();
+		repository.setRoleDescriptorBuilder( WhiteCat
+				.getRoleDescriptorBuilder() );
+
+		final AnnotatedRoleExample annotatedRole = new AnnotatedRoleExample();
+		repository.installRole( annotatedRole, false );
+		final RoleDescriptor annotated = repository
+				.getRoleDescriptor( annotatedRole );
+
+		final File snapshot = File.createTempFile( "whitecat", ".snapshot" );
+		try{
+			repository.saveSnapshot( snapshot );
+
+			// restore the snapshot into an empty repository
+			final IRoleRepository restored = new RoleRepositoryImpl();
+			if (restored.loadSnapshot( snapshot, false ) != 1)
+				fail( "The role has not been restored!" );
+
+			final List<RoleDescriptor> descriptors = restored
+					.getAvailableRoleDescriptors();
+			if ((descriptors.size() != 1)
+					|| !descriptors.get( 0 ).equals( annotated )
+					|| !descriptors.get( 0 ).isImmutable())
+				fail( "The restored descriptor is different!" );
+
+			final RoleDescriptor descriptor = descriptors.get( 0 );
+			final IRole role = restored.findRole( descriptor );
+			if (!(role instanceof AnnotatedRoleExample) || (role == annotatedRole))
+				fail( "The role has not been instantiated again!" );
+
+			if (descriptor.getTaskDescriptors().size() != annotated
+					.getTaskDescriptors().size())
+				fail( "The tasks have not been restored!" );
+
+			// the tasks are bound to the new role, with their subtasks
+			int subTasks = 0;
+			for (final IRoleTask task : descriptor.getTasks()){
+				final MethodTaskExecutor executor = (MethodTaskExecutor) task;
+				if (executor.getExecutingRole() != role)
+					fail( "The task is not bound to the restored role!" );
+
+				subTasks += executor.getSubTasks().size();
+				if (!descriptor.getTaskDescriptor( task ).isImmutable())
+					fail( "The restored task descriptor is mutable!" );
+			}
+			if (subTasks != 1)
+				fail( "The subtasks have not been restored!" );
+
+			// a file that is not a snapshot is refused
+			final FileOutputStream output = new FileOutputStream( snapshot );
+			output.write( new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12 } );
+			output.close();
+			try{
+				restored.loadSnapshot( snapshot, true );
+				fail( "Loaded an invalid snapshot!" );
+			}catch (final WCRoleRepositoryException e){
+				// ok
+			}
+		}finally{
+			snapshot.delete();
+		}
+	}
+
+	@Test
+	public void testSnapshotVersion() throws Exception {
+		final IRoleRepository repository = new RoleRepositoryImpl();
+		final Date creationDate = new Date( 1000000000000L );
+		final RoleDescriptor saved = RoleDescriptor.newBuilder()
+				.withName( "versioned" ).withAim( "versioned" )
+				.withVersion( 3 ).withCreationDate( creationDate ).build();
+		repository.installRole( saved, new LoggerRole(), false );
+
+		final File snapshot = File.createTempFile( "whitecat", ".snapshot" );
+		try{
+			repository.saveSnapshot( snapshot );
+			final IRoleRepository restored = new RoleRepositoryImpl();
+			restored.loadSnapshot( snapshot, false );
+
+			final RoleDescriptor descriptor = restored
+					.getAvailableRoleDescriptors().get( 0 );
+			if ((descriptor.getVersion() != 3)
+					|| !creationDate.equals( descriptor.getCreationDate() ))
+				fail( "The version and the creation date have not been restored!" );
+			if (!descriptor.equals( saved ))
+				fail( "The restored descriptor is different!" );
+
+			// the file has been released and can be deleted
+			if (!snapshot.delete())
+				fail( "The snapshot file is still in use!" );
+		}finally{
+			snapshot.delete();
+		}
+	}
+
+	@Test
+	public void testScanner() throws WCRoleRepositoryException {
+		final RoleClassScanner scanner = new RoleClassScanner( WhiteCat
+				.getRoleDescriptorBuilder() );
+
+		// the role classes are found without loading them
+		final List<String> classNames = scanner
+				.scanPackages( "whitecat.example" );
+		if (!classNames.contains( AnnotatedRoleExample.class.getName() )
+				|| !classNames.contains( DatabaseAdministrator.class.getName() )
+				|| !classNames.contains( LoggerRole.class.getName() ))
+			fail( "The annotated roles have not been found: " + classNames );
+
+		if (classNames.contains( DBAgent.class.getName() ))
+			fail( "A class that is not a role has been found!" );
+
+		// only the roles with a descriptor annotation can be installed
+		final IRoleRepository repository = new RoleRepositoryImpl();
+		if (scanner.installRoles( repository, false, "whitecat.example" ) != 1)
+			fail( "The scanned role has not been installed!" );
+
+		final List<RoleDescriptor> descriptors = repository
+				.getAvailableRoleDescriptors();
+		if ((descriptors.size() != 1)
+				|| !(repository.findRole( descriptors.get( 0 ) ) instanceof AnnotatedRoleExample))
+			fail( "Wrong role installed by the scanner!" );
+	}
+
+	@Test
+	public void testScannerDescriptorCollision()
+												throws WCRoleRepositoryException {
+		// a builder that describes all the roles the same way
+		final RoleClassScanner scanner = new RoleClassScanner(
+				new IRoleDescriptorBuilder() {
+
+					public RoleDescriptor buildRoleDescriptor(final IRole role) {
+						return RoleDescriptor.newBuilder()
+								.withName( "colliding" ).withAim( "colliding" )
+								.build();
+					}
+				} );
+
+		final Map<RoleDescriptor, IRole> roles = scanner.buildRoles( Arrays
+				.asList( new String[] { LoggerRole.class.getName(),
+						DatabaseAdministrator.class.getName() } ) );
+		if ((roles.size() != 1)
+				|| !(roles.values().iterator().next() instanceof LoggerRole))
+			fail( "The colliding role has not been skipped: " + roles );
+	}
 }
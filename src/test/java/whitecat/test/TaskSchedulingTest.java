@@ -0,0 +1,308 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.test;
+
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import whitecat.core.WCException;
+import whitecat.core.WhiteCat;
+import whitecat.core.agents.AgentProxyID;
+import whitecat.core.event.Event;
+import whitecat.core.event.EventType;
+import whitecat.core.role.descriptors.RoleDescriptor;
+import whitecat.core.role.descriptors.TaskDescriptor;
+import whitecat.core.role.task.FutureTaskExecutionResultImpl;
+import whitecat.core.role.task.IRoleTask;
+import whitecat.core.role.task.ITaskExecutionResult;
+import whitecat.core.role.task.TaskExecutionResultImpl;
+import whitecat.core.role.task.scheduling.HashedWheelTimer;
+import whitecat.core.role.task.scheduling.ITaskScheduler;
+import whitecat.core.role.task.scheduling.ITimeout;
+import whitecat.core.role.task.scheduling.TaskSchedulingExecutor;
+import whitecat.core.role.task.scheduling.TaskSchedulingInstant;
+
+/**
+ * A test for the time based scheduling of the tasks.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public class TaskSchedulingTest {
+
+	/**
+	 * A task that counts its executions.
+	 */
+	class CountingTask implements IRoleTask {
+		final AtomicInteger	executions	= new AtomicInteger();
+
+		public boolean addSubTask(final IRoleTask toAdd) {
+			return false;
+		}
+
+		public void addTaskParameter(final Object parameter) {
+		}
+
+		public ITaskExecutionResult execute() throws WCException {
+			final ITaskExecutionResult result = WhiteCat
+					.getTaskExecutionResult();
+			result.setResult( executions.incrementAndGet() );
+			return result;
+		}
+
+		public boolean removeSubTask(final IRoleTask toRemove) {
+			return false;
+		}
+
+		public void resetParameters() {
+		}
+	}
+
+	/**
+	 * A task that does not return anything.
+	 */
+	class VoidTask extends CountingTask {
+
+		@Override
+		public ITaskExecutionResult execute() throws WCException {
+			executions.incrementAndGet();
+			final ITaskExecutionResult result = new TaskExecutionResultImpl();
+			result.setResult( null );
+			return result;
+		}
+	}
+
+	@Test
+	public void testHashedWheelTimer() throws InterruptedException {
+		final HashedWheelTimer timer = new HashedWheelTimer( 10,
+				TimeUnit.MILLISECONDS, 64 );
+		final int timeouts = 100000;
+		final CountDownLatch expired = new CountDownLatch( timeouts / 2 );
+		final AtomicInteger cancelledExpired = new AtomicInteger();
+
+		try{
+			// add a lot of timeouts spanning more than one wheel round, and
+			// cancel half of them (the ones far enough in the future)
+			final List<ITimeout> handles = new LinkedList<ITimeout>();
+			for (int i = 0; i < timeouts; i++){
+				final boolean toCancel = (i % 2) == 1;
+				final ITimeout timeout = timer.newTimeout( new Runnable() {
+					public void run() {
+						if (toCancel)
+							cancelledExpired.incrementAndGet();
+						else expired.countDown();
+					}
+				}, (toCancel ? 1000 : 0) + (i % 500), TimeUnit.MILLISECONDS );
+
+				if (toCancel)
+					handles.add( timeout );
+			}
+
+			for (final ITimeout timeout : handles)
+				if (!timeout.cancel())
+					fail( "Cannot cancel a pending timeout!" );
+
+			if (!expired.await( 10, TimeUnit.SECONDS ))
+				fail( "Not all the timeouts have expired, missing "
+						+ expired.getCount() );
+
+			// give time to the cancelled timeouts to expire, if they could
+			Thread.sleep( 1000 );
+			if (cancelledExpired.get() > 0)
+				fail( "Cancelled timeouts have expired!" );
+
+			if (timer.getPendingTimeouts() != 0)
+				fail( "The timer still has pending timeouts!" );
+		}finally{
+			timer.stop();
+		}
+	}
+
+	@Test
+	public void testPeriodicTaskBoundToRole() throws WCException,
+												InterruptedException {
+		final CountingTask task = new CountingTask();
+		final Map<IRoleTask, TaskDescriptor> tasks = new HashMap<IRoleTask, TaskDescriptor>();
+		tasks.put( task, TaskDescriptor.getInstance( "counting", "counting",
+				null, null ) );
+		final RoleDescriptor descriptor = RoleDescriptor.getInstance(
+				"periodic", "periodic", tasks, null, null );
+		final AgentProxyID proxyID = AgentProxyID.getNextAgentProxyID();
+
+		final ITaskScheduler scheduler = WhiteCat.getTaskScheduler();
+		final ITaskExecutionResult result = WhiteCat.getTaskExecutionResult();
+
+		// a time based instant cannot be scheduled without a time
+		try{
+			scheduler.scheduleTask( task, proxyID,
+					TaskSchedulingExecutor.EXECUTE_BY_EXACT_AGENT,
+					TaskSchedulingInstant.SCHEDULE_PERIODICALLY_WHILE_ROLE_HELD,
+					result );
+			fail( "Scheduled a periodic task without a period!" );
+		}catch (final WCException e){
+			// ok
+		}
+
+		if (!scheduler.scheduleTask( task, proxyID,
+				TaskSchedulingExecutor.EXECUTE_BY_EXACT_AGENT,
+				TaskSchedulingInstant.SCHEDULE_PERIODICALLY_WHILE_ROLE_HELD,
+				200, TimeUnit.MILLISECONDS, result ))
+			fail( "Cannot schedule a periodic task!" );
+
+		// nothing happens until the role is assumed
+		Thread.sleep( 500 );
+		if (task.executions.get() != 0)
+			fail( "The task has been executed before the role assumption!" );
+
+		// simulate the role assumption
+		((whitecat.core.event.EventListener) scheduler).handleEvent( Event
+				.createEvent( proxyID, EventType.PUBLIC_ROLE_ADDED, descriptor ) );
+
+		if (result.getTaskResult( 5000 ) == null)
+			fail( "The periodic task has not been executed!" );
+		Thread.sleep( 1000 );
+		if (task.executions.get() < 2)
+			fail( "The periodic task has not been executed more times!" );
+
+		// only the first execution is reported
+		if (!Integer.valueOf( 1 ).equals( result.getTaskResult( false ) ))
+			fail( "The result is not the one of the first execution!" );
+
+		// simulate the role release, the task must stop
+		((whitecat.core.event.EventListener) scheduler).handleEvent( Event
+				.createEvent( proxyID, EventType.PUBLIC_ROLE_REMOVING,
+						descriptor ) );
+		Thread.sleep( 300 );
+		final int executions = task.executions.get();
+		Thread.sleep( 1000 );
+		if (task.executions.get() != executions)
+			fail( "The periodic task has been executed after the role release!" );
+	}
+
+	@Test
+	public void testPendingTaskResult() throws WCException {
+		// a task that hands back a result completed later
+		final FutureTaskExecutionResultImpl pending = new FutureTaskExecutionResultImpl();
+		final CountingTask task = new CountingTask() {
+
+			@Override
+			public ITaskExecutionResult execute() throws WCException {
+				executions.incrementAndGet();
+				return pending;
+			}
+		};
+		final Map<IRoleTask, TaskDescriptor> tasks = new HashMap<IRoleTask, TaskDescriptor>();
+		tasks.put( task, TaskDescriptor.getInstance( "pending", "pending",
+				null, null ) );
+		final RoleDescriptor descriptor = RoleDescriptor.getInstance(
+				"pendingRole", "pendingRole", tasks, null, null );
+		final AgentProxyID proxyID = AgentProxyID.getNextAgentProxyID();
+
+		final ITaskScheduler scheduler = WhiteCat.getTaskScheduler();
+		final ITaskExecutionResult result = new TaskExecutionResultImpl();
+		if (!scheduler.scheduleTask( task, proxyID,
+				TaskSchedulingExecutor.EXECUTE_BY_EXACT_AGENT,
+				TaskSchedulingInstant.SCHEDULE_AT_ROLE_ASSUMPTION, result ))
+			fail( "Cannot schedule the task!" );
+
+		((whitecat.core.event.EventListener) scheduler).handleEvent( Event
+				.createEvent( proxyID, EventType.PUBLIC_ROLE_ADDED, descriptor ) );
+
+		// the result is not reported until the task result is completed
+		final long deadline = System.currentTimeMillis() + 5000;
+		while ((task.executions.get() == 0)
+				&& (System.currentTimeMillis() < deadline))
+			result.getTaskResult( 50 );
+		if (result.getTaskResult( 200 ) != null)
+			fail( "A pending result has been reported!" );
+		if (result.isResultAvailable())
+			fail( "A pending result has been cancelled!" );
+
+		pending.setResult( "done" );
+		if (!"done".equals( result.getTaskResult( 5000 ) ))
+			fail( "The pending result has not been reported!" );
+	}
+
+	@Test
+	public void testVoidTaskResult() throws WCException {
+		final VoidTask task = new VoidTask();
+		final Map<IRoleTask, TaskDescriptor> tasks = new HashMap<IRoleTask, TaskDescriptor>();
+		tasks.put( task, TaskDescriptor.getInstance( "void", "void", null,
+				null ) );
+		final RoleDescriptor descriptor = RoleDescriptor.getInstance(
+				"voidRole", "voidRole", tasks, null, null );
+		final AgentProxyID proxyID = AgentProxyID.getNextAgentProxyID();
+
+		final ITaskScheduler scheduler = WhiteCat.getTaskScheduler();
+		final ITaskExecutionResult result = new TaskExecutionResultImpl();
+		if (!scheduler.scheduleTask( task, proxyID,
+				TaskSchedulingExecutor.EXECUTE_BY_EXACT_AGENT,
+				TaskSchedulingInstant.SCHEDULE_AT_ROLE_ASSUMPTION, result ))
+			fail( "Cannot schedule the task!" );
+
+		// simulate the role assumption
+		((whitecat.core.event.EventListener) scheduler).handleEvent( Event
+				.createEvent( proxyID, EventType.PUBLIC_ROLE_ADDED, descriptor ) );
+
+		// the caller must be released even if the task has no result (the
+		// plain result wakes up the waiting callers also when the null result
+		// is placed, so wait until it is available)
+		final long deadline = System.currentTimeMillis() + 5000;
+		while (!result.isResultAvailable()
+				&& (System.currentTimeMillis() < deadline))
+			if (result.getTaskResult( 100 ) != null)
+				fail( "The void task has a result!" );
+
+		if (!result.isResultAvailable())
+			fail( "The result of the void task is not available!" );
+		if (((TaskExecutionResultImpl) result).isCancelled())
+			fail( "The void task has been reported as cancelled!" );
+		if (task.executions.get() != 1)
+			fail( "The void task has not been executed once!" );
+	}
+}
@@ -0,0 +1,162 @@
+/* 
+ * WhiteCat - A dynamic role injector for agents.
+ *
+ * This project represents a new implementation of the so called BlackCat,
+ * a project I made during my thesis degree. For more information about such project please see:
+ * 
+ *   L. Ferrari et al.
+ *   Injecting Roles in Java Agents Through Run-Time Bytecode Manipulation
+ *   IBM Systems Journal, Vol. 44, No. 1, pp.185-208, 2005
+ *
+ * This new approach exploits a completely different implementation, keeping the
+ * same idea of BlackCat.
+ * 
+ * See also the following paper for a better introduction to WhiteCat:
+ *    L. Ferrari, and H., Zhu, 
+ *    Autonomous Role Discovery for Collaborating Agents
+ *    Software Practice and Experience
+ *    2011
+ *
+ *
+ * 
+ *
+ * Copyright (C) Luca Ferrari 2006-2013 - fluca1978 (at) gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package whitecat.test;
+
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import whitecat.core.IPrototypeFactory;
+import whitecat.core.IRoleBooster;
+import whitecat.core.IWhiteCatConfiguration;
+import whitecat.core.InPlaceRoleBooster;
+import whitecat.core.PrototypeFactoryGenerator;
+import whitecat.core.WhiteCat;
+import whitecat.core.WhiteCatConfiguration;
+import whitecat.core.role.IRoleRepository;
+import whitecat.core.role.impl.RoleRepositoryImpl;
+import whitecat.core.role.task.FutureTaskExecutionResultImpl;
+import whitecat.core.role.task.ITaskExecutionResult;
+import whitecat.example.DBProxy;
+import whitecat.example.LoggerRole;
+
+/**
+ * Tests the bean lookups of the WhiteCat facade.
+ * 
+ * @author Luca Ferrari - fluca1978 (at) gmail.com
+ * 
+ */
+public class WhiteCatTest {
+
+	@Test
+	public void testGeneratedFactory() {
+		final IPrototypeFactory factory = PrototypeFactoryGenerator
+				.generate( LoggerRole.class );
+		if (factory == null)
+			fail( "Factory not generated!" );
+
+		final Object first = factory.newInstance();
+		final Object second = factory.newInstance();
+		if (!(first instanceof LoggerRole) || !(second instanceof LoggerRole)
+				|| (first == second))
+			fail( "The factory does not create new instances!" );
+
+		// a class without a public default constructor cannot be generated
+		if (PrototypeFactoryGenerator.generate( IRoleBooster.class ) != null)
+			fail( "Factory generated for an interface!" );
+		if (PrototypeFactoryGenerator.generate( WhiteCatTest.Hidden.class ) != null)
+			fail( "Factory generated for a non public class!" );
+		if (PrototypeFactoryGenerator.generate( DBProxy.class ) == null)
+			fail( "Factory not generated for a proxy!" );
+	}
+
+	@Test
+	public void testProgrammaticConfiguration() {
+		final IWhiteCatConfiguration previous = WhiteCat.getConfiguration();
+		try{
+			final IRoleRepository repository = new RoleRepositoryImpl();
+			final WhiteCatConfiguration.Builder builder = WhiteCatConfiguration
+					.newBuilder().withInPlaceRoleBooster( true )
+					.withRoleRepository( repository );
+			final WhiteCatConfiguration configuration = builder.build();
+
+			// a built configuration does not change if the builder is reused
+			final WhiteCatConfiguration other = builder
+					.withRoleRepository( new RoleRepositoryImpl() ).build();
+			if ((other == configuration)
+					|| (configuration.getRoleRepository() != repository)
+					|| (other.getRoleRepository() == repository)
+					|| (other.getRolePool() == configuration.getRolePool()))
+				fail( "The builder changed a built configuration!" );
+
+			WhiteCat.configure( configuration );
+
+			if ((WhiteCat.getRoleRepository() != repository)
+					|| (WhiteCat.getRolePool() == null)
+					|| (WhiteCat.getRolePool() != WhiteCat.getRolePool())
+					|| (WhiteCat.getProxyStorage() != previous
+							.getProxyStorage()))
+				fail( "Wrong singleton components!" );
+
+			final IRoleBooster booster = WhiteCat.getRoleBooster();
+			if (!(booster instanceof InPlaceRoleBooster)
+					|| (booster.getCurrentRoleOperation() == null)
+					|| (booster.getCurrentRoleOperation()
+							.getAgentProxyHandler() == null))
+				fail( "Role booster not configured!" );
+
+			if (!(WhiteCat.getTaskExecutionResult() instanceof FutureTaskExecutionResultImpl)
+					|| (WhiteCat.getTaskScheduler() == WhiteCat
+							.getTaskScheduler()))
+				fail( "Wrong prototype components!" );
+		}finally{
+			WhiteCat.configure( previous );
+		}
+	}
+
+	@Test
+	public void testPrototypeLookup() {
+		// plain prototypes are new instances each time
+		final ITaskExecutionResult first = WhiteCat.getTaskExecutionResult();
+		final ITaskExecutionResult second = WhiteCat.getTaskExecutionResult();
+		if (!(first instanceof FutureTaskExecutionResultImpl)
+				|| (first == second))
+			fail( "Wrong task execution results!" );
+
+		// configured prototypes are still configured by the bean factory
+		final IRoleBooster booster = WhiteCat.getRoleBooster();
+		if ((booster == WhiteCat.getRoleBooster())
+				|| (booster.getCurrentRoleOperation() == null))
+			fail( "Role booster not configured!" );
+	}
+
+	@Test
+	public void testSingletonLookup() {
+		if ((WhiteCat.getProxyStorage() != WhiteCat.getProxyStorage())
+				|| (WhiteCat.getRoleRepository() != WhiteCat.getRoleRepository())
+				|| (WhiteCat.getRolePool() != WhiteCat.getRolePool()))
+			fail( "Singleton beans not shared!" );
+	}
+
+	/**
+	 * A class that cannot be instantiated by a generated factory.
+	 */
+	static class Hidden {
+	}
+}